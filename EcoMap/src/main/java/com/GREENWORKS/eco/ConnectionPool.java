@@ -0,0 +1,232 @@
+package com.GREENWORKS.eco;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.constants.DatabaseConstants;
+import com.GREENWORKS.eco.constants.PagingConstants;
+import com.GREENWORKS.eco.constants.PoolConstants;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/***
+ * This class houses the single connection pool that the application draws its database connections
+ * from. Both MysqlConnect and the Hibernate SessionFactory borrow from this pool, so the TCP and
+ * authentication handshake is paid once per physical connection rather than once per query.
+ *
+ * Connections are validated on borrow, connections that are held too long are reported as leaks, and
+ * Connector/J caches the prepared statements of each physical connection.
+ *
+ * When a replica is configured, read-only work is served from a second pool against the replica.
+ */
+public class ConnectionPool {
+
+    private static HikariDataSource dataSource;
+    private static PoolMetricsTracker metricsTracker;
+    private static HikariDataSource replicaDataSource;
+
+    /***
+     * The pool is not meant to be instantiated. All access is through the static methods.
+     */
+    private ConnectionPool() {
+
+    }
+
+    /***
+     * This method returns the pooled DataSource. The pool is created on the first call.
+     * @return Returns the shared DataSource.
+     */
+    public static synchronized DataSource getDataSource() {
+        if (dataSource == null) {
+            metricsTracker = new PoolMetricsTracker();
+            dataSource = new HikariDataSource(createConfig());
+            Logger.info("Connection pool " + PoolConstants.POOL_NAME + " started.");
+        }
+        return dataSource;
+    }
+
+    /***
+     * This method returns the DataSource that read-only work is served from. When
+     * PoolConstants.REPLICA_DATABASE_URL is set this is a separate pool against the replica, otherwise it is
+     * the primary pool.
+     * @return Returns the DataSource for reads.
+     */
+    public static synchronized DataSource getReadDataSource() {
+        if (!isReplicaConfigured()) {
+            return getDataSource();
+        }
+        if (replicaDataSource == null) {
+            HikariConfig config = createConfig();
+            config.setPoolName(PoolConstants.REPLICA_POOL_NAME);
+            config.setJdbcUrl(PoolConstants.REPLICA_DATABASE_URL);
+            config.setMaximumPoolSize(PoolConstants.REPLICA_MAXIMUM_POOL_SIZE);
+            config.setReadOnly(true);
+            config.setMetricsTrackerFactory(null); // The tracker counts primary borrows only.
+            replicaDataSource = new HikariDataSource(config);
+            Logger.info("Connection pool " + PoolConstants.REPLICA_POOL_NAME + " started.");
+        }
+        return replicaDataSource;
+    }
+
+    /***
+     * This method reports whether reads are served from a separate replica.
+     * @return Returns true if a replica url is configured.
+     */
+    public static boolean isReplicaConfigured() {
+        return !PoolConstants.REPLICA_DATABASE_URL.isEmpty();
+    }
+
+    /***
+     * This method borrows a read-only connection from the read DataSource. The connection is marked
+     * read-only, so the driver and MySQL can refuse writes and skip the bookkeeping of a write transaction.
+     * The pool restores the flag when the connection is handed back.
+     * @return Returns a validated, read-only connection.
+     * @throws SQLException If no connection could be borrowed within the connection timeout.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        Connection connection = getReadDataSource().getConnection();
+        connection.setReadOnly(true);
+        return connection;
+    }
+
+    /***
+     * This method borrows a connection from the pool. Closing the returned connection hands it back
+     * to the pool rather than closing the physical connection.
+     * @return Returns a validated connection.
+     * @throws SQLException If no connection could be borrowed within the connection timeout.
+     */
+    public static Connection getConnection() throws SQLException {
+        return getDataSource().getConnection();
+    }
+
+    /***
+     * This method closes the pool and every physical connection that it holds. It should be called
+     * when the application is shut down.
+     */
+    public static synchronized void close() {
+        if (replicaDataSource != null) {
+            replicaDataSource.close();
+            replicaDataSource = null;
+            Logger.info("Connection pool " + PoolConstants.REPLICA_POOL_NAME + " closed.");
+        }
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+            Logger.info("Connection pool " + PoolConstants.POOL_NAME + " closed.");
+        }
+    }
+
+    /***
+     * The Connector/J properties that are applied to every physical connection. Connector/J does not
+     * honor MaxPooledStatements, the statement cache is controlled by cachePrepStmts and prepStmtCacheSize.
+     * @return Returns the driver properties.
+     */
+    public static Properties createDriverProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("user", DatabaseConstants.USERNAME);
+        properties.setProperty("password", DatabaseConstants.PASSWORD);
+        properties.setProperty("cachePrepStmts", PoolConstants.CACHE_PREPARED_STATEMENTS);
+        properties.setProperty("useServerPrepStmts", PoolConstants.USE_SERVER_PREPARED_STATEMENTS);
+        properties.setProperty("prepStmtCacheSize", DatabaseConstants.MAX_POOL);
+        properties.setProperty("prepStmtCacheSqlLimit", PoolConstants.PREPARED_STATEMENT_CACHE_SQL_LIMIT);
+        properties.setProperty("useCursorFetch", PagingConstants.USE_CURSOR_FETCH);
+        return properties;
+    }
+
+    /***
+     * This method assembles the pool configuration from the DatabaseConstants and the PoolConstants.
+     * @return Returns the pool configuration.
+     */
+    private static HikariConfig createConfig() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(PoolConstants.POOL_NAME);
+        config.setDriverClassName(DatabaseConstants.DATABASE_DRIVER);
+        config.setJdbcUrl(DatabaseConstants.DATABASE_URL);
+        config.setUsername(DatabaseConstants.USERNAME);
+        config.setPassword(DatabaseConstants.PASSWORD);
+        config.setDataSourceProperties(createDriverProperties());
+        config.setMinimumIdle(PoolConstants.MINIMUM_IDLE);
+        config.setMaximumPoolSize(PoolConstants.MAXIMUM_POOL_SIZE);
+        config.setConnectionTimeout(PoolConstants.CONNECTION_TIMEOUT);
+        config.setValidationTimeout(PoolConstants.VALIDATION_TIMEOUT);
+        config.setIdleTimeout(PoolConstants.IDLE_TIMEOUT);
+        config.setMaxLifetime(PoolConstants.MAX_LIFETIME);
+        config.setLeakDetectionThreshold(PoolConstants.LEAK_DETECTION_THRESHOLD);
+        config.setMetricsTrackerFactory((poolName, poolStats) -> metricsTracker);
+        return config;
+    }
+
+    /***
+     * Accessor for the number of connections that are currently borrowed.
+     * @return Returns the active connection count.
+     */
+    public static int getActiveConnections() {
+        HikariPoolMXBean pool = getPoolBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+
+    /***
+     * Accessor for the number of connections that are currently sitting in the pool.
+     * @return Returns the idle connection count.
+     */
+    public static int getIdleConnections() {
+        HikariPoolMXBean pool = getPoolBean();
+        return pool == null ? 0 : pool.getIdleConnections();
+    }
+
+    /***
+     * Accessor for the number of physical connections that the pool holds.
+     * @return Returns the total connection count.
+     */
+    public static int getTotalConnections() {
+        HikariPoolMXBean pool = getPoolBean();
+        return pool == null ? 0 : pool.getTotalConnections();
+    }
+
+    /***
+     * Accessor for the number of threads that are blocked waiting on a connection.
+     * @return Returns the waiting thread count.
+     */
+    public static int getThreadsAwaitingConnection() {
+        HikariPoolMXBean pool = getPoolBean();
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    /***
+     * Accessor for the number of replica connections that are currently borrowed.
+     * @return Returns the active connection count, or 0 if no replica pool is running.
+     */
+    public static synchronized int getReplicaActiveConnections() {
+        return replicaDataSource == null ? 0 : replicaDataSource.getHikariPoolMXBean().getActiveConnections();
+    }
+
+    /***
+     * Accessor for the number of physical connections that the replica pool holds.
+     * @return Returns the total connection count, or 0 if no replica pool is running.
+     */
+    public static synchronized int getReplicaTotalConnections() {
+        return replicaDataSource == null ? 0 : replicaDataSource.getHikariPoolMXBean().getTotalConnections();
+    }
+
+    /***
+     * Accessor for the cumulative borrow timings and timeouts.
+     * @return Returns the metrics tracker, or null if the pool has not been started.
+     */
+    public static synchronized PoolMetricsTracker getMetricsTracker() {
+        return metricsTracker;
+    }
+
+    /***
+     * Accessor for the management bean of the running pool.
+     * @return Returns the management bean, or null if the pool has not been started.
+     */
+    private static synchronized HikariPoolMXBean getPoolBean() {
+        return dataSource == null ? null : dataSource.getHikariPoolMXBean();
+    }
+}
@@ -1,16 +1,15 @@
 package com.GREENWORKS.eco;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
 import org.tinylog.Logger;
 
-import com.GREENWORKS.eco.constants.DatabaseConstants;
-
 /***
- * This class houses methods that handle database connection. 
+ * This class houses methods that handle database connection. Connections are borrowed from the
+ * shared ConnectionPool, so disconnecting hands the connection back to the pool instead of closing 
+ * the physical connection. 
  */
 public class MysqlConnect {
     // Init database variables
@@ -21,26 +20,24 @@ public class MysqlConnect {
     private Properties properties;
 
     /***
-     * Database properties are assigned to the properties instance variable in this method. 
-     * @return Returns the properties object with set properties. 
+     * Database properties are assigned to the properties instance variable in this method. These are 
+     * the same driver properties that the ConnectionPool applies to its physical connections. The 
+     * connection no longer needs them, connect() only assigns them so that getProperties() reports what 
+     * a connection was opened with, which MysqlConnectTests checks. 
      */
-    private Properties assignProperties()
+    private void assignProperties()
     {
         if (properties == null)
         {
-            properties = new Properties();
-            properties.setProperty("user", DatabaseConstants.USERNAME);
-            properties.setProperty("password", DatabaseConstants.PASSWORD);
-            properties.setProperty("MaxPooledStatements", DatabaseConstants.MAX_POOL);
+            properties = ConnectionPool.createDriverProperties();
         }
-        return properties;
     }
 
     /***
      * This method performs a null check on the connection object. If at the point of method
-     * call the connection object is null then the connection object will have its variables
-     * fulfilled. If the connection object is not null then it can be assumed that the 
-     * connection object has already had its variables fulfilled. 
+     * call the connection object is null then a connection is borrowed from the ConnectionPool. 
+     * If the connection object is not null then it can be assumed that the connection object 
+     * has already been borrowed. 
      * @return Returns a connection object that is not null. 
      */
     public Connection connect()
@@ -49,11 +46,11 @@ public class MysqlConnect {
         {
             try
             {
-                Class.forName(DatabaseConstants.DATABASE_DRIVER);
-                connection = DriverManager.getConnection(DatabaseConstants.DATABASE_URL, assignProperties());
-                Logger.info("Database connection object created.");
+                assignProperties(); // Only for getProperties(), the pool applies its own copy. 
+                connection = ConnectionPool.getConnection();
+                Logger.info("Database connection object borrowed from the pool.");
             }
-            catch (ClassNotFoundException | SQLException e)
+            catch (SQLException e)
             {
                 e.printStackTrace();
             }
@@ -63,7 +60,7 @@ public class MysqlConnect {
 
     /***
      * This method handles the requirements for disconnecting from the database. Disconnecton is achieved by 
-     * closing the connection and then nullifying the connection. 
+     * closing the connection, which returns it to the pool, and then nullifying the connection. 
      */
     public void disconnect()
     {
@@ -73,7 +70,7 @@ public class MysqlConnect {
             {
                 connection.close();
                 connection = null;
-                Logger.info("Database connection object has been disconnected.");
+                Logger.info("Database connection object has been returned to the pool.");
             }
             catch (SQLException e)
             {
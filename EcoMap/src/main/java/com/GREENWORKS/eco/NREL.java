@@ -4,8 +4,6 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
 
@@ -22,27 +20,6 @@ public class NREL {
         private static final String GET_URL = "https://developer.nrel.gov/api/alt-fuel-stations/v1.json?fuel_type=ELEC&state=FL&zip=32789,32801,32803,32804,32805,32806,32807,32808,32809,32810,32811,32812,32814,32819,32822,32824,32827,32829,32832,32835,32839&ev_network=Greenlots&limit=100&api_key=" + Cred.NRELAPIKEY;
     
         public static void main(String args[]) {
-        // Include MYSQL
-        MysqlConnect mysqlConnect = new MysqlConnect();
-
-        // Delete all API items from DB
-        String sql = "DELETE FROM locations WHERE api = 3"; // API is 3 for NREL
-        try
-        {
-            PreparedStatement statement = mysqlConnect.connect().prepareStatement(sql);
-            statement.executeUpdate();
-            
-        }
-        catch (SQLException e)
-        {
-            e.printStackTrace();
-        }
-        finally
-        {
-            mysqlConnect.disconnect();
-        }
-
-
             // Set up the JSON String
             String jsonString = "";
             
@@ -127,6 +104,7 @@ public class NREL {
     
                     Pin pin = new GenericPin();
                     pin.setApi((byte) 3);
+                    pin.setExternalId(String.valueOf(fuelstation.id)); // Keys the record for the sync.
                     pin.setIconId(3);
                     pin.setLocationName(name);
                     pin.setStreet(street);
@@ -147,7 +125,7 @@ public class NREL {
             }
 
             SessionAssistant SessionAssistant = new SessionAssistant();
-            SessionAssistant.saveList(pinList);
+            SessionAssistant.loadApiPins((byte) 3, pinList); // Staged, validated, then published in one transaction.
             
         }
 }
@@ -4,8 +4,6 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 
 import com.GREENWORKS.eco.data.GenericPin;
@@ -23,26 +21,6 @@ public class OpenCharge {
 
     public static void main(String args[]) {
 
-        // Include MYSQL
-        MysqlConnect mysqlConnect = new MysqlConnect();
-
-        // Delete all API items from DB
-        String sql = "DELETE FROM locations WHERE api = 1";
-        try
-        {
-            PreparedStatement statement = mysqlConnect.connect().prepareStatement(sql);
-            statement.executeUpdate();
-            
-        }
-        catch (SQLException e)
-        {
-            e.printStackTrace();
-        }
-        finally
-        {
-            mysqlConnect.disconnect();
-        }
-
         // Set up the JSON String
         String jsonString = "";
 
@@ -142,6 +120,7 @@ public class OpenCharge {
 
                 Pin pin = new GenericPin();
                 pin.setApi((byte) 1);
+                pin.setExternalId(String.valueOf(data[i].ID)); // Keys the record for the sync.
                 pin.setIconId(1);
                 pin.setLocationName(name);
                 pin.setStreet(street);
@@ -161,7 +140,7 @@ public class OpenCharge {
             }
         }
         SessionAssistant SessionAssistant = new SessionAssistant();
-        SessionAssistant.saveList(pinList);
+        SessionAssistant.loadApiPins((byte) 1, pinList); // Staged, validated, then published in one transaction.
     }
 }
 
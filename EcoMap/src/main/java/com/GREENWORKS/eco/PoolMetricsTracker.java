@@ -0,0 +1,108 @@
+package com.GREENWORKS.eco;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+/***
+ * This class receives the borrow timings and timeout events from the connection pool. The pool
+ * itself only reports point-in-time gauges (active, idle, waiting) so the cumulative counters that
+ * are needed to see contention over time are kept here.
+ */
+public class PoolMetricsTracker implements IMetricsTracker {
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    /***
+     * Called by the pool every time a physical connection is opened.
+     * @param connectionCreatedMillis The time that the connection took to open.
+     */
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        connectionsCreated.increment();
+    }
+
+    /***
+     * Called by the pool every time a connection is borrowed. The elapsed time is the time that the
+     * caller spent waiting for the connection.
+     * @param elapsedAcquiredNanos The time spent waiting in nanoseconds.
+     */
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquireCount.increment();
+        acquireNanos.add(elapsedAcquiredNanos);
+        maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+    }
+
+    /***
+     * Called by the pool every time a connection is returned.
+     * @param elapsedBorrowedMillis The time that the connection was held by the caller.
+     */
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageMillis.add(elapsedBorrowedMillis);
+    }
+
+    /***
+     * Called by the pool when a caller gave up waiting for a connection.
+     */
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    /***
+     * Accessor for the total number of connections that have been borrowed.
+     * @return Returns the borrow count.
+     */
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    /***
+     * Accessor for the total time that callers have spent waiting on the pool.
+     * @return Returns the total wait time in milliseconds.
+     */
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(acquireNanos.sum());
+    }
+
+    /***
+     * Accessor for the longest single wait on the pool.
+     * @return Returns the max wait time in milliseconds.
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxAcquireNanos.get());
+    }
+
+    /***
+     * Accessor for the total time that borrowed connections were held.
+     * @return Returns the total usage time in milliseconds.
+     */
+    public long getTotalUsageMillis() {
+        return usageMillis.sum();
+    }
+
+    /***
+     * Accessor for the number of borrow attempts that timed out.
+     * @return Returns the timeout count.
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /***
+     * Accessor for the number of physical connections that have been opened.
+     * @return Returns the creation count.
+     */
+    public long getConnectionsCreated() {
+        return connectionsCreated.sum();
+    }
+}
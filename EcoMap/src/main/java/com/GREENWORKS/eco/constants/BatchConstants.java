@@ -0,0 +1,12 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the bulk write settings. BATCH_SIZE is both the JDBC batch size and the number of
+ * entities that are written before the persistence context is flushed and cleared. ID_ALLOCATION_SIZE is
+ * the number of Pin ids that are reserved per round trip to the id_generator table.
+ */
+public class BatchConstants {
+    public static final int BATCH_SIZE = 50;
+    public static final String ID_ALLOCATION_SIZE = "50"; // Annotation parameters must be Strings.
+    public static final String ID_GENERATOR_TABLE = "id_generator";
+}
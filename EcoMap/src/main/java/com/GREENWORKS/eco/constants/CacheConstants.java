@@ -0,0 +1,22 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the second-level cache settings. The Pillar and SubPillar taxonomies are small and
+ * are only changed through the admin page, so they are held in memory and only reloaded once they expire
+ * or are evicted by an edit. The sizes are entry counts and the TTL applies from the time an entry is written.
+ */
+public class CacheConstants {
+    /* Regions */
+    public static final String PILLAR_REGION = "ecomap.pillar";
+    public static final String SUB_PILLAR_REGION = "ecomap.subpillar";
+    public static final String TAXONOMY_QUERY_REGION = "ecomap.taxonomy-query";
+    public static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region"; // Hibernate's own name.
+
+    /* Sizing */
+    public static final long TAXONOMY_MAX_ENTRIES = 500; // Per entity region. There are ~30 taxonomy rows today.
+    public static final long QUERY_MAX_ENTRIES = 50;
+    public static final long UPDATE_TIMESTAMPS_MAX_ENTRIES = 1000; // Never expires. Must outlive the query results.
+
+    /* Expiry (seconds) */
+    public static final long TAXONOMY_TTL = 3600;
+}
@@ -0,0 +1,16 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the settings of the CompressionFilter. A versioned API response without a query string is
+ * compressed once at CACHED_LEVEL and kept in memory until its ETag changes. Every other response is compressed
+ * per request at FAST_LEVEL. MAX_ENTRIES bounds the number of URLs that are cached and MAX_ENTRY_BYTES keeps an
+ * unusually large response out of the cache.
+ */
+public class CompressionConstants {
+    public static final int CACHED_LEVEL = 9; // Paid once per version, so the best ratio is affordable.
+    public static final int FAST_LEVEL = 3; // Paid on every request.
+    public static final int MIN_SIZE = 1024; // Smaller responses are sent as they are.
+    public static final int MAX_ENTRIES = 64;
+    public static final int MAX_ENTRY_BYTES = 16 * 1024 * 1024;
+    public static final int BUFFER_SIZE = 64 * 1024;
+}
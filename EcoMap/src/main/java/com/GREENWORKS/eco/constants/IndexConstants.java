@@ -0,0 +1,38 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the settings of the in-memory indexes that are built with every PinSnapshot.
+ * GRID_PINS_PER_CELL is the average number of pins per GeoGrid cell that the grid is sized for.
+ * BOUNDARY_RESOURCE is the classpath location of the city boundary GeoJSON. The boundary edges are bucketed
+ * into BOUNDARY_BANDS latitude bands so that a point is only tested against the edges of its own band.
+ * The ClusterIndex merges the pins that lie within CLUSTER_RADIUS pixels of each other on a CLUSTER_EXTENT
+ * pixel tile, for every zoom level from CLUSTER_MIN_ZOOM to CLUSTER_MAX_ZOOM.
+ * The SearchIndex ranks with BM25 (SEARCH_K1, SEARCH_B) and counts a term in the name or the address of a pin
+ * SEARCH_NAME_WEIGHT or SEARCH_ADDRESS_WEIGHT times. Its memory is bounded by only indexing the first
+ * SEARCH_MAX_CONTENT_CHARS characters of the content, and a query by SEARCH_MAX_QUERY_TERMS,
+ * SEARCH_MAX_PREFIX_TERMS terms per type-ahead prefix and SEARCH_MAX_RESULTS results.
+ * The FilterEngine files an event under at most FILTER_MAX_EVENT_MONTHS months, so an event without a
+ * sensible end can not fill every month bitmap.
+ * The PinBinaryEncoder stores coordinates as multiples of 1 / BINARY_SCALE degrees, about 11 cm, and orders
+ * the pins along a Hilbert curve of 2^BINARY_HILBERT_ORDER cells per side.
+ */
+public class IndexConstants {
+    public static final int GRID_PINS_PER_CELL = 8;
+    public static final String BOUNDARY_RESOURCE = "city-boundary.geojson"; // Optional, see the README.
+    public static final int BOUNDARY_BANDS = 512;
+    public static final double CLUSTER_RADIUS = 40;
+    public static final double CLUSTER_EXTENT = 512;
+    public static final int CLUSTER_MIN_ZOOM = 0;
+    public static final int CLUSTER_MAX_ZOOM = 16; // Above this zoom every pin is shown on its own.
+    public static final float SEARCH_K1 = 1.2f; // How quickly repeating a term stops adding to the score.
+    public static final float SEARCH_B = 0.75f; // How much long documents are penalised.
+    public static final float SEARCH_NAME_WEIGHT = 3f;
+    public static final float SEARCH_ADDRESS_WEIGHT = 1.5f;
+    public static final int SEARCH_MAX_CONTENT_CHARS = 4000;
+    public static final int SEARCH_MAX_QUERY_TERMS = 8;
+    public static final int SEARCH_MAX_PREFIX_TERMS = 64; // The most frequent completions of a prefix are used.
+    public static final int SEARCH_MAX_RESULTS = 50;
+    public static final int FILTER_MAX_EVENT_MONTHS = 24;
+    public static final int BINARY_SCALE = 1000000;
+    public static final int BINARY_HILBERT_ORDER = 16;
+}
@@ -0,0 +1,13 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the settings for reading pins in bounded chunks. FETCH_SIZE is the number of rows
+ * that MySQL streams per round trip in scroll mode, and also the number of rows after which the Session
+ * is cleared. The page sizes apply to the keyset-paginated pages.
+ */
+public class PagingConstants {
+    public static final int FETCH_SIZE = 500;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String USE_CURSOR_FETCH = "true"; // Lets Connector/J honor the fetch size with a server-side cursor.
+}
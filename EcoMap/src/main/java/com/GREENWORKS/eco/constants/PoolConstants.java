@@ -0,0 +1,30 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the connection pool settings. The pool is shared by MysqlConnect and by the
+ * Hibernate SessionFactory, so these values bound the total number of physical connections that
+ * the application will hold open against MySQL.
+ */
+public class PoolConstants {
+    /* Pool Sizing */
+    public static final String POOL_NAME = "EcoMapPool";
+    public static final int MINIMUM_IDLE = 2;
+    public static final int MAXIMUM_POOL_SIZE = 10;
+
+    /* Timeouts (milliseconds) */
+    public static final long CONNECTION_TIMEOUT = 5000; // Max wait to borrow a connection before timing out.
+    public static final long VALIDATION_TIMEOUT = 2000; // Max wait for the validation-on-borrow check.
+    public static final long IDLE_TIMEOUT = 600000;
+    public static final long MAX_LIFETIME = 1800000;
+    public static final long LEAK_DETECTION_THRESHOLD = 30000; // A connection held longer than this is logged as a leak.
+
+    /* Read Replica */
+    public static final String REPLICA_DATABASE_URL = ""; // Leave empty to serve reads from the primary. Reads may lag writes.
+    public static final String REPLICA_POOL_NAME = "EcoMapReplicaPool";
+    public static final int REPLICA_MAXIMUM_POOL_SIZE = 10;
+
+    /* Connector/J Prepared Statement Cache */
+    public static final String CACHE_PREPARED_STATEMENTS = "true";
+    public static final String USE_SERVER_PREPARED_STATEMENTS = "true";
+    public static final String PREPARED_STATEMENT_CACHE_SQL_LIMIT = "2048";
+}
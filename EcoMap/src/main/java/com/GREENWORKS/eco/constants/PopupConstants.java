@@ -0,0 +1,9 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the settings of the popup details. MAX_CACHED_POPUPS bounds the number of rendered popups
+ * that are kept in memory, the ones that are opened least recently are dropped first.
+ */
+public class PopupConstants {
+    public static final int MAX_CACHED_POPUPS = 4096;
+}
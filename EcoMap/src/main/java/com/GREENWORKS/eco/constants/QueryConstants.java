@@ -0,0 +1,31 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the names of the named HQL queries. The queries themselves are declared on the
+ * entities so that Hibernate parses and validates them once when the SessionFactory is built.
+ */
+public class QueryConstants {
+    /* Pin Queries */
+    public static final String PINS_BY_NAME = "GenericPin.findAllOrderByName";
+    public static final String PINS_COUNT = "GenericPin.count";
+    public static final String PINS_BY_API = "GenericPin.findByApi"; // Includes removed Pins, for the api sync.
+    public static final String PINS_LIVE_COUNT_BY_API = "GenericPin.liveCountByApi";
+
+    /* Staging Queries */
+    public static final String STAGED_BY_BATCH = "StagedPin.findByBatch";
+    public static final String STAGED_COUNT_BY_BATCH = "StagedPin.countByBatch";
+    public static final String STAGED_DELETE_BY_API = "StagedPin.deleteByApi";
+    public static final String STAGED_DELETE_BY_BATCH = "StagedPin.deleteByBatch";
+    public static final String MAP_PINS = "GenericPin.findMapPins"; // Flat MapPin projection of every Pin.
+    public static final String PINS_KEYSET_FIRST = "GenericPin.keysetFirst"; // Ordered by (locationName, id).
+    public static final String PINS_KEYSET_AFTER = "GenericPin.keysetAfter";
+    public static final String PINS_KEYSET_AFTER_NULL_NAME = "GenericPin.keysetAfterNullName"; // NULL names sort first.
+
+    /* Taxonomy Queries */
+    public static final String PILLARS_ALL = "Pillar.findAll";
+    public static final String SUB_PILLARS_ALL = "SubPillar.findAll";
+
+    /* Admin Queries */
+    public static final String ADMIN_BY_CREDENTIALS = "Admin.findByLoginCredentials";
+    public static final String ADMINS_COUNT = "Admin.count";
+}
@@ -0,0 +1,11 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the Session tracking settings. A Session that is held open longer than
+ * LEAK_THRESHOLD is reported once, together with the stack trace of the code that opened it.
+ */
+public class SessionConstants {
+    public static final long LEAK_THRESHOLD = 30000; // Matches the connection leak detection of the pool.
+    public static final long WATCHDOG_INTERVAL = 10000; // How often the open Sessions are inspected.
+    public static final boolean CAPTURE_OPEN_STACK = true; // Record where each Session was opened.
+}
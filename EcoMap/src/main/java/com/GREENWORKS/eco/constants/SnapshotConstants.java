@@ -0,0 +1,14 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the settings of the in-memory pin snapshot that the pages are rendered from. Writes
+ * through the SessionAssistant trigger a rebuild straight away, REFRESH_INTERVAL picks up changes that were
+ * made to the database directly. CHANGES_MAX_TOMBSTONES bounds the PinChangeLog, a client that is further
+ * behind is sent every pin again.
+ */
+public class SnapshotConstants {
+    public static final long REFRESH_INTERVAL = 300000; // Milliseconds between timed rebuilds.
+    public static final int LOADER_THREADS = 3; // One per dataset: pins, pillars and sub-pillars.
+    public static final long FRESH_WAIT = 2000; // Max milliseconds the admin page waits for a pending rebuild.
+    public static final int CHANGES_MAX_TOMBSTONES = 10000; // Removed pins remembered for /api/pins/changes.
+}
@@ -0,0 +1,18 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the checks that a staged api load must pass before it is published to the locations
+ * table. The coordinate bounds are a generous box around Florida, they catch swapped, zeroed and unparsable
+ * coordinates rather than enforcing the city limits.
+ */
+public class StagingConstants {
+    /* Coordinate Sanity */
+    public static final double MIN_LATITUDE = 24.0;
+    public static final double MAX_LATITUDE = 31.5;
+    public static final double MIN_LONGITUDE = -88.0;
+    public static final double MAX_LONGITUDE = -79.5;
+    public static final double MAX_INVALID_COORDINATE_RATIO = 0.1; // Above this the whole load is rejected.
+
+    /* Row Counts */
+    public static final double MIN_RETAINED_RATIO = 0.5; // A load may not shrink an api to less than half of its live Pins.
+}
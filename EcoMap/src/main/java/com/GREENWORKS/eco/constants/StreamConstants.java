@@ -0,0 +1,14 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the settings of the Server-Sent Events stream of pin changes. A client whose queue holds
+ * CLIENT_QUEUE unsent messages is too slow and is dropped, its browser reconnects after RETRY. A notification
+ * lists the ids of at most MAX_IDS changed pins, larger changes only carry the new version.
+ */
+public class StreamConstants {
+    public static final int MAX_CLIENTS = 10000;
+    public static final int CLIENT_QUEUE = 16;
+    public static final int MAX_IDS = 100;
+    public static final long HEARTBEAT_INTERVAL = 20000; // Milliseconds, below the idle timeout of most proxies.
+    public static final long RETRY = 5000; // Milliseconds that the browser waits before it reconnects.
+}
@@ -0,0 +1,15 @@
+package com.GREENWORKS.eco.constants;
+
+/***
+ * This class houses the settings of the vector tiles. EXTENT is the coordinate range of a tile and BUFFER is
+ * the margin, in the same units, within which pins of the neighbouring tiles are included so that markers on a
+ * tile edge are not clipped. MAX_CACHED_TILES bounds the tile cache.
+ */
+public class TileConstants {
+    public static final String LAYER = "pins";
+    public static final int EXTENT = 4096;
+    public static final int BUFFER = 64;
+    public static final int MAX_ZOOM = 22;
+    public static final int MAX_CACHED_TILES = 4096;
+    public static final int IMMUTABLE_MAX_AGE = 31536000; // One year, for tile URLs that carry the data version.
+}
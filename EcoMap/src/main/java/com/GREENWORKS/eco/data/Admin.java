@@ -5,14 +5,22 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
+import com.GREENWORKS.eco.constants.QueryConstants;
+
 /***
  * The Admin class is for handling admin related database transactions. This 
  * class is exclusively used for verifying user credentials in the admin panel. 
  */
 @Entity
 @Table(name = "users")
+@NamedQueries({
+	@NamedQuery(name = QueryConstants.ADMIN_BY_CREDENTIALS, query = "FROM Admin WHERE password = :password AND username = :username"),
+	@NamedQuery(name = QueryConstants.ADMINS_COUNT, query = "SELECT COUNT(a) FROM Admin a")
+})
 public class Admin {
 	
 	@Id
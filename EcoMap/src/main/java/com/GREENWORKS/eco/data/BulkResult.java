@@ -0,0 +1,140 @@
+package com.GREENWORKS.eco.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/***
+ * The BulkResult is returned by the bulk write methods of the SessionAssistant. It records the number of rows
+ * and the elapsed time of every JDBC batch so that slow refreshes can be broken down batch by batch.
+ */
+public class BulkResult {
+
+    private final String operation;
+    private final List<Batch> batches = new ArrayList<>();
+    private long totalMillis;
+
+    /***
+     * Constructor for the BulkResult.
+     * @param operation The name of the bulk operation, for example "save" or "delete".
+     */
+    public BulkResult(String operation) {
+        this.operation = operation;
+    }
+
+    /***
+     * Records a completed batch.
+     * @param rows The number of rows that were written by the batch.
+     * @param millis The time that the batch took to write.
+     */
+    void addBatch(int rows, long millis) {
+        batches.add(new Batch(batches.size(), rows, millis));
+    }
+
+    /***
+     * Mutator method for the total elapsed time, including the commit.
+     * @param totalMillis The value to be assigned.
+     */
+    void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    /***
+     * Accessor method for the operation name.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /***
+     * Accessor method for the recorded batches.
+     * @return Returns an unmodifiable view of the batches.
+     */
+    public List<Batch> getBatches() {
+        return Collections.unmodifiableList(batches);
+    }
+
+    /***
+     * Returns the number of rows that were written across every batch.
+     * @return Returns the total row count.
+     */
+    public int getTotalRows() {
+        int rows = 0;
+        for(Batch batch : batches) {
+            rows += batch.getRows();
+        }
+        return rows;
+    }
+
+    /***
+     * Accessor method for the total elapsed time, including the commit.
+     * @return Returns the contents of the instance variable.
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /***
+     * toString() method for printing the BulkResult in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "BulkResult [operation=" + operation + ", rows=" + getTotalRows() + ", batches=" + batches.size()
+            + ", totalMillis=" + totalMillis + "]";
+    }
+
+    /***
+     * The timing and row count of a single JDBC batch.
+     */
+    public static class Batch {
+
+        private final int index;
+        private final int rows;
+        private final long millis;
+
+        /***
+         * Constructor for the Batch.
+         * @param index The position of the batch within the bulk operation.
+         * @param rows The number of rows written by the batch.
+         * @param millis The time that the batch took to write.
+         */
+        Batch(int index, int rows, long millis) {
+            this.index = index;
+            this.rows = rows;
+            this.millis = millis;
+        }
+
+        /***
+         * Accessor method for the batch position.
+         * @return Returns the contents of the instance variable.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /***
+         * Accessor method for the batch row count.
+         * @return Returns the contents of the instance variable.
+         */
+        public int getRows() {
+            return rows;
+        }
+
+        /***
+         * Accessor method for the batch elapsed time.
+         * @return Returns the contents of the instance variable.
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        /***
+         * toString() method for printing the Batch in a human readable way.
+         */
+        @Override
+        public String toString() {
+            return "Batch [index=" + index + ", rows=" + rows + ", millis=" + millis + "]";
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.GREENWORKS.eco.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.ConnectionPool;
+
+/***
+ * The coordinates of the Pin tables were originally VARCHAR(40) columns. The Pins now map them onto DOUBLE, but
+ * hbm2ddl.auto=update never changes the type of an existing column. This class converts the columns of every
+ * Pin table in place: the text is trimmed, anything that is not a number is set to NULL, and the columns are
+ * altered to DOUBLE, which MySQL does by converting each remaining value. The dates already are DATETIME columns.
+ * Before a coordinate is cleared, its row id and original text are logged and copied into the BACKUP_TABLE, so
+ * that the pins that fell off the map can be found and repaired. Running it more than once is harmless, a table
+ * whose columns are already DOUBLE is skipped.
+ */
+public class ColumnTypeMigrator {
+
+    private static final String[] PIN_TABLES = { "locations", "problem_locations", "old_events", "locations_staging" };
+    private static final String NUMBER = "'^[-+]?[0-9]*\\\\.?[0-9]+([eE][-+]?[0-9]+)?$'"; // The REGEXP of a valid coordinate.
+    private static final String INVALID = "NOT (latitude REGEXP " + NUMBER + ") OR NOT (longitude REGEXP " + NUMBER + ")";
+    private static final String BACKUP_TABLE = "invalid_coordinates";
+
+    /***
+     * Converts the latitude and longitude columns of every Pin table to DOUBLE.
+     */
+    public static void migrate() {
+        try (Connection connection = ConnectionPool.getConnection()) {
+            for (String table : PIN_TABLES) {
+                try {
+                    if (isText(connection, table, "latitude") || isText(connection, table, "longitude")) {
+                        long start = System.currentTimeMillis();
+                        int cleared = convert(connection, table);
+                        Logger.info("Converted the coordinates of " + table + " to DOUBLE in "
+                            + (System.currentTimeMillis() - start) + " ms. " + cleared + " invalid values were cleared.");
+                    }
+                } catch (SQLException e) {
+                    Logger.warn("Unable to convert the coordinates of " + table + ": " + e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            Logger.error(e, "Unable to convert the Pin coordinate columns.");
+        }
+    }
+
+    /***
+     * Checks whether a column is still stored as text.
+     * @param connection The connection to be used.
+     * @param table The table of the column.
+     * @param column The column to be checked.
+     * @return Returns true if the column is a CHAR, VARCHAR or TEXT column.
+     */
+    private static boolean isText(Connection connection, String table, String column) throws SQLException {
+        String sql = "SELECT DATA_TYPE FROM information_schema.COLUMNS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next()) {
+                    return false; // hbm2ddl.auto creates missing tables with DOUBLE columns.
+                }
+                String type = result.getString(1).toLowerCase();
+                return type.contains("char") || type.contains("text");
+            }
+        }
+    }
+
+    /***
+     * Cleans the coordinates of a table and alters the columns to DOUBLE. MySQL commits the ALTER implicitly, so
+     * the cleaning runs first: the ALTER would fail on the first value that is not a number.
+     * @param connection The connection to be used.
+     * @param table The table to be converted.
+     * @return Returns the number of rows whose coordinates were cleared.
+     */
+    private static int convert(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE " + table + " SET latitude = NULLIF(TRIM(latitude), ''), "
+                + "longitude = NULLIF(TRIM(longitude), '')");
+            backUpInvalid(statement, table);
+            int cleared = statement.executeUpdate("UPDATE " + table + " SET latitude = NULL, longitude = NULL WHERE " + INVALID);
+            statement.executeUpdate("ALTER TABLE " + table + " MODIFY latitude DOUBLE NULL, MODIFY longitude DOUBLE NULL");
+            return cleared;
+        }
+    }
+
+    /***
+     * Logs the coordinates that are about to be cleared and copies them into the BACKUP_TABLE.
+     * @param statement The statement to be used.
+     * @param table The table to be converted.
+     */
+    private static void backUpInvalid(Statement statement, String table) throws SQLException {
+        try (ResultSet result = statement.executeQuery("SELECT id, latitude, longitude FROM " + table + " WHERE " + INVALID)) {
+            while (result.next()) {
+                Logger.warn("Clearing the invalid coordinates of " + table + " id " + result.getInt(1) + ": latitude="
+                    + result.getString(2) + ", longitude=" + result.getString(3));
+            }
+        }
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + BACKUP_TABLE + " (source_table VARCHAR(64) NOT NULL, "
+            + "id INT NOT NULL, latitude VARCHAR(255) NULL, longitude VARCHAR(255) NULL, cleared_at DATETIME NOT NULL)");
+        statement.executeUpdate("INSERT INTO " + BACKUP_TABLE + " (source_table, id, latitude, longitude, cleared_at) "
+            + "SELECT '" + table + "', id, latitude, longitude, NOW() FROM " + table + " WHERE " + INVALID);
+    }
+}
@@ -2,6 +2,7 @@ package com.GREENWORKS.eco.data;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
 
 /***
@@ -14,21 +15,52 @@ public class Data {
     private List<SubPillar> subPillarList;
     private List<Pillar> pillarList;
     private List<Pin> pinList;
+    private List<MapPin> mapPinList;
     private HashMap<Pillar, ArrayList<SubPillar>> pillarHashMap; 
+    private PinSnapshot snapshot;
 
     /***
-     * The zero parameter constructor will use the SessionAssistant to populate all of the
-     * instance variables. 
+     * The zero parameter constructor will use the SessionAssistant to populate the taxonomy. The
+     * pin lists are only queried when they are first requested, because the map page only needs the
+     * MapPins and the admin page only needs the Pins. 
      */
     public Data() {
         SessionAssistant sessionAssistant = new SessionAssistant();
         subPillarList = sessionAssistant.getAllSubPillars();
         pillarList = sessionAssistant.getAllPillars();
-        pinList = sessionAssistant.getAllPinsList();
         pillarHashMap = new HashMap<>(); 
         createHashMap();
     }
 
+    /***
+     * This constructor wraps a PinSnapshot. Nothing is queried, every list comes from the snapshot.
+     * @param snapshot The snapshot to be rendered.
+     */
+    private Data(PinSnapshot snapshot) {
+        this.snapshot = snapshot;
+        subPillarList = snapshot.getSubPillars();
+        pillarList = snapshot.getPillars();
+        mapPinList = snapshot.getMapPins();
+    }
+
+    /***
+     * Returns the Data of the shared in-memory snapshot. This is what the pages should use: it costs a
+     * single volatile read and no database work.
+     * @return Returns the Data of the current snapshot.
+     */
+    public static Data current() {
+        return new Data(SnapshotManager.current());
+    }
+
+    /***
+     * Returns the Data of the snapshot after any pending rebuild has completed. The admin page uses it so
+     * that a change that was just saved is shown straight away.
+     * @return Returns the Data of the freshest snapshot.
+     */
+    public static Data fresh() {
+        return new Data(SnapshotManager.awaitFresh());
+    }
+
     /***
      * The way the object-relational mapping is configured, the parent tables do not know about 
      * their child tables. As a result, ORM maps from lowest to highest: Pin -> SubPillar -> Pillar
@@ -87,6 +119,9 @@ public class Data {
 	 * @return Returns the collection.
 	 */
     public List<Pin> getPinList() {
+        if(pinList == null) {
+            pinList = new SessionAssistant().getAllPinsList();
+        }
         return pinList;
     }
 
@@ -98,11 +133,28 @@ public class Data {
         this.pinList = pinList;
     }
 
+	/***
+	 * Accessor method for the mapPinList. This is what the map renders. 
+	 * @return Returns the collection.
+	 */
+    public List<MapPin> getMapPinList() {
+        if(mapPinList == null) {
+            mapPinList = new SessionAssistant().getMapPins();
+        }
+        return mapPinList;
+    }
+
 	/***
 	 * Accessor method for the pillarHashMap. 
 	 * @return Returns the collection.
 	 */
     public HashMap<Pillar, ArrayList<SubPillar>> getPillarHashMap() {
+        if(pillarHashMap == null && snapshot != null) {
+            pillarHashMap = new HashMap<>(); 
+            for(Map.Entry<Pillar, List<SubPillar>> entry : snapshot.getPillarIndex().entrySet()) {
+                pillarHashMap.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
         return pillarHashMap;
     }
 
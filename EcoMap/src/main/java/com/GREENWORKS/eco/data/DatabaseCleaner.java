@@ -3,15 +3,16 @@ package com.GREENWORKS.eco.data;
 import java.util.List;
 import java.util.Set;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 
 import org.tinylog.Logger;
 
+import com.GREENWORKS.eco.index.CityBoundary;
+import com.GREENWORKS.eco.index.GeoGrid;
+
 /***
  * This class will remove redundant points from the locations table and put them in the problem_locations 
  * table. The class has the ability to determine which redundant points are good, so the good points will
@@ -22,6 +23,8 @@ public class DatabaseCleaner {
 	private Set<Integer> zipSet = new HashSet<Integer>(); 
 	private ArrayList<Pin> pastDatePinList = new ArrayList<Pin>();
 	private ArrayList<Pin> notInOrlandoList = new ArrayList<Pin>();
+	private HashMap<String, Pin> pinMap = new HashMap<String, Pin>(); // The first pin of every address.
+	private HashMap<String, ArrayList<Pin>> addressPinMap = new HashMap<String, ArrayList<Pin>>();
 
 	/***
 	 * For now, this is how this tool will be run, however, it would be good to integrate it into the
@@ -35,11 +38,10 @@ public class DatabaseCleaner {
 
 	public void runDatabaseCleaner() {
 		SessionAssistant sessionAssistant = new SessionAssistant();
-		List<Pin> pinList = sessionAssistant.getAllPinsList();
 		DatabaseCleaner databaseCleaner = new DatabaseCleaner();
-		HashMap<String, ArrayList<Pin>> addressPinMap = databaseCleaner.findProblems(pinList);
+		sessionAssistant.forEachPin(databaseCleaner::examinePin); // Keeps one pin per address plus the pins to be moved.
+		HashMap<String, ArrayList<Pin>> addressPinMap = databaseCleaner.addressPinMap;
 		ArrayList<OldEventPin> oldEvents = databaseCleaner.convertOldEvents();
-		pinList.clear(); // Release memory.
 		ArrayList<Pin> deleteList = databaseCleaner.solveConflicts(addressPinMap);
 		ArrayList<ProblemPin> problemPinList = databaseCleaner.convertToProblemPinList(deleteList);
 		ArrayList<Pin> notInOrlandoDelete = databaseCleaner.getNotInOrlandoList();
@@ -173,35 +175,61 @@ public class DatabaseCleaner {
 	 * @param pinList The List<Pin> that will be analyzed. 
 	 */
 	public HashMap<String, ArrayList<Pin>> findProblems(List<Pin> pinList) {
-		HashMap<String, ArrayList<Pin>> pinMap = new HashMap<String, ArrayList<Pin>>();
-		HashMap<String, ArrayList<Pin>> addressPinMap = new HashMap<String, ArrayList<Pin>>();
+		pinMap = new HashMap<String, Pin>();
+		addressPinMap = new HashMap<String, ArrayList<Pin>>();
 		for(Pin pin : pinList) {
-			if(!pin.getTown().equals("Orlando")){
-				System.out.println("Town is not Orlando: " + pin.getTown());
-				notInOrlandoList.add(pin);
-			} else {
-				if(pin.getStartDate() != null && pin.getEndDate() != null) {
-					addOldEvent(pin);
-				}
-				String address = pin.getLocationAddress();
-				Integer zip = pin.getZip(address);
-				if(!zipSet.contains(zip)) { 
-					if(address.substring(address.length() - 5).trim().length() != 5) {
-						System.out.println("Zip code error: " + address);
-					} else
-						zipSet.add(zip);
-				}
-				if(pinMap.containsKey(address)) {
-					ArrayList<Pin> list = pinMap.get(address);
-					list.add(pin);
+			examinePin(pin);
+		}
+		return addressPinMap;
+	}
+
+	/***
+	 * This method examines a single pin for the findProblems() method. It is also used directly when the pins 
+	 * are streamed from the database one at a time. Only the first pin of every address is remembered, a pin 
+	 * that shares its address is added to the addressPinMap together with that first pin. 
+	 * @param pin The Pin that will be analyzed. 
+	 */
+	public void examinePin(Pin pin) {
+		if(!isInCity(pin)){
+			System.out.println("Not inside the city limits: " + pin.getLocationAddress());
+			notInOrlandoList.add(pin);
+		} else {
+			if(pin.getStartDateTime() != null && pin.getEndDateTime() != null) {
+				addOldEvent(pin);
+			}
+			String address = pin.getLocationAddress();
+			Integer zip = pin.getZip(address);
+			if(!zipSet.contains(zip)) { 
+				if(address.substring(address.length() - 5).trim().length() != 5) {
+					System.out.println("Zip code error: " + address);
+				} else
+					zipSet.add(zip);
+			}
+			Pin firstPin = pinMap.putIfAbsent(address, pin);
+			if(firstPin != null) {
+				ArrayList<Pin> list = addressPinMap.get(address);
+				if(list == null) {
+					list = new ArrayList<Pin>();
+					list.add(firstPin);
 					addressPinMap.put(address, list);
 				}
-				ArrayList<Pin> list = new ArrayList<Pin>();
 				list.add(pin);
-				pinMap.put(address, list);
 			}
 		}
-		return addressPinMap;
+	}
+
+	/***
+	 * This method tests whether a pin lies inside the city limits. The coordinates are tested against the 
+	 * CityBoundary when it is available, otherwise the town of the address has to be Orlando. 
+	 * @param pin The Pin to be tested. 
+	 * @return Returns true if the pin is inside the city. 
+	 */
+	public boolean isInCity(Pin pin) {
+		CityBoundary boundary = CityBoundary.get();
+		if(boundary.isAvailable()) {
+			return boundary.contains(GeoGrid.coordinate(pin.getLongitudeValue()), GeoGrid.coordinate(pin.getLatitudeValue()));
+		}
+		return "Orlando".equals(pin.getTown());
 	}
 
 	public String[] getLatitudeLongitude(String coordinates){
@@ -214,13 +242,9 @@ public class DatabaseCleaner {
 	 * @param pin The Pin to be added to the ArrayList. 
 	 */
 	public void addOldEvent(Pin pin) {
-		try {
-			if(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(pin.getStartDate()).before(new Date()) && new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(pin.getEndDate()).before(new Date())){
-				pastDatePinList.add(pin);
-			}
-		} catch (ParseException e) {
-			
-			e.printStackTrace();
+		LocalDateTime now = LocalDateTime.now();
+		if(pin.getStartDateTime().isBefore(now) && pin.getEndDateTime().isBefore(now)){
+			pastDatePinList.add(pin);
 		}
 	}
 	
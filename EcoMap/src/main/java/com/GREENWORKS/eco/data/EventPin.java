@@ -27,7 +27,7 @@ public class EventPin extends Pin {
 	public void setContent(String content) {
 		this.content = content;
 		if(this.startDate != null && this.endDate != null) {
-			this.content = this.content + "<br>Event taking place from " + this.startDate + " to " + this.endDate + ".";
+			this.content = this.content + "<br>Event taking place from " + getStartDate() + " to " + getEndDate() + ".";
 		}
 	}
 	
@@ -38,7 +38,7 @@ public class EventPin extends Pin {
      */
 	@Override
 	public void setStartDate(String startDate) {
-		this.startDate = startDate;
+		super.setStartDate(startDate);
 	}
 	// this.startDate = "'" + cleanInput(startDate) + "'";
 
@@ -49,7 +49,7 @@ public class EventPin extends Pin {
      */
 	@Override
 	public void setEndDate(String endDate) {
-		this.endDate = endDate;
+		super.setEndDate(endDate);
 	}
 	// this.endDate = "'" + cleanInput(endDate) + "'";
 	
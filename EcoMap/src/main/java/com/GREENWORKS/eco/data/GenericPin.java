@@ -1,16 +1,44 @@
 package com.GREENWORKS.eco.data;
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import com.GREENWORKS.eco.constants.QueryConstants;
 
 /***
  * This is meant to logically represent a generic point of data. The reason why this is 
  * useful is because there will be times when it is desirable to work with data of 
  * unidenfied specifications. Or when working with the data itself is more important 
- * than identifying the data. 
+ * than identifying the data. Pins that have been removed from their api are kept as tombstones and are 
+ * filtered out of every listing. 
  */
 @Entity
-@Table(name = "locations")
+@Table(name = "locations", indexes = @Index(name = "idx_locations_name_id", columnList = "name, id"), // Keyset pages.
+	uniqueConstraints = @UniqueConstraint(name = "uk_locations_api_external_id", columnNames = { "api", "external_id" }))
+@NamedQueries({
+	@NamedQuery(name = QueryConstants.PINS_BY_NAME, query = "SELECT p FROM GenericPin p "
+		+ "LEFT JOIN FETCH p.subPillar sp LEFT JOIN FETCH sp.pillar WHERE p.removedAt IS NULL ORDER BY p.locationName"),
+	@NamedQuery(name = QueryConstants.MAP_PINS, query = "SELECT new com.GREENWORKS.eco.data.MapPin(p.id, p.locationName, "
+		+ "p.street, p.town, p.state, p.zipCode, p.latitude, p.longitude, p.content, p.startDate, p.endDate, p.thumbnail, "
+		+ "p.link, sp.spId, pl.pId) FROM GenericPin p LEFT JOIN p.subPillar sp LEFT JOIN sp.pillar pl "
+		+ "WHERE p.removedAt IS NULL ORDER BY p.locationName"),
+	@NamedQuery(name = QueryConstants.PINS_KEYSET_FIRST, query = "SELECT p FROM GenericPin p "
+		+ "LEFT JOIN FETCH p.subPillar sp LEFT JOIN FETCH sp.pillar WHERE p.removedAt IS NULL ORDER BY p.locationName, p.id"),
+	@NamedQuery(name = QueryConstants.PINS_KEYSET_AFTER, query = "SELECT p FROM GenericPin p "
+		+ "LEFT JOIN FETCH p.subPillar sp LEFT JOIN FETCH sp.pillar WHERE p.removedAt IS NULL "
+		+ "AND (p.locationName > :name OR (p.locationName = :name AND p.id > :id)) ORDER BY p.locationName, p.id"),
+	@NamedQuery(name = QueryConstants.PINS_KEYSET_AFTER_NULL_NAME, query = "SELECT p FROM GenericPin p "
+		+ "LEFT JOIN FETCH p.subPillar sp LEFT JOIN FETCH sp.pillar WHERE p.removedAt IS NULL "
+		+ "AND (p.locationName IS NOT NULL OR p.id > :id) ORDER BY p.locationName, p.id"),
+	@NamedQuery(name = QueryConstants.PINS_BY_API, query = "SELECT p FROM GenericPin p WHERE p.api = :api"),
+	@NamedQuery(name = QueryConstants.PINS_LIVE_COUNT_BY_API, query = "SELECT COUNT(p) FROM GenericPin p "
+		+ "WHERE p.api = :api AND p.removedAt IS NULL"),
+	@NamedQuery(name = QueryConstants.PINS_COUNT, query = "SELECT COUNT(p) FROM GenericPin p WHERE p.removedAt IS NULL")
+})
 public class GenericPin extends Pin {
 	
 	/***
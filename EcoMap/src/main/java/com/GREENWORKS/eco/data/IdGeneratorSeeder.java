@@ -0,0 +1,47 @@
+package com.GREENWORKS.eco.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.ConnectionPool;
+import com.GREENWORKS.eco.constants.BatchConstants;
+
+/***
+ * The Pin tables were originally populated through AUTO_INCREMENT ids. Pins now draw their ids from the
+ * id_generator table so that inserts can be batched. This class makes sure that the generator of each Pin
+ * table starts above the highest id that already exists in that table, so the two id sources never collide.
+ * Running it more than once is harmless.
+ */
+public class IdGeneratorSeeder {
+
+    private static final String[] PIN_TABLES = { "locations", "problem_locations", "old_events", "locations_staging" };
+
+    /***
+     * Raises the next value of every Pin table segment to at least MAX(id) + 1.
+     */
+    public static void seed() {
+        try (Connection connection = ConnectionPool.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + BatchConstants.ID_GENERATOR_TABLE
+                    + " (sequence_name VARCHAR(255) NOT NULL PRIMARY KEY, next_val BIGINT)");
+            }
+            for (String table : PIN_TABLES) {
+                String sql = "INSERT INTO " + BatchConstants.ID_GENERATOR_TABLE + " (sequence_name, next_val) "
+                    + "SELECT ?, COALESCE(MAX(id), 0) + 1 FROM " + table + " "
+                    + "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))";
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    statement.setString(1, table);
+                    statement.executeUpdate();
+                } catch (SQLException e) {
+                    Logger.warn("Unable to seed the id generator for " + table + ": " + e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            Logger.error(e, "Unable to seed the Pin id generator.");
+        }
+    }
+}
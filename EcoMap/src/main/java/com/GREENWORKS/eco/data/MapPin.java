@@ -0,0 +1,275 @@
+package com.GREENWORKS.eco.data;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/***
+ * The MapPin is a flat, read-only view of a Pin that holds exactly the fields that the map renders. It is built
+ * by an HQL constructor expression, so listing the map never hydrates Pin entities, never keeps dirty-checking
+ * snapshots, and resolves the SubPillar and Pillar ids through a single joined SELECT. Two MapPins are equal when
+ * every field is equal. The coordinates and dates are typed; the String accessors format them the way the JSPs
+ * and the front-end expect.
+ */
+public class MapPin {
+
+    private final Integer id;
+    private final String locationName;
+    private final String street;
+    private final String town;
+    private final String state;
+    private final String zipCode;
+    private final Double latitude;
+    private final Double longitude;
+    private final String content;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+    private final String thumbnail;
+    private final String link;
+    private final Integer subPillarId;
+    private final Integer pillarId;
+
+    /***
+     * Constructor for the MapPin. The parameter order must match the select clause of QueryConstants.MAP_PINS.
+     */
+    public MapPin(Integer id, String locationName, String street, String town, String state, String zipCode,
+            Double latitude, Double longitude, String content, LocalDateTime startDate, LocalDateTime endDate, String thumbnail,
+            String link, Integer subPillarId, Integer pillarId) {
+        this.id = id;
+        this.locationName = locationName;
+        this.street = street;
+        this.town = town;
+        this.state = state;
+        this.zipCode = zipCode;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.content = content;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.thumbnail = thumbnail;
+        this.link = link;
+        this.subPillarId = subPillarId;
+        this.pillarId = pillarId;
+    }
+
+    /***
+     * Accessor method for the id.
+     * @return Returns the contents of the instance variable.
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /***
+     * Accessor method for the locationName.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getLocationName() {
+        return locationName;
+    }
+
+    /***
+     * Accessor method for the street.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getStreet() {
+        return street;
+    }
+
+    /***
+     * Accessor method for the town.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getTown() {
+        return town;
+    }
+
+    /***
+     * Accessor method for the state.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getState() {
+        return state;
+    }
+
+    /***
+     * Accessor method for the zipCode.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getZipCode() {
+        return zipCode;
+    }
+
+    /***
+     * Accessor method for the latitude, formatted as text.
+     * @return Returns the latitude, or null if there is none.
+     */
+    public String getLatitude() {
+        return Pin.formatCoordinate(latitude);
+    }
+
+    /***
+     * Accessor method for the longitude, formatted as text.
+     * @return Returns the longitude, or null if there is none.
+     */
+    public String getLongitude() {
+        return Pin.formatCoordinate(longitude);
+    }
+
+    /***
+     * Accessor method for the latitude.
+     * @return Returns the contents of the instance variable.
+     */
+    public Double getLatitudeValue() {
+        return latitude;
+    }
+
+    /***
+     * Accessor method for the longitude.
+     * @return Returns the contents of the instance variable.
+     */
+    public Double getLongitudeValue() {
+        return longitude;
+    }
+
+    /***
+     * Accessor method for the content.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /***
+     * Accessor method for the startDate, formatted as yyyy-MM-dd HH:mm:ss.
+     * @return Returns the start date, or null if there is none.
+     */
+    public String getStartDate() {
+        return Pin.formatDateTime(startDate);
+    }
+
+    /***
+     * Accessor method for the endDate, formatted as yyyy-MM-dd HH:mm:ss.
+     * @return Returns the end date, or null if there is none.
+     */
+    public String getEndDate() {
+        return Pin.formatDateTime(endDate);
+    }
+
+    /***
+     * Accessor method for the startDate.
+     * @return Returns the contents of the instance variable.
+     */
+    public LocalDateTime getStartDateTime() {
+        return startDate;
+    }
+
+    /***
+     * Accessor method for the endDate.
+     * @return Returns the contents of the instance variable.
+     */
+    public LocalDateTime getEndDateTime() {
+        return endDate;
+    }
+
+    /***
+     * Accessor method for the thumbnail.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getThumbnail() {
+        return thumbnail;
+    }
+
+    /***
+     * Accessor method for the link.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getLink() {
+        return link;
+    }
+
+    /***
+     * Accessor method for the id of the SubPillar.
+     * @return Returns the contents of the instance variable. May be null if the Pin has no SubPillar.
+     */
+    public Integer getSubPillarId() {
+        return subPillarId;
+    }
+
+    /***
+     * Accessor method for the id of the Pillar of the SubPillar.
+     * @return Returns the contents of the instance variable. May be null if the Pin has no SubPillar.
+     */
+    public Integer getPillarId() {
+        return pillarId;
+    }
+
+    /***
+     * Accessor method that returns the entire address in a single string.
+     * @return Returns the address in a single string.
+     */
+    public String getLocationAddress() {
+        return Pin.locationAddress(street, town, state, zipCode);
+    }
+
+    /***
+     * Returns the thumbnail formatted as an HTML string.
+     * @return Returns the thumbnail as an HTML string.
+     */
+    public String getThumbnailHTML() {
+        return Pin.thumbnailHTML(thumbnail);
+    }
+
+    /***
+     * Returns the link formatted as an HTML string.
+     * @return Returns the link as an HTML string.
+     */
+    public String getLinkHTML() {
+        return Pin.linkHTML(link);
+    }
+
+    /***
+     * Returns true if the MapPin is an event, which is when both of its dates are set.
+     * @return Returns true if both dates are set.
+     */
+    public boolean isEvent() {
+        return startDate != null && endDate != null;
+    }
+
+    /***
+     * Overridden hashCode() method. Every field takes part.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, locationName, street, town, state, zipCode, latitude, longitude, content, startDate,
+            endDate, thumbnail, link, subPillarId, pillarId);
+    }
+
+    /***
+     * Overridden equals() method. Two MapPins are equal when every field is equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        MapPin other = (MapPin) o;
+        return Objects.equals(id, other.id) && Objects.equals(locationName, other.locationName)
+            && Objects.equals(street, other.street) && Objects.equals(town, other.town)
+            && Objects.equals(state, other.state) && Objects.equals(zipCode, other.zipCode)
+            && Objects.equals(latitude, other.latitude) && Objects.equals(longitude, other.longitude)
+            && Objects.equals(content, other.content) && Objects.equals(startDate, other.startDate)
+            && Objects.equals(endDate, other.endDate) && Objects.equals(thumbnail, other.thumbnail)
+            && Objects.equals(link, other.link) && Objects.equals(subPillarId, other.subPillarId)
+            && Objects.equals(pillarId, other.pillarId);
+    }
+
+    /***
+     * toString() method for printing the MapPin in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "MapPin [id=" + id + ", locationName=" + locationName + ", subPillarId=" + subPillarId + ", pillarId="
+            + pillarId + "]";
+    }
+}
@@ -1,10 +1,20 @@
 package com.GREENWORKS.eco.data;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.QueryHints;
+
+import com.GREENWORKS.eco.constants.CacheConstants;
+import com.GREENWORKS.eco.constants.QueryConstants;
+
 /*
 Pillars are general categories of green-related data.  
 
@@ -21,10 +31,16 @@ pillar_id       name
 
 /***
  * The class definition for the Pillar object. The Pillar is meant to be the data representation of the
- * 7 Green Works pillars. 
+ * 7 Green Works pillars. Pillars are held in the second-level cache. 
  */
 @Entity
 @Table(name = "pillars")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConstants.PILLAR_REGION)
+@NamedQuery(name = QueryConstants.PILLARS_ALL, query = "SELECT p FROM Pillar p ORDER BY p.pId",
+    hints = {
+        @QueryHint(name = QueryHints.CACHEABLE, value = "true"),
+        @QueryHint(name = QueryHints.CACHE_REGION, value = CacheConstants.TAXONOMY_QUERY_REGION) })
 public class Pillar {
 
     @Id
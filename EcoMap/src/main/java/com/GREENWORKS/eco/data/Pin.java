@@ -1,17 +1,28 @@
 package com.GREENWORKS.eco.data;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
 import java.util.ArrayList;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.MappedSuperclass;
 
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import com.GREENWORKS.eco.Cred;
+import com.GREENWORKS.eco.constants.BatchConstants;
 
 /***
  * The parent abstract class for all Pin related data. This class will not be directly 
@@ -24,9 +35,25 @@ import com.GREENWORKS.eco.Cred;
  */
 @MappedSuperclass
 public abstract class Pin {
+
+	private static final DateTimeFormatter DATE_TIME_OUTPUT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+	private static final DateTimeFormatter DATE_TIME_INPUT = new DateTimeFormatterBuilder()
+		.appendPattern("yyyy-MM-dd")
+		.optionalStart().appendLiteral('T').optionalEnd()
+		.optionalStart().appendLiteral(' ').optionalEnd()
+		.appendPattern("HH:mm")
+		.optionalStart().appendPattern(":ss").optionalEnd()
+		.optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).optionalEnd()
+		.toFormatter(); // Accepts 2022-01-31 15:00, 2022-01-31 15:00:00.0 and 2022-01-31T15:00:00. 
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(generator = "pin_id") // IDENTITY ids would prevent Hibernate from batching inserts. 
+	@GenericGenerator(name = "pin_id", strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+		@Parameter(name = "table_name", value = BatchConstants.ID_GENERATOR_TABLE),
+		@Parameter(name = "prefer_entity_table_as_segment_value", value = "true"), // One id sequence per table. 
+		@Parameter(name = "increment_size", value = BatchConstants.ID_ALLOCATION_SIZE),
+		@Parameter(name = "optimizer", value = "pooled-lo")
+	})
 	@Column(name = "id", unique = true, nullable = false)
 	protected Integer id;
 	@Column(name="iconid", unique = false, nullable = true)
@@ -43,26 +70,31 @@ public abstract class Pin {
 	@Column(name="zip", unique = false, nullable = true, length = 5)
     protected String zipCode;
 	
-	@Column(name="latitude", unique = false, nullable = true, length = 40)
-    protected String latitude;
-	@Column(name="longitude", unique = false, nullable = true, length = 40)
-    protected String longitude;
+	@Column(name="latitude", unique = false, nullable = true)
+    protected Double latitude;
+	@Column(name="longitude", unique = false, nullable = true)
+    protected Double longitude;
 
 	@Column(name="content", unique = false, nullable = true, columnDefinition="TEXT")
     protected String content; 
 	@Column(name="dateStart", unique = false, nullable = true, columnDefinition="DATETIME")
-    protected String startDate;
+    protected LocalDateTime startDate;
 	@Column(name="dateEnd", unique = false, nullable = true, columnDefinition="DATETIME")
-    protected String endDate;
+    protected LocalDateTime endDate;
 	@Column(name="thumbnail", unique = false, nullable = true, length = 255)
 	protected String thumbnail;
 	@Column(name="link", unique = false, nullable = true, length = 255)
 	protected String link;
 	@Column(name="api", unique = false, nullable = true)
 	protected Byte api;
+	@Column(name="external_id", unique = false, nullable = true, length = 64)
+	protected String externalId; // The id of the record in the api that the Pin was imported from. 
+	@Column(name="removed_at", unique = false, nullable = true, columnDefinition="DATETIME")
+	protected LocalDateTime removedAt; // Set when the record vanished from its api. Removed Pins are not shown. 
 	
 	@JoinColumn(name="sub_pillar_id", nullable = true)
 	@ManyToOne() // MANY Pins can be associated with ONE SubPillar.
+	@Fetch(FetchMode.SELECT) // Resolved from the second-level cache rather than joined.
 	protected SubPillar subPillar;
 	
 	/***
@@ -110,36 +142,72 @@ public abstract class Pin {
 	}
 
 	/***
-	 * Accessor method for the startDate instance variable. 
-	 * @return Returns the contents of the instance variable. 
+	 * Accessor method for the startDate instance variable, formatted as yyyy-MM-dd HH:mm:ss. This is 
+	 * what the JSPs and the front-end read. 
+	 * @return Returns the formatted date, or null if there is none. 
 	 */	
 	public String getStartDate() {
-		return startDate;
+		return formatDateTime(startDate);
 	}
 
 	/***
 	 * This mutator is unimplemented because it is implemented 
 	 * in the child classes: Location and Event. 
-	 * @param startDate The value to be assigned. 
+	 * @param startDate The value to be assigned, for example 2022-01-31 15:00:00. See parseDateTime(). 
+	 * @throws IllegalArgumentException Thrown if the text is not a date and time. 
 	 */
 	public void setStartDate(String startDate) {
-		this.startDate = startDate;
+		this.startDate = parseDateTime(startDate);
 	}
 
 	/***
-	 * Accessor method for the endDate instance variable. 
+	 * Accessor method for the startDate instance variable. 
 	 * @return Returns the contents of the instance variable. 
 	 */	
+	public LocalDateTime getStartDateTime() {
+		return startDate;
+	}
+
+	/***
+	 * Mutator method for assigning to the startDate instance variable. 
+	 * @param startDate The value to be assigned. 
+	 */
+	public void setStartDateTime(LocalDateTime startDate) {
+		this.startDate = startDate;
+	}
+
+	/***
+	 * Accessor method for the endDate instance variable, formatted as yyyy-MM-dd HH:mm:ss. This is 
+	 * what the JSPs and the front-end read. 
+	 * @return Returns the formatted date, or null if there is none. 
+	 */	
 	public String getEndDate() {
-		return endDate;
+		return formatDateTime(endDate);
 	}
 
 	/***
 	 * This mutator is unimplemented because it is implemented 
 	 * in the child classes: Location and Event. 
-	 * @param endDate The value to be assigned. 
+	 * @param endDate The value to be assigned, for example 2022-01-31 17:00:00. See parseDateTime(). 
+	 * @throws IllegalArgumentException Thrown if the text is not a date and time. 
 	 */
 	public void setEndDate(String endDate) {
+		this.endDate = parseDateTime(endDate);
+	}
+
+	/***
+	 * Accessor method for the endDate instance variable. 
+	 * @return Returns the contents of the instance variable. 
+	 */	
+	public LocalDateTime getEndDateTime() {
+		return endDate;
+	}
+
+	/***
+	 * Mutator method for assigning to the endDate instance variable. 
+	 * @param endDate The value to be assigned. 
+	 */
+	public void setEndDateTime(LocalDateTime endDate) {
 		this.endDate = endDate;
 	}
 
@@ -174,6 +242,14 @@ public abstract class Pin {
 	 * @return Returns the contents of several instance variables in a string. 
 	 */	
 	public String getLocationAddress() {
+		return locationAddress(street, town, state, zipCode);
+	}
+
+	/***
+	 * Formats the address fields as a single string. It is shared with the MapPin. 
+	 * @return Returns the address in a single string. 
+	 */
+	static String locationAddress(String street, String town, String state, String zipCode) {
 		return street + ", " + town + ", " + state + " " + zipCode;
 	}
 
@@ -183,21 +259,91 @@ public abstract class Pin {
 	 * @return Returns the coordinates in a single string. 
 	 */	
 	public String getCoordinates() {
-		return longitude + "," + latitude;
+		return formatCoordinate(longitude) + "," + formatCoordinate(latitude);
 	}
 
 	/***
 	 * This method is used to set both the longitude and latitude from a single string. 
 	 * It is assumed that the string format will be: longitude,latitude
 	 * Example input: -81.449722,28.5171
+	 * @throws IllegalArgumentException Thrown if the text is not two numbers separated by a comma. 
 	 */	
 	public void setCoordinates(String coordinates) {
 		coordinates = cleanInput(coordinates);
+		if(coordinates.trim().isEmpty()) {
+			return; // Left empty on the form. 
+		}
 		String[] split = coordinates.split(",");
-		if(split.length == 2){
-			longitude = split[0];
-			latitude = split[1];
+		if(split.length != 2) {
+			throw new IllegalArgumentException("Coordinates must be longitude,latitude: " + coordinates);
+		}
+		Double parsedLongitude = parseCoordinate(split[0]);
+		Double parsedLatitude = parseCoordinate(split[1]); // Both are parsed before either is assigned. 
+		longitude = parsedLongitude;
+		latitude = parsedLatitude;
+	}
+
+	/***
+	 * Parses a coordinate that arrives as text. 
+	 * @param coordinate The coordinate, for example -81.449722. 
+	 * @return Returns the coordinate, or null if it is missing. 
+	 * @throws IllegalArgumentException Thrown if the text is not a finite number. 
+	 */
+	static Double parseCoordinate(String coordinate) {
+		if(coordinate == null || coordinate.trim().isEmpty() || coordinate.trim().equals("null")) {
+			return null;
+		}
+		double value;
+		try {
+			value = Double.parseDouble(coordinate.trim());
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException("Not a coordinate: " + coordinate);
+		}
+		if(Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new IllegalArgumentException("Not a coordinate: " + coordinate);
+		}
+		return value;
+	}
+
+	/***
+	 * Formats a coordinate without a trailing .0, so that 91 stays 91 and -81.449722 stays -81.449722. 
+	 * @param coordinate The coordinate. 
+	 * @return Returns the coordinate as text, or null if there is none. 
+	 */
+	static String formatCoordinate(Double coordinate) {
+		if(coordinate == null) {
+			return null;
+		}
+		return BigDecimal.valueOf(coordinate).stripTrailingZeros().toPlainString();
+	}
+
+	/***
+	 * Parses a date and time that arrives as text. The seconds and a fraction are optional and the date may 
+	 * be separated from the time by a space or by a T, which covers the database format, the admin forms and 
+	 * the apis. 
+	 * @param dateTime The date and time, for example 2022-01-31 15:00:00 or 2022-01-31T15:00. 
+	 * @return Returns the LocalDateTime, or null if the text is missing. 
+	 * @throws IllegalArgumentException Thrown if the text can not be parsed, so that an event with a broken 
+	 * date is reported instead of quietly turning into a location. 
+	 */
+	static LocalDateTime parseDateTime(String dateTime) {
+		if(dateTime == null || dateTime.trim().isEmpty() || dateTime.equals("null")) {
+			return null;
 		}
+		try {
+			return LocalDateTime.parse(dateTime.trim(), DATE_TIME_INPUT);
+		} catch(DateTimeParseException e) {
+			throw new IllegalArgumentException("Not a date and time: " + dateTime, e);
+		}
+	}
+
+	/***
+	 * Formats a date and time the way the database used to return it. 
+	 * @param dateTime The date and time. 
+	 * @return Returns the text, for example 2022-01-31 15:00:00, or null if there is none. 
+	 */
+	static String formatDateTime(LocalDateTime dateTime) {
+		return dateTime == null ? null : dateTime.format(DATE_TIME_OUTPUT);
 	}
 
 	
@@ -240,6 +386,15 @@ public abstract class Pin {
 	 * @return Returns the variable as an HTML string
 	 */		
 	public String getThumbnailHTML() {
+		return thumbnailHTML(thumbnail);
+	}
+
+	/***
+	 * Formats a thumbnail as an HTML string. It is shared with the MapPin. 
+	 * @param thumbnail The thumbnail to be formatted. 
+	 * @return Returns the thumbnail as an HTML string, or an empty string if there is no thumbnail. 
+	 */
+	static String thumbnailHTML(String thumbnail) {
 		// Make sure it has a value
 		if(thumbnail != "" && thumbnail != "null" && thumbnail != null && thumbnail.trim().length() > 0)
 		{
@@ -269,6 +424,15 @@ public abstract class Pin {
 	 * @return Returns the variable as an HTML string
 	 */		
 	public String getLinkHTML() {
+		return linkHTML(link);
+	}
+
+	/***
+	 * Formats a link as an HTML string. It is shared with the MapPin. 
+	 * @param link The link to be formatted. 
+	 * @return Returns the link as an HTML string, or an empty string if there is no link. 
+	 */
+	static String linkHTML(String link) {
 		// Make sure it has a value
 		if(link != "" && link != "null" && link != null && link.trim().length() > 0)
 		{
@@ -318,6 +482,39 @@ public abstract class Pin {
 		this.api = api;
 	}
 
+	/***
+	 * Accessor method for the externalId instance variable. 
+	 * @return Returns the contents of the instance variable.
+	 */
+	public String getExternalId() {
+		return externalId;
+	}
+
+	/***
+	 * Mutator method for assigning to the externalId instance variable. Together with the api it identifies 
+	 * the source record of an imported Pin. 
+	 * @param externalId The value to be assigned. 
+	 */
+	public void setExternalId(String externalId) {
+		this.externalId = externalId;
+	}
+
+	/***
+	 * Accessor method for the removedAt instance variable. 
+	 * @return Returns the contents of the instance variable, or null if the Pin has not been removed.
+	 */
+	public LocalDateTime getRemovedAt() {
+		return removedAt;
+	}
+
+	/***
+	 * Mutator method for assigning to the removedAt instance variable. 
+	 * @param removedAt The time at which the Pin vanished from its api.
+	 */
+	public void setRemovedAt(LocalDateTime removedAt) {
+		this.removedAt = removedAt;
+	}
+
 	/***
 	 * Accessor method for the street instance variable. 
 	 * @return Returns the contents of the instance variable.
@@ -387,6 +584,23 @@ public abstract class Pin {
 	 * @return Returns the contents of the instance variable.
 	 */
 	public String getLatitude() {
+		return formatCoordinate(latitude);
+	}
+
+	/***
+     * Mutator method for assigning to the latitude instance variable.
+     * @param latitude The value to be assigned. Empty text is stored as null. 
+     * @throws IllegalArgumentException Thrown if the text is not a number. 
+     */
+	public void setLatitude(String latitude) {
+		this.latitude = parseCoordinate(latitude);
+	}
+
+	/***
+	 * Accessor method for the latitude instance variable. 
+	 * @return Returns the contents of the instance variable.
+	 */
+	public Double getLatitudeValue() {
 		return latitude;
 	}
 
@@ -394,7 +608,7 @@ public abstract class Pin {
      * Mutator method for assigning to the latitude instance variable.
      * @param latitude The value to be assigned. 
      */
-	public void setLatitude(String latitude) {
+	public void setLatitudeValue(Double latitude) {
 		this.latitude = latitude;
 	}
 
@@ -403,6 +617,23 @@ public abstract class Pin {
 	 * @return Returns the contents of the instance variable.
 	 */
 	public String getLongitude() {
+		return formatCoordinate(longitude);
+	}
+
+	/***
+     * Mutator method for assigning to the longitude instance variable.
+     * @param longitude The value to be assigned. Empty text is stored as null. 
+     * @throws IllegalArgumentException Thrown if the text is not a number. 
+     */
+	public void setLongitude(String longitude) {
+		this.longitude = parseCoordinate(longitude);
+	}
+
+	/***
+	 * Accessor method for the longitude instance variable. 
+	 * @return Returns the contents of the instance variable.
+	 */
+	public Double getLongitudeValue() {
 		return longitude;
 	}
 
@@ -410,7 +641,7 @@ public abstract class Pin {
      * Mutator method for assigning to the longitude instance variable.
      * @param longitude The value to be assigned. 
      */
-	public void setLongitude(String longitude) {
+	public void setLongitudeValue(Double longitude) {
 		this.longitude = longitude;
 	}
 
@@ -490,6 +721,7 @@ public abstract class Pin {
 		this.thumbnail = pin.thumbnail;
 		this.link = pin.link;
 		this.api = pin.api;
+		this.externalId = pin.externalId;
 		this.subPillar = pin.subPillar; // TESTING
 	}
 	
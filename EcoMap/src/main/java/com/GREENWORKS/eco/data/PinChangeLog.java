@@ -0,0 +1,195 @@
+package com.GREENWORKS.eco.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.GREENWORKS.eco.constants.SnapshotConstants;
+
+/***
+ * The PinChangeLog records the snapshot version at which every city pin last changed, and a tombstone for
+ * every pin that has left the city pins, so that a client which holds the pins of an older version can be sent
+ * only what changed since. It is built with every PinSnapshot by comparing its pins against those of the
+ * snapshot it replaces. Every write commits through a UnitOfWork, which rebuilds the snapshot, so inserts,
+ * updates, deletes, the api loaders and the DatabaseCleaner are all recorded without being instrumented one by
+ * one, and so are changes made to the database directly once the timed rebuild picks them up.
+ *
+ * The log can answer any version from getOldest() on. Older versions, such as those from before a restart or
+ * those whose tombstones have been dropped, need a full resync.
+ */
+public class PinChangeLog {
+
+    private final long version;
+    private final long oldest;
+    private final Map<Integer, Integer> positions;
+    private final long[] changedAt;
+    private final int[] byChange;
+    private final int[] tombstoneIds;
+    private final long[] tombstoneAt;
+
+    /***
+     * Constructor for the PinChangeLog.
+     * @param version The version of the snapshot that the log is built for.
+     * @param pins The city pins of that snapshot.
+     * @param previous The log of the snapshot that it replaces, or null.
+     * @param previousPins The city pins of that snapshot, or null.
+     */
+    public PinChangeLog(long version, List<MapPin> pins, PinChangeLog previous, List<MapPin> previousPins) {
+        this.version = version;
+        this.positions = new HashMap<>(pins.size() * 2);
+        this.changedAt = new long[pins.size()];
+        for (int i = 0; i < pins.size(); i++) {
+            MapPin pin = pins.get(i);
+            positions.put(pin.getId(), i);
+            Integer before = previous == null ? null : previous.positions.get(pin.getId());
+            changedAt[i] = before != null && previousPins.get(before).equals(pin) ? previous.changedAt[before] : version;
+        }
+        Integer[] order = new Integer[pins.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(changedAt[b], changedAt[a])); // Newest first.
+        this.byChange = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            byChange[i] = order[i];
+        }
+        if (previous == null) {
+            this.oldest = version;
+            this.tombstoneIds = new int[0];
+            this.tombstoneAt = new long[0];
+            return;
+        }
+        List<Integer> ids = new ArrayList<>();
+        List<Long> times = new ArrayList<>();
+        for (MapPin pin : previousPins) {
+            if (!positions.containsKey(pin.getId())) {
+                ids.add(pin.getId());
+                times.add(version);
+            }
+        }
+        long dropped = previous.oldest;
+        for (int i = 0; i < previous.tombstoneIds.length; i++) {
+            if (positions.containsKey(previous.tombstoneIds[i])) {
+                continue; // The pin is back, so it is an upsert.
+            }
+            if (ids.size() < SnapshotConstants.CHANGES_MAX_TOMBSTONES) {
+                ids.add(previous.tombstoneIds[i]);
+                times.add(previous.tombstoneAt[i]);
+            } else {
+                dropped = Math.max(dropped, previous.tombstoneAt[i]); // Clients older than this must resync.
+            }
+        }
+        this.oldest = dropped;
+        this.tombstoneIds = new int[ids.size()];
+        this.tombstoneAt = new long[ids.size()];
+        for (int i = 0; i < tombstoneIds.length; i++) {
+            tombstoneIds[i] = ids.get(i);
+            tombstoneAt[i] = times.get(i);
+        }
+    }
+
+    /***
+     * Finds what changed after a version.
+     * @param since The version that the client holds.
+     * @return Returns the changes, or null if the version can not be answered and the client needs a full resync.
+     */
+    public Changes since(long since) {
+        if (since < oldest || since > version) {
+            return null;
+        }
+        int count = 0;
+        while (count < byChange.length && changedAt[byChange[count]] > since) {
+            count++;
+        }
+        int[] upserts = Arrays.copyOf(byChange, count);
+        Arrays.sort(upserts); // In the order of the city pins.
+        List<Integer> deletes = new ArrayList<>();
+        for (int i = 0; i < tombstoneIds.length && tombstoneAt[i] > since; i++) {
+            deletes.add(tombstoneIds[i]); // The tombstones are ordered newest first.
+        }
+        return new Changes(upserts, Collections.unmodifiableList(deletes));
+    }
+
+    /***
+     * Finds the position of a pin.
+     * @param id The id of the pin.
+     * @return Returns its position in the city pins, or -1 if it is not one of them.
+     */
+    public int positionOf(int id) {
+        Integer position = positions.get(id);
+        return position == null ? -1 : position;
+    }
+
+    /***
+     * Returns the version at which a pin last changed. It stays the same across rebuilds for as long as the pin
+     * does, so it can key what is derived from a single pin.
+     * @param position The position of the pin in the city pins.
+     * @return Returns the snapshot version.
+     */
+    public long changedAt(int position) {
+        return changedAt[position];
+    }
+
+    /***
+     * Accessor method for the oldest version that the log can answer.
+     * @return Returns the contents of the instance variable.
+     */
+    public long getOldest() {
+        return oldest;
+    }
+
+    /***
+     * Accessor method for the number of tombstones that are kept.
+     * @return Returns the number of deleted pins that are remembered.
+     */
+    public int getTombstones() {
+        return tombstoneIds.length;
+    }
+
+    /***
+     * toString() method for printing the PinChangeLog in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "PinChangeLog [version=" + version + ", oldest=" + oldest + ", tombstones=" + tombstoneIds.length + "]";
+    }
+
+    /***
+     * The changes after a version: the positions of the city pins that were added or changed and the ids of the
+     * pins that were removed.
+     */
+    public static class Changes {
+
+        private final int[] upserts;
+        private final List<Integer> deletes;
+
+        /***
+         * Constructor for the Changes.
+         * @param upserts The positions of the added or changed city pins, in ascending order.
+         * @param deletes The ids of the removed pins.
+         */
+        Changes(int[] upserts, List<Integer> deletes) {
+            this.upserts = upserts;
+            this.deletes = deletes;
+        }
+
+        /***
+         * Accessor method for the added or changed pins.
+         * @return Returns their positions in the city pins, in ascending order.
+         */
+        public int[] getUpserts() {
+            return upserts;
+        }
+
+        /***
+         * Accessor method for the removed pins.
+         * @return Returns their ids, newest first.
+         */
+        public List<Integer> getDeletes() {
+            return deletes;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.GREENWORKS.eco.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import com.GREENWORKS.eco.constants.StreamConstants;
+
+/***
+ * This class builds the Server-Sent Events that the PinEventBroadcaster pushes to the map pages, and holds the
+ * bounded queue of every client. It does no I/O, so the servlet only has to write the bytes it is given.
+ */
+public class PinEvents {
+
+    /***
+     * The class is not meant to be instantiated. All access is through the static methods.
+     */
+    private PinEvents() {
+
+    }
+
+    /***
+     * Builds the notification of the pins that changed between two snapshots.
+     * @param previous The snapshot that was replaced.
+     * @param current The new snapshot.
+     * @return Returns the event, or null if no pin changed.
+     */
+    public static byte[] pinsEvent(PinSnapshot previous, PinSnapshot current) {
+        String data = changesJson(current.getVersionToken(), current.getChanges().since(previous.getVersion()),
+            current.getCityPins());
+        return data == null ? null : event("pins", current.getVersionToken(), data);
+    }
+
+    /***
+     * Builds the notification that the Pillars or SubPillars changed between two snapshots.
+     * @param previous The snapshot that was replaced.
+     * @param current The new snapshot.
+     * @return Returns the event, or null if every Pillar and SubPillar is the same.
+     */
+    public static byte[] taxonomyEvent(PinSnapshot previous, PinSnapshot current) {
+        if (PinSnapshot.sameTaxonomy(previous.getPillars(), previous.getSubPillars(), current.getPillars(),
+                current.getSubPillars())) {
+            return null;
+        }
+        return event("taxonomy", current.getVersionToken(), versionOnly(current.getVersionToken()));
+    }
+
+    /***
+     * Builds the JSON of a pins notification. It lists the ids of the changed pins, unless there are more than
+     * StreamConstants.MAX_IDS of them or the change log can not answer, in which case it only carries the
+     * version and the page resyncs.
+     * @param versionToken The version token of the new snapshot.
+     * @param changes The changes since the previous snapshot, or null if the change log can not answer.
+     * @param pins The city pins of the new snapshot, which the upserts point into.
+     * @return Returns the JSON, or null if no pin changed.
+     */
+    public static String changesJson(String versionToken, PinChangeLog.Changes changes, List<MapPin> pins) {
+        if (changes == null) {
+            return versionOnly(versionToken);
+        }
+        int[] upserts = changes.getUpserts();
+        List<Integer> deletes = changes.getDeletes();
+        if (upserts.length == 0 && deletes.isEmpty()) {
+            return null;
+        }
+        if (upserts.length + deletes.size() > StreamConstants.MAX_IDS) {
+            return versionOnly(versionToken);
+        }
+        StringBuilder json = new StringBuilder("{\"version\":\"").append(versionToken).append("\",\"upserts\":[");
+        for (int i = 0; i < upserts.length; i++) {
+            json.append(i == 0 ? "\"" : ",\"").append(pins.get(upserts[i]).getId()).append('"');
+        }
+        json.append("],\"deletes\":[");
+        for (int i = 0; i < deletes.size(); i++) {
+            json.append(i == 0 ? "\"" : ",\"").append(deletes.get(i)).append('"');
+        }
+        return json.append("]}").toString(); // Ids are numbers and the token is alphanumeric, nothing to escape.
+    }
+
+    /***
+     * Builds the JSON of a notification that only carries the version.
+     * @param versionToken The version token of the snapshot.
+     * @return Returns the JSON.
+     */
+    public static String versionOnly(String versionToken) {
+        return "{\"version\":\"" + versionToken + "\"}"; // The token is alphanumeric.
+    }
+
+    /***
+     * Formats a Server-Sent Event.
+     * @param name The event name.
+     * @param id The event id, which the browser sends back as Last-Event-ID when it reconnects.
+     * @param data The JSON of the event, on a single line.
+     * @return Returns the bytes of the event.
+     */
+    public static byte[] event(String name, String id, String data) {
+        return ("id: " + id + "\nevent: " + name + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /***
+     * The messages that are waiting to be written to one client. It is not thread safe, the PinEventBroadcaster
+     * only touches it while holding the lock of the client.
+     */
+    public static class Queue {
+
+        private final ArrayDeque<byte[]> messages = new ArrayDeque<>();
+        private final int capacity;
+        private boolean closed = false;
+
+        /***
+         * Constructor for the Queue.
+         * @param capacity The number of unsent messages at which the client counts as too slow.
+         */
+        public Queue(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /***
+         * Appends a message.
+         * @param message The bytes of the message.
+         * @return Returns false if the queue is full or closed, the message is then not added.
+         */
+        public boolean offer(byte[] message) {
+            if (closed || messages.size() >= capacity) {
+                return false;
+            }
+            messages.add(message);
+            return true;
+        }
+
+        /***
+         * Removes the oldest message.
+         * @return Returns the message, or null if the queue is empty or closed.
+         */
+        public byte[] poll() {
+            return messages.poll();
+        }
+
+        /***
+         * Drops the queued messages and refuses any further ones.
+         * @return Returns true if the queue was open until now.
+         */
+        public boolean close() {
+            messages.clear();
+            boolean wasOpen = !closed;
+            closed = true;
+            return wasOpen;
+        }
+
+        /***
+         * Accessor for whether the queue has been closed.
+         * @return Returns true if it is closed.
+         */
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /***
+         * Accessor for the number of queued messages.
+         * @return Returns the number of messages.
+         */
+        public int size() {
+            return messages.size();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.GREENWORKS.eco.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/***
+ * A PinPage is one keyset-paginated page of pins ordered by (locationName, id). The cursor of a page encodes
+ * the key of its last pin, and is handed back to SessionAssistant.getPinPage() to read the page that follows.
+ * Because the next page starts strictly after that key, rows that are inserted or deleted between two
+ * calls never cause a pin to be skipped or repeated, and every page costs the same no matter how deep it is.
+ */
+public class PinPage {
+
+    private final List<Pin> pins;
+    private final String cursor;
+    private final boolean hasNext;
+
+    /***
+     * Constructor for the PinPage.
+     * @param pins The pins of the page.
+     * @param hasNext True if there are more pins after this page.
+     */
+    PinPage(List<Pin> pins, boolean hasNext) {
+        this.pins = Collections.unmodifiableList(pins);
+        this.hasNext = hasNext;
+        this.cursor = pins.isEmpty() ? null : encodeCursor(pins.get(pins.size() - 1));
+    }
+
+    /***
+     * Accessor method for the pins of the page.
+     * @return Returns an unmodifiable List<Pin>.
+     */
+    public List<Pin> getPins() {
+        return pins;
+    }
+
+    /***
+     * Accessor method for the cursor of the page.
+     * @return Returns the cursor that reads the next page, or null if the page is empty.
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /***
+     * Returns true if there are more pins after this page.
+     * @return Returns the contents of the instance variable.
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /***
+     * Encodes the key of a pin as an opaque, URL safe cursor.
+     * @param pin The last pin of a page.
+     * @return Returns the cursor.
+     */
+    static String encodeCursor(Pin pin) {
+        String key = pin.getLocationName() == null ? String.valueOf(pin.getId()) : pin.getId() + "|" + pin.getLocationName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /***
+     * Decodes a cursor that was produced by encodeCursor().
+     * @param cursor The cursor to be decoded.
+     * @return Returns a two element array of the id and the locationName. The locationName may be null.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    static Object[] decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = key.indexOf('|');
+            if (split < 0) {
+                return new Object[] { Integer.valueOf(key), null };
+            }
+            return new Object[] { Integer.valueOf(key.substring(0, split)), key.substring(split + 1) };
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed pin cursor: " + cursor, e);
+        }
+    }
+
+    /***
+     * toString() method for printing the PinPage in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "PinPage [size=" + pins.size() + ", hasNext=" + hasNext + ", cursor=" + cursor + "]";
+    }
+}
@@ -0,0 +1,347 @@
+package com.GREENWORKS.eco.data;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.GREENWORKS.eco.index.CityBoundary;
+import com.GREENWORKS.eco.index.ClusterIndex;
+import com.GREENWORKS.eco.index.EventIntervalIndex;
+import com.GREENWORKS.eco.index.FilterEngine;
+import com.GREENWORKS.eco.index.GeoGrid;
+import com.GREENWORKS.eco.index.SearchIndex;
+
+/***
+ * The PinSnapshot is an immutable copy of everything that the pages render: the MapPins, the Pillars, the
+ * SubPillars and the Pillar to SubPillar index. A snapshot is never modified after it is built. When the data
+ * changes a new snapshot is built and swapped in by the SnapshotManager, so any number of requests can read
+ * the same snapshot without locking. The indexes that answer the API queries are built with the snapshot.
+ */
+public class PinSnapshot {
+
+    private final long version;
+    private final String generation;
+    private final String token;
+    private final String etag;
+    private final long builtAt;
+    private final List<MapPin> mapPins;
+    private final List<Pillar> pillars;
+    private final List<SubPillar> subPillars;
+    private final Map<Pillar, List<SubPillar>> pillarIndex;
+    private final List<MapPin> cityPins;
+    private final boolean boundaryApplied;
+    private final GeoGrid grid;
+    private final ClusterIndex clusters;
+    private final EventIntervalIndex events;
+    private final SearchIndex search;
+    private final FilterEngine filters;
+    private final PinChangeLog changes;
+
+    /***
+     * Constructor for the PinSnapshot. The lists are copied and the index is built here.
+     * @param version The version of the snapshot. Every rebuild that changes the data increments it.
+     * @param generation Identifies the running deployment, so that versions are never reused across restarts.
+     * @param mapPins The MapPins, ordered by name.
+     * @param pillars The Pillars.
+     * @param subPillars The SubPillars.
+     * @param previous The snapshot that this one replaces, or null. Its SearchIndex analysis of the pins that did
+     * not change is reused, and its pins are compared with these for the PinChangeLog.
+     */
+    PinSnapshot(long version, String generation, List<MapPin> mapPins, List<Pillar> pillars, List<SubPillar> subPillars,
+            PinSnapshot previous) {
+        this.version = version;
+        this.generation = generation;
+        this.token = generation + "-" + version;
+        this.etag = "\"" + token + "\"";
+        this.builtAt = System.currentTimeMillis();
+        this.mapPins = Collections.unmodifiableList(new ArrayList<>(mapPins));
+        this.pillars = Collections.unmodifiableList(new ArrayList<>(pillars));
+        this.subPillars = Collections.unmodifiableList(new ArrayList<>(subPillars));
+        Map<Pillar, List<SubPillar>> index = new LinkedHashMap<>();
+        for (SubPillar subPillar : this.subPillars) {
+            index.computeIfAbsent(subPillar.getPillar(), pillar -> new ArrayList<>()).add(subPillar);
+        }
+        for (Map.Entry<Pillar, List<SubPillar>> entry : index.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        this.pillarIndex = Collections.unmodifiableMap(index);
+        CityBoundary boundary = CityBoundary.get();
+        this.boundaryApplied = boundary.isAvailable();
+        List<MapPin> inCity = new ArrayList<>(this.mapPins.size());
+        List<double[]> coordinates = new ArrayList<>(this.mapPins.size());
+        for (MapPin pin : this.mapPins) {
+            double longitude = GeoGrid.coordinate(pin.getLongitudeValue());
+            double latitude = GeoGrid.coordinate(pin.getLatitudeValue());
+            if (!boundaryApplied || boundary.contains(longitude, latitude)) {
+                inCity.add(pin);
+                coordinates.add(new double[] { longitude, latitude });
+            }
+        }
+        this.cityPins = Collections.unmodifiableList(inCity);
+        double[] longitudes = new double[inCity.size()];
+        double[] latitudes = new double[inCity.size()];
+        int[] subPillarIds = new int[inCity.size()];
+        long[] starts = new long[inCity.size()];
+        long[] ends = new long[inCity.size()];
+        String[] names = new String[inCity.size()];
+        String[] addresses = new String[inCity.size()];
+        String[] contents = new String[inCity.size()];
+        int[] pillarIds = new int[inCity.size()];
+        boolean[] isEvent = new boolean[inCity.size()];
+        int[] firstMonths = new int[inCity.size()];
+        int[] lastMonths = new int[inCity.size()];
+        for (int i = 0; i < longitudes.length; i++) {
+            MapPin pin = inCity.get(i);
+            names[i] = pin.getLocationName();
+            addresses[i] = pin.getLocationAddress();
+            contents[i] = pin.getContent();
+            longitudes[i] = coordinates.get(i)[0];
+            latitudes[i] = coordinates.get(i)[1];
+            subPillarIds[i] = pin.getSubPillarId() == null ? -1 : pin.getSubPillarId();
+            starts[i] = pin.isEvent() ? eventTime(pin.getStartDateTime()) : EventIntervalIndex.NONE;
+            ends[i] = pin.isEvent() ? eventTime(pin.getEndDateTime()) : EventIntervalIndex.NONE;
+            pillarIds[i] = pin.getPillarId() == null ? -1 : pin.getPillarId();
+            isEvent[i] = pin.isEvent();
+            firstMonths[i] = pin.isEvent() ? monthKey(pin.getStartDateTime().getYear(), pin.getStartDateTime().getMonthValue()) : -1;
+            lastMonths[i] = pin.isEvent() ? monthKey(pin.getEndDateTime().getYear(), pin.getEndDateTime().getMonthValue()) : -1;
+        }
+        this.grid = new GeoGrid(longitudes, latitudes);
+        this.clusters = new ClusterIndex(longitudes, latitudes, subPillarIds);
+        this.events = new EventIntervalIndex(starts, ends);
+        this.search = new SearchIndex(inCity.toArray(), names, addresses, contents, subPillarIds,
+            previous == null ? null : previous.search); // A MapPin equals another only if every field does.
+        this.filters = new FilterEngine(subPillarIds, pillarIds, isEvent, firstMonths, lastMonths);
+        this.changes = previous == null ? new PinChangeLog(version, inCity, null, null)
+            : new PinChangeLog(version, inCity, previous.changes, previous.cityPins);
+    }
+
+    /***
+     * Reports whether freshly loaded data is exactly the data of this snapshot, so that a rebuild can keep it
+     * together with its version and ETag.
+     * @param mapPins The MapPins, ordered by name.
+     * @param pillars The Pillars.
+     * @param subPillars The SubPillars.
+     * @return Returns true if every MapPin, Pillar and SubPillar is equal and in the same order.
+     */
+    boolean hasSameData(List<MapPin> mapPins, List<Pillar> pillars, List<SubPillar> subPillars) {
+        return this.mapPins.equals(mapPins) && sameTaxonomy(this.pillars, this.subPillars, pillars, subPillars);
+    }
+
+    /***
+     * Compares two sets of Pillars and SubPillars field by field. Pillar.equals() only compares the ids and
+     * SubPillar does not override it, so renaming a Pillar or a SubPillar would otherwise go unnoticed.
+     * @param pillars The first Pillars.
+     * @param subPillars The first SubPillars.
+     * @param otherPillars The second Pillars.
+     * @param otherSubPillars The second SubPillars.
+     * @return Returns true if both lists hold the same values in the same order.
+     */
+    public static boolean sameTaxonomy(List<Pillar> pillars, List<SubPillar> subPillars, List<Pillar> otherPillars,
+            List<SubPillar> otherSubPillars) {
+        if (pillars.size() != otherPillars.size() || subPillars.size() != otherSubPillars.size()) {
+            return false;
+        }
+        for (int i = 0; i < pillars.size(); i++) {
+            Pillar pillar = pillars.get(i);
+            Pillar other = otherPillars.get(i);
+            if (!Objects.equals(pillar.getPid(), other.getPid()) || !Objects.equals(pillar.getName(), other.getName())) {
+                return false;
+            }
+        }
+        for (int i = 0; i < subPillars.size(); i++) {
+            SubPillar subPillar = subPillars.get(i);
+            SubPillar other = otherSubPillars.get(i);
+            if (!Objects.equals(subPillar.getSubPillarId(), other.getSubPillarId())
+                    || !Objects.equals(subPillar.getName(), other.getName())
+                    || !Objects.equals(subPillar.getThumbnail(), other.getThumbnail())
+                    || !Objects.equals(subPillar.getPillar(), other.getPillar())) { // The Pillar itself is compared above.
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /***
+     * Converts a month into the month numbers of the FilterEngine.
+     * @param year The year.
+     * @param month The month, from 1 to 12.
+     * @return Returns year * 12 + month - 1.
+     */
+    public static int monthKey(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    /***
+     * Converts a date and time into the scale of the event index. The dates are local to the city and are
+     * stored without a zone, so they are counted as if they were UTC. A day therefore always lasts 86400.
+     * @param dateTime The date and time.
+     * @return Returns the seconds since 1970-01-01 00:00 on the same wall clock.
+     */
+    public static long eventTime(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /***
+     * Accessor method for the version.
+     * @return Returns the contents of the instance variable.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /***
+     * Accessor method for the generation, which identifies the running deployment.
+     * @return Returns the contents of the instance variable.
+     */
+    public String getGeneration() {
+        return generation;
+    }
+
+    /***
+     * Accessor method for the data version token. It identifies the snapshot across restarts and is what
+     * versioned URLs, such as the tile URLs, carry.
+     * @return Returns the token, which is the ETag without its quotes.
+     */
+    public String getVersionToken() {
+        return token;
+    }
+
+    /***
+     * Accessor method for the strong entity tag of the snapshot. It changes whenever the data changes.
+     * @return Returns the quoted ETag value.
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    /***
+     * Accessor method for the time at which the snapshot was built.
+     * @return Returns the time in epoch milliseconds.
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    /***
+     * Returns how long ago the snapshot was built.
+     * @return Returns the age in milliseconds.
+     */
+    public long getAgeMillis() {
+        return System.currentTimeMillis() - builtAt;
+    }
+
+    /***
+     * Accessor method for the MapPins.
+     * @return Returns an unmodifiable List<MapPin>.
+     */
+    public List<MapPin> getMapPins() {
+        return mapPins;
+    }
+
+    /***
+     * Accessor method for the Pillars.
+     * @return Returns an unmodifiable List<Pillar>.
+     */
+    public List<Pillar> getPillars() {
+        return pillars;
+    }
+
+    /***
+     * Accessor method for the SubPillars.
+     * @return Returns an unmodifiable List<SubPillar>.
+     */
+    public List<SubPillar> getSubPillars() {
+        return subPillars;
+    }
+
+    /***
+     * Accessor method for the Pillar to SubPillar index.
+     * @return Returns an unmodifiable Map of every Pillar to its SubPillars.
+     */
+    public Map<Pillar, List<SubPillar>> getPillarIndex() {
+        return pillarIndex;
+    }
+
+    /***
+     * Accessor method for the MapPins that lie inside the city limits. These are the pins the public map shows.
+     * If no CityBoundary is available every MapPin is included.
+     * @return Returns an unmodifiable List<MapPin>, ordered by name.
+     */
+    public List<MapPin> getCityPins() {
+        return cityPins;
+    }
+
+    /***
+     * Reports whether the city pins were filtered by a CityBoundary.
+     * @return Returns true if the boundary was available when the snapshot was built.
+     */
+    public boolean isBoundaryApplied() {
+        return boundaryApplied;
+    }
+
+    /***
+     * Accessor method for the spatial index of the city pins.
+     * @return Returns the GeoGrid. Its positions are positions in getCityPins().
+     */
+    public GeoGrid getGrid() {
+        return grid;
+    }
+
+    /***
+     * Accessor method for the marker clusters of the city pins.
+     * @return Returns the ClusterIndex. Its pin positions are positions in getCityPins().
+     */
+    public ClusterIndex getClusters() {
+        return clusters;
+    }
+
+    /***
+     * Accessor method for the interval index over the start and end of the events in the city. Its positions
+     * are the positions of the city pins and its times are those of eventTime().
+     * @return Returns the contents of the instance variable.
+     */
+    public EventIntervalIndex getEvents() {
+        return events;
+    }
+
+    /***
+     * Accessor method for the full-text index over the name, address and content of the city pins. Its
+     * positions are the positions of the city pins and its categories are the SubPillar ids.
+     * @return Returns the contents of the instance variable.
+     */
+    public SearchIndex getSearch() {
+        return search;
+    }
+
+    /***
+     * Accessor method for the bitmap filters over the city pins. Its positions are the positions of the city
+     * pins and its months are those of monthKey().
+     * @return Returns the contents of the instance variable.
+     */
+    public FilterEngine getFilters() {
+        return filters;
+    }
+
+    /***
+     * Accessor method for the change log of the city pins. Its positions are the positions of the city pins and
+     * its versions are snapshot versions of this generation.
+     * @return Returns the contents of the instance variable.
+     */
+    public PinChangeLog getChanges() {
+        return changes;
+    }
+
+    /***
+     * toString() method for printing the PinSnapshot in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "PinSnapshot [version=" + version + ", pins=" + mapPins.size() + ", pillars=" + pillars.size()
+            + ", subPillars=" + subPillars.size() + "]";
+    }
+}
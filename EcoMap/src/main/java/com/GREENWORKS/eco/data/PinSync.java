@@ -0,0 +1,115 @@
+package com.GREENWORKS.eco.data;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.hibernate.Session;
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.constants.QueryConstants;
+
+/***
+ * This class brings the Pins of a single api in line with the records that were just fetched from it. Every
+ * record is identified by (api, externalId). New records are inserted, changed records are updated in place so
+ * their ids are kept, records that are already up to date are left alone, and stored Pins whose record has
+ * vanished are tombstoned. Everything happens in one transaction, so the map never sees a half-synced api.
+ */
+public class PinSync {
+
+    /***
+     * Syncs the stored Pins of an api with the fetched records.
+     * @param api The api that the records were fetched from.
+     * @param fetched The fetched records. Each one requires an externalId, records without one are skipped.
+     * @return Returns the counts of inserted, updated, unchanged and removed Pins.
+     */
+    public static SyncReport sync(Byte api, List<Pin> fetched) {
+        SyncReport report = new SyncReport(api);
+        long start = System.currentTimeMillis();
+        Map<String, Pin> incoming = new LinkedHashMap<>();
+        for (Pin pin : fetched) {
+            if (pin.externalId == null || incoming.put(pin.externalId, pin) != null) {
+                report.skip(); // The api repeated a record, or did not identify it. The last copy wins.
+            }
+        }
+        if (incoming.isEmpty()) {
+            Logger.warn("Api " + api + " returned no records. The sync was skipped so that its Pins are not all removed.");
+            report.reject("no records");
+            return report;
+        }
+        LocalDateTime now = LocalDateTime.now().withNano(0); // DATETIME keeps whole seconds.
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            Session session = work.session();
+            Map<String, Pin> stored = new HashMap<>();
+            for (Pin pin : session.createNamedQuery(QueryConstants.PINS_BY_API, Pin.class).setParameter("api", api).getResultList()) {
+                if (pin.externalId != null) {
+                    stored.put(pin.externalId, pin);
+                } else if (pin.removedAt == null) {
+                    pin.removedAt = now; // Imported before records were keyed. The keyed copy replaces it.
+                    report.removed();
+                }
+            }
+            for (Pin pin : incoming.values()) {
+                Pin existing = stored.remove(pin.externalId);
+                if (existing == null) {
+                    pin.api = api;
+                    session.save(pin);
+                    report.inserted();
+                } else if (existing.removedAt == null && hasSameSourceFields(existing, pin)) {
+                    report.unchanged();
+                } else {
+                    copySourceFields(pin, existing); // Dirty checking issues the UPDATE.
+                    existing.removedAt = null;
+                    report.updated();
+                }
+            }
+            for (Pin vanished : stored.values()) {
+                if (vanished.removedAt == null) {
+                    vanished.removedAt = now;
+                    report.removed();
+                }
+            }
+            work.commit(); // One flush. The inserts and updates go out as ordered JDBC batches.
+        }
+        report.setTotalMillis(System.currentTimeMillis() - start);
+        Logger.info("Api sync completed: " + report);
+        return report;
+    }
+
+    /***
+     * Compares the fields that an api provides.
+     * @param a The first Pin.
+     * @param b The second Pin.
+     * @return Returns true if the api fields are equal.
+     */
+    static boolean hasSameSourceFields(Pin a, Pin b) {
+        return Objects.equals(a.iconId, b.iconId) && Objects.equals(a.locationName, b.locationName)
+            && Objects.equals(a.street, b.street) && Objects.equals(a.town, b.town)
+            && Objects.equals(a.state, b.state) && Objects.equals(a.zipCode, b.zipCode)
+            && Objects.equals(a.latitude, b.latitude) && Objects.equals(a.longitude, b.longitude)
+            && Objects.equals(a.content, b.content) && Objects.equals(a.thumbnail, b.thumbnail)
+            && Objects.equals(a.link, b.link);
+    }
+
+    /***
+     * Copies the fields that an api provides. The id, the SubPillar and the dates are left alone.
+     * @param from The fetched record.
+     * @param to The stored Pin.
+     */
+    static void copySourceFields(Pin from, Pin to) {
+        to.iconId = from.iconId;
+        to.locationName = from.locationName;
+        to.street = from.street;
+        to.town = from.town;
+        to.state = from.state;
+        to.zipCode = from.zipCode;
+        to.latitude = from.latitude;
+        to.longitude = from.longitude;
+        to.content = from.content;
+        to.thumbnail = from.thumbnail;
+        to.link = from.link;
+    }
+}
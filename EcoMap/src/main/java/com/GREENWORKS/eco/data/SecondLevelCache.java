@@ -0,0 +1,100 @@
+package com.GREENWORKS.eco.data;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.constants.CacheConstants;
+
+/***
+ * This class owns the in-process cache that backs the Hibernate second-level cache. The regions are created
+ * here from the values in CacheConstants and handed to Hibernate, so the size and TTL of every region is
+ * configured in one place. It also performs the explicit eviction of the taxonomy after an admin edit.
+ */
+public class SecondLevelCache {
+
+    private static final String PROVIDER = "org.ehcache.jsr107.EhcacheCachingProvider";
+    private static final LongAdder EVICTIONS = new LongAdder();
+    private static CacheManager cacheManager;
+
+    /***
+     * The class is not meant to be instantiated. All access is through the static methods.
+     */
+    private SecondLevelCache() {
+
+    }
+
+    /***
+     * Returns the CacheManager that Hibernate should use. The regions are created on the first call.
+     * @return Returns the configured CacheManager.
+     */
+    public static synchronized CacheManager getCacheManager() {
+        if (cacheManager == null || cacheManager.isClosed()) {
+            cacheManager = Caching.getCachingProvider(PROVIDER).getCacheManager();
+            createRegion(CacheConstants.PILLAR_REGION, CacheConstants.TAXONOMY_MAX_ENTRIES, CacheConstants.TAXONOMY_TTL);
+            createRegion(CacheConstants.SUB_PILLAR_REGION, CacheConstants.TAXONOMY_MAX_ENTRIES, CacheConstants.TAXONOMY_TTL);
+            createRegion(CacheConstants.TAXONOMY_QUERY_REGION, CacheConstants.QUERY_MAX_ENTRIES, CacheConstants.TAXONOMY_TTL);
+            createRegion(CacheConstants.UPDATE_TIMESTAMPS_REGION, CacheConstants.UPDATE_TIMESTAMPS_MAX_ENTRIES, 0);
+        }
+        return cacheManager;
+    }
+
+    /***
+     * Creates a heap region unless it already exists.
+     * @param name The name of the region.
+     * @param maxEntries The maximum number of entries that the region will hold.
+     * @param ttl The time to live of an entry in seconds. Zero means that entries do not expire.
+     */
+    private static void createRegion(String name, long maxEntries, long ttl) {
+        if (cacheManager.getCache(name) != null) {
+            return;
+        }
+        CacheConfigurationBuilder<Object, Object> builder = CacheConfigurationBuilder.newCacheConfigurationBuilder(
+            Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries));
+        builder = builder.withExpiry(ttl > 0 ? ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttl))
+            : ExpiryPolicyBuilder.noExpiration());
+        cacheManager.createCache(name, Eh107Configuration.fromEhcacheCacheConfiguration(builder));
+        Logger.info("Second-level cache region " + name + " created with " + maxEntries + " entries and a TTL of " + ttl + " s.");
+    }
+
+    /***
+     * Evicts the Pillar and SubPillar entities and the cached taxonomy queries.
+     * @param sessionFactory The SessionFactory whose cache is evicted.
+     */
+    public static void evictTaxonomy(SessionFactory sessionFactory) {
+        Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Pillar.class);
+        cache.evictEntityData(SubPillar.class);
+        cache.evictQueryRegion(CacheConstants.TAXONOMY_QUERY_REGION);
+        EVICTIONS.increment();
+        Logger.info("Taxonomy evicted from the second-level cache.");
+    }
+
+    /***
+     * Counter of the explicit taxonomy evictions.
+     * @return Returns the number of times the taxonomy was evicted.
+     */
+    public static long getEvictions() {
+        return EVICTIONS.sum();
+    }
+
+    /***
+     * Closes the CacheManager. It is called after the SessionFactory has been closed.
+     */
+    public static synchronized void close() {
+        if (cacheManager != null) {
+            cacheManager.close();
+            cacheManager = null;
+        }
+    }
+}
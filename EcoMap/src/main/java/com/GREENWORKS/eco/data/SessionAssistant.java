@@ -2,100 +2,230 @@ package com.GREENWORKS.eco.data;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.Query;
 import org.tinylog.Logger;
 
+import com.GREENWORKS.eco.constants.BatchConstants;
+import com.GREENWORKS.eco.constants.PagingConstants;
+import com.GREENWORKS.eco.constants.QueryConstants;
+
 /***
  * This class is intended to assist the Servlets by providing a medium for all the backend database functions. 
+ * Methods that only read go through UnitOfWork.beginReadOnly() and may be served by the replica. Methods that 
+ * write go through UnitOfWork.begin() and always use the primary. 
  */
 public class SessionAssistant { 
-	
-    private static SessionFactory sessionFactory;
     
     /***
-     * In order to instantiate the SessionFactory thi method must be called. The SessionFactory will refer to the private method
-     * buildSessionFactory() to recieve all of its configurations. 
+     * This method opens a Session from the shared SessionFactory. The SessionFactory is built once by the 
+     * SessionFactoryUtility, so concurrent callers can never build competing factories. The methods of this class
+     * do not call it directly, they go through a UnitOfWork so that the Session is always closed and tracked. 
      * @return returns an opened Session. 
      */
     public static Session openSession() {
-        if(sessionFactory != null){
-            return sessionFactory.openSession();
-        }
-    	sessionFactory = SessionFactoryUtility.getSessionFactory();
-        Logger.info("Opening session.");
-    	return sessionFactory.openSession();
+    	return SessionFactoryUtility.getSessionFactory().openSession();
     }
     
     /***
-     * This is used to shutdown the SessionFactory. It will close the connection pools and also
-     * the cache. 
+     * This is used to shutdown the SessionFactory. It will close the cache. 
      */
     public void shutdownSessionFactory() {
         Logger.info("Closing session.");
-        getSessionFactory().close(); // Close caches and connection pools. 
+        SessionFactoryUtility.shutdown(); // Close caches. 
     }
 	
     /***
-     * This method return the SessionFactory instance variable. It is important to
-     * have an instantiated sessionFactory prior to calling this method. 
-     * @return The instance variable that is a SessionFactory. 
+     * This method return the shared SessionFactory. 
+     * @return The shared SessionFactory. 
      */
     public static SessionFactory getSessionFactory() {
-        Logger.info("Accessing the SessionFactory.");
-        return sessionFactory;
+        return SessionFactoryUtility.getSessionFactory();
     }
     
+    /***
+     * This method evicts the Pillars, the SubPillars and the cached taxonomy queries from the second-level cache.
+     * It must be called after the taxonomy has been edited so that the next page view reloads it. 
+     */
+    public void evictTaxonomyCache() {
+        SecondLevelCache.evictTaxonomy(getSessionFactory());
+    }
+
     /***
      * This method is used to insert a new item into the table. 
      * @param dataSet At the time of the documentation Admin and Pin are valid object types. 
      */
 	public <T> void insert(T item) {
-		Session session = openSession();
-	 	session.beginTransaction();
-	 	session.save(item);
-	 	session.getTransaction().commit();
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			work.session().save(item);
+			work.commit();
+		}
 	 	Logger.info("Item saved: " + item);
-	    session.close();
 	}
 	
 	/***
-     * This method is used to insert a new item into the table. 
-     * @param dataSet At the time of the documentation Admin and Pin are valid object types. 
+     * This method is used to save a list of new items into their tables. The items are written in JDBC batches of
+     * BatchConstants.BATCH_SIZE and the persistence context is flushed and cleared after every batch, so memory
+     * use stays flat no matter how long the list is.
+     * @param items At the time of the documentation Admin and Pin are valid object types.
+     * @return Returns the row count and timing of every batch.
      */
-	public <T> void saveList(ArrayList<T> items) {
-		Session session = openSession();
-	 	session.beginTransaction();
-	 	for(T item : items) {
-	 		session.save(item);
-	 		Logger.info("Item saved: " + item);
-	 	}
-	 	session.getTransaction().commit();
-	    session.close();
+	public <T> BulkResult saveList(List<T> items) {
+		return writeList("save", items, (session, item) -> session.save(item));
 	}
 
-    public <T> void deleteList(ArrayList<T> arrayList) {
-        Session session = openSession();
-        session.beginTransaction();
-        for(T t : arrayList){
-            session.delete(t);
-        }
-        session.getTransaction().commit();
-        session.close();
+	/***
+     * This method is used to delete a list of items from their tables. The deletes are batched the same way as
+     * the saveList() method.
+     * @param items The items to be deleted. Each item requires a populated id.
+     * @return Returns the row count and timing of every batch.
+     */
+    public <T> BulkResult deleteList(List<T> items) {
+        return writeList("delete", items, (session, item) -> session.delete(item));
     }
-	
+
+	/***
+     * This method is used to insert a list of brand new items through a StatelessSession. There is no persistence
+     * context, no dirty checking and no cascading, which makes it the cheapest way to load freshly fetched rows.
+     * It should only be used for pure inserts.
+     * @param items At the time of the documentation Admin and Pin are valid object types.
+     * @return Returns the row count and timing of every batch.
+     */
+	public <T> BulkResult insertList(List<T> items) {
+		return insertList(items, true);
+	}
+
+	/***
+     * This method inserts a list of brand new items like insertList(List), optionally without rebuilding the
+     * PinSnapshot. StagedLoad uses it for locations_staging, which the pages never render.
+     * @param items The items to be inserted.
+     * @param rebuildSnapshot Whether the commit queues a rebuild of the PinSnapshot.
+     * @return Returns the row count and timing of every batch.
+     */
+	<T> BulkResult insertList(List<T> items, boolean rebuildSnapshot) {
+		BulkResult result = new BulkResult("insert");
+		long start = System.currentTimeMillis();
+		StatelessSession session = getSessionFactory().openStatelessSession();
+		SessionTracker.Ticket ticket = SessionTracker.opened("stateless");
+		Transaction transaction = null;
+		try {
+			transaction = session.beginTransaction();
+			SessionTracker.transactionStarted();
+			long batchStart = System.currentTimeMillis();
+			int rows = 0;
+			for(T item : items) {
+				session.insert(item);
+				if(++rows == BatchConstants.BATCH_SIZE) {
+					((SharedSessionContractImplementor) session).getJdbcCoordinator().executeBatch(); // Sends the JDBC batch.
+					result.addBatch(rows, System.currentTimeMillis() - batchStart);
+					rows = 0;
+					batchStart = System.currentTimeMillis();
+				}
+			}
+			if(rows > 0) {
+				((SharedSessionContractImplementor) session).getJdbcCoordinator().executeBatch();
+				result.addBatch(rows, System.currentTimeMillis() - batchStart);
+			}
+			transaction.commit();
+			if(rebuildSnapshot) {
+				SnapshotManager.markDirty();
+			}
+		} catch(RuntimeException e) {
+			if(transaction != null && transaction.getStatus().canRollback()) {
+				transaction.rollback();
+			}
+			throw e;
+		} finally {
+			if(transaction != null) {
+				SessionTracker.transactionEnded();
+			}
+			session.close();
+			SessionTracker.closed(ticket);
+		}
+		result.setTotalMillis(System.currentTimeMillis() - start);
+		Logger.info("Bulk write completed: " + result);
+		return result;
+	}
+
+	/***
+	 * This method is shared by the batched bulk writes. Every BATCH_SIZE items the session is flushed, which sends
+	 * the JDBC batch, and cleared, which releases the written entities.
+	 * @param operation The name of the operation, used for the BulkResult.
+	 * @param items The items to be written.
+	 * @param write The Session operation that is applied to each item.
+	 * @return Returns the row count and timing of every batch.
+	 */
+	private <T> BulkResult writeList(String operation, List<T> items, BiConsumer<Session, T> write) {
+		BulkResult result = new BulkResult(operation);
+		long start = System.currentTimeMillis();
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			Session session = work.session();
+			long batchStart = System.currentTimeMillis();
+			int rows = 0;
+			for(T item : items) {
+				write.accept(session, item);
+				if(++rows == BatchConstants.BATCH_SIZE) {
+					session.flush(); // Sends the JDBC batch.
+					session.clear(); // Releases the written entities.
+					result.addBatch(rows, System.currentTimeMillis() - batchStart);
+					rows = 0;
+					batchStart = System.currentTimeMillis();
+				}
+			}
+			if(rows > 0) {
+				session.flush();
+				session.clear();
+				result.addBatch(rows, System.currentTimeMillis() - batchStart);
+			}
+			work.commit();
+		}
+		result.setTotalMillis(System.currentTimeMillis() - start);
+		Logger.info("Bulk write completed: " + result);
+		return result;
+	}
+
+	/***
+	 * This method brings the stored Pins of an api in line with the records that were just fetched from it. 
+	 * See PinSync for the details. 
+	 * @param api The api that the records were fetched from. 
+	 * @param pins The fetched records, each with its externalId populated. 
+	 * @return Returns the counts of inserted, updated, unchanged and removed Pins. 
+	 */
+	public SyncReport syncApiPins(Byte api, List<Pin> pins) {
+		return PinSync.sync(api, pins);
+	}
+
+	/***
+	 * This method loads the records of an api through the staging table. The records are only published to the 
+	 * locations table if they pass the row count and coordinate checks, and then in one short transaction. 
+	 * See StagedLoad for the details. 
+	 * @param api The api that the records were fetched from. 
+	 * @param pins The fetched records, each with its externalId populated. 
+	 * @return Returns the report of the load, including the reason if it was rejected. 
+	 */
+	public SyncReport loadApiPins(Byte api, List<Pin> pins) {
+		return StagedLoad.load(api, pins);
+	}
+
 	/***
 	 * This is the update method. This method will update existing entries in the database. 
 	 * @param admin At the time of the documentation Admin and Pin are valid object types. 
 	 */
 	public <T> void update(T item) {
-    	Session session = openSession();
-   	 	session.beginTransaction();
-   	 	session.update(item);
-   	 	session.getTransaction().commit();
+    	try (UnitOfWork work = UnitOfWork.begin()) {
+    		work.session().update(item);
+    		work.commit();
+    	}
    	 	Logger.info("Item updated: " + item);
-   	 	session.close();
     }
     
     /***
@@ -103,12 +233,11 @@ public class SessionAssistant {
      * @param pin Requires the Pin object that will be deleted in the database. 
      */
     public <T> void delete(T item) {
-    	Session session = openSession();
-    	session.beginTransaction();
-    	session.delete(item);
-    	session.getTransaction().commit();
+    	try (UnitOfWork work = UnitOfWork.begin()) {
+    		work.session().delete(item);
+    		work.commit();
+    	}
     	Logger.info("Item deleted: " + item);
-    	session.close();
     }
    
     /***
@@ -118,10 +247,11 @@ public class SessionAssistant {
      * @return Returns a populated Pin. 
      */
     public Pin get(Pin pin) {
-    	Session session = openSession();
-    	session.beginTransaction();
-    	Pin data = session.find(pin.getClass(), pin.getId());
-    	session.close();
+    	Pin data;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		data = work.session().find(pin.getClass(), pin.getId());
+    		work.commit();
+    	}
         Logger.info("Returned pin: " + data);
     	return data;
     }
@@ -133,10 +263,11 @@ public class SessionAssistant {
      * @return Returns a populated Admin. 
      */
     public Admin get(Admin admin) {
-    	Session session = openSession();
-    	session.beginTransaction();
-    	Admin adminDb = session.find(Admin.class, admin.getId());
-    	session.close();
+    	Admin adminDb;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		adminDb = work.session().find(Admin.class, admin.getId());
+    		work.commit();
+    	}
         Logger.info("Returned admin: " + adminDb);
     	return adminDb;
     }
@@ -148,10 +279,11 @@ public class SessionAssistant {
      * @return Returns the matching data set. 
      */
     public Pillar get(Pillar pillar) {
-    	Session session = openSession();
-    	session.beginTransaction();
-    	Pillar data = session.find(pillar.getClass(), pillar.getPid());
-    	session.close();
+    	Pillar data;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		data = work.session().find(pillar.getClass(), pillar.getPid());
+    		work.commit();
+    	}
         Logger.info("Returned pillar: " + data);
     	return data;
     }
@@ -163,11 +295,12 @@ public class SessionAssistant {
      * @return Returns the matching data set. 
      */
     public SubPillar get(SubPillar subPillar) {
-    	Session session = openSession();
-    	session.beginTransaction();
-    	SubPillar data = session.find(subPillar.getClass(), subPillar.getSubPillarId());
+    	SubPillar data;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		data = work.session().find(subPillar.getClass(), subPillar.getSubPillarId());
+    		work.commit();
+    	}
     	Logger.info("Returned subPillar: " + data);
-    	session.close();
     	return data;
     }
    
@@ -179,11 +312,12 @@ public class SessionAssistant {
    	 * @return Returns the results from the database as an Admin object. 
    	 */
     public Admin getByLoginCredentials(String username, String password) {
-    	Session session = openSession();
-    	Admin admin = (Admin) session.createQuery("FROM Admin WHERE password = :password AND username = :username").
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		Admin admin = work.session().createNamedQuery(QueryConstants.ADMIN_BY_CREDENTIALS, Admin.class).
 			   					setParameter("password", password).setParameter("username", username).uniqueResult();
-    	session.close();
-    	return admin;
+    		work.commit();
+    		return admin;
+    	}
     }
    
     /***
@@ -194,10 +328,11 @@ public class SessionAssistant {
      * @return The Pin object that has had its instance variables populated from the database. 
      */
     public Pin load(Pin pin) {
-    	Session session = openSession();
-    	session.beginTransaction();
-    	GenericPin genericPin = session.load(GenericPin.class, pin.getId());
-    	session.close();
+    	GenericPin genericPin;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		genericPin = work.session().load(GenericPin.class, pin.getId());
+    		work.commit();
+    	}
         Logger.info("Loaded pin: " + genericPin);
     	return genericPin;
     }
@@ -210,34 +345,113 @@ public class SessionAssistant {
      * @return The Admin object that has had its instance variables populated from the database. 
      */
     public Admin load(Admin admin) {
-    	Session session = openSession();
-    	session.beginTransaction();
-    	Admin adminDb = session.load(Admin.class, admin.getId());
-    	session.close();
+    	Admin adminDb;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		adminDb = work.session().load(Admin.class, admin.getId());
+    		work.commit();
+    	}
         Logger.info("Loaded admin: " + adminDb);
     	return adminDb;
     }
 
     /***
-     * This method returns all pins that are stored in the database. It stores all the pins in a List<Pin>. 
+     * This method returns all pins that are stored in the database. It stores all the pins in a List<Pin>. The SubPillar
+     * and Pillar of every pin are fetched by the same SELECT. 
      * @return Returns a List<Pin> of all the Pins. 
      */
     public List<Pin> getAllPinsList() {
-    	Session session = openSession();
-    	List<Pin> pinList = session.createQuery("SELECT p FROM GenericPin p ORDER BY p.locationName", Pin.class).getResultList();
-        session.close();
+    	List<Pin> pinList;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		pinList = work.session().createNamedQuery(QueryConstants.PINS_BY_NAME, Pin.class).getResultList();
+    		work.commit();
+    	}
         Logger.info("Retrieved List<Pin> result list.");
     	return pinList;
     }
 
+    /***
+     * This method streams every pin in the database to the provided action, ordered by name. The rows are read
+     * through a forward-only cursor PagingConstants.FETCH_SIZE rows at a time and the Session is cleared after
+     * every chunk, so memory use stays bounded no matter how large the table is. The pins are detached by the time
+     * the next chunk is read, so the action must not hold on to the Session. 
+     * @param action The action that is applied to every pin. 
+     * @return Returns the number of pins that were processed. 
+     */
+    public long forEachPin(Consumer<Pin> action) {
+    	long count = 0;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		Session session = work.session();
+    		try (ScrollableResults results = session.createNamedQuery(QueryConstants.PINS_BY_NAME, Pin.class)
+    				.setFetchSize(PagingConstants.FETCH_SIZE).scroll(ScrollMode.FORWARD_ONLY)) {
+    			while(results.next()) {
+    				action.accept((Pin) results.get(0));
+    				if(++count % PagingConstants.FETCH_SIZE == 0) {
+    					session.clear(); // Releases the chunk that was just processed.
+    				}
+    			}
+    		}
+    		work.commit();
+    	}
+    	Logger.info("Streamed " + count + " pins.");
+    	return count;
+    }
+
+    /***
+     * This method returns a single keyset-paginated page of pins ordered by (locationName, id). Unlike an
+     * OFFSET, the cursor seeks straight to the first row of the page, so deep pages are as cheap as the first. 
+     * @param cursor The cursor of the previous page, or null for the first page. 
+     * @param pageSize The number of pins per page. It is capped at PagingConstants.MAX_PAGE_SIZE. 
+     * @return Returns the page, together with the cursor that reads the page after it. 
+     */
+    public PinPage getPinPage(String cursor, int pageSize) {
+    	int size = Math.max(1, Math.min(pageSize, PagingConstants.MAX_PAGE_SIZE));
+    	List<Pin> pins;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		Query<Pin> query;
+    		if(cursor == null) {
+    			query = work.session().createNamedQuery(QueryConstants.PINS_KEYSET_FIRST, Pin.class);
+    		} else {
+    			Object[] key = PinPage.decodeCursor(cursor);
+    			if(key[1] == null) {
+    				query = work.session().createNamedQuery(QueryConstants.PINS_KEYSET_AFTER_NULL_NAME, Pin.class);
+    			} else {
+    				query = work.session().createNamedQuery(QueryConstants.PINS_KEYSET_AFTER, Pin.class)
+    						.setParameter("name", key[1]);
+    			}
+    			query.setParameter("id", key[0]);
+    		}
+    		pins = query.setMaxResults(size + 1).getResultList(); // One extra row tells whether there is a next page.
+    		work.commit();
+    	}
+    	boolean hasNext = pins.size() > size;
+    	return new PinPage(hasNext ? new ArrayList<>(pins.subList(0, size)) : pins, hasNext);
+    }
+
+    /***
+     * This method returns the map view of every pin as a List<MapPin>. It is a single joined SELECT that is projected
+     * straight into MapPins, so no Pin, SubPillar or Pillar entities are hydrated. 
+     * @return Returns a List<MapPin> of all the Pins, ordered by name. 
+     */
+    public List<MapPin> getMapPins() {
+    	List<MapPin> mapPinList;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		mapPinList = work.session().createNamedQuery(QueryConstants.MAP_PINS, MapPin.class).getResultList();
+    		work.commit();
+    	}
+        Logger.info("Retrieved List<MapPin> result list.");
+    	return mapPinList;
+    }
+
     /***
      * This method returns all pillars that are stored in the database. It stores all the pillars in a List<Pillar>. 
      * @return Returns a List<Pillar> of all the pillars. 
      */
     public List<Pillar> getAllPillars() {
-    	Session session = openSession();
-    	List<Pillar> pillarList = session.createQuery("SELECT p FROM Pillar p ORDER BY p.pId", Pillar.class).getResultList();
-        session.close();
+    	List<Pillar> pillarList;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		pillarList = work.session().createNamedQuery(QueryConstants.PILLARS_ALL, Pillar.class).getResultList();
+    		work.commit();
+    	}
         Logger.info("Retrieved List<Pillar> result list.");
     	return pillarList;
     }
@@ -247,9 +461,11 @@ public class SessionAssistant {
      * @return Returns a List<SubPillar> of all the sub-pillars. 
      */
     public List<SubPillar> getAllSubPillars() {
-    	Session session = openSession();
-    	List<SubPillar> subPillarList = session.createQuery("SELECT p FROM SubPillar p ORDER BY p.spId", SubPillar.class).getResultList();
-        session.close();
+    	List<SubPillar> subPillarList;
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		subPillarList = work.session().createNamedQuery(QueryConstants.SUB_PILLARS_ALL, SubPillar.class).getResultList();
+    		work.commit();
+    	}
         Logger.info("Retrieved List<SubPillar> result list.");
     	return subPillarList;
     }
@@ -259,8 +475,11 @@ public class SessionAssistant {
      * @return The total of locations. 
      */
     public long getLocationsTableSize() {
-    	Session session = openSession();
-    	return (long)session.createQuery("SELECT COUNT(p) FROM GenericPin p").getSingleResult();
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		long size = work.session().createNamedQuery(QueryConstants.PINS_COUNT, Long.class).getSingleResult();
+    		work.commit();
+    		return size;
+    	}
     }
 
     /***
@@ -268,8 +487,11 @@ public class SessionAssistant {
      * @return The total of admins. 
      */
     public long getAdminsTableSize() {
-    	Session session = openSession();
-    	return (long)session.createQuery("SELECT COUNT(a) FROM Admin a").getSingleResult();
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		long size = work.session().createNamedQuery(QueryConstants.ADMINS_COUNT, Long.class).getSingleResult();
+    		work.commit();
+    		return size;
+    	}
     }
 
 }
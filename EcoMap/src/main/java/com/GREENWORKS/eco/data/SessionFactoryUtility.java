@@ -2,40 +2,103 @@ package com.GREENWORKS.eco.data;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.ConnectionPool;
+import com.GREENWORKS.eco.constants.BatchConstants;
 
 /***
- * The definition of the SessionFactoryUtility class. This class is used to return the configured SessionFactory. 
+ * The definition of the SessionFactoryUtility class. This class is used to return the configured SessionFactory.
+ * The SessionFactory is expensive to build, so it is built exactly once and then shared. The ApplicationLifecycle
+ * listener builds it during deployment so that the first request does not pay for it.
  */
 public class SessionFactoryUtility {
-    
-    private static SessionFactory sessionFactory;
+
+    private static volatile SessionFactory sessionFactory;
 
     /***
-     * This method returns the configured builder for the SessionFactory. 
-     * @return returns the configured SessionFactory. 
+     * This method returns the configured SessionFactory. The first call builds it, every call after that
+     * returns the same instance.
+     * @return returns the configured SessionFactory.
      */
     public static SessionFactory getSessionFactory() {
-        if(sessionFactory == null) {
-            try {
-                Configuration config = new Configuration().configure();
-                config.addAnnotatedClass(Admin.class);
-                config.addAnnotatedClass(EventPin.class);
-                config.addAnnotatedClass(LocationPin.class);
-                config.addAnnotatedClass(GenericPin.class);
-                config.addAnnotatedClass(ProblemPin.class);
-                config.addAnnotatedClass(OldEventPin.class);
-                config.addAnnotatedClass(SubPillar.class);
-                config.addAnnotatedClass(Pillar.class);
-                StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder().applySettings(config.getProperties());
-                return config.buildSessionFactory(builder.build());
-            }
-            catch (Throwable ex) {
-                System.err.println("Initial SessionFactory creation failed." + ex);
-                throw new ExceptionInInitializerError(ex);
+        SessionFactory factory = sessionFactory;
+        if(factory == null) {
+            synchronized (SessionFactoryUtility.class) {
+                factory = sessionFactory;
+                if(factory == null) {
+                    factory = buildSessionFactory();
+                    sessionFactory = factory;
+                }
             }
-        } else {
-            return sessionFactory;
+        }
+        return factory;
+    }
+
+    /***
+     * This method reports whether the SessionFactory has been built.
+     * @return Returns true if the SessionFactory is open.
+     */
+    public static boolean isBuilt() {
+        SessionFactory factory = sessionFactory;
+        return factory != null && factory.isOpen();
+    }
+
+    /***
+     * This is used to shutdown the SessionFactory. It will close the caches, including the second-level cache.
+     * The connections belong to the ConnectionPool and are closed with it.
+     */
+    public static synchronized void shutdown() {
+        if(sessionFactory != null) {
+            sessionFactory.close();
+            sessionFactory = null;
+            SecondLevelCache.close();
+            Logger.info("SessionFactory closed.");
+        }
+    }
+
+    /***
+     * This method builds the SessionFactory. Named queries are parsed and validated while the factory is built,
+     * so a broken query fails the deployment rather than the first request that uses it.
+     * @return returns the newly built SessionFactory.
+     */
+    private static SessionFactory buildSessionFactory() {
+        try {
+            long start = System.currentTimeMillis();
+            Configuration config = new Configuration().configure();
+            config.addAnnotatedClass(Admin.class);
+            config.addAnnotatedClass(EventPin.class);
+            config.addAnnotatedClass(LocationPin.class);
+            config.addAnnotatedClass(GenericPin.class);
+            config.addAnnotatedClass(ProblemPin.class);
+            config.addAnnotatedClass(OldEventPin.class);
+            config.addAnnotatedClass(StagedPin.class);
+            config.addAnnotatedClass(SubPillar.class);
+            config.addAnnotatedClass(Pillar.class);
+            config.getProperties().put(AvailableSettings.DATASOURCE, ConnectionPool.getDataSource()); // Draw from the shared pool.
+            config.setProperty(AvailableSettings.QUERY_STARTUP_CHECKING, "true"); // Validate named queries at build time.
+            config.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(BatchConstants.BATCH_SIZE));
+            config.setProperty(AvailableSettings.ORDER_INSERTS, "true"); // Group inserts by table so they batch.
+            config.setProperty(AvailableSettings.ORDER_UPDATES, "true");
+            config.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+            config.setProperty(AvailableSettings.USE_QUERY_CACHE, "true");
+            config.setProperty(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            config.getProperties().put(ConfigSettings.CACHE_MANAGER, SecondLevelCache.getCacheManager()); // Regions sized by CacheConstants.
+            config.setProperty(ConfigSettings.MISSING_CACHE_STRATEGY, "create-warn");
+            config.setProperty(AvailableSettings.GENERATE_STATISTICS, "true"); // Cache hit and miss counts for /metrics.
+            StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder().applySettings(config.getProperties());
+            SessionFactory factory = config.buildSessionFactory(builder.build());
+            ColumnTypeMigrator.migrate(); // Converts the text coordinates that the schema update leaves alone.
+            IdGeneratorSeeder.seed(); // Runs after the schema update so every Pin table exists.
+            Logger.info("SessionFactory built in " + (System.currentTimeMillis() - start) + " ms.");
+            return factory;
+        }
+        catch (Throwable ex) {
+            System.err.println("Initial SessionFactory creation failed." + ex);
+            throw new ExceptionInInitializerError(ex);
         }
     }
 }
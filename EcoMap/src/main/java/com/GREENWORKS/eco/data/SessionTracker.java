@@ -0,0 +1,245 @@
+package com.GREENWORKS.eco.data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.constants.SessionConstants;
+
+/***
+ * This class keeps count of the Sessions and transactions that are currently open. A watchdog thread
+ * inspects the open Sessions on a fixed interval and reports any Session that has been held longer than
+ * SessionConstants.LEAK_THRESHOLD, logging the stack trace of the code that opened it. Every Session that
+ * the SessionAssistant opens is registered here through the UnitOfWork.
+ */
+public class SessionTracker {
+
+    private static final Map<Long, Ticket> OPEN_SESSIONS = new ConcurrentHashMap<>();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final AtomicInteger IN_FLIGHT_TRANSACTIONS = new AtomicInteger();
+    private static final LongAdder SESSIONS_OPENED = new LongAdder();
+    private static final LongAdder LEAKS_DETECTED = new LongAdder();
+    private static ScheduledExecutorService watchdog;
+
+    /***
+     * The tracker is not meant to be instantiated. All access is through the static methods.
+     */
+    private SessionTracker() {
+
+    }
+
+    /***
+     * Registers a newly opened Session.
+     * @param kind A short description of the Session, for example "session" or "stateless".
+     * @return Returns the Ticket that must be handed to closed() once the Session is closed.
+     */
+    public static Ticket opened(String kind) {
+        startWatchdog();
+        Ticket ticket = new Ticket(SEQUENCE.incrementAndGet(), kind);
+        OPEN_SESSIONS.put(ticket.getId(), ticket);
+        SESSIONS_OPENED.increment();
+        return ticket;
+    }
+
+    /***
+     * Unregisters a Session that has been closed.
+     * @param ticket The Ticket that was returned by opened().
+     */
+    public static void closed(Ticket ticket) {
+        if (OPEN_SESSIONS.remove(ticket.getId()) != null && ticket.isReported()) {
+            Logger.warn("Session " + ticket.getId() + " was finally closed after " + ticket.getAgeMillis() + " ms.");
+        }
+    }
+
+    /***
+     * Records that a transaction has begun.
+     */
+    static void transactionStarted() {
+        IN_FLIGHT_TRANSACTIONS.incrementAndGet();
+    }
+
+    /***
+     * Records that a transaction has been committed or rolled back.
+     */
+    static void transactionEnded() {
+        IN_FLIGHT_TRANSACTIONS.decrementAndGet();
+    }
+
+    /***
+     * Reports every open Session that has been held longer than the threshold. Each Session is only
+     * reported once.
+     */
+    static void checkForLeaks() {
+        for (Ticket ticket : OPEN_SESSIONS.values()) {
+            long age = ticket.getAgeMillis();
+            if (age > SessionConstants.LEAK_THRESHOLD && !ticket.isReported()) {
+                ticket.setReported();
+                LEAKS_DETECTED.increment();
+                String message = "Possible Session leak: " + ticket.getKind() + " " + ticket.getId() + " opened by thread "
+                    + ticket.getThreadName() + " has been held for " + age + " ms.";
+                if (ticket.getOpenedAt() != null) {
+                    Logger.warn(ticket.getOpenedAt(), message);
+                } else {
+                    Logger.warn(message);
+                }
+            }
+        }
+    }
+
+    /***
+     * Starts the watchdog thread on first use.
+     */
+    private static synchronized void startWatchdog() {
+        if (watchdog == null) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ecomap-session-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            watchdog.scheduleWithFixedDelay(SessionTracker::checkForLeaks, SessionConstants.WATCHDOG_INTERVAL,
+                SessionConstants.WATCHDOG_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /***
+     * Stops the watchdog thread. It is restarted if another Session is opened afterwards.
+     */
+    public static synchronized void shutdown() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+    }
+
+    /***
+     * Gauge of the Sessions that are currently open.
+     * @return Returns the number of open Sessions.
+     */
+    public static int getOpenSessions() {
+        return OPEN_SESSIONS.size();
+    }
+
+    /***
+     * Gauge of the transactions that have begun but have not been committed or rolled back.
+     * @return Returns the number of in-flight transactions.
+     */
+    public static int getInFlightTransactions() {
+        return IN_FLIGHT_TRANSACTIONS.get();
+    }
+
+    /***
+     * Counter of every Session that has been opened.
+     * @return Returns the total number of Sessions opened.
+     */
+    public static long getSessionsOpened() {
+        return SESSIONS_OPENED.sum();
+    }
+
+    /***
+     * Counter of the Sessions that were held longer than the threshold.
+     * @return Returns the total number of leaks reported.
+     */
+    public static long getLeaksDetected() {
+        return LEAKS_DETECTED.sum();
+    }
+
+    /***
+     * Gauge of the age of the oldest Session that is still open.
+     * @return Returns the age in milliseconds, or 0 if no Session is open.
+     */
+    public static long getOldestSessionAgeMillis() {
+        long oldest = 0;
+        for (Ticket ticket : OPEN_SESSIONS.values()) {
+            oldest = Math.max(oldest, ticket.getAgeMillis());
+        }
+        return oldest;
+    }
+
+    /***
+     * The record of a single open Session.
+     */
+    public static class Ticket {
+
+        private final long id;
+        private final String kind;
+        private final long openedNanos;
+        private final String threadName;
+        private final Throwable openedAt;
+        private volatile boolean reported;
+
+        /***
+         * Constructor for the Ticket. The stack trace of the calling code is captured here.
+         * @param id The sequence number of the Session.
+         * @param kind A short description of the Session.
+         */
+        Ticket(long id, String kind) {
+            this.id = id;
+            this.kind = kind;
+            this.openedNanos = System.nanoTime();
+            this.threadName = Thread.currentThread().getName();
+            this.openedAt = SessionConstants.CAPTURE_OPEN_STACK ? new Throwable("Session " + id + " was opened here") : null;
+        }
+
+        /***
+         * Accessor method for the sequence number of the Session.
+         * @return Returns the contents of the instance variable.
+         */
+        public long getId() {
+            return id;
+        }
+
+        /***
+         * Accessor method for the kind of Session.
+         * @return Returns the contents of the instance variable.
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        /***
+         * Accessor method for the name of the thread that opened the Session.
+         * @return Returns the contents of the instance variable.
+         */
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /***
+         * Accessor method for the stack trace of the code that opened the Session.
+         * @return Returns the captured stack trace, or null if capturing is disabled.
+         */
+        public Throwable getOpenedAt() {
+            return openedAt;
+        }
+
+        /***
+         * Returns how long the Session has been open.
+         * @return Returns the age in milliseconds.
+         */
+        public long getAgeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedNanos);
+        }
+
+        /***
+         * Accessor method for whether the Session has already been reported.
+         * @return Returns the contents of the instance variable.
+         */
+        boolean isReported() {
+            return reported;
+        }
+
+        /***
+         * Marks the Session as reported so it is only logged once.
+         */
+        void setReported() {
+            reported = true;
+        }
+    }
+}
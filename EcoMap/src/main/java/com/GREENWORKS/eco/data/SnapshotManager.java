@@ -0,0 +1,239 @@
+package com.GREENWORKS.eco.data;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.constants.SnapshotConstants;
+
+/***
+ * This class holds the PinSnapshot that the pages are rendered from. Readers get the snapshot with a single
+ * volatile read and never touch the database. The snapshot is rebuilt on a background thread whenever the
+ * SessionAssistant writes, and on a timer. A rebuild loads its three datasets in parallel and then swaps the
+ * new snapshot in. Writes that arrive while a rebuild is queued are folded into it.
+ */
+public class SnapshotManager {
+
+    private static volatile PinSnapshot current;
+    private static volatile Future<?> pendingRebuild;
+    private static volatile long lastRebuildMillis;
+    private static final AtomicBoolean REBUILD_QUEUED = new AtomicBoolean();
+    private static final AtomicLong VERSION = new AtomicLong();
+    private static final String GENERATION = Long.toString(System.currentTimeMillis(), 36); // Part of every ETag.
+    private static final LongAdder REBUILDS = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+    private static final List<BiConsumer<PinSnapshot, PinSnapshot>> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Object EXECUTOR_LOCK = new Object(); // Never the class lock, which a rebuild holds.
+    private static volatile ScheduledExecutorService rebuilder;
+    private static volatile ExecutorService loaders;
+
+    /***
+     * The class is not meant to be instantiated. All access is through the static methods.
+     */
+    private SnapshotManager() {
+
+    }
+
+    /***
+     * Returns the current snapshot. Only the very first call, before the deployment warmup has completed,
+     * builds it on the calling thread.
+     * @return Returns the current PinSnapshot.
+     */
+    public static PinSnapshot current() {
+        PinSnapshot snapshot = current;
+        if (snapshot == null) {
+            synchronized (SnapshotManager.class) {
+                snapshot = current;
+                if (snapshot == null) {
+                    snapshot = rebuild();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /***
+     * Returns the current snapshot without building it.
+     * @return Returns the current PinSnapshot, or null if none has been built.
+     */
+    public static PinSnapshot peek() {
+        return current;
+    }
+
+    /***
+     * Waits up to SnapshotConstants.FRESH_WAIT for a queued rebuild and then returns the current snapshot. This
+     * is for pages that must show the result of the write that was just made.
+     * @return Returns the current PinSnapshot.
+     */
+    public static PinSnapshot awaitFresh() {
+        Future<?> pending = pendingRebuild;
+        if (pending != null) {
+            try {
+                pending.get(SnapshotConstants.FRESH_WAIT, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                Logger.warn("Serving the previous snapshot, the rebuild did not complete: " + e);
+            }
+        }
+        return current();
+    }
+
+    /***
+     * Queues a rebuild on the background thread. It is called after every write through the SessionAssistant.
+     * It never waits for a rebuild that is running, so writes are not held up by it.
+     */
+    public static void markDirty() {
+        ScheduledExecutorService executor = start();
+        if (REBUILD_QUEUED.compareAndSet(false, true)) {
+            pendingRebuild = executor.submit(SnapshotManager::rebuildQuietly);
+        }
+    }
+
+    /***
+     * Rebuilds the snapshot on the background thread. Failures are logged and the previous snapshot is kept.
+     */
+    private static void rebuildQuietly() {
+        REBUILD_QUEUED.set(false); // Writes from here on queue another rebuild.
+        try {
+            rebuild();
+        } catch (Throwable e) {
+            FAILURES.increment();
+            Logger.error(e, "Snapshot rebuild failed. The previous snapshot is still being served.");
+        }
+    }
+
+    /***
+     * Loads the three datasets in parallel and swaps the new snapshot in. If nothing changed the current
+     * snapshot is kept, so its version and ETag only change with the data.
+     * @return Returns the new PinSnapshot, or the current one if the data is unchanged.
+     */
+    private static synchronized PinSnapshot rebuild() {
+        start();
+        ExecutorService pool = loaders;
+        long start = System.currentTimeMillis();
+        SessionAssistant sessionAssistant = new SessionAssistant();
+        CompletableFuture<List<MapPin>> mapPins = CompletableFuture.supplyAsync(sessionAssistant::getMapPins, pool);
+        CompletableFuture<List<Pillar>> pillars = CompletableFuture.supplyAsync(sessionAssistant::getAllPillars, pool);
+        CompletableFuture<List<SubPillar>> subPillars = CompletableFuture.supplyAsync(sessionAssistant::getAllSubPillars, pool);
+        PinSnapshot previous = current;
+        if (previous != null && previous.hasSameData(mapPins.join(), pillars.join(), subPillars.join())) {
+            lastRebuildMillis = System.currentTimeMillis() - start;
+            REBUILDS.increment();
+            Logger.info("Snapshot unchanged after " + lastRebuildMillis + " ms, keeping " + previous);
+            return previous; // Same version and ETag, so clients and the per-version caches stay valid.
+        }
+        PinSnapshot snapshot = new PinSnapshot(VERSION.incrementAndGet(), GENERATION, mapPins.join(), pillars.join(), subPillars.join(),
+            previous);
+        current = snapshot;
+        lastRebuildMillis = System.currentTimeMillis() - start;
+        REBUILDS.increment();
+        Logger.info("Snapshot rebuilt in " + lastRebuildMillis + " ms: " + snapshot + " " + snapshot.getSearch() + " " + snapshot.getFilters());
+        for (BiConsumer<PinSnapshot, PinSnapshot> listener : LISTENERS) {
+            try {
+                listener.accept(previous, snapshot);
+            } catch (RuntimeException e) {
+                Logger.warn("A snapshot listener failed: " + e);
+            }
+        }
+        return snapshot;
+    }
+
+    /***
+     * Adds a listener that is called with the previous and the new snapshot after every rebuild. It runs on the
+     * rebuild thread, so it must hand any real work to its own thread.
+     * @param listener The listener. The previous snapshot is null on the first build.
+     */
+    public static void addListener(BiConsumer<PinSnapshot, PinSnapshot> listener) {
+        LISTENERS.add(listener);
+    }
+
+    /***
+     * Starts the background threads and the refresh timer on first use. It locks EXECUTOR_LOCK rather than the
+     * class, so that markDirty() does not wait for a rebuild to finish.
+     * @return Returns the rebuild executor.
+     */
+    private static ScheduledExecutorService start() {
+        ScheduledExecutorService executor = rebuilder;
+        if (executor != null) {
+            return executor;
+        }
+        synchronized (EXECUTOR_LOCK) {
+            if (rebuilder == null) {
+                loaders = Executors.newFixedThreadPool(SnapshotConstants.LOADER_THREADS, daemonThreads("ecomap-snapshot-loader"));
+                ScheduledExecutorService scheduled = Executors.newSingleThreadScheduledExecutor(daemonThreads("ecomap-snapshot-rebuild"));
+                scheduled.scheduleWithFixedDelay(SnapshotManager::rebuildQuietly, SnapshotConstants.REFRESH_INTERVAL,
+                    SnapshotConstants.REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
+                rebuilder = scheduled; // Published last, so a reader that sees it also sees the loaders.
+            }
+            return rebuilder;
+        }
+    }
+
+    /***
+     * Creates daemon threads so that the executors never hold up a shutdown.
+     * @param name The prefix of the thread names.
+     * @return Returns the ThreadFactory.
+     */
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /***
+     * Stops the background threads and drops the snapshot. It is called when the application is shut down.
+     */
+    public static void shutdown() {
+        synchronized (EXECUTOR_LOCK) {
+            if (rebuilder != null) {
+                rebuilder.shutdownNow();
+                loaders.shutdownNow();
+                rebuilder = null;
+                loaders = null;
+            }
+        }
+        current = null;
+        pendingRebuild = null;
+        LISTENERS.clear();
+        REBUILD_QUEUED.set(false);
+    }
+
+    /***
+     * Accessor for the duration of the most recent rebuild.
+     * @return Returns the duration in milliseconds.
+     */
+    public static long getLastRebuildMillis() {
+        return lastRebuildMillis;
+    }
+
+    /***
+     * Counter of the completed rebuilds.
+     * @return Returns the number of rebuilds.
+     */
+    public static long getRebuilds() {
+        return REBUILDS.sum();
+    }
+
+    /***
+     * Counter of the failed rebuilds.
+     * @return Returns the number of failures.
+     */
+    public static long getFailures() {
+        return FAILURES.sum();
+    }
+}
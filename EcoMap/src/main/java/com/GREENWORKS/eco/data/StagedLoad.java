@@ -0,0 +1,191 @@
+package com.GREENWORKS.eco.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.constants.QueryConstants;
+import com.GREENWORKS.eco.constants.StagingConstants;
+
+/***
+ * This class loads the records of an api through the locations_staging table. The load happens in three steps:
+ *
+ * 1. Stage: the fetched records are written to locations_staging under a new batch. This is the slow part and
+ *    it never touches the locations table.
+ * 2. Validate: the staged row count must match the fetched count, the load must not shrink the api below
+ *    StagingConstants.MIN_RETAINED_RATIO of its live Pins, and the share of bad coordinates must stay under
+ *    StagingConstants.MAX_INVALID_COORDINATE_RATIO. Records with bad coordinates are never published.
+ * 3. Publish: the valid records are handed to PinSync, which applies the difference to locations in one short
+ *    transaction. Readers see either the old or the new state of the api, never a half-loaded one.
+ *
+ * Loads of the same api run one at a time. A load deletes the rows of its own batch when it ends, and before it
+ * starts it purges the rows that earlier loads of the api abandoned, for example by crashing, which is safe
+ * because no other load of the api is running. Only the publish step rebuilds the PinSnapshot, the staging
+ * reads and writes never change what the pages render. Any loader that builds Pins with an api and an
+ * externalId can use this through SessionAssistant.loadApiPins().
+ */
+public class StagedLoad {
+
+    private static final Map<Byte, Object> LOCKS = new ConcurrentHashMap<>();
+
+    /***
+     * Stages, validates and publishes the records of an api.
+     * @param api The api that the records were fetched from.
+     * @param fetched The fetched records, each with its externalId populated.
+     * @return Returns the report of the load. If a check failed, nothing was published and the report says why.
+     */
+    public static SyncReport load(Byte api, List<Pin> fetched) {
+        synchronized (LOCKS.computeIfAbsent(api, key -> new Object())) {
+            return loadExclusively(api, fetched);
+        }
+    }
+
+    /***
+     * Stages, validates and publishes the records of an api while holding the lock of the api.
+     * @param api The api that the records were fetched from.
+     * @param fetched The fetched records, each with its externalId populated.
+     * @return Returns the report of the load.
+     */
+    private static SyncReport loadExclusively(Byte api, List<Pin> fetched) {
+        long start = System.currentTimeMillis();
+        String batch = UUID.randomUUID().toString();
+        SessionAssistant sessionAssistant = new SessionAssistant();
+        purgeAbandoned(api);
+        List<StagedPin> staging = new ArrayList<>(fetched.size());
+        for (Pin pin : fetched) {
+            StagedPin stagedPin = new StagedPin(pin, batch);
+            stagedPin.api = api;
+            staging.add(stagedPin);
+        }
+        sessionAssistant.insertList(staging, false);
+        staging.clear(); // Release memory. The published copies are read back from the staging table.
+
+        SyncReport report;
+        try {
+            List<StagedPin> staged = readBatch(batch);
+            List<Pin> valid = new ArrayList<>(staged.size());
+            for (StagedPin stagedPin : staged) {
+                if (hasValidCoordinates(stagedPin)) {
+                    GenericPin pin = new GenericPin();
+                    pin.copyPin(stagedPin);
+                    pin.id = null;
+                    valid.add(pin);
+                }
+            }
+            String rejectedReason = validate(api, fetched.size(), staged.size(), valid.size());
+            if (rejectedReason == null) {
+                report = PinSync.sync(api, valid);
+            } else {
+                report = new SyncReport(api);
+                report.reject(rejectedReason);
+                Logger.warn("Staged load of api " + api + " was rejected: " + rejectedReason);
+            }
+            report.setStaged(staged.size());
+            report.setInvalidCoordinates(staged.size() - valid.size());
+        } finally {
+            clear(batch);
+        }
+        report.setTotalMillis(System.currentTimeMillis() - start);
+        Logger.info("Staged load completed: " + report);
+        return report;
+    }
+
+    /***
+     * Checks the row counts of a staged load.
+     * @param api The api of the load.
+     * @param fetched The number of records that were fetched.
+     * @param staged The number of records that were found in the staging table.
+     * @param valid The number of staged records with valid coordinates.
+     * @return Returns the reason that the load must be rejected, or null if it may be published.
+     */
+    static String validate(Byte api, int fetched, int staged, int valid) {
+        if (fetched == 0) {
+            return "no records";
+        }
+        if (staged != fetched) {
+            return "staged " + staged + " rows but fetched " + fetched;
+        }
+        if (staged - valid > staged * StagingConstants.MAX_INVALID_COORDINATE_RATIO) {
+            return (staged - valid) + " of " + staged + " rows have invalid coordinates";
+        }
+        long live = countLive(api);
+        if (valid < live * StagingConstants.MIN_RETAINED_RATIO) {
+            return "only " + valid + " valid rows would replace " + live + " live Pins";
+        }
+        return null;
+    }
+
+    /***
+     * Checks that the coordinates of a Pin are set and fall inside the sanity bounds.
+     * @param pin The Pin to be checked.
+     * @return Returns true if the coordinates are usable.
+     */
+    static boolean hasValidCoordinates(Pin pin) {
+        if (pin.latitude == null || pin.longitude == null) {
+            return false; // Text that was not a number was already dropped to null by the mutators.
+        }
+        double latitude = pin.latitude;
+        double longitude = pin.longitude;
+        return latitude >= StagingConstants.MIN_LATITUDE && latitude <= StagingConstants.MAX_LATITUDE
+            && longitude >= StagingConstants.MIN_LONGITUDE && longitude <= StagingConstants.MAX_LONGITUDE;
+    }
+
+    /***
+     * Reads the staged records of a batch.
+     * @param batch The batch of the load.
+     * @return Returns the staged records.
+     */
+    private static List<StagedPin> readBatch(String batch) {
+        try (UnitOfWork work = UnitOfWork.beginUnrendered()) { // The primary, the replica may not have the batch yet.
+            List<StagedPin> staged = work.session().createNamedQuery(QueryConstants.STAGED_BY_BATCH, StagedPin.class)
+                .setParameter("batch", batch).setReadOnly(true).getResultList();
+            work.commit();
+            return staged;
+        }
+    }
+
+    /***
+     * Counts the live Pins of an api.
+     * @param api The api to be counted.
+     * @return Returns the number of Pins of the api that have not been removed.
+     */
+    private static long countLive(Byte api) {
+        try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+            long live = work.session().createNamedQuery(QueryConstants.PINS_LIVE_COUNT_BY_API, Long.class)
+                .setParameter("api", api).getSingleResult();
+            work.commit();
+            return live;
+        }
+    }
+
+    /***
+     * Deletes the staging rows of a batch.
+     * @param batch The batch of the load.
+     */
+    private static void clear(String batch) {
+        try (UnitOfWork work = UnitOfWork.beginUnrendered()) {
+            work.session().createNamedQuery(QueryConstants.STAGED_DELETE_BY_BATCH).setParameter("batch", batch).executeUpdate();
+            work.commit();
+        }
+    }
+
+    /***
+     * Deletes the staging rows that earlier loads of an api left behind. It must only be called while holding
+     * the lock of the api, otherwise it would delete the batch of a load that is still running.
+     * @param api The api whose abandoned staging rows are deleted.
+     */
+    private static void purgeAbandoned(Byte api) {
+        try (UnitOfWork work = UnitOfWork.beginUnrendered()) {
+            int purged = work.session().createNamedQuery(QueryConstants.STAGED_DELETE_BY_API).setParameter("api", api)
+                .executeUpdate();
+            work.commit();
+            if (purged > 0) {
+                Logger.warn("Purged " + purged + " staging rows that an earlier load of api " + api + " abandoned");
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.GREENWORKS.eco.data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+import com.GREENWORKS.eco.constants.QueryConstants;
+
+/***
+ * This is the StagedPin class. It is the representation of a record that an api load has written to the
+ * locations_staging table but that has not been published to the locations table yet. Every load writes its
+ * records under its own batch so that a load can be validated and published as a whole.
+ */
+@Entity
+@Table(name = "locations_staging")
+@NamedQueries({
+	@NamedQuery(name = QueryConstants.STAGED_BY_BATCH, query = "SELECT p FROM StagedPin p WHERE p.batch = :batch"),
+	@NamedQuery(name = QueryConstants.STAGED_COUNT_BY_BATCH, query = "SELECT COUNT(p) FROM StagedPin p WHERE p.batch = :batch"),
+	@NamedQuery(name = QueryConstants.STAGED_DELETE_BY_API, query = "DELETE FROM StagedPin p WHERE p.api = :api"),
+	@NamedQuery(name = QueryConstants.STAGED_DELETE_BY_BATCH, query = "DELETE FROM StagedPin p WHERE p.batch = :batch")
+})
+public class StagedPin extends Pin {
+
+	@Column(name="batch", unique = false, nullable = false, length = 36)
+	private String batch;
+
+	/***
+	 * Zero paramter constructor for the StagedPin. 
+	 */
+	public StagedPin() {
+		
+	}
+
+	/***
+	 * Constructor that stages a copy of a fetched Pin under the provided batch. The id is left empty so 
+	 * that the staging table assigns its own. 
+	 * @param pin The fetched Pin. 
+	 * @param batch The batch of the load. 
+	 */
+	public StagedPin(Pin pin, String batch) {
+		copyPin(pin);
+		this.id = null;
+		this.batch = batch;
+	}
+
+	/***
+	 * Accessor method for the batch instance variable. 
+	 * @return Returns the contents of the instance variable. 
+	 */
+	public String getBatch() {
+		return batch;
+	}
+
+	/***
+	 * Mutator method for assigning to the batch instance variable. 
+	 * @param batch The value to be assigned. 
+	 */
+	public void setBatch(String batch) {
+		this.batch = batch;
+	}
+}
@@ -2,6 +2,7 @@ package com.GREENWORKS.eco.data;
 
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -9,9 +10,20 @@ import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.QueryHints;
+
+import com.GREENWORKS.eco.constants.CacheConstants;
+import com.GREENWORKS.eco.constants.QueryConstants;
+
 /*
 What is a SubPillar? A SubPillar is a sub-category of a Pillar. Pillars can be logically broken down into more specific 
 categories of data. Those specific categories of data are what we call SubPillars. 
@@ -43,10 +55,16 @@ pillar_id 	sub_pillar_id 	name
 
 /***
  * The class definition for the SubPillar object. SubPillars are more specific sub-categories
- * of the Pillars. 
+ * of the Pillars. SubPillars are held in the second-level cache. 
  */
 @Entity
 @Table(name = "subpillars")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConstants.SUB_PILLAR_REGION)
+@NamedQuery(name = QueryConstants.SUB_PILLARS_ALL, query = "SELECT p FROM SubPillar p ORDER BY p.spId",
+    hints = {
+        @QueryHint(name = QueryHints.CACHEABLE, value = "true"),
+        @QueryHint(name = QueryHints.CACHE_REGION, value = CacheConstants.TAXONOMY_QUERY_REGION) })
 public class SubPillar {
     
     @Id
@@ -58,6 +76,7 @@ public class SubPillar {
     protected String thumbnail;
     @JoinColumn(name="pillar_id", nullable=true) 
     @ManyToOne(cascade = CascadeType.ALL) // MANY SubPillar may have ONE Pillar.
+    @Fetch(FetchMode.SELECT) // Resolved from the second-level cache rather than joined.
 	protected Pillar pillar;
     @OneToMany(mappedBy="subPillar")
     private Set<GenericPin> genericPinSet; 
@@ -0,0 +1,194 @@
+package com.GREENWORKS.eco.data;
+
+/***
+ * The SyncReport is returned by the api sync. It records how many of the fetched records were new, how many
+ * changed, how many were already up to date, and how many stored Pins were removed because their record
+ * vanished from the api. When the records were staged first, it also records how many were staged, how many
+ * were dropped for bad coordinates, and why the load was rejected if it was not published.
+ */
+public class SyncReport {
+
+    private final Byte api;
+    private int inserted;
+    private int updated;
+    private int unchanged;
+    private int removed;
+    private int skipped;
+    private int staged;
+    private int invalidCoordinates;
+    private String rejectedReason;
+    private long totalMillis;
+
+    /***
+     * Constructor for the SyncReport.
+     * @param api The api that was synced.
+     */
+    public SyncReport(Byte api) {
+        this.api = api;
+    }
+
+    /***
+     * Counts a new Pin.
+     */
+    void inserted() {
+        inserted++;
+    }
+
+    /***
+     * Counts a changed or reappeared Pin.
+     */
+    void updated() {
+        updated++;
+    }
+
+    /***
+     * Counts a Pin that was already up to date.
+     */
+    void unchanged() {
+        unchanged++;
+    }
+
+    /***
+     * Counts a tombstoned Pin.
+     */
+    void removed() {
+        removed++;
+    }
+
+    /***
+     * Counts a fetched record that was skipped.
+     */
+    void skip() {
+        skipped++;
+    }
+
+    /***
+     * Mutator method for the number of staged records.
+     * @param staged The value to be assigned.
+     */
+    void setStaged(int staged) {
+        this.staged = staged;
+    }
+
+    /***
+     * Mutator method for the number of staged records with bad coordinates.
+     * @param invalidCoordinates The value to be assigned.
+     */
+    void setInvalidCoordinates(int invalidCoordinates) {
+        this.invalidCoordinates = invalidCoordinates;
+    }
+
+    /***
+     * Marks the load as rejected. Nothing was published.
+     * @param reason The check that the load failed.
+     */
+    void reject(String reason) {
+        this.rejectedReason = reason;
+    }
+
+    /***
+     * Mutator method for the elapsed time of the sync.
+     * @param totalMillis The value to be assigned.
+     */
+    void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    /***
+     * Accessor method for the api.
+     * @return Returns the contents of the instance variable.
+     */
+    public Byte getApi() {
+        return api;
+    }
+
+    /***
+     * Accessor method for the number of new Pins.
+     * @return Returns the contents of the instance variable.
+     */
+    public int getInserted() {
+        return inserted;
+    }
+
+    /***
+     * Accessor method for the number of Pins whose record changed or reappeared.
+     * @return Returns the contents of the instance variable.
+     */
+    public int getUpdated() {
+        return updated;
+    }
+
+    /***
+     * Accessor method for the number of Pins that were already up to date.
+     * @return Returns the contents of the instance variable.
+     */
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /***
+     * Accessor method for the number of Pins that were tombstoned.
+     * @return Returns the contents of the instance variable.
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    /***
+     * Accessor method for the number of fetched records that were skipped because they repeated an external id or had none.
+     * @return Returns the contents of the instance variable.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /***
+     * Accessor method for the number of records that were written to the staging table.
+     * @return Returns the contents of the instance variable.
+     */
+    public int getStaged() {
+        return staged;
+    }
+
+    /***
+     * Accessor method for the number of staged records that were not published because of bad coordinates.
+     * @return Returns the contents of the instance variable.
+     */
+    public int getInvalidCoordinates() {
+        return invalidCoordinates;
+    }
+
+    /***
+     * Returns true unless the load was rejected.
+     * @return Returns true if the records were published.
+     */
+    public boolean isPublished() {
+        return rejectedReason == null;
+    }
+
+    /***
+     * Accessor method for the reason that the load was rejected.
+     * @return Returns the reason, or null if the load was published.
+     */
+    public String getRejectedReason() {
+        return rejectedReason;
+    }
+
+    /***
+     * Accessor method for the elapsed time of the sync, including the commit.
+     * @return Returns the contents of the instance variable.
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /***
+     * toString() method for printing the SyncReport in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "SyncReport [api=" + api + ", inserted=" + inserted + ", updated=" + updated + ", unchanged=" + unchanged
+            + ", removed=" + removed + ", skipped=" + skipped + ", staged=" + staged + ", invalidCoordinates="
+            + invalidCoordinates + ", rejectedReason=" + rejectedReason + ", totalMillis=" + totalMillis + "]";
+    }
+}
@@ -0,0 +1,188 @@
+package com.GREENWORKS.eco.data;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.exception.JDBCConnectionException;
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.ConnectionPool;
+
+/***
+ * The UnitOfWork wraps a Session and its transaction so that both are always released. It is meant to be
+ * used in a try-with-resources block:
+ *
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ *     work.session().save(item);
+ *     work.commit();
+ * }
+ *
+ * If the block is left without commit() having been called, for example because of an exception, the
+ * transaction is rolled back. The Session is closed either way and is registered with the SessionTracker
+ * for as long as it is open.
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    private final Session session;
+    private final SessionTracker.Ticket ticket;
+    private final Connection connection;
+    private final boolean rebuildOnCommit;
+    private Transaction transaction;
+    private boolean inFlight = false;
+
+    /***
+     * Constructor for the UnitOfWork. Use begin() instead.
+     * @param session The Session to be wrapped.
+     * @param ticket The Ticket of the Session in the SessionTracker.
+     * @param connection The connection that was handed to the Session, or null if the Session borrows its own.
+     * @param rebuildOnCommit Whether a commit queues a rebuild of the PinSnapshot.
+     */
+    private UnitOfWork(Session session, SessionTracker.Ticket ticket, Connection connection, boolean rebuildOnCommit) {
+        this.session = session;
+        this.ticket = ticket;
+        this.connection = connection;
+        this.rebuildOnCommit = rebuildOnCommit;
+    }
+
+    /***
+     * Opens a Session and begins a transaction.
+     * @return Returns the started UnitOfWork.
+     */
+    public static UnitOfWork begin() {
+        return begin(true);
+    }
+
+    /***
+     * Opens a Session on the primary and begins a transaction whose commit does not rebuild the PinSnapshot.
+     * It is for the tables that the pages never render, such as locations_staging, and for reads that must see
+     * the writes of the primary.
+     * @return Returns the started UnitOfWork.
+     */
+    public static UnitOfWork beginUnrendered() {
+        return begin(false);
+    }
+
+    /***
+     * Opens a Session and begins a transaction.
+     * @param rebuildOnCommit Whether a commit queues a rebuild of the PinSnapshot.
+     * @return Returns the started UnitOfWork.
+     */
+    private static UnitOfWork begin(boolean rebuildOnCommit) {
+        Session session = SessionAssistant.openSession();
+        UnitOfWork work = new UnitOfWork(session, SessionTracker.opened("session"), null, rebuildOnCommit);
+        work.beginTransaction();
+        return work;
+    }
+
+    /***
+     * Opens a Session for reading only. The Session runs on a read-only connection from
+     * ConnectionPool.getReadConnection(), which is the replica when one is configured. Entities that are
+     * loaded are read-only, so Hibernate keeps no dirty-checking snapshots of them, and the Session is never
+     * flushed. Writes must go through begin().
+     * @return Returns the started UnitOfWork.
+     */
+    public static UnitOfWork beginReadOnly() {
+        Connection connection;
+        try {
+            connection = ConnectionPool.getReadConnection();
+        } catch (SQLException e) {
+            throw new JDBCConnectionException("Unable to borrow a read-only connection.", e);
+        }
+        Session session;
+        try {
+            session = SessionAssistant.getSessionFactory().withOptions().connection(connection)
+                .flushMode(FlushMode.MANUAL).openSession();
+        } catch (RuntimeException e) {
+            closeConnection(connection);
+            throw e;
+        }
+        session.setDefaultReadOnly(true);
+        UnitOfWork work = new UnitOfWork(session, SessionTracker.opened("read-only"), connection, false);
+        work.beginTransaction();
+        return work;
+    }
+
+    /***
+     * Begins the transaction of a newly opened UnitOfWork. The UnitOfWork is closed if the transaction
+     * can not be started.
+     */
+    private void beginTransaction() {
+        try {
+            transaction = session.beginTransaction();
+            inFlight = true;
+            SessionTracker.transactionStarted();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /***
+     * Accessor method for the wrapped Session.
+     * @return Returns the open Session.
+     */
+    public Session session() {
+        return session;
+    }
+
+    /***
+     * Commits the transaction. A committed write queues a rebuild of the in-memory PinSnapshot, unless the
+     * UnitOfWork was begun with beginReadOnly() or beginUnrendered().
+     */
+    public void commit() {
+        try {
+            if (transaction != null && transaction.isActive()) {
+                transaction.commit();
+                if (rebuildOnCommit) {
+                    SnapshotManager.markDirty(); // Read-only and unrendered units never change what the pages render.
+                }
+            }
+        } finally {
+            endTransaction();
+        }
+    }
+
+    /***
+     * Rolls back the transaction if it was not committed and closes the Session.
+     */
+    @Override
+    public void close() {
+        try {
+            if (transaction != null && transaction.getStatus().canRollback()) {
+                transaction.rollback();
+            }
+        } finally {
+            endTransaction();
+            session.close();
+            if (connection != null) {
+                closeConnection(connection); // Hibernate does not close a connection that it was handed.
+            }
+            SessionTracker.closed(ticket);
+        }
+    }
+
+    /***
+     * Hands a borrowed connection back to the pool.
+     * @param connection The connection to be returned.
+     */
+    private static void closeConnection(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            Logger.warn("Unable to return a read-only connection to the pool: " + e.getMessage());
+        }
+    }
+
+    /***
+     * Removes the transaction from the in-flight gauge exactly once.
+     */
+    private void endTransaction() {
+        if (inFlight) {
+            inFlight = false;
+            SessionTracker.transactionEnded();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.GREENWORKS.eco.index;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.constants.IndexConstants;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/***
+ * The CityBoundary answers whether a point lies inside the city limits. The boundary is read once from the
+ * GeoJSON file at IndexConstants.BOUNDARY_RESOURCE, which may hold a Polygon, a MultiPolygon, a Feature or a
+ * FeatureCollection of them. Holes are respected. The edges of every ring are bucketed by latitude band, so a
+ * point is only ray cast against the few edges that cross its own band.
+ *
+ * If the file is missing the boundary is unavailable. Callers then keep every pin.
+ */
+public class CityBoundary {
+
+    private static final CityBoundary NONE = new CityBoundary(new ArrayList<>());
+    private static volatile CityBoundary instance;
+
+    private final boolean available;
+    private final double minX, minY, maxX, maxY;
+    private final int bandCount;
+    private final double bandHeight;
+    private final double[][] bands; // Per band: x1, y1, x2, y2 of every edge that crosses it.
+
+    /***
+     * Builds the boundary from its rings.
+     * @param rings Every ring as alternating x, y coordinates. The ring does not need to be closed.
+     */
+    CityBoundary(List<double[]> rings) {
+        double lowX = Double.POSITIVE_INFINITY, lowY = Double.POSITIVE_INFINITY;
+        double highX = Double.NEGATIVE_INFINITY, highY = Double.NEGATIVE_INFINITY;
+        for (double[] ring : rings) {
+            for (int i = 0; i < ring.length; i += 2) {
+                lowX = Math.min(lowX, ring[i]);
+                highX = Math.max(highX, ring[i]);
+                lowY = Math.min(lowY, ring[i + 1]);
+                highY = Math.max(highY, ring[i + 1]);
+            }
+        }
+        this.available = !rings.isEmpty();
+        this.minX = lowX;
+        this.minY = lowY;
+        this.maxX = highX;
+        this.maxY = highY;
+        this.bandCount = available ? IndexConstants.BOUNDARY_BANDS : 0;
+        this.bandHeight = available ? Math.max(maxY - minY, 1e-9) / bandCount : 1;
+        double[][] edges = new double[bandCount][8];
+        int[] sizes = new int[bandCount];
+        for (double[] ring : rings) {
+            int points = ring.length / 2;
+            for (int i = 0; i < points; i++) {
+                int j = (i + 1) % points;
+                double x1 = ring[2 * i], y1 = ring[2 * i + 1], x2 = ring[2 * j], y2 = ring[2 * j + 1];
+                if (y1 == y2) {
+                    continue; // A horizontal edge is never crossed by a horizontal ray.
+                }
+                for (int band = band(Math.min(y1, y2)); band <= band(Math.max(y1, y2)); band++) {
+                    if (sizes[band] + 4 > edges[band].length) {
+                        edges[band] = Arrays.copyOf(edges[band], edges[band].length * 2);
+                    }
+                    double[] bucket = edges[band];
+                    bucket[sizes[band]++] = x1;
+                    bucket[sizes[band]++] = y1;
+                    bucket[sizes[band]++] = x2;
+                    bucket[sizes[band]++] = y2;
+                }
+            }
+        }
+        this.bands = new double[bandCount][];
+        for (int band = 0; band < bandCount; band++) {
+            bands[band] = Arrays.copyOf(edges[band], sizes[band]);
+        }
+    }
+
+    /***
+     * Returns the boundary, reading it on first use.
+     * @return Returns the CityBoundary. It is unavailable if the GeoJSON file could not be read.
+     */
+    public static CityBoundary get() {
+        CityBoundary boundary = instance;
+        if (boundary == null) {
+            synchronized (CityBoundary.class) {
+                boundary = instance;
+                if (boundary == null) {
+                    boundary = load(IndexConstants.BOUNDARY_RESOURCE);
+                    instance = boundary;
+                }
+            }
+        }
+        return boundary;
+    }
+
+    /***
+     * Reads a boundary from a GeoJSON resource on the classpath.
+     * @param resource The name of the resource.
+     * @return Returns the CityBoundary, which is unavailable if the resource is missing or unreadable.
+     */
+    static CityBoundary load(String resource) {
+        InputStream stream = CityBoundary.class.getClassLoader().getResourceAsStream(resource);
+        if (stream == null) {
+            Logger.warn("No city boundary found at " + resource + ". Pins will not be filtered by the city limits.");
+            return NONE;
+        }
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            CityBoundary boundary = parse(reader);
+            Logger.info("City boundary loaded from " + resource + ".");
+            return boundary;
+        } catch (IOException | RuntimeException e) {
+            Logger.error(e, "Unable to read the city boundary at " + resource + ". Pins will not be filtered by the city limits.");
+            return NONE;
+        }
+    }
+
+    /***
+     * Parses GeoJSON into a boundary.
+     * @param reader The GeoJSON.
+     * @return Returns the CityBoundary.
+     */
+    public static CityBoundary parse(Reader reader) {
+        List<double[]> rings = new ArrayList<>();
+        collectRings(JsonParser.parseReader(reader), rings);
+        return new CityBoundary(rings);
+    }
+
+    /***
+     * Walks a GeoJSON object and collects the rings of every polygon in it.
+     * @param element The GeoJSON object.
+     * @param rings The list the rings are added to.
+     */
+    private static void collectRings(JsonElement element, List<double[]> rings) {
+        if (element == null || !element.isJsonObject()) {
+            return;
+        }
+        JsonObject object = element.getAsJsonObject();
+        String type = object.has("type") ? object.get("type").getAsString() : "";
+        switch (type) {
+            case "FeatureCollection":
+                for (JsonElement feature : object.getAsJsonArray("features")) {
+                    collectRings(feature, rings);
+                }
+                break;
+            case "Feature":
+                collectRings(object.get("geometry"), rings);
+                break;
+            case "Polygon":
+                addPolygon(object.getAsJsonArray("coordinates"), rings);
+                break;
+            case "MultiPolygon":
+                for (JsonElement polygon : object.getAsJsonArray("coordinates")) {
+                    addPolygon(polygon.getAsJsonArray(), rings);
+                }
+                break;
+            default:
+                break; // Points and lines have no inside.
+        }
+    }
+
+    /***
+     * Adds the outer ring and the holes of a GeoJSON polygon.
+     * @param polygon The coordinates of the polygon.
+     * @param rings The list the rings are added to.
+     */
+    private static void addPolygon(JsonArray polygon, List<double[]> rings) {
+        for (JsonElement ringElement : polygon) {
+            JsonArray ring = ringElement.getAsJsonArray();
+            double[] coordinates = new double[ring.size() * 2];
+            for (int i = 0; i < ring.size(); i++) {
+                JsonArray position = ring.get(i).getAsJsonArray();
+                coordinates[2 * i] = position.get(0).getAsDouble();
+                coordinates[2 * i + 1] = position.get(1).getAsDouble();
+            }
+            if (coordinates.length >= 6) {
+                rings.add(coordinates);
+            }
+        }
+    }
+
+    /***
+     * Tests whether a point is inside the boundary. Every ring counts, so a point inside a hole is outside.
+     * @param x The longitude.
+     * @param y The latitude.
+     * @return Returns true if the point is inside. Always false if the boundary is unavailable.
+     */
+    public boolean contains(double x, double y) {
+        if (!available || Double.isNaN(x) || Double.isNaN(y) || x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+        double[] edges = bands[band(y)];
+        boolean inside = false;
+        for (int i = 0; i < edges.length; i += 4) {
+            double x1 = edges[i], y1 = edges[i + 1], x2 = edges[i + 2], y2 = edges[i + 3];
+            if ((y1 > y) != (y2 > y) && x < (x2 - x1) * (y - y1) / (y2 - y1) + x1) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /***
+     * Returns the latitude band of a latitude, clamped to the boundary.
+     * @param y The latitude.
+     * @return Returns the band.
+     */
+    private int band(double y) {
+        return Math.min(bandCount - 1, Math.max(0, (int) ((y - minY) / bandHeight)));
+    }
+
+    /***
+     * Reports whether a boundary was loaded.
+     * @return Returns true if the boundary can be used.
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+}
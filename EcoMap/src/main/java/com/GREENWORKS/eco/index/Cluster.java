@@ -0,0 +1,101 @@
+package com.GREENWORKS.eco.index;
+
+import java.util.Collections;
+import java.util.Map;
+
+/***
+ * A Cluster is a single result of a ClusterIndex query. It is either a group of pins, with the number of pins
+ * per SubPillar, or a single pin, in which case getPin() returns its position.
+ */
+public class Cluster {
+
+    private final long id;
+    private final double longitude;
+    private final double latitude;
+    private final int count;
+    private final int pin;
+    private final Map<Integer, Integer> subPillarCounts;
+
+    /***
+     * Constructor for the Cluster.
+     * @param id The id that ClusterIndex.getChildren() accepts.
+     * @param longitude The longitude of the weighted center.
+     * @param latitude The latitude of the weighted center.
+     * @param count The number of pins.
+     * @param pin The position of the pin if the cluster is a single pin, otherwise -1.
+     * @param subPillarCounts The number of pins per SubPillar id.
+     */
+    Cluster(long id, double longitude, double latitude, int count, int pin, Map<Integer, Integer> subPillarCounts) {
+        this.id = id;
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.count = count;
+        this.pin = pin;
+        this.subPillarCounts = Collections.unmodifiableMap(subPillarCounts);
+    }
+
+    /***
+     * Accessor method for the id.
+     * @return Returns the contents of the instance variable.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /***
+     * Accessor method for the longitude.
+     * @return Returns the contents of the instance variable.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /***
+     * Accessor method for the latitude.
+     * @return Returns the contents of the instance variable.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /***
+     * Accessor method for the number of pins.
+     * @return Returns the contents of the instance variable.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /***
+     * Accessor method for the pin position.
+     * @return Returns the position of the pin in the indexed arrays, or -1 for a group of pins.
+     */
+    public int getPin() {
+        return pin;
+    }
+
+    /***
+     * Reports whether the cluster is a single pin.
+     * @return Returns true if getPin() is a position.
+     */
+    public boolean isPin() {
+        return pin >= 0;
+    }
+
+    /***
+     * Accessor method for the pin counts.
+     * @return Returns an unmodifiable Map of SubPillar id to the number of pins.
+     */
+    public Map<Integer, Integer> getSubPillarCounts() {
+        return subPillarCounts;
+    }
+
+    /***
+     * toString() method for printing the Cluster in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "Cluster [id=" + id + ", longitude=" + longitude + ", latitude=" + latitude + ", count=" + count
+            + ", pin=" + pin + "]";
+    }
+}
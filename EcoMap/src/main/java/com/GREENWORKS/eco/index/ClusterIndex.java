@@ -0,0 +1,307 @@
+package com.GREENWORKS.eco.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.GREENWORKS.eco.constants.IndexConstants;
+
+/***
+ * The ClusterIndex groups nearby pins into clusters for every zoom level, the way the supercluster library
+ * does. The pins are projected to Web Mercator. Starting at the deepest zoom, every point absorbs the
+ * unclaimed points within IndexConstants.CLUSTER_RADIUS pixels of it, and the resulting clusters are clustered
+ * again for the next zoom out. Each level keeps a GeoGrid over its clusters, so a viewport query only reads the
+ * clusters that are visible. The index is immutable and is built once per PinSnapshot.
+ *
+ * Every cluster records which cluster of the next zoom out absorbed it, which is how getChildren() expands a
+ * cluster.
+ */
+public class ClusterIndex {
+
+    private static final int ZOOM_BITS = 5;
+    private final Level[] levels; // levels[zoom], the deepest level holds the pins themselves.
+
+    /***
+     * Builds the index. The positions of the arrays are the pin positions that the clusters report.
+     * @param longitudes The longitude of every pin, NaN if it has none.
+     * @param latitudes The latitude of every pin, NaN if it has none.
+     * @param categories The SubPillar id of every pin.
+     */
+    public ClusterIndex(double[] longitudes, double[] latitudes, int[] categories) {
+        levels = new Level[IndexConstants.CLUSTER_MAX_ZOOM + 2];
+        Level level = new Level(IndexConstants.CLUSTER_MAX_ZOOM + 1, longitudes.length);
+        for (int i = 0; i < longitudes.length; i++) {
+            if (Double.isNaN(longitudes[i]) || Double.isNaN(latitudes[i])) {
+                continue;
+            }
+            level.add(mercatorX(longitudes[i]), mercatorY(latitudes[i]), 1, i, new int[] { categories[i], 1 });
+        }
+        level.index();
+        levels[level.zoom] = level;
+        for (int zoom = IndexConstants.CLUSTER_MAX_ZOOM; zoom >= IndexConstants.CLUSTER_MIN_ZOOM; zoom--) {
+            level = cluster(level, zoom);
+            levels[zoom] = level;
+        }
+    }
+
+    /***
+     * Clusters the points of one level into the next zoom out.
+     * @param points The level to be clustered.
+     * @param zoom The zoom of the new level.
+     * @return Returns the new level.
+     */
+    private static Level cluster(Level points, int zoom) {
+        double radius = radius(zoom);
+        double radiusSquared = radius * radius;
+        Level clusters = new Level(zoom, points.size);
+        boolean[] taken = new boolean[points.size];
+        for (int i = 0; i < points.size; i++) {
+            if (taken[i]) {
+                continue;
+            }
+            taken[i] = true;
+            int index = clusters.size;
+            points.parent[i] = index;
+            int count = points.count[i];
+            double weightedX = points.x[i] * count, weightedY = points.y[i] * count;
+            int[] breakdown = points.breakdown[i];
+            for (int j : points.grid.query(points.x[i] - radius, points.y[i] - radius, points.x[i] + radius, points.y[i] + radius)) {
+                double dx = points.x[j] - points.x[i], dy = points.y[j] - points.y[i];
+                if (taken[j] || dx * dx + dy * dy > radiusSquared) {
+                    continue;
+                }
+                taken[j] = true;
+                points.parent[j] = index;
+                count += points.count[j];
+                weightedX += points.x[j] * points.count[j];
+                weightedY += points.y[j] * points.count[j];
+                breakdown = merge(breakdown, points.breakdown[j]);
+            }
+            if (count == points.count[i]) {
+                clusters.add(points.x[i], points.y[i], count, points.pin[i], breakdown); // Nothing nearby, carried as it is.
+            } else {
+                clusters.add(weightedX / count, weightedY / count, count, -1, breakdown);
+            }
+        }
+        clusters.index();
+        return clusters;
+    }
+
+    /***
+     * Returns the clusters of a zoom level that lie inside a bounding box.
+     * @param zoom The zoom level of the map. Zooms beyond the deepest level return the pins themselves.
+     * @param minLongitude The western edge.
+     * @param minLatitude The southern edge.
+     * @param maxLongitude The eastern edge.
+     * @param maxLatitude The northern edge.
+     * @return Returns the clusters.
+     */
+    public List<Cluster> getClusters(int zoom, double minLongitude, double minLatitude, double maxLongitude, double maxLatitude) {
+        Level level = levels[Math.max(IndexConstants.CLUSTER_MIN_ZOOM, Math.min(zoom, IndexConstants.CLUSTER_MAX_ZOOM + 1))];
+        int[] found = level.grid.query(mercatorX(minLongitude), mercatorY(maxLatitude), mercatorX(maxLongitude), mercatorY(minLatitude));
+        List<Cluster> clusters = new ArrayList<>(found.length);
+        for (int i : found) {
+            clusters.add(level.toCluster(i));
+        }
+        return clusters;
+    }
+
+    /***
+     * Returns the clusters and pins that a cluster splits into at the next zoom level.
+     * @param clusterId The id of the cluster.
+     * @return Returns the children, or an empty list if the id is unknown or is a single pin.
+     */
+    public List<Cluster> getChildren(long clusterId) {
+        int zoom = (int) (clusterId & ((1 << ZOOM_BITS) - 1));
+        long index = clusterId >>> ZOOM_BITS;
+        List<Cluster> children = new ArrayList<>();
+        if (zoom < IndexConstants.CLUSTER_MIN_ZOOM || zoom > IndexConstants.CLUSTER_MAX_ZOOM || index >= levels[zoom].size) {
+            return children;
+        }
+        Level parent = levels[zoom], level = levels[zoom + 1];
+        int i = (int) index;
+        if (parent.pin[i] >= 0) {
+            return children;
+        }
+        double radius = 2 * radius(zoom); // The weighted center can lie up to two radii from a child.
+        for (int j : level.grid.query(parent.x[i] - radius, parent.y[i] - radius, parent.x[i] + radius, parent.y[i] + radius)) {
+            if (level.parent[j] == i) {
+                children.add(level.toCluster(j));
+            }
+        }
+        return children;
+    }
+
+    /***
+     * Returns the zoom at which a cluster falls apart into more than one piece.
+     * @param clusterId The id of the cluster.
+     * @return Returns the zoom to which the map should be zoomed to expand the cluster.
+     */
+    public int getExpansionZoom(long clusterId) {
+        long id = clusterId;
+        int zoom = (int) (id & ((1 << ZOOM_BITS) - 1));
+        while (zoom <= IndexConstants.CLUSTER_MAX_ZOOM) {
+            List<Cluster> children = getChildren(id);
+            zoom++;
+            if (children.size() != 1) {
+                break;
+            }
+            id = children.get(0).getId();
+        }
+        return zoom;
+    }
+
+    /***
+     * Returns the number of clusters at a zoom level.
+     * @param zoom The zoom level.
+     * @return Returns the number of clusters and single pins.
+     */
+    public int size(int zoom) {
+        return levels[Math.max(IndexConstants.CLUSTER_MIN_ZOOM, Math.min(zoom, IndexConstants.CLUSTER_MAX_ZOOM + 1))].size;
+    }
+
+    /***
+     * Returns the clustering radius at a zoom level in projected units.
+     * @param zoom The zoom level.
+     * @return Returns the radius.
+     */
+    private static double radius(int zoom) {
+        return IndexConstants.CLUSTER_RADIUS / (IndexConstants.CLUSTER_EXTENT * Math.pow(2, zoom));
+    }
+
+    /***
+     * Merges two sorted category, count pair arrays.
+     * @param a The first breakdown.
+     * @param b The second breakdown.
+     * @return Returns the merged breakdown.
+     */
+    private static int[] merge(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                merged[size++] = a[i++];
+                merged[size++] = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                merged[size++] = b[j++];
+                merged[size++] = b[j++];
+            } else {
+                merged[size++] = a[i];
+                merged[size++] = a[i + 1] + b[j + 1];
+                i += 2;
+                j += 2;
+            }
+        }
+        return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+
+    /***
+     * Projects a longitude to Web Mercator.
+     * @param longitude The longitude.
+     * @return Returns x between 0 and 1.
+     */
+    static double mercatorX(double longitude) {
+        return longitude / 360 + 0.5;
+    }
+
+    /***
+     * Projects a latitude to Web Mercator.
+     * @param latitude The latitude.
+     * @return Returns y between 0 and 1, with 0 at the north.
+     */
+    static double mercatorY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return y < 0 ? 0 : y > 1 ? 1 : y;
+    }
+
+    /***
+     * Converts Web Mercator x back to a longitude.
+     * @param x The projected x.
+     * @return Returns the longitude.
+     */
+    static double longitude(double x) {
+        return (x - 0.5) * 360;
+    }
+
+    /***
+     * Converts Web Mercator y back to a latitude.
+     * @param y The projected y.
+     * @return Returns the latitude.
+     */
+    static double latitude(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /***
+     * The clusters of a single zoom level, stored as parallel arrays.
+     */
+    private static class Level {
+
+        private final int zoom;
+        private int size;
+        private double[] x;
+        private double[] y;
+        private int[] count;
+        private int[] pin;
+        private int[][] breakdown;
+        private int[] parent;
+        private GeoGrid grid;
+
+        /***
+         * Constructor for the Level.
+         * @param zoom The zoom level.
+         * @param capacity The maximum number of clusters.
+         */
+        Level(int zoom, int capacity) {
+            this.zoom = zoom;
+            this.x = new double[capacity];
+            this.y = new double[capacity];
+            this.count = new int[capacity];
+            this.pin = new int[capacity];
+            this.breakdown = new int[capacity][];
+        }
+
+        /***
+         * Adds a cluster.
+         */
+        void add(double clusterX, double clusterY, int clusterCount, int clusterPin, int[] clusterBreakdown) {
+            x[size] = clusterX;
+            y[size] = clusterY;
+            count[size] = clusterCount;
+            pin[size] = clusterPin;
+            breakdown[size] = clusterBreakdown;
+            size++;
+        }
+
+        /***
+         * Trims the arrays and builds the grid once every cluster has been added.
+         */
+        void index() {
+            x = Arrays.copyOf(x, size);
+            y = Arrays.copyOf(y, size);
+            count = Arrays.copyOf(count, size);
+            pin = Arrays.copyOf(pin, size);
+            breakdown = Arrays.copyOf(breakdown, size);
+            parent = new int[size];
+            Arrays.fill(parent, -1);
+            grid = new GeoGrid(x, y);
+        }
+
+        /***
+         * Converts a cluster of the level into a Cluster.
+         * @param i The position of the cluster.
+         * @return Returns the Cluster.
+         */
+        Cluster toCluster(int i) {
+            Map<Integer, Integer> counts = new LinkedHashMap<>();
+            for (int j = 0; j < breakdown[i].length; j += 2) {
+                counts.put(breakdown[i][j], breakdown[i][j + 1]);
+            }
+            long id = ((long) i << ZOOM_BITS) | zoom;
+            return new Cluster(id, longitude(x[i]), latitude(y[i]), count[i], pin[i], counts);
+        }
+    }
+}
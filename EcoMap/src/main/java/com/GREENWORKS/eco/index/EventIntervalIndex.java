@@ -0,0 +1,173 @@
+package com.GREENWORKS.eco.index;
+
+import java.util.Arrays;
+
+/***
+ * The EventIntervalIndex is an immutable interval tree over the start and end times of a set of events. The
+ * intervals are sorted by their start and laid out as an implicit balanced binary tree: the middle interval of
+ * a range is the root of that range. Every node also records the latest end inside its subtree, so a query
+ * skips every subtree that ends before the queried range and every right subtree that starts after it. Finding
+ * the events that overlap a range costs O(log n + k) instead of a scan of every event.
+ *
+ * Events are identified by their position in the arrays that the index was built from. Times are plain longs,
+ * for example epoch seconds. Positions whose start or end is NONE are left out. An end before its start is
+ * treated as a single moment at the start.
+ */
+public class EventIntervalIndex {
+
+    public static final long NONE = Long.MIN_VALUE; // The time of an event that has no start or end.
+
+    private final int size;
+    private final int[] ids;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+
+    /***
+     * Builds the index. The arrays are not kept, the index holds its own copy of the times.
+     * @param start The start of every event.
+     * @param end The end of every event.
+     */
+    public EventIntervalIndex(long[] start, long[] end) {
+        if (start.length != end.length) {
+            throw new IllegalArgumentException("Every event needs both a start and an end.");
+        }
+        Integer[] order = new Integer[start.length];
+        int count = 0;
+        for (int i = 0; i < start.length; i++) {
+            if (start[i] != NONE && end[i] != NONE) {
+                order[count++] = i;
+            }
+        }
+        Arrays.sort(order, 0, count, (a, b) -> Long.compare(start[a], start[b]));
+        this.size = count;
+        this.ids = new int[count];
+        this.starts = new long[count];
+        this.ends = new long[count];
+        this.maxEnds = new long[count];
+        for (int slot = 0; slot < count; slot++) {
+            ids[slot] = order[slot];
+            starts[slot] = start[order[slot]];
+            ends[slot] = Math.max(start[order[slot]], end[order[slot]]);
+        }
+        buildMaxEnds(0, count);
+    }
+
+    /***
+     * Records the latest end of every subtree.
+     * @param low The first slot of the subtree.
+     * @param high The slot after the last slot of the subtree.
+     * @return Returns the latest end inside the subtree, or NONE if it is empty.
+     */
+    private long buildMaxEnds(int low, int high) {
+        if (low >= high) {
+            return NONE;
+        }
+        int middle = (low + high) >>> 1;
+        maxEnds[middle] = Math.max(ends[middle], Math.max(buildMaxEnds(low, middle), buildMaxEnds(middle + 1, high)));
+        return maxEnds[middle];
+    }
+
+    /***
+     * Finds every event that overlaps a range. Both ends of the range and of the events are included, so an
+     * event that ends exactly when the range starts is found.
+     * @param from The start of the range.
+     * @param to The end of the range.
+     * @return Returns the positions of the events in ascending order.
+     */
+    public int[] query(long from, long to) {
+        int[] found = collect(from, to);
+        for (int i = 0; i < found.length; i++) {
+            found[i] = ids[found[i]];
+        }
+        Arrays.sort(found);
+        return found;
+    }
+
+    /***
+     * Walks the tree and collects the slots of the events that overlap a range.
+     * @param from The start of the range.
+     * @param to The end of the range.
+     * @return Returns the slots in no particular order.
+     */
+    private int[] collect(long from, long to) {
+        if (size == 0 || from > to) {
+            return new int[0];
+        }
+        int[] found = new int[16];
+        int count = 0;
+        int[] stack = new int[2 * (32 - Integer.numberOfLeadingZeros(size) + 2)]; // Pairs of low and high.
+        int depth = 0;
+        stack[depth++] = 0;
+        stack[depth++] = size;
+        while (depth > 0) {
+            int high = stack[--depth];
+            int low = stack[--depth];
+            if (low >= high) {
+                continue;
+            }
+            int middle = (low + high) >>> 1;
+            if (maxEnds[middle] < from) {
+                continue; // Everything in this subtree ended before the range.
+            }
+            if (starts[middle] <= to) {
+                if (ends[middle] >= from) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = middle;
+                }
+                stack[depth++] = middle + 1; // The right subtree can only overlap when this node starts in time.
+                stack[depth++] = high;
+            }
+            stack[depth++] = low;
+            stack[depth++] = middle;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /***
+     * Counts the events that overlap each of a run of equally long buckets, for example the days of a month.
+     * An event that spans several buckets is counted in every one of them.
+     * @param from The start of the first bucket.
+     * @param length The length of a bucket.
+     * @param buckets The number of buckets.
+     * @return Returns the number of events per bucket.
+     */
+    public int[] countPerBucket(long from, long length, int buckets) {
+        if (length <= 0 || buckets < 0) {
+            throw new IllegalArgumentException("The buckets need a positive length.");
+        }
+        if (buckets == 0) {
+            return new int[0];
+        }
+        int[] counts = new int[buckets + 1];
+        long to = from + length * buckets - 1;
+        for (int slot : collect(from, to)) {
+            int first = (int) Math.max(0, Math.floorDiv(starts[slot] - from, length));
+            int last = (int) Math.min(buckets - 1, Math.floorDiv(Math.min(ends[slot], to) - from, length));
+            counts[first]++; // A difference array: one mark where the event starts and one after it ends.
+            counts[last + 1]--;
+        }
+        for (int bucket = 1; bucket < buckets; bucket++) {
+            counts[bucket] += counts[bucket - 1];
+        }
+        return Arrays.copyOf(counts, buckets);
+    }
+
+    /***
+     * Returns the number of indexed events.
+     * @return Returns the number of events with both a start and an end.
+     */
+    public int size() {
+        return size;
+    }
+
+    /***
+     * toString() method for printing the EventIntervalIndex in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "EventIntervalIndex [events=" + size + "]";
+    }
+}
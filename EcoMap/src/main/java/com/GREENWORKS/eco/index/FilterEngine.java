@@ -0,0 +1,328 @@
+package com.GREENWORKS.eco.index;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.GREENWORKS.eco.constants.IndexConstants;
+
+/***
+ * The FilterEngine answers the sidebar filters of the map with PinBitmaps. It keeps one bitmap per SubPillar,
+ * per Pillar, for the events and for the locations, and per month in which events run, all over the positions
+ * of the pins. A filter is resolved with bitwise operations: the values chosen within a facet are OR-ed and the
+ * facets are AND-ed, so no pin is looked at.
+ *
+ * The facet counts are disjunctive: the count of a value is the number of pins that would match if that value
+ * were chosen in its facet while every other facet keeps its choice. That is what a sidebar shows next to each
+ * checkbox.
+ */
+public class FilterEngine {
+
+    private static final int SUB_PILLARS = 0; // The facets, in the order that they are resolved.
+    private static final int PILLARS = 1;
+    private static final int KINDS = 2;
+    private static final int MONTHS = 3;
+    private static final int FACETS = 4;
+
+    private final int size;
+    private final Map<Integer, PinBitmap> subPillars;
+    private final Map<Integer, PinBitmap> pillars;
+    private final PinBitmap events;
+    private final PinBitmap locations;
+    private final Map<Integer, PinBitmap> months;
+
+    /***
+     * Builds the bitmaps.
+     * @param subPillarIds The SubPillar id of every pin, or -1 if it has none.
+     * @param pillarIds The Pillar id of every pin, or -1 if it has none.
+     * @param isEvent Whether every pin is an event.
+     * @param firstMonths The first month in which every event runs, counted as year * 12 + month - 1, or -1.
+     * @param lastMonths The last month in which every event runs, or -1.
+     */
+    public FilterEngine(int[] subPillarIds, int[] pillarIds, boolean[] isEvent, int[] firstMonths, int[] lastMonths) {
+        int count = subPillarIds.length;
+        if (pillarIds.length != count || isEvent.length != count || firstMonths.length != count || lastMonths.length != count) {
+            throw new IllegalArgumentException("Every pin needs a SubPillar, a Pillar, a kind and its months.");
+        }
+        this.size = count;
+        this.subPillars = group(subPillarIds, null, count);
+        this.pillars = group(pillarIds, null, count);
+        int[] kinds = new int[count];
+        for (int i = 0; i < count; i++) {
+            kinds[i] = isEvent[i] ? 1 : 0;
+        }
+        Map<Integer, PinBitmap> byKind = group(kinds, null, count);
+        this.events = byKind.getOrDefault(1, PinBitmap.none(count));
+        this.locations = byKind.getOrDefault(0, PinBitmap.none(count));
+        int[] spans = new int[count];
+        for (int i = 0; i < count; i++) {
+            spans[i] = firstMonths[i] < 0 || lastMonths[i] < 0 ? 0
+                : Math.min(Math.max(lastMonths[i], firstMonths[i]) - firstMonths[i] + 1, IndexConstants.FILTER_MAX_EVENT_MONTHS);
+        }
+        this.months = group(firstMonths, spans, count);
+    }
+
+    /***
+     * Builds a bitmap per key. The positions are visited in ascending order, so each list is already sorted.
+     * @param keys The key of every pin. Negative keys are left out.
+     * @param spans The number of consecutive keys, starting at its key, that every pin belongs to, or null for one.
+     * @param count The number of pins.
+     * @return Returns the bitmap of every key.
+     */
+    private static Map<Integer, PinBitmap> group(int[] keys, int[] spans, int count) {
+        Map<Integer, int[]> lists = new HashMap<>();
+        Map<Integer, Integer> lengths = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            int span = spans == null ? (keys[i] < 0 ? 0 : 1) : spans[i];
+            for (int key = keys[i]; key < keys[i] + span; key++) {
+                int length = lengths.getOrDefault(key, 0);
+                int[] list = lists.get(key);
+                if (list == null || list.length == length) {
+                    list = list == null ? new int[8] : Arrays.copyOf(list, length * 2);
+                    lists.put(key, list);
+                }
+                list[length] = i;
+                lengths.put(key, length + 1);
+            }
+        }
+        Map<Integer, PinBitmap> bitmaps = new HashMap<>();
+        for (Map.Entry<Integer, int[]> entry : lists.entrySet()) {
+            bitmaps.put(entry.getKey(), PinBitmap.of(entry.getValue(), lengths.get(entry.getKey()), count));
+        }
+        return bitmaps;
+    }
+
+    /***
+     * Finds the pins that match a filter.
+     * @param filter The filter.
+     * @return Returns the matching pins.
+     */
+    public PinBitmap select(Filter filter) {
+        PinBitmap result = filter.within == null ? PinBitmap.all(size) : filter.within;
+        for (int facet = 0; facet < FACETS; facet++) {
+            PinBitmap chosen = chosen(filter, facet);
+            if (chosen != null) {
+                result = result.and(chosen);
+            }
+        }
+        return result;
+    }
+
+    /***
+     * Counts the pins of every value of every facet.
+     * @param filter The filter that the counts are taken under.
+     * @return Returns the counts.
+     */
+    public Facets facets(Filter filter) {
+        PinBitmap[] others = new PinBitmap[FACETS]; // Every facet but one, for the disjunctive counts.
+        for (int facet = 0; facet < FACETS; facet++) {
+            PinBitmap base = filter.within == null ? PinBitmap.all(size) : filter.within;
+            for (int other = 0; other < FACETS; other++) {
+                PinBitmap chosen = other == facet ? null : chosen(filter, other);
+                if (chosen != null) {
+                    base = base.and(chosen);
+                }
+            }
+            others[facet] = base;
+        }
+        return new Facets(select(filter).cardinality(), count(subPillars, others[SUB_PILLARS]), count(pillars, others[PILLARS]),
+            others[KINDS].andCardinality(events), others[KINDS].andCardinality(locations), count(months, others[MONTHS]));
+    }
+
+    /***
+     * Counts the pins of every value of a facet.
+     * @param values The bitmap of every value.
+     * @param base The pins that match the other facets.
+     * @return Returns the non-zero counts, ordered by value.
+     */
+    private static Map<Integer, Integer> count(Map<Integer, PinBitmap> values, PinBitmap base) {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        for (Map.Entry<Integer, PinBitmap> entry : values.entrySet()) {
+            int count = base.andCardinality(entry.getValue());
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /***
+     * Returns the pins that a filter chooses in one facet.
+     * @param filter The filter.
+     * @param facet The facet.
+     * @return Returns the union of the chosen values, or null if the facet is not filtered.
+     */
+    private PinBitmap chosen(Filter filter, int facet) {
+        switch (facet) {
+            case SUB_PILLARS:
+                return union(subPillars, filter.subPillars);
+            case PILLARS:
+                return union(pillars, filter.pillars);
+            case KINDS:
+                return filter.events == null ? null : filter.events ? events : locations;
+            default:
+                return union(months, filter.months);
+        }
+    }
+
+    /***
+     * Returns the union of the bitmaps of some values.
+     * @param values The bitmap of every value.
+     * @param chosen The chosen values, or null.
+     * @return Returns the union, or null if no values were chosen.
+     */
+    private PinBitmap union(Map<Integer, PinBitmap> values, int[] chosen) {
+        if (chosen == null) {
+            return null;
+        }
+        PinBitmap result = PinBitmap.none(size);
+        for (int value : chosen) {
+            PinBitmap bitmap = values.get(value);
+            if (bitmap != null) {
+                result = result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    /***
+     * Returns the number of bytes that the bitmaps hold.
+     * @return Returns the approximate memory of the engine.
+     */
+    public long sizeInBytes() {
+        long bytes = events.sizeInBytes() + locations.sizeInBytes();
+        for (Map<Integer, PinBitmap> facet : Arrays.asList(subPillars, pillars, months)) {
+            for (PinBitmap bitmap : facet.values()) {
+                bytes += bitmap.sizeInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /***
+     * toString() method for printing the FilterEngine in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "FilterEngine [pins=" + size + ", subPillars=" + subPillars.size() + ", pillars=" + pillars.size()
+            + ", months=" + months.size() + ", bytes=" + sizeInBytes() + "]";
+    }
+
+    /***
+     * A combination of filters. A facet that is left null is not filtered. An empty array matches nothing.
+     */
+    public static class Filter {
+
+        private final int[] subPillars;
+        private final int[] pillars;
+        private final Boolean events;
+        private final int[] months;
+        private final PinBitmap within;
+
+        /***
+         * Constructor for the Filter.
+         * @param subPillars The SubPillar ids to be shown, or null.
+         * @param pillars The Pillar ids to be shown, or null.
+         * @param events True for only the events, false for only the locations, or null for both.
+         * @param months The months whose events are shown, counted as year * 12 + month - 1, or null.
+         * @param within The pins that every result must also be in, for example those inside the viewport, or null.
+         */
+        public Filter(int[] subPillars, int[] pillars, Boolean events, int[] months, PinBitmap within) {
+            this.subPillars = subPillars;
+            this.pillars = pillars;
+            this.events = events;
+            this.months = months;
+            this.within = within;
+        }
+
+        /***
+         * Checks whether the filter restricts the pins at all.
+         * @return Returns true if any facet is filtered.
+         */
+        public boolean isEmpty() {
+            return subPillars == null && pillars == null && events == null && months == null && within == null;
+        }
+    }
+
+    /***
+     * The counts of a filter: the number of matching pins and the disjunctive count of every facet value.
+     */
+    public static class Facets {
+
+        private final int total;
+        private final Map<Integer, Integer> subPillars;
+        private final Map<Integer, Integer> pillars;
+        private final int events;
+        private final int locations;
+        private final Map<Integer, Integer> months;
+
+        /***
+         * Constructor for the Facets.
+         * @param total The number of pins that match the filter.
+         * @param subPillars The count of every SubPillar.
+         * @param pillars The count of every Pillar.
+         * @param events The count of the events.
+         * @param locations The count of the locations.
+         * @param months The count of every month.
+         */
+        Facets(int total, Map<Integer, Integer> subPillars, Map<Integer, Integer> pillars, int events, int locations,
+                Map<Integer, Integer> months) {
+            this.total = total;
+            this.subPillars = subPillars;
+            this.pillars = pillars;
+            this.events = events;
+            this.locations = locations;
+            this.months = months;
+        }
+
+        /***
+         * Accessor method for the number of matching pins.
+         * @return Returns the contents of the instance variable.
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /***
+         * Accessor method for the SubPillar counts.
+         * @return Returns the count of every SubPillar id that has pins.
+         */
+        public Map<Integer, Integer> getSubPillars() {
+            return subPillars;
+        }
+
+        /***
+         * Accessor method for the Pillar counts.
+         * @return Returns the count of every Pillar id that has pins.
+         */
+        public Map<Integer, Integer> getPillars() {
+            return pillars;
+        }
+
+        /***
+         * Accessor method for the event count.
+         * @return Returns the contents of the instance variable.
+         */
+        public int getEvents() {
+            return events;
+        }
+
+        /***
+         * Accessor method for the location count.
+         * @return Returns the contents of the instance variable.
+         */
+        public int getLocations() {
+            return locations;
+        }
+
+        /***
+         * Accessor method for the month counts.
+         * @return Returns the count of every month that has events, counted as year * 12 + month - 1.
+         */
+        public Map<Integer, Integer> getMonths() {
+            return months;
+        }
+    }
+}
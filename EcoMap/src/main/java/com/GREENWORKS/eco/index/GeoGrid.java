@@ -0,0 +1,202 @@
+package com.GREENWORKS.eco.index;
+
+import java.util.Arrays;
+
+import com.GREENWORKS.eco.constants.IndexConstants;
+
+/***
+ * The GeoGrid is an immutable spatial index over a set of points. The bounds of the points are divided into a
+ * uniform grid that holds about IndexConstants.GRID_PINS_PER_CELL points per cell. The points of each cell are
+ * stored next to each other, so a bounding-box query only reads the cells that overlap the box. Cells that
+ * lie completely inside the box are taken whole, only the cells on its edge are checked point by point.
+ *
+ * Points are identified by their position in the arrays that the grid was built from. Points with a NaN
+ * coordinate are left out.
+ */
+public class GeoGrid {
+
+    private final int size;
+    private final int columns;
+    private final int rows;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final double scaleX;
+    private final double scaleY;
+    private final int[] cellStart;
+    private final int[] ids;
+    private final double[] xs;
+    private final double[] ys;
+
+    /***
+     * Builds the grid. The arrays are not kept, the grid holds its own copy of the coordinates.
+     * @param x The longitude of every point.
+     * @param y The latitude of every point.
+     */
+    public GeoGrid(double[] x, double[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Every point needs both coordinates.");
+        }
+        double lowX = Double.POSITIVE_INFINITY, lowY = Double.POSITIVE_INFINITY;
+        double highX = Double.NEGATIVE_INFINITY, highY = Double.NEGATIVE_INFINITY;
+        int count = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (Double.isNaN(x[i]) || Double.isNaN(y[i])) {
+                continue;
+            }
+            lowX = Math.min(lowX, x[i]);
+            lowY = Math.min(lowY, y[i]);
+            highX = Math.max(highX, x[i]);
+            highY = Math.max(highY, y[i]);
+            count++;
+        }
+        this.size = count;
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt((double) count / IndexConstants.GRID_PINS_PER_CELL)));
+        this.columns = side;
+        this.rows = side;
+        this.minX = count == 0 ? 0 : lowX;
+        this.minY = count == 0 ? 0 : lowY;
+        this.maxX = count == 0 ? 0 : highX;
+        this.maxY = count == 0 ? 0 : highY;
+        this.scaleX = columns / Math.max(maxX - minX, 1e-9);
+        this.scaleY = rows / Math.max(maxY - minY, 1e-9);
+
+        // Counting sort of the points by cell.
+        int[] cells = new int[x.length];
+        this.cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < x.length; i++) {
+            if (Double.isNaN(x[i]) || Double.isNaN(y[i])) {
+                cells[i] = -1;
+                continue;
+            }
+            cells[i] = row(y[i]) * columns + column(x[i]);
+            cellStart[cells[i] + 1]++;
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+        this.ids = new int[count];
+        this.xs = new double[count];
+        this.ys = new double[count];
+        for (int i = 0; i < x.length; i++) {
+            if (cells[i] < 0) {
+                continue;
+            }
+            int slot = next[cells[i]]++;
+            ids[slot] = i;
+            xs[slot] = x[i];
+            ys[slot] = y[i];
+        }
+    }
+
+    /***
+     * Finds every point inside a bounding box. The edges of the box are included.
+     * @param boxMinX The western edge.
+     * @param boxMinY The southern edge.
+     * @param boxMaxX The eastern edge.
+     * @param boxMaxY The northern edge.
+     * @return Returns the positions of the points in ascending order.
+     */
+    public int[] query(double boxMinX, double boxMinY, double boxMaxX, double boxMaxY) {
+        if (size == 0 || boxMinX > maxX || boxMaxX < minX || boxMinY > maxY || boxMaxY < minY
+            || boxMinX > boxMaxX || boxMinY > boxMaxY) {
+            return new int[0];
+        }
+        int firstColumn = column(boxMinX), lastColumn = column(boxMaxX);
+        int firstRow = row(boxMinY), lastRow = row(boxMaxY);
+        int[] found = new int[64];
+        int count = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            boolean innerRow = row > firstRow && row < lastRow;
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                int start = cellStart[cell], end = cellStart[cell + 1];
+                if (count + end - start > found.length) {
+                    found = Arrays.copyOf(found, Math.max(found.length * 2, count + end - start));
+                }
+                if (innerRow && column > firstColumn && column < lastColumn) {
+                    System.arraycopy(ids, start, found, count, end - start); // The whole cell is inside the box.
+                    count += end - start;
+                    continue;
+                }
+                for (int slot = start; slot < end; slot++) {
+                    if (xs[slot] >= boxMinX && xs[slot] <= boxMaxX && ys[slot] >= boxMinY && ys[slot] <= boxMaxY) {
+                        found[count++] = ids[slot];
+                    }
+                }
+            }
+        }
+        int[] result = Arrays.copyOf(found, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /***
+     * Returns the column of a longitude, clamped to the grid.
+     * @param x The longitude.
+     * @return Returns the column.
+     */
+    private int column(double x) {
+        return Math.min(columns - 1, Math.max(0, (int) ((x - minX) * scaleX)));
+    }
+
+    /***
+     * Returns the row of a latitude, clamped to the grid.
+     * @param y The latitude.
+     * @return Returns the row.
+     */
+    private int row(double y) {
+        return Math.min(rows - 1, Math.max(0, (int) ((y - minY) * scaleY)));
+    }
+
+    /***
+     * Returns the number of indexed points.
+     * @return Returns the number of points with both coordinates.
+     */
+    public int size() {
+        return size;
+    }
+
+    /***
+     * Returns the number of cells.
+     * @return Returns columns * rows.
+     */
+    public int cells() {
+        return columns * rows;
+    }
+
+    /***
+     * Unboxes a stored coordinate.
+     * @param value The coordinate, which is null when the Pin has none.
+     * @return Returns the coordinate, or NaN if it is missing.
+     */
+    public static double coordinate(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    /***
+     * Parses a coordinate that arrives as text, for example in a query string.
+     * @param value The coordinate, for example "-81.449722".
+     * @return Returns the coordinate, or NaN if it is missing or not a number.
+     */
+    public static double parseCoordinate(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /***
+     * toString() method for printing the GeoGrid in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "GeoGrid [points=" + size + ", cells=" + columns + "x" + rows + "]";
+    }
+}
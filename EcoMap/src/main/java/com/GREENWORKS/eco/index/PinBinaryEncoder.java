@@ -0,0 +1,306 @@
+package com.GREENWORKS.eco.index;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.GREENWORKS.eco.constants.IndexConstants;
+
+/***
+ * The PinBinaryEncoder writes the map pins in a compact binary form for clients on slow connections. The
+ * coordinates are stored as fixed-point integers of 1 / IndexConstants.BINARY_SCALE degrees, and the pins are
+ * ordered along a Hilbert curve so that each coordinate is written as a small difference from the one before.
+ * Ids, Pillars and SubPillars are varints, and the names, towns and icon keys are written once in a string table
+ * and referred to by their index. The values are laid out column by column, which groups similar bytes for gzip.
+ *
+ * All of that is prepared when the encoder is built. writeTo() only copies varints into one buffer and hands it
+ * to the stream, so a request allocates nothing per pin. The layout, all numbers being unsigned varints and
+ * zigzag marking the signed ones:
+ *
+ * "EPB" 1, scale, count, located, string count, then every string as its UTF-8 length and bytes.
+ * count x index, the position of the pin in /api/pins.
+ * count x id.
+ * located x zigzag longitude delta, then located x zigzag latitude delta. The pins without coordinates are last.
+ * count x Pillar + 1, count x SubPillar + 1, 0 meaning none.
+ * count x name + 1, count x town + 1, count x icon + 1, as string indexes, 0 meaning null.
+ * count x zigzag start second + 1, 0 for a location, then for every event zigzag end - start seconds.
+ */
+public class PinBinaryEncoder {
+
+    public static final byte[] MAGIC = { 'E', 'P', 'B', 1 };
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int count;
+    private final int located;
+    private final int[] order;
+    private final int[] ids;
+    private final int[] x;
+    private final int[] y;
+    private final int[] pillars;
+    private final int[] subPillars;
+    private final int[] names;
+    private final int[] towns;
+    private final int[] icons;
+    private final long[] starts;
+    private final long[] ends;
+    private final byte[][] strings;
+
+    /***
+     * Constructor for the PinBinaryEncoder. Every array is indexed by the position of the pin.
+     * @param longitudes The longitude of every pin, or NaN if it has none.
+     * @param latitudes The latitude of every pin, or NaN.
+     * @param ids The id of every pin.
+     * @param pillars The Pillar id of every pin, or -1.
+     * @param subPillars The SubPillar id of every pin, or -1.
+     * @param names The name of every pin, or null.
+     * @param towns The town of every pin, or null.
+     * @param icons The icon key of every pin, or null.
+     * @param starts The start of every event in the seconds of PinSnapshot.eventTime(), or EventIntervalIndex.NONE.
+     * @param ends The end of every event, or EventIntervalIndex.NONE.
+     */
+    public PinBinaryEncoder(double[] longitudes, double[] latitudes, int[] ids, int[] pillars, int[] subPillars,
+            String[] names, String[] towns, String[] icons, long[] starts, long[] ends) {
+        this.count = ids.length;
+        int[] quantizedX = new int[count];
+        int[] quantizedY = new int[count];
+        boolean[] hasCoordinates = new boolean[count];
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        int withCoordinates = 0;
+        for (int i = 0; i < count; i++) {
+            if (Double.isNaN(longitudes[i]) || Double.isNaN(latitudes[i])) {
+                continue;
+            }
+            hasCoordinates[i] = true;
+            withCoordinates++;
+            quantizedX[i] = (int) Math.round(longitudes[i] * IndexConstants.BINARY_SCALE);
+            quantizedY[i] = (int) Math.round(latitudes[i] * IndexConstants.BINARY_SCALE);
+            minX = Math.min(minX, quantizedX[i]);
+            minY = Math.min(minY, quantizedY[i]);
+            maxX = Math.max(maxX, quantizedX[i]);
+            maxY = Math.max(maxY, quantizedY[i]);
+        }
+        this.located = withCoordinates;
+        int side = 1 << IndexConstants.BINARY_HILBERT_ORDER;
+        double cellX = Math.max(1, ((double) maxX - minX + 1) / side);
+        double cellY = Math.max(1, ((double) maxY - minY + 1) / side);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            long key = hasCoordinates[i] ? hilbert(side, (int) ((quantizedX[i] - (double) minX) / cellX),
+                (int) ((quantizedY[i] - (double) minY) / cellY)) : (long) side * side; // Last, after every cell.
+            keys[i] = (key << 30) | i; // At most 2^32 cells and 2^30 pins.
+        }
+        Arrays.sort(keys);
+        this.order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) (keys[i] & ((1 << 30) - 1));
+        }
+        this.ids = ids;
+        this.x = quantizedX;
+        this.y = quantizedY;
+        this.pillars = pillars;
+        this.subPillars = subPillars;
+        this.starts = starts;
+        this.ends = ends;
+        Map<String, Integer> table = new HashMap<>();
+        this.names = intern(names, table);
+        this.towns = intern(towns, table);
+        this.icons = intern(icons, table);
+        this.strings = new byte[table.size()][];
+        for (Map.Entry<String, Integer> entry : table.entrySet()) {
+            strings[entry.getValue()] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /***
+     * Replaces strings by their index in the string table, adding the ones it does not hold yet.
+     * @param values The strings, some of which may be null.
+     * @param table The string table.
+     * @return Returns the index of every string plus one, or 0 for null.
+     */
+    private static int[] intern(String[] values, Map<String, Integer> table) {
+        int[] references = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                Integer index = table.get(values[i]);
+                if (index == null) {
+                    index = table.size();
+                    table.put(values[i], index);
+                }
+                references[i] = index + 1;
+            }
+        }
+        return references;
+    }
+
+    /***
+     * Returns the distance of a cell along the Hilbert curve that fills a square grid.
+     * @param side The number of cells per side, a power of two.
+     * @param x The column of the cell.
+     * @param y The row of the cell.
+     * @return Returns the distance, from 0 to side * side - 1.
+     */
+    static long hilbert(int side, int x, int y) {
+        long distance = 0;
+        for (int s = side / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            distance += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+        }
+        return distance;
+    }
+
+    /***
+     * Writes the pins to a stream. The stream is neither flushed nor closed.
+     * @param stream The stream, usually the output stream of the response.
+     * @throws IOException Thrown if the stream can not be written.
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        Buffer out = new Buffer(stream);
+        out.bytes(MAGIC);
+        out.varint(IndexConstants.BINARY_SCALE);
+        out.varint(count);
+        out.varint(located);
+        out.varint(strings.length);
+        for (byte[] string : strings) {
+            out.varint(string.length);
+            out.bytes(string);
+        }
+        for (int position : order) {
+            out.varint(position);
+        }
+        for (int position : order) {
+            out.varint(ids[position]);
+        }
+        long previous = 0;
+        for (int i = 0; i < located; i++) {
+            out.varint(zigZag(x[order[i]] - previous));
+            previous = x[order[i]];
+        }
+        previous = 0;
+        for (int i = 0; i < located; i++) {
+            out.varint(zigZag(y[order[i]] - previous));
+            previous = y[order[i]];
+        }
+        for (int position : order) {
+            out.varint(pillars[position] + 1);
+        }
+        for (int position : order) {
+            out.varint(subPillars[position] + 1);
+        }
+        for (int position : order) {
+            out.varint(names[position]);
+        }
+        for (int position : order) {
+            out.varint(towns[position]);
+        }
+        for (int position : order) {
+            out.varint(icons[position]);
+        }
+        for (int position : order) {
+            out.varint(starts[position] == EventIntervalIndex.NONE ? 0 : zigZag(starts[position]) + 1);
+        }
+        for (int position : order) {
+            if (starts[position] != EventIntervalIndex.NONE) {
+                out.varint(zigZag(ends[position] - starts[position]));
+            }
+        }
+        out.drain();
+    }
+
+    /***
+     * ZigZag encodes a signed integer, so that small negative numbers are short varints too.
+     * @param value The value.
+     * @return Returns the encoded value.
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /***
+     * Returns the number of pins.
+     * @return Returns the contents of the instance variable.
+     */
+    public int size() {
+        return count;
+    }
+
+    /***
+     * toString() method for printing the PinBinaryEncoder in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "PinBinaryEncoder [pins=" + count + ", located=" + located + ", strings=" + strings.length + "]";
+    }
+
+    /***
+     * A fixed buffer in front of the stream, so that the varints are not written one byte at a time.
+     */
+    private static class Buffer {
+
+        private final OutputStream stream;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int length = 0;
+
+        /***
+         * Constructor for the Buffer.
+         * @param stream The stream that the buffer is drained to.
+         */
+        Buffer(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        /***
+         * Writes an unsigned varint.
+         * @param value The value.
+         * @throws IOException Thrown if the stream can not be written.
+         */
+        void varint(long value) throws IOException {
+            if (length > BUFFER_SIZE - 10) {
+                drain(); // A varint of a long takes at most 10 bytes.
+            }
+            while ((value & ~0x7FL) != 0) {
+                buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte) value;
+        }
+
+        /***
+         * Writes raw bytes.
+         * @param bytes The bytes.
+         * @throws IOException Thrown if the stream can not be written.
+         */
+        void bytes(byte[] bytes) throws IOException {
+            if (length + bytes.length > BUFFER_SIZE) {
+                drain();
+            }
+            if (bytes.length > BUFFER_SIZE) {
+                stream.write(bytes); // Longer than the buffer, so it bypasses it.
+            } else {
+                System.arraycopy(bytes, 0, buffer, length, bytes.length);
+                length += bytes.length;
+            }
+        }
+
+        /***
+         * Hands the buffered bytes to the stream.
+         * @throws IOException Thrown if the stream can not be written.
+         */
+        void drain() throws IOException {
+            stream.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+}
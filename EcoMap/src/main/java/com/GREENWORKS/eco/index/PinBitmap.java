@@ -0,0 +1,263 @@
+package com.GREENWORKS.eco.index;
+
+import java.util.Arrays;
+
+/***
+ * The PinBitmap is an immutable set of pin positions out of a universe of 0 to size - 1. Like the containers
+ * of a Roaring bitmap it picks its form by its density: a sparse set is a sorted array of positions, which
+ * costs 32 bits per pin, and a dense set is a plain bitset, which costs one bit per pin of the universe. The
+ * set operations work on either form and return the smaller one, so a filter that matches a handful of pins
+ * stays a short array and a filter that matches most pins is a few hundred words.
+ */
+public class PinBitmap {
+
+    private final int universe;
+    private final int cardinality;
+    private final int[] positions; // The sparse form, or null.
+    private final long[] words; // The dense form, or null.
+
+    /***
+     * Constructor for the PinBitmap. Exactly one of the forms is given.
+     * @param universe The number of pins.
+     * @param cardinality The number of pins in the set.
+     * @param positions The sorted positions, or null.
+     * @param words The bitset, or null.
+     */
+    private PinBitmap(int universe, int cardinality, int[] positions, long[] words) {
+        this.universe = universe;
+        this.cardinality = cardinality;
+        this.positions = positions;
+        this.words = words;
+    }
+
+    /***
+     * Builds a bitmap from positions.
+     * @param sorted The positions in ascending order, without repeats. The array is not kept.
+     * @param count The number of positions to be read from the array.
+     * @param universe The number of pins.
+     * @return Returns the bitmap in the smaller form.
+     */
+    public static PinBitmap of(int[] sorted, int count, int universe) {
+        if (isSparse(count, universe)) {
+            return new PinBitmap(universe, count, Arrays.copyOf(sorted, count), null);
+        }
+        long[] words = new long[wordCount(universe)];
+        for (int i = 0; i < count; i++) {
+            words[sorted[i] >>> 6] |= 1L << sorted[i];
+        }
+        return new PinBitmap(universe, count, null, words);
+    }
+
+    /***
+     * Builds the bitmap that holds every pin.
+     * @param universe The number of pins.
+     * @return Returns the full bitmap.
+     */
+    public static PinBitmap all(int universe) {
+        long[] words = new long[wordCount(universe)];
+        Arrays.fill(words, -1L);
+        if (universe % 64 != 0) {
+            words[words.length - 1] = (1L << universe) - 1; // Only the low bits of the last word are pins.
+        }
+        return dense(universe, words);
+    }
+
+    /***
+     * Builds the bitmap that holds no pin.
+     * @param universe The number of pins.
+     * @return Returns the empty bitmap.
+     */
+    public static PinBitmap none(int universe) {
+        return new PinBitmap(universe, 0, new int[0], null);
+    }
+
+    /***
+     * Returns the pins that are in both bitmaps.
+     * @param other The other bitmap.
+     * @return Returns the intersection.
+     */
+    public PinBitmap and(PinBitmap other) {
+        if (positions != null || other.positions != null) {
+            PinBitmap sparse = positions != null ? this : other;
+            PinBitmap test = sparse == this ? other : this;
+            int[] kept = new int[sparse.cardinality];
+            int count = 0;
+            for (int position : sparse.positions) {
+                if (test.contains(position)) {
+                    kept[count++] = position;
+                }
+            }
+            return new PinBitmap(universe, count, count == kept.length ? kept : Arrays.copyOf(kept, count), null);
+        }
+        long[] result = new long[words.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = words[i] & other.words[i];
+        }
+        return dense(universe, result);
+    }
+
+    /***
+     * Returns the pins that are in either bitmap.
+     * @param other The other bitmap.
+     * @return Returns the union.
+     */
+    public PinBitmap or(PinBitmap other) {
+        if (positions != null && other.positions != null && isSparse(cardinality + other.cardinality, universe)) {
+            int[] merged = new int[cardinality + other.cardinality];
+            int count = 0, a = 0, b = 0;
+            while (a < cardinality || b < other.cardinality) {
+                int next = b >= other.cardinality || a < cardinality && positions[a] <= other.positions[b] ? positions[a] : other.positions[b];
+                merged[count++] = next;
+                if (a < cardinality && positions[a] == next) {
+                    a++;
+                }
+                if (b < other.cardinality && other.positions[b] == next) {
+                    b++;
+                }
+            }
+            return new PinBitmap(universe, count, Arrays.copyOf(merged, count), null);
+        }
+        long[] result = toWords();
+        if (other.positions != null) {
+            for (int position : other.positions) {
+                result[position >>> 6] |= 1L << position;
+            }
+        } else {
+            for (int i = 0; i < result.length; i++) {
+                result[i] |= other.words[i];
+            }
+        }
+        return dense(universe, result);
+    }
+
+    /***
+     * Counts the pins that are in both bitmaps without building the intersection, which is how facet counts
+     * are taken.
+     * @param other The other bitmap.
+     * @return Returns the size of the intersection.
+     */
+    public int andCardinality(PinBitmap other) {
+        if (positions != null || other.positions != null) {
+            PinBitmap sparse = positions != null ? this : other;
+            PinBitmap test = sparse == this ? other : this;
+            int count = 0;
+            for (int position : sparse.positions) {
+                if (test.contains(position)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i] & other.words[i]);
+        }
+        return count;
+    }
+
+    /***
+     * Checks whether a pin is in the bitmap.
+     * @param position The position of the pin.
+     * @return Returns true if the pin is in the bitmap.
+     */
+    public boolean contains(int position) {
+        if (position < 0 || position >= universe) {
+            return false;
+        }
+        if (positions != null) {
+            return Arrays.binarySearch(positions, position) >= 0;
+        }
+        return (words[position >>> 6] & (1L << position)) != 0;
+    }
+
+    /***
+     * Returns the positions of the pins in the bitmap.
+     * @return Returns the positions in ascending order.
+     */
+    public int[] toArray() {
+        if (positions != null) {
+            return positions.clone();
+        }
+        int[] result = new int[cardinality];
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            for (long word = words[i]; word != 0; word &= word - 1) {
+                result[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return result;
+    }
+
+    /***
+     * Returns the number of pins in the bitmap.
+     * @return Returns the contents of the instance variable.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /***
+     * Returns the approximate number of bytes that the bitmap holds.
+     * @return Returns the size of its array.
+     */
+    public int sizeInBytes() {
+        return positions != null ? positions.length * 4 : words.length * 8;
+    }
+
+    /***
+     * Returns the bitmap as a new bitset.
+     * @return Returns the words of the bitset.
+     */
+    private long[] toWords() {
+        if (words != null) {
+            return words.clone();
+        }
+        long[] result = new long[wordCount(universe)];
+        for (int position : positions) {
+            result[position >>> 6] |= 1L << position;
+        }
+        return result;
+    }
+
+    /***
+     * Wraps a bitset, and converts it to the sparse form when that is smaller.
+     * @param universe The number of pins.
+     * @param words The bitset. It is kept.
+     * @return Returns the bitmap in the smaller form.
+     */
+    private static PinBitmap dense(int universe, long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        PinBitmap bitmap = new PinBitmap(universe, count, null, words);
+        return isSparse(count, universe) ? new PinBitmap(universe, count, bitmap.toArray(), null) : bitmap;
+    }
+
+    /***
+     * Decides the form of a set. An array is smaller than a bitset when it holds fewer than 1 in 32 pins.
+     * @param count The number of pins in the set.
+     * @param universe The number of pins.
+     * @return Returns true if the set should be an array.
+     */
+    private static boolean isSparse(int count, int universe) {
+        return count * 32L < universe || universe == 0;
+    }
+
+    /***
+     * Returns the number of words of a bitset.
+     * @param universe The number of pins.
+     * @return Returns the number of 64 bit words.
+     */
+    private static int wordCount(int universe) {
+        return (universe + 63) >>> 6;
+    }
+
+    /***
+     * toString() method for printing the PinBitmap in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "PinBitmap [pins=" + cardinality + "/" + universe + ", form=" + (positions != null ? "array" : "bitset") + "]";
+    }
+}
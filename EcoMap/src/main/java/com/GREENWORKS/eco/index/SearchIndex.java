@@ -0,0 +1,544 @@
+package com.GREENWORKS.eco.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.GREENWORKS.eco.constants.IndexConstants;
+
+/***
+ * The SearchIndex is an immutable inverted index over the name, the address and the content of a set of pins.
+ * The text is lower-cased, stripped of accents and HTML tags, and split into terms of letters and digits. The
+ * terms are kept in a sorted array, so every term that starts with a prefix lies in one range and the last word
+ * of a query can be completed while it is being typed. Each term points to the pins that contain it and how
+ * often, where a term in the name or the address counts more than a term in the content.
+ *
+ * A query finds the pins that contain every one of its words and ranks them with BM25: rare terms count more
+ * than common ones, and a term counts less in a long text than in a short one.
+ *
+ * Pins are identified by their position in the arrays that the index was built from. Analysing the text of a
+ * pin is the expensive part of a build, so an index can be built from the previous one: pins whose key is equal
+ * to a key of the previous index reuse its analysis, and only added or changed pins are analysed again.
+ */
+public class SearchIndex {
+
+    private static final Pattern TAG = Pattern.compile("<[^>]*>|&[a-zA-Z#0-9]+;");
+    private static final Pattern ACCENT = Pattern.compile("\\p{M}+");
+
+    private final int size;
+    private final String[] terms;
+    private final int[] postingStart;
+    private final int[] postingIds;
+    private final float[] postingWeights;
+    private final float[] lengths;
+    private final float averageLength;
+    private final int[] categories;
+    private final Map<Object, Document> documents;
+    private final int reused;
+
+    /***
+     * Builds the index.
+     * @param keys The key of every pin. A pin whose key equals a key of the previous index reuses its analysis,
+     * so the key must change whenever the text does. It may be null, then the pin is always analysed.
+     * @param names The name of every pin.
+     * @param addresses The address of every pin.
+     * @param contents The content of every pin. It may contain HTML.
+     * @param categories The category of every pin, for example its SubPillar id, or -1 if it has none.
+     * @param previous The index of the previous snapshot, or null.
+     */
+    public SearchIndex(Object[] keys, String[] names, String[] addresses, String[] contents, int[] categories,
+            SearchIndex previous) {
+        int count = keys.length;
+        if (names.length != count || addresses.length != count || contents.length != count || categories.length != count) {
+            throw new IllegalArgumentException("Every pin needs a key, a name, an address, a content and a category.");
+        }
+        this.size = count;
+        this.categories = Arrays.copyOf(categories, count);
+        this.lengths = new float[count];
+        this.documents = new HashMap<>(count * 2);
+        Document[] analysed = new Document[count];
+        int reusedCount = 0;
+        double totalLength = 0;
+        for (int i = 0; i < count; i++) {
+            Document document = previous == null || keys[i] == null ? null : previous.documents.get(keys[i]);
+            if (document == null) {
+                document = new Document(names[i], addresses[i], contents[i]);
+            } else {
+                reusedCount++;
+            }
+            if (keys[i] != null) {
+                documents.put(keys[i], document);
+            }
+            analysed[i] = document;
+            lengths[i] = document.length;
+            totalLength += document.length;
+        }
+        this.reused = reusedCount;
+        this.averageLength = count == 0 ? 1 : (float) Math.max(totalLength / count, 1e-3);
+
+        // Collect the dictionary and count the postings of every term.
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (Document document : analysed) {
+            for (String term : document.terms) {
+                dictionary.merge(term, 1, Integer::sum);
+            }
+        }
+        this.terms = dictionary.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        this.postingStart = new int[terms.length + 1];
+        for (int term = 0; term < terms.length; term++) {
+            postingStart[term + 1] = postingStart[term] + dictionary.get(terms[term]);
+            dictionary.put(terms[term], term); // From now on the map holds the term number.
+        }
+        this.postingIds = new int[postingStart[terms.length]];
+        this.postingWeights = new float[postingIds.length];
+        int[] next = Arrays.copyOf(postingStart, terms.length);
+        for (int i = 0; i < count; i++) { // Ascending positions, so every posting list ends up sorted.
+            Document document = analysed[i];
+            for (int t = 0; t < document.terms.length; t++) {
+                int slot = next[dictionary.get(document.terms[t])]++;
+                postingIds[slot] = i;
+                postingWeights[slot] = document.weights[t];
+            }
+        }
+    }
+
+    /***
+     * Finds the pins that contain every word of a query. The last word also matches every term that starts
+     * with it, unless the query ends with a space. The rarest word is looked up first and every other word only
+     * narrows its candidates down. Whichever is cheapest is used: merging its sorted postings with the sorted
+     * candidates, a binary search in the postings per candidate, or a binary search in the candidates per posting.
+     * @param query The text that the user typed.
+     * @param allowed The categories to be searched, or null to search every category. An empty array matches nothing.
+     * @param limit The maximum number of results. It is capped at IndexConstants.SEARCH_MAX_RESULTS.
+     * @return Returns the results, best first.
+     */
+    public List<Hit> search(String query, int[] allowed, int limit) {
+        List<String> words = tokenize(query, Integer.MAX_VALUE);
+        if (words.isEmpty() || size == 0 || limit <= 0 || (allowed != null && allowed.length == 0)) {
+            return Collections.emptyList();
+        }
+        if (words.size() > IndexConstants.SEARCH_MAX_QUERY_TERMS) {
+            words = words.subList(0, IndexConstants.SEARCH_MAX_QUERY_TERMS);
+        }
+        boolean completeLast = !Character.isWhitespace(query.charAt(query.length() - 1));
+        int[][] ranges = new int[words.size()][];
+        Integer[] order = new Integer[words.size()];
+        int[] postings = new int[words.size()];
+        for (int w = 0; w < ranges.length; w++) {
+            ranges[w] = completeLast && w == ranges.length - 1 ? completions(words.get(w)) : exact(words.get(w));
+            if (ranges[w].length == 0) {
+                return Collections.emptyList(); // No pin can contain every word.
+            }
+            for (int term : ranges[w]) {
+                postings[w] += postingStart[term + 1] - postingStart[term];
+            }
+            order[w] = w;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(postings[a], postings[b]));
+
+        // The rarest word: the best scoring term of every pin, in ascending order of position.
+        long[] pairs = new long[postings[order[0]]];
+        int pairCount = 0;
+        for (int term : ranges[order[0]]) {
+            float idf = idf(postingStart[term + 1] - postingStart[term]);
+            for (int slot = postingStart[term]; slot < postingStart[term + 1]; slot++) {
+                float score = idf * bm25(postingWeights[slot], lengths[postingIds[slot]]);
+                pairs[pairCount++] = ((long) postingIds[slot] << 32) | Float.floatToIntBits(score); // Positive floats sort like their bits.
+            }
+        }
+        if (ranges[order[0]].length > 1) {
+            Arrays.sort(pairs, 0, pairCount); // A single posting list is already in order.
+        }
+        int[] ids = new int[pairCount];
+        float[] scores = new float[pairCount];
+        int count = 0;
+        for (int i = 0; i < pairCount; i++) {
+            int id = (int) (pairs[i] >>> 32);
+            if (i + 1 < pairCount && (int) (pairs[i + 1] >>> 32) == id) {
+                continue; // The same pin with a better completion follows.
+            }
+            if (isAllowed(categories[id], allowed)) {
+                ids[count] = id;
+                scores[count++] = Float.intBitsToFloat((int) pairs[i]);
+            }
+        }
+
+        // Every other word keeps the candidates that contain it.
+        for (int o = 1; o < order.length && count > 0; o++) {
+            float[] best = new float[count];
+            for (int term : ranges[order[o]]) {
+                int start = postingStart[term], end = postingStart[term + 1];
+                float idf = idf(end - start);
+                long merge = count + (end - start);
+                long searchPostings = (long) count * (32 - Integer.numberOfLeadingZeros(end - start));
+                long searchCandidates = (long) (end - start) * (32 - Integer.numberOfLeadingZeros(count));
+                if (searchCandidates < merge && searchCandidates < searchPostings) {
+                    for (int slot = start; slot < end; slot++) {
+                        int i = Arrays.binarySearch(ids, 0, count, postingIds[slot]);
+                        if (i >= 0) {
+                            best[i] = Math.max(best[i], idf * bm25(postingWeights[slot], lengths[ids[i]]));
+                        }
+                    }
+                    continue;
+                }
+                int slot = start;
+                for (int i = 0; i < count; i++) {
+                    if (searchPostings < merge) {
+                        slot = Arrays.binarySearch(postingIds, start, end, ids[i]);
+                    } else {
+                        while (slot < end && postingIds[slot] < ids[i]) {
+                            slot++;
+                        }
+                    }
+                    if (slot >= start && slot < end && postingIds[slot] == ids[i]) {
+                        best[i] = Math.max(best[i], idf * bm25(postingWeights[slot], lengths[ids[i]]));
+                    }
+                }
+            }
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (best[i] > 0) {
+                    ids[kept] = ids[i];
+                    scores[kept++] = scores[i] + best[i];
+                }
+            }
+            count = kept;
+        }
+        return top(ids, scores, count, Math.min(limit, IndexConstants.SEARCH_MAX_RESULTS));
+    }
+
+    /***
+     * Selects the best results with a min-heap, so only the returned results are sorted.
+     * @param ids The positions of the candidates.
+     * @param scores The scores of the candidates.
+     * @param count The number of candidates.
+     * @param limit The number of results to be returned.
+     * @return Returns the results, best first. Equal scores are ordered by position.
+     */
+    private static List<Hit> top(int[] ids, float[] scores, int count, int limit) {
+        int[] heap = new int[Math.min(limit, count)]; // Candidate numbers, the worst one at the root.
+        int heapSize = 0;
+        for (int i = 0; i < count; i++) {
+            if (heapSize < heap.length) {
+                heap[heapSize] = i;
+                for (int child = heapSize++; child > 0 && worse(ids, scores, child, (child - 1) / 2, heap); child = (child - 1) / 2) {
+                    swap(heap, child, (child - 1) / 2);
+                }
+            } else if (heap.length > 0 && !worse(ids, scores, i, heap[0])) {
+                heap[0] = i;
+                for (int parent = 0; ; ) {
+                    int worst = parent, left = 2 * parent + 1, right = left + 1;
+                    if (left < heapSize && worse(ids, scores, left, worst, heap)) {
+                        worst = left;
+                    }
+                    if (right < heapSize && worse(ids, scores, right, worst, heap)) {
+                        worst = right;
+                    }
+                    if (worst == parent) {
+                        break;
+                    }
+                    swap(heap, parent, worst);
+                    parent = worst;
+                }
+            }
+        }
+        List<Hit> hits = new ArrayList<>(heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            hits.add(new Hit(ids[heap[i]], scores[heap[i]]));
+        }
+        hits.sort((a, b) -> a.score != b.score ? Float.compare(b.score, a.score) : Integer.compare(a.position, b.position));
+        return hits;
+    }
+
+    /***
+     * Compares two candidates.
+     * @param ids The positions of the candidates.
+     * @param scores The scores of the candidates.
+     * @param a The first candidate.
+     * @param b The second candidate.
+     * @return Returns true if the first candidate ranks below the second one.
+     */
+    private static boolean worse(int[] ids, float[] scores, int a, int b) {
+        return scores[a] != scores[b] ? scores[a] < scores[b] : ids[a] > ids[b];
+    }
+
+    /***
+     * Compares the candidates at two places of the heap.
+     * @param ids The positions of the candidates.
+     * @param scores The scores of the candidates.
+     * @param a The first place in the heap.
+     * @param b The second place in the heap.
+     * @param heap The heap.
+     * @return Returns true if the first candidate ranks below the second one.
+     */
+    private static boolean worse(int[] ids, float[] scores, int a, int b, int[] heap) {
+        return worse(ids, scores, heap[a], heap[b]);
+    }
+
+    /***
+     * Swaps two places of the heap.
+     * @param heap The heap.
+     * @param a The first place.
+     * @param b The second place.
+     */
+    private static void swap(int[] heap, int a, int b) {
+        int value = heap[a];
+        heap[a] = heap[b];
+        heap[b] = value;
+    }
+
+    /***
+     * Returns the number of a term, if the index contains it.
+     * @param word The term.
+     * @return Returns an array that holds the number of the term, or an empty array.
+     */
+    private int[] exact(String word) {
+        int term = Arrays.binarySearch(terms, word);
+        return term < 0 ? new int[0] : new int[] { term };
+    }
+
+    /***
+     * Returns the numbers of the terms that start with a prefix. When there are more than
+     * IndexConstants.SEARCH_MAX_PREFIX_TERMS of them, the ones that occur in the most pins are used.
+     * @param prefix The prefix.
+     * @return Returns the numbers of the terms.
+     */
+    private int[] completions(String prefix) {
+        int low = insertionPoint(prefix);
+        int high = insertionPoint(prefix + Character.MAX_VALUE);
+        if (high - low <= IndexConstants.SEARCH_MAX_PREFIX_TERMS) {
+            int[] range = new int[high - low];
+            for (int i = 0; i < range.length; i++) {
+                range[i] = low + i;
+            }
+            return range;
+        }
+        Integer[] range = new Integer[high - low];
+        for (int i = 0; i < range.length; i++) {
+            range[i] = low + i;
+        }
+        Arrays.sort(range, (a, b) -> Integer.compare(postingStart[b + 1] - postingStart[b], postingStart[a + 1] - postingStart[a]));
+        int[] frequent = new int[IndexConstants.SEARCH_MAX_PREFIX_TERMS];
+        for (int i = 0; i < frequent.length; i++) {
+            frequent[i] = range[i];
+        }
+        return frequent;
+    }
+
+    /***
+     * Returns the position at which a string would be inserted into the sorted terms.
+     * @param text The string.
+     * @return Returns the position of the first term that is not smaller than the string.
+     */
+    private int insertionPoint(String text) {
+        int position = Arrays.binarySearch(terms, text);
+        return position < 0 ? -position - 1 : position;
+    }
+
+    /***
+     * Returns the inverse document frequency of a term.
+     * @param frequency The number of pins that contain the term.
+     * @return Returns the BM25 idf, which is never negative.
+     */
+    private float idf(int frequency) {
+        return (float) Math.log(1 + (size - frequency + 0.5) / (frequency + 0.5));
+    }
+
+    /***
+     * Returns the BM25 term frequency part of the score.
+     * @param weight The weighted number of times that the pin contains the term.
+     * @param length The weighted number of terms of the pin.
+     * @return Returns the saturated term frequency.
+     */
+    private float bm25(float weight, float length) {
+        float k1 = IndexConstants.SEARCH_K1;
+        float b = IndexConstants.SEARCH_B;
+        return weight * (k1 + 1) / (weight + k1 * (1 - b + b * length / averageLength));
+    }
+
+    /***
+     * Checks whether a category may be returned.
+     * @param category The category of a pin.
+     * @param allowed The allowed categories, or null if every category is allowed.
+     * @return Returns true if the pin may be returned.
+     */
+    private static boolean isAllowed(int category, int[] allowed) {
+        if (allowed == null) {
+            return true;
+        }
+        for (int value : allowed) {
+            if (value == category) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /***
+     * Splits text into lower-case terms of letters and digits. HTML tags and entities are removed and accents
+     * are stripped, so a letter with an accent and the same letter without one make the same term.
+     * @param text The text, which may be null.
+     * @param maxChars The number of characters to be read at most.
+     * @return Returns the terms in the order that they appear.
+     */
+    static List<String> tokenize(String text, int maxChars) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String plain = text.indexOf('<') < 0 && text.indexOf('&') < 0 ? text : TAG.matcher(text).replaceAll(" ");
+        if (plain.length() > maxChars) {
+            plain = plain.substring(0, maxChars);
+        }
+        if (!isAscii(plain)) {
+            plain = ACCENT.matcher(Normalizer.normalize(plain, Normalizer.Form.NFD)).replaceAll("");
+        }
+        plain = plain.toLowerCase();
+        int start = -1;
+        for (int i = 0; i <= plain.length(); i++) {
+            boolean word = i < plain.length() && Character.isLetterOrDigit(plain.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(plain.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /***
+     * Checks whether text only holds ASCII characters, which have no accents to strip.
+     * @param text The text.
+     * @return Returns true if every character is ASCII.
+     */
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /***
+     * Returns the number of indexed pins.
+     * @return Returns the contents of the instance variable.
+     */
+    public int size() {
+        return size;
+    }
+
+    /***
+     * Returns the number of distinct terms.
+     * @return Returns the length of the dictionary.
+     */
+    public int terms() {
+        return terms.length;
+    }
+
+    /***
+     * Returns the number of pins whose analysis was taken over from the previous index.
+     * @return Returns the contents of the instance variable.
+     */
+    public int getReused() {
+        return reused;
+    }
+
+    /***
+     * toString() method for printing the SearchIndex in a human readable way.
+     */
+    @Override
+    public String toString() {
+        return "SearchIndex [pins=" + size + ", terms=" + terms.length + ", postings=" + postingIds.length
+            + ", reused=" + reused + "]";
+    }
+
+    /***
+     * A result of a search.
+     */
+    public static class Hit {
+
+        private final int position;
+        private final float score;
+
+        /***
+         * Constructor for the Hit.
+         * @param position The position of the pin.
+         * @param score The BM25 score of the pin.
+         */
+        Hit(int position, float score) {
+            this.position = position;
+            this.score = score;
+        }
+
+        /***
+         * Accessor method for the position of the pin.
+         * @return Returns the contents of the instance variable.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /***
+         * Accessor method for the score.
+         * @return Returns the contents of the instance variable.
+         */
+        public float getScore() {
+            return score;
+        }
+    }
+
+    /***
+     * The analysed text of a single pin: its distinct terms, the weighted number of times each occurs, and the
+     * weighted number of terms in total. Documents are immutable, which is what allows the next index to share them.
+     */
+    private static class Document {
+
+        private final String[] terms;
+        private final float[] weights;
+        private final float length;
+
+        /***
+         * Analyses the text of a pin.
+         * @param name The name.
+         * @param address The address.
+         * @param content The content.
+         */
+        Document(String name, String address, String content) {
+            Map<String, Float> counts = new LinkedHashMap<>();
+            float total = add(counts, tokenize(name, Integer.MAX_VALUE), IndexConstants.SEARCH_NAME_WEIGHT);
+            total += add(counts, tokenize(address, Integer.MAX_VALUE), IndexConstants.SEARCH_ADDRESS_WEIGHT);
+            total += add(counts, tokenize(content, IndexConstants.SEARCH_MAX_CONTENT_CHARS), 1f);
+            this.terms = new String[counts.size()];
+            this.weights = new float[counts.size()];
+            int i = 0;
+            for (Map.Entry<String, Float> entry : counts.entrySet()) {
+                terms[i] = entry.getKey();
+                weights[i++] = entry.getValue();
+            }
+            this.length = total;
+        }
+
+        /***
+         * Adds the terms of one field.
+         * @param counts The weighted count of every term.
+         * @param tokens The terms of the field.
+         * @param weight The weight of the field.
+         * @return Returns the weighted number of terms that were added.
+         */
+        private static float add(Map<String, Float> counts, List<String> tokens, float weight) {
+            for (String token : tokens) {
+                counts.merge(token.intern(), weight, Float::sum); // Shared terms are stored once.
+            }
+            return tokens.size() * weight;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.GREENWORKS.eco.index;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * The VectorTileEncoder writes a single layer Mapbox Vector Tile (version 2.1) of point features. The protobuf
+ * encoding is written by hand, since a tile of points only needs a handful of fields. Keys and values are
+ * shared between the features of the layer, as the specification intends.
+ *
+ * Usage: add the points with addPoint() in tile coordinates from pointX() and pointY(), then call encode().
+ */
+public class VectorTileEncoder {
+
+    private static final int MOVE_TO_ONCE = (1 & 0x7) | (1 << 3);
+    private static final int POINT = 1;
+
+    private final String layer;
+    private final int extent;
+    private final List<String> keys = new ArrayList<>();
+    private final Map<String, Integer> keyIndex = new HashMap<>();
+    private final List<byte[]> values = new ArrayList<>();
+    private final Map<String, Integer> valueIndex = new HashMap<>();
+    private final ByteArrayOutputStream features = new ByteArrayOutputStream();
+    private int featureCount;
+
+    /***
+     * Constructor for the VectorTileEncoder.
+     * @param layer The name of the layer.
+     * @param extent The coordinate range of the tile.
+     */
+    public VectorTileEncoder(String layer, int extent) {
+        this.layer = layer;
+        this.extent = extent;
+    }
+
+    /***
+     * Adds a point feature.
+     * @param id The id of the feature.
+     * @param x The x coordinate within the tile.
+     * @param y The y coordinate within the tile.
+     * @param properties The attributes as alternating names and values. Values may be Integer, Long, Boolean or
+     * String, a null value is left out.
+     */
+    public void addPoint(long id, int x, int y, Object... properties) {
+        Protobuf tags = new Protobuf();
+        for (int i = 0; i + 1 < properties.length; i += 2) {
+            if (properties[i + 1] == null) {
+                continue;
+            }
+            tags.varint(key((String) properties[i]));
+            tags.varint(value(properties[i + 1]));
+        }
+        Protobuf geometry = new Protobuf();
+        geometry.varint(MOVE_TO_ONCE);
+        geometry.varint(zigZag(x));
+        geometry.varint(zigZag(y));
+
+        Protobuf feature = new Protobuf();
+        feature.tag(1, 0).varint(id);
+        feature.tag(2, 2).bytes(tags.toByteArray());
+        feature.tag(3, 0).varint(POINT);
+        feature.tag(4, 2).bytes(geometry.toByteArray());
+        byte[] encoded = feature.toByteArray();
+        Protobuf field = new Protobuf();
+        field.tag(2, 2).bytes(encoded);
+        features.write(field.out.toByteArray(), 0, field.out.size());
+        featureCount++;
+    }
+
+    /***
+     * Encodes the tile.
+     * @return Returns the tile bytes. A tile without features is empty.
+     */
+    public byte[] encode() {
+        if (featureCount == 0) {
+            return new byte[0];
+        }
+        Protobuf layerMessage = new Protobuf();
+        layerMessage.tag(15, 0).varint(2);
+        layerMessage.tag(1, 2).bytes(layer.getBytes(StandardCharsets.UTF_8));
+        layerMessage.out.write(features.toByteArray(), 0, features.size());
+        for (String key : keys) {
+            layerMessage.tag(3, 2).bytes(key.getBytes(StandardCharsets.UTF_8));
+        }
+        for (byte[] value : values) {
+            layerMessage.tag(4, 2).bytes(value);
+        }
+        layerMessage.tag(5, 0).varint(extent);
+        Protobuf tile = new Protobuf();
+        tile.tag(3, 2).bytes(layerMessage.toByteArray());
+        return tile.toByteArray();
+    }
+
+    /***
+     * Returns the number of features that were added.
+     * @return Returns the number of features.
+     */
+    public int size() {
+        return featureCount;
+    }
+
+    /***
+     * Returns the position of a key in the key table, adding it if needed.
+     * @param key The attribute name.
+     * @return Returns the position.
+     */
+    private int key(String key) {
+        return keyIndex.computeIfAbsent(key, k -> {
+            keys.add(k);
+            return keys.size() - 1;
+        });
+    }
+
+    /***
+     * Returns the position of a value in the value table, adding it if needed.
+     * @param value The attribute value.
+     * @return Returns the position.
+     */
+    private int value(Object value) {
+        String identity = value.getClass().getSimpleName() + ":" + value;
+        Integer index = valueIndex.get(identity);
+        if (index != null) {
+            return index;
+        }
+        Protobuf encoded = new Protobuf();
+        if (value instanceof Boolean) {
+            encoded.tag(7, 0).varint((Boolean) value ? 1 : 0);
+        } else if (value instanceof Integer || value instanceof Long) {
+            long number = ((Number) value).longValue();
+            if (number >= 0) {
+                encoded.tag(5, 0).varint(number);
+            } else {
+                encoded.tag(6, 0).varint(zigZag(number));
+            }
+        } else {
+            encoded.tag(1, 2).bytes(value.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        values.add(encoded.toByteArray());
+        valueIndex.put(identity, values.size() - 1);
+        return values.size() - 1;
+    }
+
+    /***
+     * Returns the x coordinate of a longitude within a tile.
+     * @param longitude The longitude.
+     * @param zoom The zoom of the tile.
+     * @param tileX The column of the tile.
+     * @param extent The coordinate range of the tile.
+     * @return Returns the x coordinate, which is outside 0 to extent for a point in the buffer.
+     */
+    public static int pointX(double longitude, int zoom, int tileX, int extent) {
+        return (int) Math.round((ClusterIndex.mercatorX(longitude) * (1L << zoom) - tileX) * extent);
+    }
+
+    /***
+     * Returns the y coordinate of a latitude within a tile.
+     * @param latitude The latitude.
+     * @param zoom The zoom of the tile.
+     * @param tileY The row of the tile, counted from the north.
+     * @param extent The coordinate range of the tile.
+     * @return Returns the y coordinate, which is outside 0 to extent for a point in the buffer.
+     */
+    public static int pointY(double latitude, int zoom, int tileY, int extent) {
+        return (int) Math.round((ClusterIndex.mercatorY(latitude) * (1L << zoom) - tileY) * extent);
+    }
+
+    /***
+     * Returns the bounding box of a tile, grown by a margin.
+     * @param zoom The zoom of the tile.
+     * @param tileX The column of the tile.
+     * @param tileY The row of the tile, counted from the north.
+     * @param margin The margin as a fraction of the tile size.
+     * @return Returns minLon, minLat, maxLon, maxLat.
+     */
+    public static double[] tileBounds(int zoom, int tileX, int tileY, double margin) {
+        double tiles = 1L << zoom;
+        return new double[] {
+            ClusterIndex.longitude((tileX - margin) / tiles),
+            ClusterIndex.latitude(Math.min(1, (tileY + 1 + margin) / tiles)),
+            ClusterIndex.longitude((tileX + 1 + margin) / tiles),
+            ClusterIndex.latitude(Math.max(0, (tileY - margin) / tiles)) };
+    }
+
+    /***
+     * ZigZag encodes a signed integer, as protobuf does for sint fields and MVT does for coordinates.
+     * @param value The value.
+     * @return Returns the encoded value.
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /***
+     * A minimal protobuf writer.
+     */
+    private static class Protobuf {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        /***
+         * Writes a field tag.
+         * @param field The field number.
+         * @param wireType 0 for varints, 2 for length-delimited fields.
+         * @return Returns this writer.
+         */
+        Protobuf tag(int field, int wireType) {
+            return varint((field << 3) | wireType);
+        }
+
+        /***
+         * Writes an unsigned varint.
+         * @param value The value.
+         * @return Returns this writer.
+         */
+        Protobuf varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+            return this;
+        }
+
+        /***
+         * Writes a length-delimited value.
+         * @param bytes The value.
+         * @return Returns this writer.
+         */
+        Protobuf bytes(byte[] bytes) {
+            varint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+            return this;
+        }
+
+        /***
+         * Returns what has been written.
+         * @return Returns the bytes.
+         */
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/***
+ * The in-memory indexes that are built from a PinSnapshot and answer the API queries without the database.
+ */
+package com.GREENWORKS.eco.index;
@@ -47,15 +47,21 @@ public class AddItem extends HttpServlet {
 
         	PinFactory dataFactory = PinFactory.getFactory(startDate, endDate);
         	Pin pin = dataFactory.createPinData();
-    		pin.setStartDate(startDate);
-    		pin.setEndDate(endDate);
-    		pin.setIconId(Integer.parseInt(request.getParameter("icon")));
-    		pin.setLocationAddress(request.getParameter("location"));
-    		pin.setLocationName(request.getParameter("locationName"));
-    		pin.setCoordinates(request.getParameter("coord"));
-    		pin.setContent(request.getParameter("content"));
-            pin.setThumbnail(request.getParameter("thumbnail"));
-            pin.setLink(request.getParameter("link"));
+            try {
+                pin.setStartDate(startDate);
+                pin.setEndDate(endDate);
+                pin.setIconId(Integer.parseInt(request.getParameter("icon")));
+                pin.setLocationAddress(request.getParameter("location"));
+                pin.setLocationName(request.getParameter("locationName"));
+                pin.setCoordinates(request.getParameter("coord"));
+                pin.setContent(request.getParameter("content"));
+                pin.setThumbnail(request.getParameter("thumbnail"));
+                pin.setLink(request.getParameter("link"));
+            } catch(IllegalArgumentException e) { // Invalid dates or coordinates are reported, never stored as null. 
+                Logger.warn("Pin rejected: " + e.getMessage());
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
 
             Pillar pillar = new Pillar();
             SubPillar subPillar = new SubPillar();
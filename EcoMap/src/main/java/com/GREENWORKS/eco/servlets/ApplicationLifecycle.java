@@ -0,0 +1,63 @@
+package com.GREENWORKS.eco.servlets;
+
+import com.GREENWORKS.eco.ConnectionPool;
+import com.GREENWORKS.eco.data.SessionFactoryUtility;
+import com.GREENWORKS.eco.data.SessionTracker;
+import com.GREENWORKS.eco.data.SnapshotManager;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+import org.tinylog.Logger;
+
+/***
+ * This is a ServletContextListener. It builds the SessionFactory while the webapp is being deployed and builds
+ * the first PinSnapshot, which is what every page view renders. Once the warmup is complete the application reports itself as ready,
+ * which is what the Readiness Servlet hands to the load balancer. When the webapp is undeployed the SessionFactory
+ * and the ConnectionPool are closed so that a redeploy does not leak connections.
+ */
+@WebListener
+public class ApplicationLifecycle implements ServletContextListener {
+
+	private static volatile boolean ready = false;
+
+	/***
+	 * Builds the SessionFactory and the first PinSnapshot, and starts the stream of pin changes.
+	 */
+	@Override
+	public void contextInitialized(ServletContextEvent sce) {
+		long start = System.currentTimeMillis();
+		PinEventBroadcaster.start(); // Before the first snapshot, so that no rebuild goes unannounced.
+		try {
+			SessionFactoryUtility.getSessionFactory(); // Named queries are validated here.
+			SnapshotManager.current(); // Pages never wait for the first snapshot.
+			ready = true;
+			Logger.info("Application warmup completed in " + (System.currentTimeMillis() - start) + " ms.");
+		} catch (Throwable e) {
+			Logger.error(e, "Application warmup failed. The application will report itself as not ready.");
+		}
+	}
+
+	/***
+	 * Ends the streams of pin changes, stops the snapshot rebuilds, closes the SessionFactory, stops the Session watchdog and closes the ConnectionPool.
+	 */
+	@Override
+	public void contextDestroyed(ServletContextEvent sce) {
+		ready = false;
+		PinEventBroadcaster.shutdown();
+		SnapshotManager.shutdown();
+		SessionFactoryUtility.shutdown();
+		SessionTracker.shutdown();
+		ConnectionPool.close();
+		Logger.info("Application shutdown completed.");
+	}
+
+	/***
+	 * Accessor for the readiness of the application.
+	 * @return Returns true once the SessionFactory is built and the warmup has completed.
+	 */
+	public static boolean isReady() {
+		return ready && SessionFactoryUtility.isBuilt();
+	}
+}
@@ -0,0 +1,118 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+import com.GREENWORKS.eco.constants.CompressionConstants;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/***
+ * The BufferedResponse captures the body that a Servlet writes instead of sending it, so that the
+ * CompressionFilter can compress it first. Headers and the status still go to the wrapped response, except
+ * for the content length, which is set by the filter once the final body is known.
+ */
+class BufferedResponse extends HttpServletResponseWrapper {
+
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(CompressionConstants.BUFFER_SIZE);
+	private ServletOutputStream outputStream;
+	private PrintWriter writer;
+
+	/***
+	 * Constructor for the BufferedResponse.
+	 * @param response The response to be wrapped.
+	 */
+	BufferedResponse(HttpServletResponse response) {
+		super(response);
+	}
+
+	/***
+	 * Returns a stream that writes into the buffer.
+	 */
+	@Override
+	public ServletOutputStream getOutputStream() {
+		if (writer != null) {
+			throw new IllegalStateException("getWriter() has already been called on this response.");
+		}
+		if (outputStream == null) {
+			outputStream = new ServletOutputStream() {
+				@Override
+				public void write(int b) {
+					buffer.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+					buffer.write(b, off, len);
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener listener) {
+					throw new UnsupportedOperationException("Buffered responses are written synchronously.");
+				}
+			};
+		}
+		return outputStream;
+	}
+
+	/***
+	 * Returns a writer that encodes into the buffer with the character encoding of the response.
+	 */
+	@Override
+	public PrintWriter getWriter() {
+		if (outputStream != null) {
+			throw new IllegalStateException("getOutputStream() has already been called on this response.");
+		}
+		if (writer == null) {
+			writer = new PrintWriter(new OutputStreamWriter(buffer, Charset.forName(getCharacterEncoding())));
+		}
+		return writer;
+	}
+
+	/***
+	 * The content length is ignored, the filter sets it for the body that is actually sent.
+	 */
+	@Override
+	public void setContentLength(int length) {
+
+	}
+
+	/***
+	 * The content length is ignored, the filter sets it for the body that is actually sent.
+	 */
+	@Override
+	public void setContentLengthLong(long length) {
+
+	}
+
+	/***
+	 * Nothing is sent until the filter writes the body.
+	 */
+	@Override
+	public void flushBuffer() {
+
+	}
+
+	/***
+	 * Returns everything that has been written.
+	 * @return Returns the body as bytes.
+	 * @throws IOException Thrown if the writer can not be flushed.
+	 */
+	byte[] toByteArray() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		return buffer.toByteArray();
+	}
+}
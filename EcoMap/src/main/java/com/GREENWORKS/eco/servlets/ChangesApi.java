@@ -0,0 +1,103 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.data.PinChangeLog;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet lets a map that is left open stay current without downloading every pin
+ * again. The since parameter is the X-Data-Version of the pins that the client holds, and the response holds
+ * the pins that were added or changed after it, with the same fields as /api/pins, and the dbIDs of the pins
+ * that were removed. The version of the response is what the next request passes as since.
+ *
+ * /api/pins/changes?since=l0x2k9-41 returns {"version":"l0x2k9-44","full":false,"upserts":[...],"deletes":["12"]}
+ *
+ * If the version is from before a restart or too old for the PinChangeLog, "full" is true and the upserts hold
+ * every pin, which replace what the client holds.
+ */
+@WebServlet("/api/pins/changes")
+public class ChangesApi extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public ChangesApi() {
+		super();
+	}
+
+	/***
+	 * Writes the changes after the version of the client.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		String since = request.getParameter("since");
+		if (since == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "since is required");
+			return;
+		}
+		PinSnapshot snapshot = SnapshotManager.current();
+		if (ETags.notModified(request, response, snapshot.getETag())) {
+			return;
+		}
+		long version = parseVersion(since, snapshot);
+		PinChangeLog.Changes changes = version < 0 ? null : snapshot.getChanges().since(version);
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("X-Data-Version", snapshot.getVersionToken());
+		List<MapPin> pins = snapshot.getCityPins();
+		JsonWriter writer = new JsonWriter(response.getWriter());
+		writer.beginObject();
+		writer.name("version").value(snapshot.getVersionToken());
+		writer.name("full").value(changes == null);
+		writer.name("upserts").beginArray();
+		if (changes == null) {
+			for (int index = 0; index < pins.size(); index++) {
+				PinsApi.writePin(writer, pins.get(index), index);
+			}
+		} else {
+			for (int index : changes.getUpserts()) {
+				PinsApi.writePin(writer, pins.get(index), index);
+			}
+		}
+		writer.endArray();
+		writer.name("deletes").beginArray();
+		if (changes != null) {
+			for (Integer id : changes.getDeletes()) {
+				writer.value(String.valueOf(id)); // The same form as the dbID of the pins.
+			}
+		}
+		writer.endArray();
+		writer.endObject();
+		writer.flush();
+	}
+
+	/***
+	 * Reads the snapshot version out of a data version token.
+	 * @param token The token, which is the generation and the version joined by a dash.
+	 * @param snapshot The current snapshot.
+	 * @return Returns the version, or -1 if the token is malformed or from another generation.
+	 */
+	static long parseVersion(String token, PinSnapshot snapshot) {
+		String prefix = snapshot.getGeneration() + "-";
+		if (!token.startsWith(prefix)) {
+			return -1;
+		}
+		try {
+			return Math.max(-1, Long.parseLong(token.substring(prefix.length())));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
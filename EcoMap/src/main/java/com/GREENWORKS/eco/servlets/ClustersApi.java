@@ -0,0 +1,120 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+import com.GREENWORKS.eco.index.Cluster;
+import com.GREENWORKS.eco.index.ClusterIndex;
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet serves the marker clusters of the map. The clusters are built with the
+ * PinSnapshot, so a request only reads the visible part of one zoom level. There are two forms:
+ *
+ * /api/clusters?zoom=12&bbox=minLon,minLat,maxLon,maxLat returns the clusters inside the viewport.
+ * /api/clusters?expand=clusterId&v=version returns what a cluster splits into and the zoom at which it does.
+ *
+ * A cluster carries its pin count per SubPillar. A single pin also carries its database id. Cluster ids are
+ * positions in one snapshot, so every response carries the version of its snapshot, and expand must send it
+ * back as v. An id from another version is answered with 409 Conflict rather than with an unrelated cluster.
+ */
+@WebServlet("/api/clusters")
+public class ClustersApi extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public ClustersApi() {
+		super();
+	}
+
+	/***
+	 * Writes the clusters of a viewport or the children of a cluster.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		PinSnapshot snapshot = SnapshotManager.current();
+		ClusterIndex index = snapshot.getClusters();
+		String expand = request.getParameter("expand");
+		long clusterId = -1;
+		double[] box = null;
+		int zoom = -1;
+		if (expand != null) {
+			try {
+				clusterId = Long.parseLong(expand);
+			} catch (NumberFormatException e) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "expand must be a cluster id");
+				return;
+			}
+			if (!snapshot.getVersionToken().equals(request.getParameter("v"))) {
+				response.sendError(HttpServletResponse.SC_CONFLICT, "The clusters have changed, load them again");
+				return;
+			}
+		} else {
+			box = request.getParameter("bbox") == null ? new double[] { -180, -85, 180, 85 }
+				: PinsApi.parseBoundingBox(request.getParameter("bbox"));
+			try {
+				zoom = Integer.parseInt(request.getParameter("zoom"));
+			} catch (NumberFormatException e) {
+				zoom = -1;
+			}
+			if (box == null || zoom < 0) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "zoom is required and bbox must be minLon,minLat,maxLon,maxLat");
+				return;
+			}
+		}
+		if (ETags.notModified(request, response, snapshot.getETag())) {
+			return;
+		}
+		List<Cluster> clusters;
+		Integer expansionZoom = null;
+		if (expand != null) {
+			clusters = index.getChildren(clusterId);
+			expansionZoom = index.getExpansionZoom(clusterId);
+		} else {
+			clusters = index.getClusters(zoom, box[0], box[1], box[2], box[3]);
+		}
+		response.setHeader("X-Data-Version", snapshot.getVersionToken());
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		JsonWriter writer = new JsonWriter(response.getWriter());
+		writer.beginObject();
+		writer.name("version").value(snapshot.getVersionToken()); // The v that expand needs.
+		if (expansionZoom != null) {
+			writer.name("expansionZoom").value(expansionZoom);
+		}
+		writer.name("clusters").beginArray();
+		List<MapPin> pins = snapshot.getCityPins();
+		for (Cluster cluster : clusters) {
+			writer.beginObject();
+			writer.name("id").value(cluster.getId());
+			writer.name("longitude").value(cluster.getLongitude());
+			writer.name("latitude").value(cluster.getLatitude());
+			writer.name("count").value(cluster.getCount());
+			if (cluster.isPin()) {
+				writer.name("index").value(cluster.getPin());
+				writer.name("dbID").value(pins.get(cluster.getPin()).getId());
+			}
+			writer.name("subPillars").beginObject();
+			for (Map.Entry<Integer, Integer> entry : cluster.getSubPillarCounts().entrySet()) {
+				writer.name(String.valueOf(entry.getKey())).value(entry.getValue());
+			}
+			writer.endObject();
+			writer.endObject();
+		}
+		writer.endArray();
+		writer.endObject();
+		writer.flush();
+	}
+}
@@ -0,0 +1,330 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import com.GREENWORKS.eco.constants.CompressionConstants;
+import com.GREENWORKS.eco.data.SnapshotManager;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Filter. It gzips the responses of the API Servlets for clients that accept it. A response that
+ * carries the ETag of the current PinSnapshot can only change when the snapshot does, so its compressed bytes
+ * are kept in memory and every later request for the same URL is answered from them without running the
+ * Servlet or the compressor again. The cache entry is replaced as soon as the snapshot version moves on.
+ *
+ * Only URLs without a query string are cached, since those are the few responses that every client asks for.
+ * They are compressed once per version at the best level. Queries such as bbox, search or filters are unique to
+ * a client and are compressed on the request thread at a fast level instead. Only gzip is offered, the JDK has
+ * no Brotli encoder.
+ */
+@WebFilter("/api/*")
+public class CompressionFilter extends HttpFilter {
+
+	private static final long serialVersionUID = 1L;
+	private static final String GZIP = "gzip";
+	private static final Set<String> OWN_HEADERS = new HashSet<>(Arrays.asList("etag", "cache-control", "vary",
+		"content-type", "content-length", "content-encoding"));
+	private static final Map<String, Entry> CACHE = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > CompressionConstants.MAX_ENTRIES;
+		}
+	};
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+	private static final LongAdder UNCOMPRESSED_BYTES = new LongAdder();
+	private static final LongAdder COMPRESSED_BYTES = new LongAdder();
+	private static final LongAdder COMPRESS_NANOS = new LongAdder();
+	private static final LongAdder SAVED_NANOS = new LongAdder();
+
+	/***
+	 * Serves the cached variant when it is current, otherwise runs the Servlet and compresses its response.
+	 */
+	@Override
+	protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+		response.addHeader("Vary", "Accept-Encoding");
+		if (!acceptsGzip(request)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		String key = cacheKey(request);
+		String current = SnapshotManager.current().getETag();
+		Entry entry = null;
+		if (key != null) {
+			synchronized (CACHE) {
+				entry = CACHE.get(key);
+			}
+		}
+		if (entry != null && entry.etag.equals(current)) {
+			HITS.increment();
+			SAVED_NANOS.add(entry.compressNanos);
+			response.setHeader("ETag", gzipETag(entry.etag));
+			response.setHeader("Cache-Control", "no-cache");
+			if (ETags.matches(request.getHeader("If-None-Match"), gzipETag(entry.etag))) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+			response.setContentType(entry.contentType);
+			for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+				response.setHeader(header.getKey(), header.getValue());
+			}
+			response.setHeader("Content-Encoding", GZIP);
+			send(response, entry.body);
+			return;
+		}
+		BufferedResponse buffered = new BufferedResponse(response);
+		chain.doFilter(new IdentityETagRequest(request), buffered);
+		byte[] body = buffered.toByteArray();
+		String etag = response.getHeader("ETag");
+		if (etag != null) {
+			response.setHeader("ETag", gzipETag(etag)); // The gzip variant is a different representation.
+		}
+		if (response.getStatus() != HttpServletResponse.SC_OK || body.length < CompressionConstants.MIN_SIZE) {
+			if (body.length > 0) {
+				if (etag != null) {
+					response.setHeader("ETag", etag); // Sent as it is.
+				}
+				send(response, body);
+			}
+			return;
+		}
+		boolean cacheable = key != null && etag != null && etag.equals(current);
+		long start = System.nanoTime();
+		byte[] compressed = gzip(body, cacheable ? CompressionConstants.CACHED_LEVEL : CompressionConstants.FAST_LEVEL);
+		long nanos = System.nanoTime() - start;
+		COMPRESS_NANOS.add(nanos);
+		if (cacheable && compressed.length <= CompressionConstants.MAX_ENTRY_BYTES) {
+			MISSES.increment();
+			UNCOMPRESSED_BYTES.add(body.length);
+			COMPRESSED_BYTES.add(compressed.length);
+			synchronized (CACHE) {
+				CACHE.put(key, new Entry(etag, response.getContentType(), servletHeaders(response), compressed, nanos));
+			}
+		}
+		response.setHeader("Content-Encoding", GZIP);
+		send(response, compressed);
+	}
+
+	/***
+	 * Collects the headers that the Servlet set, other than the ones that the filter sets itself.
+	 * @param response The response after the Servlet has run.
+	 * @return Returns the headers to be replayed on a cache hit.
+	 */
+	private static Map<String, String> servletHeaders(HttpServletResponse response) {
+		Map<String, String> headers = new LinkedHashMap<>();
+		for (String name : response.getHeaderNames()) {
+			if (!OWN_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+				headers.put(name, response.getHeader(name));
+			}
+		}
+		return headers;
+	}
+
+	/***
+	 * Writes the final body.
+	 * @param response The response to be written.
+	 * @param body The bytes to be sent.
+	 * @throws IOException Thrown if the response can not be written.
+	 */
+	private static void send(HttpServletResponse response, byte[] body) throws IOException {
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	/***
+	 * Compresses a body.
+	 * @param body The bytes to be compressed.
+	 * @param level The deflate level, CompressionConstants.CACHED_LEVEL or CompressionConstants.FAST_LEVEL.
+	 * @return Returns the gzip bytes.
+	 * @throws IOException Never thrown for an in-memory stream.
+	 */
+	static byte[] gzip(byte[] body, int level) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out, CompressionConstants.BUFFER_SIZE) {
+			{
+				def.setLevel(level);
+			}
+		}) {
+			gzip.write(body);
+		}
+		return out.toByteArray();
+	}
+
+	/***
+	 * Checks whether the client accepts gzip. A q value of 0 refuses it.
+	 * @param request The request to be examined.
+	 * @return Returns true if the response may be gzipped.
+	 */
+	static boolean acceptsGzip(HttpServletRequest request) {
+		String accept = request.getHeader("Accept-Encoding");
+		if (accept == null) {
+			return false;
+		}
+		for (String coding : accept.split(",")) {
+			String[] parts = coding.trim().split(";");
+			if (parts[0].trim().equalsIgnoreCase(GZIP) || parts[0].trim().equals("*")) {
+				return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+	/***
+	 * Returns the cache key of a request, which is its URL. Requests with a query string are not cached, so that
+	 * one-off queries neither evict the shared responses nor pay for the slowest compression level.
+	 * @param request The request.
+	 * @return Returns the key, or null if the response must not be cached.
+	 */
+	private static String cacheKey(HttpServletRequest request) {
+		return request.getQueryString() == null ? request.getRequestURI() : null;
+	}
+
+	/***
+	 * Returns the ETag of the gzip variant of a representation.
+	 * @param etag The quoted ETag of the uncompressed representation.
+	 * @return Returns the quoted ETag of the gzip variant.
+	 */
+	static String gzipETag(String etag) {
+		return etag.endsWith("\"") ? etag.substring(0, etag.length() - 1) + "-gzip\"" : etag;
+	}
+
+	/***
+	 * Drops every cached response.
+	 */
+	public static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	/***
+	 * Counter of the requests that were answered from the cache.
+	 * @return Returns the number of hits.
+	 */
+	public static long getHits() {
+		return HITS.sum();
+	}
+
+	/***
+	 * Counter of the responses that were compressed and cached.
+	 * @return Returns the number of misses.
+	 */
+	public static long getMisses() {
+		return MISSES.sum();
+	}
+
+	/***
+	 * Counter of the uncompressed bytes of the cached responses.
+	 * @return Returns the number of bytes.
+	 */
+	public static long getUncompressedBytes() {
+		return UNCOMPRESSED_BYTES.sum();
+	}
+
+	/***
+	 * Counter of the compressed bytes of the cached responses.
+	 * @return Returns the number of bytes.
+	 */
+	public static long getCompressedBytes() {
+		return COMPRESSED_BYTES.sum();
+	}
+
+	/***
+	 * Counter of the time that was spent compressing.
+	 * @return Returns the time in nanoseconds.
+	 */
+	public static long getCompressNanos() {
+		return COMPRESS_NANOS.sum();
+	}
+
+	/***
+	 * Counter of the compression time that the cache hits did not have to spend.
+	 * @return Returns the time in nanoseconds.
+	 */
+	public static long getSavedNanos() {
+		return SAVED_NANOS.sum();
+	}
+
+	/***
+	 * Returns the number of cached responses.
+	 * @return Returns the number of entries.
+	 */
+	public static int getEntries() {
+		synchronized (CACHE) {
+			return CACHE.size();
+		}
+	}
+
+	/***
+	 * A compressed response and the ETag that it is valid for.
+	 */
+	private static class Entry {
+
+		private final String etag;
+		private final String contentType;
+		private final Map<String, String> headers;
+		private final byte[] body;
+		private final long compressNanos;
+
+		/***
+		 * Constructor for the Entry.
+		 * @param etag The ETag of the uncompressed representation.
+		 * @param contentType The content type of the response.
+		 * @param headers The other headers that the Servlet set.
+		 * @param body The gzip bytes.
+		 * @param compressNanos The time that the compression took.
+		 */
+		Entry(String etag, String contentType, Map<String, String> headers, byte[] body, long compressNanos) {
+			this.etag = etag;
+			this.contentType = contentType;
+			this.headers = headers;
+			this.body = body;
+			this.compressNanos = compressNanos;
+		}
+	}
+
+	/***
+	 * Hands the Servlet the If-None-Match header with the gzip suffix removed, so that a client holding the gzip
+	 * variant is still answered with a 304 after the cache entry was evicted.
+	 */
+	private static class IdentityETagRequest extends HttpServletRequestWrapper {
+
+		/***
+		 * Constructor for the IdentityETagRequest.
+		 * @param request The request to be wrapped.
+		 */
+		IdentityETagRequest(HttpServletRequest request) {
+			super(request);
+		}
+
+		/***
+		 * Rewrites the If-None-Match header.
+		 */
+		@Override
+		public String getHeader(String name) {
+			String value = super.getHeader(name);
+			if (value != null && name.equalsIgnoreCase("If-None-Match")) {
+				return value.replace("-gzip\"", "\"");
+			}
+			return value;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package com.GREENWORKS.eco.servlets;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This class holds the conditional request handling that is shared by the API Servlets. The responses carry a
+ * strong ETag and "Cache-Control: no-cache", so the browser keeps its copy and revalidates it on every use.
+ * Nothing but a 304 is sent back while the data has not changed.
+ */
+public class ETags {
+
+	/***
+	 * The class is not meant to be instantiated. All access is through the static methods.
+	 */
+	private ETags() {
+
+	}
+
+	/***
+	 * Sets the validation headers and answers the request with a 304 if the client already holds the current
+	 * representation.
+	 * @param request The request, whose If-None-Match header is examined.
+	 * @param response The response, which receives the ETag and Cache-Control headers.
+	 * @param etag The quoted ETag of the current representation.
+	 * @return Returns true if a 304 was sent and nothing else should be written.
+	 */
+	public static boolean notModified(HttpServletRequest request, HttpServletResponse response, String etag) {
+		response.setHeader("ETag", etag);
+		response.setHeader("Cache-Control", "no-cache");
+		if (matches(request.getHeader("If-None-Match"), etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return true;
+		}
+		return false;
+	}
+
+	/***
+	 * Checks an If-None-Match header against an ETag. The header may hold a comma separated list of tags or "*".
+	 * Weak tags are compared by their opaque value, since compression filters weaken the ETags that they pass.
+	 * @param ifNoneMatch The value of the header, or null.
+	 * @param etag The quoted ETag of the current representation.
+	 * @return Returns true if any of the tags match.
+	 */
+	static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals("*") || tag.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
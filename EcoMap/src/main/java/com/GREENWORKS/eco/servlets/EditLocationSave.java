@@ -49,16 +49,22 @@ public class EditLocationSave extends HttpServlet {
 
     	PinFactory dataFactory = PinFactory.getFactory(startDate, endDate);
     	Pin pin = dataFactory.createPinData();
-    	pin.setId(Integer.parseInt(request.getParameter("id")));
-		pin.setStartDate(startDate);
-		pin.setEndDate(endDate);
-		pin.setIconId(Integer.parseInt(request.getParameter("icon")));
-		pin.setLocationAddress(request.getParameter("location"));
-		pin.setLocationName(request.getParameter("locationName"));
-		pin.setCoordinates(request.getParameter("coord"));
-		pin.setContent(request.getParameter("content"));
-		pin.setThumbnail(request.getParameter("thumbnail"));
-		pin.setLink(request.getParameter("link"));
+		try {
+			pin.setId(Integer.parseInt(request.getParameter("id")));
+			pin.setStartDate(startDate);
+			pin.setEndDate(endDate);
+			pin.setIconId(Integer.parseInt(request.getParameter("icon")));
+			pin.setLocationAddress(request.getParameter("location"));
+			pin.setLocationName(request.getParameter("locationName"));
+			pin.setCoordinates(request.getParameter("coord"));
+			pin.setContent(request.getParameter("content"));
+			pin.setThumbnail(request.getParameter("thumbnail"));
+			pin.setLink(request.getParameter("link"));
+		} catch(IllegalArgumentException e) { // Invalid dates or coordinates are reported, never stored as null. 
+			Logger.warn("Pin update rejected: " + e.getMessage());
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
 		// sessionAssistant.get(new SubPillar(Integer.parseInt(request.getParameter("subpillar"))));
 		Pillar pillar = new Pillar();
         SubPillar subPillar = new SubPillar();
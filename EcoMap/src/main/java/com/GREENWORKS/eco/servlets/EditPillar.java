@@ -37,6 +37,7 @@ public class EditPillar extends HttpServlet {
 
             SessionAssistant sessionAssistant = new SessionAssistant();
             sessionAssistant.update(pillar);
+            sessionAssistant.evictTaxonomyCache(); // The map reloads the edited Pillar.
         	Logger.info("Admin " + username + " edited SubPillar " + pillar + ".");
 
             // Redirect user
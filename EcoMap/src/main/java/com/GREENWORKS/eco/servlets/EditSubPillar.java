@@ -45,6 +45,7 @@ public class EditSubPillar extends HttpServlet {
 
             SessionAssistant sessionAssistant = new SessionAssistant();
             sessionAssistant.update(subPillar);
+            sessionAssistant.evictTaxonomyCache(); // The map reloads the edited SubPillar.
         	Logger.info("Admin " + username + " edited SubPillar " + subPillar + ".");
             
             // Redirect user
@@ -0,0 +1,100 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+import com.GREENWORKS.eco.index.EventIntervalIndex;
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet answers the date questions of the map from the EventIntervalIndex of the
+ * PinSnapshot, so neither the page nor the server loops over every pin. There are two forms:
+ *
+ * /api/events?date=2022-01-31 returns the events that take place at any time on that day, including the
+ * events that started on an earlier day and are still running. The pins have the same fields as /api/pins.
+ * /api/events/calendar?month=2022-01 returns the number of events running on each day of the month. Days
+ * without events are left out.
+ *
+ * The index is rebuilt with every snapshot, and the ETag is the version of the snapshot.
+ */
+@WebServlet({ "/api/events", "/api/events/calendar" })
+public class EventsApi extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+	private static final long DAY = 86400; // The length of a day in the times of PinSnapshot.eventTime().
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public EventsApi() {
+		super();
+	}
+
+	/***
+	 * Writes the events of a day or the calendar of a month.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		PinSnapshot snapshot = SnapshotManager.current();
+		boolean calendar = request.getServletPath().endsWith("/calendar");
+		String value = request.getParameter(calendar ? "month" : "date");
+		String format = calendar ? "month must be yyyy-MM" : "date must be yyyy-MM-dd";
+		if (value == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, format);
+			return;
+		}
+		LocalDate date = null;
+		YearMonth month = null;
+		try {
+			if (calendar) {
+				month = YearMonth.parse(value);
+			} else {
+				date = LocalDate.parse(value);
+			}
+		} catch (DateTimeParseException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, format);
+			return;
+		}
+		if (ETags.notModified(request, response, snapshot.getETag())) {
+			return;
+		}
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		JsonWriter writer = new JsonWriter(response.getWriter());
+		EventIntervalIndex events = snapshot.getEvents();
+		if (calendar) {
+			LocalDate first = month.atDay(1);
+			int[] counts = events.countPerBucket(PinSnapshot.eventTime(first.atStartOfDay()), DAY, month.lengthOfMonth());
+			writer.beginObject();
+			writer.name("month").value(month.toString());
+			writer.name("days").beginObject();
+			for (int day = 0; day < counts.length; day++) {
+				if (counts[day] > 0) {
+					writer.name(first.plusDays(day).toString()).value(counts[day]);
+				}
+			}
+			writer.endObject();
+			writer.endObject();
+		} else {
+			long start = PinSnapshot.eventTime(date.atStartOfDay());
+			List<MapPin> pins = snapshot.getCityPins();
+			writer.beginArray();
+			for (int index : events.query(start, start + DAY - 1)) {
+				PinsApi.writePin(writer, pins.get(index), index);
+			}
+			writer.endArray();
+		}
+		writer.flush();
+	}
+}
@@ -0,0 +1,82 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+import com.GREENWORKS.eco.index.FilterEngine;
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet returns the facet counts of the sidebar filters from the bitmaps of the
+ * FilterEngine, so no pin is scanned. It takes the same filter parameters as /api/pins and returns the number of
+ * matching pins, and for every SubPillar, Pillar, kind and month the number of pins that would match if it were
+ * chosen while the other filters stay as they are.
+ *
+ * /api/pins/facets?subPillars=31,33&events=true
+ */
+@WebServlet("/api/pins/facets")
+public class FacetsApi extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public FacetsApi() {
+		super();
+	}
+
+	/***
+	 * Writes the facet counts of a filter.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		PinSnapshot snapshot = SnapshotManager.current();
+		FilterEngine.Filter filter;
+		try {
+			filter = PinsApi.parseFilter(request, snapshot);
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+		if (ETags.notModified(request, response, snapshot.getETag())) {
+			return;
+		}
+		FilterEngine.Facets facets = snapshot.getFilters().facets(filter);
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		JsonWriter writer = new JsonWriter(response.getWriter());
+		writer.beginObject();
+		writer.name("total").value(facets.getTotal());
+		writeCounts(writer.name("subPillars"), facets.getSubPillars(), false);
+		writeCounts(writer.name("pillars"), facets.getPillars(), false);
+		writer.name("events").value(facets.getEvents());
+		writer.name("locations").value(facets.getLocations());
+		writeCounts(writer.name("months"), facets.getMonths(), true);
+		writer.endObject();
+		writer.flush();
+	}
+
+	/***
+	 * Writes the counts of a facet as an object.
+	 * @param writer The writer of the response.
+	 * @param counts The count of every value.
+	 * @param months True if the values are month numbers, which are written as yyyy-MM.
+	 * @throws IOException Thrown if the response can not be written.
+	 */
+	private static void writeCounts(JsonWriter writer, Map<Integer, Integer> counts, boolean months) throws IOException {
+		writer.beginObject();
+		for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+			int key = entry.getKey();
+			writer.name(months ? String.format("%04d-%02d", key / 12, key % 12 + 1) : String.valueOf(key)).value(entry.getValue());
+		}
+		writer.endObject();
+	}
+}
@@ -0,0 +1,182 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import com.GREENWORKS.eco.ConnectionPool;
+import com.GREENWORKS.eco.PoolMetricsTracker;
+import com.GREENWORKS.eco.constants.CacheConstants;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SecondLevelCache;
+import com.GREENWORKS.eco.data.SessionFactoryUtility;
+import com.GREENWORKS.eco.data.SessionTracker;
+import com.GREENWORKS.eco.data.SnapshotManager;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet exposes the runtime metrics of the application in the plain text
+ * exposition format so that they can be scraped into the dashboards.
+ */
+@WebServlet("/metrics")
+public class Metrics extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public Metrics() {
+		super();
+	}
+
+	/***
+	 * Every metric is written as a single "name value" line.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+		response.setHeader("Cache-Control", "no-store");
+		PrintWriter out = response.getWriter();
+		writePoolMetrics(out);
+		writeSessionMetrics(out);
+		writeCacheMetrics(out);
+		writeSnapshotMetrics(out);
+		writeCompressionMetrics(out);
+		write(out, "ecomap_tile_cache_hits_total", Tiles.getHits());
+		write(out, "ecomap_tile_cache_misses_total", Tiles.getMisses());
+		write(out, "ecomap_tile_cache_entries", Tiles.getEntries());
+		write(out, "ecomap_popup_cache_hits_total", PinDetailsApi.getHits());
+		write(out, "ecomap_popup_cache_misses_total", PinDetailsApi.getMisses());
+		out.flush();
+	}
+
+	/***
+	 * Writes the connection pool gauges and counters.
+	 * @param out The writer of the response.
+	 */
+	private void writePoolMetrics(PrintWriter out) {
+		write(out, "ecomap_pool_active_connections", ConnectionPool.getActiveConnections());
+		write(out, "ecomap_pool_idle_connections", ConnectionPool.getIdleConnections());
+		write(out, "ecomap_pool_total_connections", ConnectionPool.getTotalConnections());
+		write(out, "ecomap_pool_threads_awaiting_connection", ConnectionPool.getThreadsAwaitingConnection());
+		if (ConnectionPool.isReplicaConfigured()) {
+			write(out, "ecomap_replica_pool_active_connections", ConnectionPool.getReplicaActiveConnections());
+			write(out, "ecomap_replica_pool_total_connections", ConnectionPool.getReplicaTotalConnections());
+		}
+		PoolMetricsTracker tracker = ConnectionPool.getMetricsTracker();
+		if (tracker != null) {
+			write(out, "ecomap_pool_acquire_total", tracker.getAcquireCount());
+			write(out, "ecomap_pool_wait_millis_total", tracker.getTotalWaitMillis());
+			write(out, "ecomap_pool_wait_millis_max", tracker.getMaxWaitMillis());
+			write(out, "ecomap_pool_usage_millis_total", tracker.getTotalUsageMillis());
+			write(out, "ecomap_pool_timeouts_total", tracker.getTimeouts());
+			write(out, "ecomap_pool_connections_created_total", tracker.getConnectionsCreated());
+		}
+	}
+
+	/***
+	 * Writes the Hibernate Session gauges and counters.
+	 * @param out The writer of the response.
+	 */
+	private void writeSessionMetrics(PrintWriter out) {
+		write(out, "ecomap_sessions_open", SessionTracker.getOpenSessions());
+		write(out, "ecomap_transactions_in_flight", SessionTracker.getInFlightTransactions());
+		write(out, "ecomap_session_oldest_age_millis", SessionTracker.getOldestSessionAgeMillis());
+		write(out, "ecomap_sessions_opened_total", SessionTracker.getSessionsOpened());
+		write(out, "ecomap_session_leaks_total", SessionTracker.getLeaksDetected());
+	}
+
+	/***
+	 * Writes the age and rebuild timings of the in-memory PinSnapshot. The age is only written once a snapshot
+	 * has been built, so that a scrape never triggers the build.
+	 * @param out The writer of the response.
+	 */
+	private void writeSnapshotMetrics(PrintWriter out) {
+		write(out, "ecomap_snapshot_rebuilds_total", SnapshotManager.getRebuilds());
+		write(out, "ecomap_snapshot_rebuild_failures_total", SnapshotManager.getFailures());
+		write(out, "ecomap_snapshot_last_rebuild_millis", SnapshotManager.getLastRebuildMillis());
+		PinSnapshot snapshot = SnapshotManager.peek();
+		if (snapshot != null) {
+			write(out, "ecomap_snapshot_version", snapshot.getVersion());
+			write(out, "ecomap_snapshot_age_millis", snapshot.getAgeMillis());
+			write(out, "ecomap_snapshot_pins", snapshot.getMapPins().size());
+			write(out, "ecomap_search_terms", snapshot.getSearch().terms());
+			write(out, "ecomap_search_reused_pins", snapshot.getSearch().getReused());
+			write(out, "ecomap_filter_bitmap_bytes", snapshot.getFilters().sizeInBytes());
+			write(out, "ecomap_changes_tombstones", snapshot.getChanges().getTombstones());
+		}
+		write(out, "ecomap_stream_clients", PinEventBroadcaster.getClients());
+		write(out, "ecomap_stream_messages_total", PinEventBroadcaster.getMessages());
+		write(out, "ecomap_stream_dropped_total", PinEventBroadcaster.getDropped());
+	}
+
+	/***
+	 * Writes the counters of the compressed response cache. The hit ratio is hits / (hits + misses) and the
+	 * compression ratio is compressed / uncompressed bytes.
+	 * @param out The writer of the response.
+	 */
+	private void writeCompressionMetrics(PrintWriter out) {
+		write(out, "ecomap_compression_cache_hits_total", CompressionFilter.getHits());
+		write(out, "ecomap_compression_cache_misses_total", CompressionFilter.getMisses());
+		write(out, "ecomap_compression_cache_entries", CompressionFilter.getEntries());
+		write(out, "ecomap_compression_uncompressed_bytes_total", CompressionFilter.getUncompressedBytes());
+		write(out, "ecomap_compression_compressed_bytes_total", CompressionFilter.getCompressedBytes());
+		write(out, "ecomap_compression_cpu_seconds_total", CompressionFilter.getCompressNanos() / 1e9);
+		write(out, "ecomap_compression_cpu_seconds_saved_total", CompressionFilter.getSavedNanos() / 1e9);
+	}
+
+	/***
+	 * Writes the second-level cache statistics. Nothing is written until the SessionFactory has been built, so
+	 * that a scrape never triggers the build.
+	 * @param out The writer of the response.
+	 */
+	private void writeCacheMetrics(PrintWriter out) {
+		write(out, "ecomap_cache_explicit_evictions_total", SecondLevelCache.getEvictions());
+		if (!SessionFactoryUtility.isBuilt()) {
+			return;
+		}
+		Statistics statistics = SessionFactoryUtility.getSessionFactory().getStatistics();
+		for (String region : new String[] { CacheConstants.PILLAR_REGION, CacheConstants.SUB_PILLAR_REGION }) {
+			writeRegion(out, region, statistics.getDomainDataRegionStatistics(region));
+		}
+		writeRegion(out, CacheConstants.TAXONOMY_QUERY_REGION, statistics.getQueryRegionStatistics(CacheConstants.TAXONOMY_QUERY_REGION));
+		write(out, "ecomap_query_cache_hits_total", statistics.getQueryCacheHitCount());
+		write(out, "ecomap_query_cache_misses_total", statistics.getQueryCacheMissCount());
+	}
+
+	/***
+	 * Writes the hit, miss and put counters of a single cache region.
+	 * @param out The writer of the response.
+	 * @param region The name of the region, used as the label.
+	 * @param regionStatistics The statistics of the region. Nothing is written if they are null.
+	 */
+	private void writeRegion(PrintWriter out, String region, CacheRegionStatistics regionStatistics) {
+		if (regionStatistics == null) {
+			return;
+		}
+		String label = "{region=\"" + region + "\"}";
+		write(out, "ecomap_cache_hits_total" + label, regionStatistics.getHitCount());
+		write(out, "ecomap_cache_misses_total" + label, regionStatistics.getMissCount());
+		write(out, "ecomap_cache_puts_total" + label, regionStatistics.getPutCount());
+		write(out, "ecomap_cache_entries" + label, regionStatistics.getElementCountInMemory());
+	}
+
+	/***
+	 * Writes a single metric line.
+	 * @param out The writer of the response.
+	 * @param name The name of the metric.
+	 * @param value The value of the metric.
+	 */
+	static void write(PrintWriter out, String name, Number value) {
+		out.print(name);
+		out.print(' ');
+		out.println(value);
+	}
+}
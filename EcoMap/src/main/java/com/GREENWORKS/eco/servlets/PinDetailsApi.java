@@ -0,0 +1,146 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.GREENWORKS.eco.constants.PopupConstants;
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.data.PinChangeLog;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet returns the popup of a single pin, which the map only fetches when the pin
+ * is clicked. The popup HTML is the thumbnail, the address, the content and the link, rendered the way the
+ * pages used to render them. Rendered popups are kept in a bounded cache keyed by the pin id and the version at
+ * which the pin last changed, so a popup stays cached, and its ETag stays valid, across rebuilds that did not
+ * change the pin.
+ *
+ * /api/pins/123 returns {"dbID":"123","name":...,"dbAddress":...,"dateStart":...,"dateEnd":...,"content":...}
+ */
+@WebServlet("/api/pins/*")
+public class PinDetailsApi extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+	private static final Pattern ID_PATH = Pattern.compile("/(\\d{1,10})");
+	private static final Map<String, byte[]> CACHE = new LinkedHashMap<String, byte[]>(64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+			return size() > PopupConstants.MAX_CACHED_POPUPS;
+		}
+	};
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public PinDetailsApi() {
+		super();
+	}
+
+	/***
+	 * Writes the popup of a pin.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		Matcher matcher = ID_PATH.matcher(String.valueOf(request.getPathInfo()));
+		if (!matcher.matches()) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		long id = Long.parseLong(matcher.group(1));
+		PinSnapshot snapshot = SnapshotManager.current();
+		PinChangeLog changes = snapshot.getChanges();
+		int position = id > Integer.MAX_VALUE ? -1 : changes.positionOf((int) id);
+		if (position < 0) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		String key = snapshot.getGeneration() + "-" + changes.changedAt(position) + "-" + id;
+		if (ETags.notModified(request, response, "\"" + key + "\"")) {
+			return;
+		}
+		byte[] body = getPopup(key, snapshot.getCityPins().get(position));
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	/***
+	 * Returns a popup from the cache, rendering it on a miss.
+	 * @param key The pin id and the version at which it last changed.
+	 * @param pin The pin.
+	 * @return Returns the JSON bytes of the popup.
+	 * @throws IOException Never thrown for an in-memory writer.
+	 */
+	static byte[] getPopup(String key, MapPin pin) throws IOException {
+		synchronized (CACHE) {
+			byte[] popup = CACHE.get(key);
+			if (popup != null) {
+				HITS.increment();
+				return popup;
+			}
+		}
+		MISSES.increment();
+		byte[] popup = render(pin);
+		synchronized (CACHE) {
+			CACHE.put(key, popup);
+		}
+		return popup;
+	}
+
+	/***
+	 * Renders the popup of a pin.
+	 * @param pin The pin.
+	 * @return Returns the JSON bytes of the popup.
+	 * @throws IOException Never thrown for an in-memory writer.
+	 */
+	static byte[] render(MapPin pin) throws IOException {
+		StringWriter json = new StringWriter();
+		JsonWriter writer = new JsonWriter(json);
+		writer.beginObject();
+		writer.name("dbID").value(String.valueOf(pin.getId()));
+		writer.name("name").value(String.valueOf(pin.getLocationName()));
+		writer.name("dbAddress").value(pin.getLocationAddress());
+		writer.name("dateStart").value(String.valueOf(pin.getStartDate()));
+		writer.name("dateEnd").value(String.valueOf(pin.getEndDate()));
+		writer.name("content").value(pin.getThumbnailHTML() + pin.getLocationAddress() + "<br /><br />" + pin.getContent() + pin.getLinkHTML());
+		writer.name("thumbnail").value(String.valueOf(pin.getThumbnail()));
+		writer.name("link").value(String.valueOf(pin.getLink()));
+		writer.endObject();
+		writer.flush();
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/***
+	 * Counter of the popups that were served from the cache.
+	 * @return Returns the number of hits.
+	 */
+	public static long getHits() {
+		return HITS.sum();
+	}
+
+	/***
+	 * Counter of the popups that had to be rendered.
+	 * @return Returns the number of misses.
+	 */
+	public static long getMisses() {
+		return MISSES.sum();
+	}
+}
@@ -0,0 +1,295 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.tinylog.Logger;
+
+import com.GREENWORKS.eco.constants.StreamConstants;
+import com.GREENWORKS.eco.data.PinEvents;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+/***
+ * This class pushes the changes of the PinSnapshot to the open map pages as Server-Sent Events. Every client
+ * is an async request that holds no thread while it is idle. A single fan-out thread builds each notification
+ * once, appends it to the bounded queue of every client and writes as much of the queue as the connection
+ * takes without blocking, the container finishes the write through the WriteListener of the client. A client
+ * whose queue is full is too slow and is dropped. The same thread sends a heartbeat comment, which keeps
+ * proxies from closing idle connections and drops the clients that have gone away.
+ *
+ * A notification only names the version and the changed pins. The page fetches the pins themselves from
+ * /api/pins/changes, which is cached and compressed like the other API responses.
+ */
+public class PinEventBroadcaster {
+
+	private static final Set<Client> CLIENTS = ConcurrentHashMap.newKeySet();
+	private static final AtomicInteger SLOTS = new AtomicInteger(); // Reserved before a client is added.
+	private static final LongAdder MESSAGES = new LongAdder();
+	private static final LongAdder DROPPED = new LongAdder();
+	private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+	private static ScheduledExecutorService fanOut;
+
+	/***
+	 * The class is not meant to be instantiated. All access is through the static methods.
+	 */
+	private PinEventBroadcaster() {
+
+	}
+
+	/***
+	 * Starts the fan-out thread and the heartbeat, and subscribes to the snapshot rebuilds.
+	 */
+	public static synchronized void start() {
+		if (fanOut != null) {
+			return;
+		}
+		fanOut = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ecomap-stream-fan-out");
+			thread.setDaemon(true);
+			return thread;
+		});
+		fanOut.scheduleWithFixedDelay(() -> broadcast(HEARTBEAT), StreamConstants.HEARTBEAT_INTERVAL,
+			StreamConstants.HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
+		SnapshotManager.addListener(PinEventBroadcaster::publish);
+	}
+
+	/***
+	 * Ends every stream and stops the fan-out thread. It is called when the application is shut down.
+	 */
+	public static synchronized void shutdown() {
+		if (fanOut != null) {
+			fanOut.shutdownNow();
+			fanOut = null;
+		}
+		for (Client client : CLIENTS) {
+			client.close(); // Removes the client and frees its slot.
+		}
+	}
+
+	/***
+	 * Adds a client. The first message tells it the current version, so that a page which reconnects after
+	 * missing a notification catches up straight away.
+	 * @param context The started async context of the request.
+	 * @param snapshot The current snapshot.
+	 * @return Returns false if the stream is at StreamConstants.MAX_CLIENTS and the client was not added.
+	 * @throws IOException Thrown if the response can not be set up.
+	 */
+	static boolean register(AsyncContext context, PinSnapshot snapshot) throws IOException {
+		if (SLOTS.incrementAndGet() > StreamConstants.MAX_CLIENTS) {
+			SLOTS.decrementAndGet(); // Concurrent connects can not overshoot, each one reserves its slot first.
+			return false;
+		}
+		Client client;
+		try {
+			client = new Client(context);
+		} catch (IOException | RuntimeException e) {
+			SLOTS.decrementAndGet();
+			throw e;
+		}
+		CLIENTS.add(client);
+		context.addListener(client);
+		client.offer(("retry: " + StreamConstants.RETRY + "\n").getBytes(StandardCharsets.UTF_8));
+		client.offer(PinEvents.event("pins", snapshot.getVersionToken(), PinEvents.versionOnly(snapshot.getVersionToken())));
+		client.output.setWriteListener(client); // The container calls onWritePossible() once it is set.
+		return true;
+	}
+
+	/***
+	 * Queues the notification of a rebuild on the fan-out thread. Rebuilds that changed no pin and no Pillar or
+	 * SubPillar are not sent.
+	 * @param previous The snapshot that was replaced, or null.
+	 * @param current The new snapshot.
+	 */
+	static void publish(PinSnapshot previous, PinSnapshot current) {
+		ScheduledExecutorService executor = fanOut;
+		if (previous == null || executor == null || CLIENTS.isEmpty()) {
+			return;
+		}
+		executor.execute(() -> {
+			try {
+				byte[] pins = PinEvents.pinsEvent(previous, current);
+				if (pins != null) {
+					broadcast(pins);
+				}
+				byte[] taxonomy = PinEvents.taxonomyEvent(previous, current);
+				if (taxonomy != null) {
+					broadcast(taxonomy);
+				}
+			} catch (RuntimeException e) {
+				Logger.warn("Unable to build the change notification: " + e);
+			}
+		});
+	}
+
+	/***
+	 * Appends a message to the queue of every client and starts writing it. It runs on the fan-out thread.
+	 * @param message The bytes of the message.
+	 */
+	private static void broadcast(byte[] message) {
+		for (Client client : CLIENTS) {
+			if (client.offer(message)) {
+				client.drain();
+			} else {
+				DROPPED.increment();
+				client.close(); // Too slow, its browser reconnects and catches up from the version.
+			}
+		}
+		MESSAGES.increment();
+	}
+
+	/***
+	 * Accessor for the number of open streams.
+	 * @return Returns the number of clients.
+	 */
+	public static int getClients() {
+		return CLIENTS.size();
+	}
+
+	/***
+	 * Counter of the messages that were broadcast, heartbeats included.
+	 * @return Returns the number of messages.
+	 */
+	public static long getMessages() {
+		return MESSAGES.sum();
+	}
+
+	/***
+	 * Counter of the clients that were dropped because their queue was full.
+	 * @return Returns the number of dropped clients.
+	 */
+	public static long getDropped() {
+		return DROPPED.sum();
+	}
+
+	/***
+	 * A connected page. Its queue is only touched while holding the lock of the client, by the fan-out thread
+	 * and by the container thread that calls onWritePossible().
+	 */
+	private static class Client implements WriteListener, AsyncListener {
+
+		private final AsyncContext context;
+		private final ServletOutputStream output;
+		private final PinEvents.Queue queue = new PinEvents.Queue(StreamConstants.CLIENT_QUEUE);
+		private boolean flushNeeded = false;
+
+		/***
+		 * Constructor for the Client.
+		 * @param context The started async context of the request.
+		 * @throws IOException Thrown if the output stream can not be opened.
+		 */
+		Client(AsyncContext context) throws IOException {
+			this.context = context;
+			this.output = context.getResponse().getOutputStream();
+		}
+
+		/***
+		 * Appends a message to the queue.
+		 * @param message The bytes of the message.
+		 * @return Returns false if the queue is full or the client is closed.
+		 */
+		synchronized boolean offer(byte[] message) {
+			return queue.offer(message);
+		}
+
+		/***
+		 * Writes queued messages for as long as the connection takes them without blocking. When isReady()
+		 * returns false the container calls onWritePossible() once the connection drains.
+		 */
+		synchronized void drain() {
+			try {
+				while (!queue.isClosed() && output.isReady()) {
+					byte[] message = queue.poll();
+					if (message != null) {
+						output.write(message);
+						flushNeeded = true;
+					} else if (flushNeeded) {
+						flushNeeded = false;
+						output.flush();
+					} else {
+						return;
+					}
+				}
+			} catch (IOException | IllegalStateException e) {
+				close();
+			}
+		}
+
+		/***
+		 * Ends the stream and removes the client.
+		 */
+		synchronized void close() {
+			if (CLIENTS.remove(this)) {
+				SLOTS.decrementAndGet();
+			}
+			if (queue.close()) {
+				try {
+					context.complete();
+				} catch (IllegalStateException e) {
+					// The request has already completed.
+				}
+			}
+		}
+
+		/***
+		 * Continues the write once the connection can take more.
+		 */
+		@Override
+		public void onWritePossible() {
+			drain();
+		}
+
+		/***
+		 * Drops the client when a write fails.
+		 */
+		@Override
+		public void onError(Throwable throwable) {
+			close();
+		}
+
+		/***
+		 * Removes the client when its request completes.
+		 */
+		@Override
+		public void onComplete(AsyncEvent event) {
+			close();
+		}
+
+		/***
+		 * Removes the client when its request times out.
+		 */
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			close();
+		}
+
+		/***
+		 * Removes the client when its connection fails.
+		 */
+		@Override
+		public void onError(AsyncEvent event) {
+			close();
+		}
+
+		/***
+		 * Nothing to do, the listener is added after the request has started.
+		 */
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+
+		}
+	}
+}
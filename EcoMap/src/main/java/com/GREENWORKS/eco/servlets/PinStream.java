@@ -0,0 +1,50 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+
+import com.GREENWORKS.eco.data.SnapshotManager;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet opens the Server-Sent Events stream that tells an open map page when the pins
+ * have changed, so that it can fetch them from /api/pins/changes without reloading. The request is put into
+ * async mode and handed to the PinEventBroadcaster, so an idle page holds a connection but no thread. It is
+ * mapped outside of /api/* because the CompressionFilter buffers the whole response.
+ *
+ * event: pins      data: {"version":"l0x2k9-44","upserts":["12"],"deletes":["40"]}
+ * event: taxonomy  data: {"version":"l0x2k9-45"}
+ */
+@WebServlet(urlPatterns = "/stream/pins", asyncSupported = true)
+public class PinStream extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public PinStream() {
+		super();
+	}
+
+	/***
+	 * Starts the stream.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		response.setContentType("text/event-stream");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+		response.setHeader("X-Accel-Buffering", "no"); // Keeps nginx from buffering the events.
+		AsyncContext context = request.startAsync();
+		context.setTimeout(0); // The heartbeat finds the clients that have gone away.
+		if (!PinEventBroadcaster.register(context, SnapshotManager.current())) {
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			context.complete();
+		}
+	}
+}
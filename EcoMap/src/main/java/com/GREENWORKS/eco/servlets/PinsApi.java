@@ -0,0 +1,242 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+import com.GREENWORKS.eco.index.FilterEngine;
+import com.GREENWORKS.eco.index.GeoGrid;
+import com.GREENWORKS.eco.index.PinBitmap;
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet serves the map dataset as JSON. The pins come from the shared PinSnapshot and
+ * are streamed straight to the response. Only the pins inside the city limits are served, the X-City-Boundary
+ * header tells the page whether that filter was applied. The ETag is the version of the snapshot, so a browser that already
+ * holds the current pins is answered with a 304 and an empty body.
+ *
+ * The optional bbox=minLon,minLat,maxLon,maxLat parameter limits the response to the pins inside the viewport.
+ * It is answered from the GeoGrid of the snapshot. The sidebar filters are answered from the FilterEngine:
+ * subPillars=31,33 and pillars=1,2 keep the pins of those SubPillars and Pillars, events=true keeps the events
+ * and events=false the locations, months=2022-01,2022-02 keeps the events running in those months and
+ * date=2022-01-31 the events running on that day. The filters combine with each other and with the bbox.
+ *
+ * Each pin only carries what the marker needs. The popup content is served by PinDetailsApi.
+ */
+@WebServlet("/api/pins")
+public class PinsApi extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+	private static final String[] LOCATION_ICONS = { null, "ENERGY", "WATER", "TRANSPORTATION", "BUILDINGS", "LIVABILITY",
+		"FOOD", "WASTE" }; // By Pillar id, the same as iconSelect() in esri_api.js.
+	private static final String[] EVENT_ICONS = { null, "CLEANEVENT", "FOODEVENT", "TRANSPORTATIONEVENT", "GREENEVENT",
+		"LIVEVENT", "FOODEVENT", "WASTEEVENT" };
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public PinsApi() {
+		super();
+	}
+
+	/***
+	 * Writes every pin of the current snapshot, unless the client already holds them.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		PinSnapshot snapshot = SnapshotManager.current();
+		if (ETags.notModified(request, response, snapshot.getETag())) {
+			return;
+		}
+		int[] visible = null;
+		FilterEngine.Filter filter;
+		try {
+			filter = parseFilter(request, snapshot);
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+		if (!filter.isEmpty()) {
+			visible = snapshot.getFilters().select(filter).toArray();
+		}
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("X-City-Boundary", snapshot.isBoundaryApplied() ? "applied" : "unavailable");
+		response.setHeader("X-Data-Version", snapshot.getVersionToken()); // For the ?v= of the tile URLs.
+		List<MapPin> pins = snapshot.getCityPins();
+		JsonWriter writer = new JsonWriter(response.getWriter());
+		writer.beginArray();
+		if (visible == null) {
+			for (int index = 0; index < pins.size(); index++) {
+				writePin(writer, pins.get(index), index);
+			}
+		} else {
+			for (int index : visible) {
+				writePin(writer, pins.get(index), index); // Keeps the position of the pin in the full list.
+			}
+		}
+		writer.endArray();
+		writer.flush();
+	}
+
+	/***
+	 * Parses the filter parameters of a request. The bbox and the date are resolved into the pins that they
+	 * contain, the other facets are left to the FilterEngine.
+	 * @param request The request.
+	 * @param snapshot The snapshot whose pins are filtered.
+	 * @return Returns the filter. It is empty if the request has no filter parameters.
+	 * @throws IllegalArgumentException Thrown with a message for the client if a parameter is malformed.
+	 */
+	static FilterEngine.Filter parseFilter(HttpServletRequest request, PinSnapshot snapshot) {
+		int size = snapshot.getCityPins().size();
+		PinBitmap within = null;
+		if (request.getParameter("bbox") != null) {
+			double[] box = parseBoundingBox(request.getParameter("bbox"));
+			if (box == null) {
+				throw new IllegalArgumentException("bbox must be minLon,minLat,maxLon,maxLat");
+			}
+			int[] inside = snapshot.getGrid().query(box[0], box[1], box[2], box[3]);
+			within = PinBitmap.of(inside, inside.length, size);
+		}
+		if (request.getParameter("date") != null) {
+			long start;
+			try {
+				start = PinSnapshot.eventTime(LocalDate.parse(request.getParameter("date")).atStartOfDay());
+			} catch (DateTimeParseException e) {
+				throw new IllegalArgumentException("date must be yyyy-MM-dd");
+			}
+			int[] running = snapshot.getEvents().query(start, start + 86399);
+			PinBitmap onDay = PinBitmap.of(running, running.length, size);
+			within = within == null ? onDay : within.and(onDay);
+		}
+		int[] months = null;
+		if (request.getParameter("months") != null) {
+			String[] parts = request.getParameter("months").split(",");
+			months = new int[parts.length];
+			try {
+				for (int i = 0; i < parts.length; i++) {
+					YearMonth month = YearMonth.parse(parts[i].trim());
+					months[i] = PinSnapshot.monthKey(month.getYear(), month.getMonthValue());
+				}
+			} catch (DateTimeParseException e) {
+				throw new IllegalArgumentException("months must be a list of yyyy-MM");
+			}
+		}
+		String events = request.getParameter("events");
+		if (events != null && !events.equals("true") && !events.equals("false")) {
+			throw new IllegalArgumentException("events must be true or false");
+		}
+		return new FilterEngine.Filter(parseIds(request.getParameter("subPillars"), "subPillars"),
+			parseIds(request.getParameter("pillars"), "pillars"), events == null ? null : Boolean.valueOf(events), months, within);
+	}
+
+	/***
+	 * Parses a comma separated list of ids.
+	 * @param value The value of the parameter, or null.
+	 * @param name The name of the parameter, for the error message.
+	 * @return Returns the ids, or null if the parameter is missing.
+	 * @throws IllegalArgumentException Thrown if an id is not a number.
+	 */
+	static int[] parseIds(String value, String name) {
+		if (value == null) {
+			return null;
+		}
+		if (value.trim().isEmpty()) {
+			return new int[0]; // Nothing chosen, so nothing matches.
+		}
+		String[] parts = value.split(",");
+		int[] ids = new int[parts.length];
+		try {
+			for (int i = 0; i < parts.length; i++) {
+				ids[i] = Integer.parseInt(parts[i].trim());
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " must be a list of ids");
+		}
+		return ids;
+	}
+
+	/***
+	 * Parses a bounding box of the form minLon,minLat,maxLon,maxLat.
+	 * @param bbox The value of the parameter.
+	 * @return Returns the four edges, or null if the box is malformed.
+	 */
+	static double[] parseBoundingBox(String bbox) {
+		String[] parts = bbox.split(",");
+		if (parts.length != 4) {
+			return null;
+		}
+		double[] box = new double[4];
+		for (int i = 0; i < 4; i++) {
+			box[i] = GeoGrid.parseCoordinate(parts[i]);
+			if (Double.isNaN(box[i]) || Double.isInfinite(box[i])) {
+				return null;
+			}
+		}
+		if (box[0] > box[2] || box[1] > box[3]) {
+			return null;
+		}
+		return box;
+	}
+
+	/***
+	 * Writes a single pin. Only the fields that place and draw the marker are sent, the popup is fetched from
+	 * /api/pins/{id} when it is opened. Dates are written the way the page used to print them, so a missing date
+	 * arrives as the string "null", which is what the scripts test for. PinEncodingBenchmark calls it too, so
+	 * that the benchmark measures the JSON that is actually sent.
+	 * @param writer The writer of the response.
+	 * @param pin The pin to be written.
+	 * @param index The position of the pin in the array.
+	 * @throws IOException Thrown if the response can not be written.
+	 */
+	public static void writePin(JsonWriter writer, MapPin pin, int index) throws IOException {
+		writer.beginObject();
+		writePinFields(writer, pin, index);
+		writer.endObject();
+	}
+
+	/***
+	 * Writes the fields of a single pin into an object that the caller has begun, so that it can add its own.
+	 * @param writer The writer of the response.
+	 * @param pin The pin to be written.
+	 * @param index The position of the pin in the array.
+	 * @throws IOException Thrown if the response can not be written.
+	 */
+	static void writePinFields(JsonWriter writer, MapPin pin, int index) throws IOException {
+		writer.name("index").value(index);
+		writer.name("type").value("point");
+		writer.name("longitude").value(String.valueOf(pin.getLongitude()));
+		writer.name("latitude").value(String.valueOf(pin.getLatitude()));
+		writer.name("dbID").value(String.valueOf(pin.getId()));
+		writer.name("dbType").value(String.valueOf(pin.getPillarId()));
+		writer.name("subpillar").value(String.valueOf(pin.getSubPillarId()));
+		writer.name("icon").value(iconKey(pin));
+		writer.name("name").value(String.valueOf(pin.getLocationName()));
+		writer.name("dateStart").value(String.valueOf(pin.getStartDate()));
+		writer.name("dateEnd").value(String.valueOf(pin.getEndDate()));
+	}
+
+	/***
+	 * Returns the name of the marker of a pin in the Markers object of esri_api.js. Every Pillar has a location
+	 * marker and an event marker.
+	 * @param pin The pin.
+	 * @return Returns the key, or null if the Pillar has no marker, in which case the page picks one itself.
+	 */
+	static String iconKey(MapPin pin) {
+		Integer pillar = pin.getPillarId();
+		if (pillar == null || pillar < 1 || pillar >= LOCATION_ICONS.length) {
+			return null;
+		}
+		return pin.isEvent() ? EVENT_ICONS[pillar] : LOCATION_ICONS[pillar];
+	}
+}
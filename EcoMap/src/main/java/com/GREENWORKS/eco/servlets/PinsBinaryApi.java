@@ -0,0 +1,141 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+import com.GREENWORKS.eco.index.EventIntervalIndex;
+import com.GREENWORKS.eco.index.GeoGrid;
+import com.GREENWORKS.eco.index.PinBinaryEncoder;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet serves the same pins as /api/pins in the binary form of the PinBinaryEncoder,
+ * which scripts/pin_decoder.js turns back into the objects of /api/pins. The map page uses it when the browser
+ * reports a slow or metered connection. The encoder is built once per snapshot and then streams the pins
+ * straight into the response, the ETag and headers are those of /api/pins. The filter parameters of /api/pins
+ * are not offered, this endpoint is for loading the whole map once.
+ *
+ * The URL lies under the CompressionFilter on purpose. For a client that accepts gzip the encoder writes into the
+ * buffer of the filter rather than the connection, and the filter compresses the pins once per snapshot version at
+ * its best level and answers every later request from those bytes, without running this Servlet at all. Streaming
+ * straight to the connection would save the one buffered copy per version but would compress on every request.
+ * Only clients that do not accept gzip get the pins streamed straight into the connection.
+ *
+ * The size and encoding time are compared with the JSON by PinEncodingBenchmark in the tests.
+ */
+@WebServlet("/api/pins.bin")
+public class PinsBinaryApi extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+	private static final Object BUILD_LOCK = new Object();
+	private static volatile Encoded encoded;
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public PinsBinaryApi() {
+		super();
+	}
+
+	/***
+	 * Writes every pin of the current snapshot, unless the client already holds them.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		PinSnapshot snapshot = SnapshotManager.current();
+		if (ETags.notModified(request, response, snapshot.getETag())) {
+			return;
+		}
+		PinBinaryEncoder pins = getEncoder(snapshot);
+		response.setContentType("application/octet-stream");
+		response.setHeader("X-City-Boundary", snapshot.isBoundaryApplied() ? "applied" : "unavailable");
+		response.setHeader("X-Data-Version", snapshot.getVersionToken());
+		pins.writeTo(response.getOutputStream());
+	}
+
+	/***
+	 * Returns the encoder of a snapshot, building it if the snapshot is new. Requests read the encoder with a
+	 * single volatile read, only the first request after a rebuild takes the lock and builds it, and the
+	 * requests that arrive meanwhile wait for that build rather than repeating it.
+	 * @param snapshot The snapshot.
+	 * @return Returns the encoder.
+	 */
+	static PinBinaryEncoder getEncoder(PinSnapshot snapshot) {
+		Encoded current = encoded;
+		if (current != null && current.snapshot == snapshot) {
+			return current.encoder;
+		}
+		synchronized (BUILD_LOCK) {
+			current = encoded;
+			if (current != null && current.snapshot == snapshot) {
+				return current.encoder;
+			}
+			PinBinaryEncoder built = encoder(snapshot.getCityPins());
+			if (current == null || current.snapshot.getVersion() <= snapshot.getVersion()) {
+				encoded = new Encoded(snapshot, built); // A request still holding an older snapshot does not publish it.
+			}
+			return built;
+		}
+	}
+
+	/***
+	 * Builds the encoder of a list of pins. PinEncodingBenchmark calls it too, so that the benchmark times the
+	 * same build as the Servlet.
+	 * @param pins The city pins.
+	 * @return Returns the encoder.
+	 */
+	public static PinBinaryEncoder encoder(List<MapPin> pins) {
+		int size = pins.size();
+		double[] longitudes = new double[size];
+		double[] latitudes = new double[size];
+		int[] ids = new int[size];
+		int[] pillars = new int[size];
+		int[] subPillars = new int[size];
+		String[] names = new String[size];
+		String[] towns = new String[size];
+		String[] icons = new String[size];
+		long[] starts = new long[size];
+		long[] ends = new long[size];
+		for (int i = 0; i < size; i++) {
+			MapPin pin = pins.get(i);
+			longitudes[i] = GeoGrid.coordinate(pin.getLongitudeValue());
+			latitudes[i] = GeoGrid.coordinate(pin.getLatitudeValue());
+			ids[i] = pin.getId();
+			pillars[i] = pin.getPillarId() == null ? -1 : pin.getPillarId();
+			subPillars[i] = pin.getSubPillarId() == null ? -1 : pin.getSubPillarId();
+			names[i] = pin.getLocationName();
+			towns[i] = pin.getTown();
+			icons[i] = PinsApi.iconKey(pin);
+			starts[i] = pin.isEvent() ? PinSnapshot.eventTime(pin.getStartDateTime()) : EventIntervalIndex.NONE;
+			ends[i] = pin.isEvent() ? PinSnapshot.eventTime(pin.getEndDateTime()) : EventIntervalIndex.NONE;
+		}
+		return new PinBinaryEncoder(longitudes, latitudes, ids, pillars, subPillars, names, towns, icons, starts, ends);
+	}
+
+	/***
+	 * The encoder of a snapshot, published as a whole so that a reader never pairs a snapshot with the encoder
+	 * of another one.
+	 */
+	private static class Encoded {
+
+		private final PinSnapshot snapshot;
+		private final PinBinaryEncoder encoder;
+
+		/***
+		 * Constructor for the Encoded.
+		 * @param snapshot The snapshot.
+		 * @param encoder The encoder of its city pins.
+		 */
+		Encoded(PinSnapshot snapshot, PinBinaryEncoder encoder) {
+			this.snapshot = snapshot;
+			this.encoder = encoder;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet is the readiness probe for the load balancer. It answers 200 once the
+ * ApplicationLifecycle listener has built the SessionFactory and warmed the map queries, and 503 until then.
+ */
+@WebServlet("/ready")
+public class Readiness extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public Readiness() {
+		super();
+	}
+
+	/***
+	 * The readiness state is reported through the status code.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		response.setContentType("text/plain");
+		response.setHeader("Cache-Control", "no-store");
+		if (ApplicationLifecycle.isReady()) {
+			response.setStatus(HttpServletResponse.SC_OK);
+			response.getWriter().print("READY");
+		} else {
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			response.getWriter().print("WARMING UP");
+		}
+	}
+}
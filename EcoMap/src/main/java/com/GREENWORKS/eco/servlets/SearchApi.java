@@ -0,0 +1,80 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.GREENWORKS.eco.constants.IndexConstants;
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+import com.GREENWORKS.eco.index.SearchIndex;
+import com.google.gson.stream.JsonWriter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet searches the names, addresses and content of the pins in the city with the
+ * SearchIndex of the PinSnapshot. The last word of the query is completed, so the search can run while the user
+ * types. The results have the same fields as /api/pins and the address, and are ranked best first.
+ *
+ * /api/search?q=solar pa returns the pins that contain "solar" and a word starting with "pa".
+ * The optional subPillars=1,4 parameter limits the results to those SubPillars, an empty subPillars= matches
+ * nothing as it does for /api/pins, and limit=10 caps their number.
+ */
+@WebServlet("/api/search")
+public class SearchApi extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public SearchApi() {
+		super();
+	}
+
+	/***
+	 * Writes the ranked results of a query.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		PinSnapshot snapshot = SnapshotManager.current();
+		String query = request.getParameter("q");
+		int[] subPillars = null;
+		int limit = IndexConstants.SEARCH_MAX_RESULTS;
+		try {
+			subPillars = PinsApi.parseIds(request.getParameter("subPillars"), "subPillars"); // Empty matches nothing, as on the map.
+			if (request.getParameter("limit") != null) {
+				limit = Integer.parseInt(request.getParameter("limit"));
+			}
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "subPillars must be a list of ids and limit a number");
+			return;
+		}
+		if (query == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "q is required");
+			return;
+		}
+		if (ETags.notModified(request, response, snapshot.getETag())) {
+			return;
+		}
+		List<SearchIndex.Hit> hits = snapshot.getSearch().search(query, subPillars, limit);
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		JsonWriter writer = new JsonWriter(response.getWriter());
+		List<MapPin> pins = snapshot.getCityPins();
+		writer.beginArray();
+		for (SearchIndex.Hit hit : hits) {
+			MapPin pin = pins.get(hit.getPosition());
+			writer.beginObject();
+			PinsApi.writePinFields(writer, pin, hit.getPosition());
+			writer.name("dbAddress").value(pin.getLocationAddress()); // Shown in the result list.
+			writer.endObject();
+		}
+		writer.endArray();
+		writer.flush();
+	}
+}
@@ -0,0 +1,166 @@
+package com.GREENWORKS.eco.servlets;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.GREENWORKS.eco.constants.TileConstants;
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SnapshotManager;
+import com.GREENWORKS.eco.index.GeoGrid;
+import com.GREENWORKS.eco.index.VectorTileEncoder;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/***
+ * This is a Servlet. This Servlet serves the city pins as Mapbox Vector Tiles at /tiles/{z}/{x}/{y}.mvt. Every
+ * pin is a point feature whose id is the database id, with the attributes pillar, subPillar and event. A tile
+ * only reads the pins of its own area from the GeoGrid of the PinSnapshot, so its cost does not depend on the
+ * total number of pins. Tiles are cached by data version and tile coordinates.
+ *
+ * A URL that carries the current data version as ?v= is immutable and is cached by the browser for a year. The
+ * version is sent in the X-Data-Version header of /api/pins. Without it the tile is revalidated with its ETag.
+ */
+@WebServlet("/tiles/*")
+public class Tiles extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+	private static final Pattern TILE_PATH = Pattern.compile("/(\\d{1,2})/(\\d{1,8})/(\\d{1,8})\\.mvt");
+	private static final Map<String, byte[]> CACHE = new LinkedHashMap<String, byte[]>(64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+			return size() > TileConstants.MAX_CACHED_TILES;
+		}
+	};
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+	private static String cachedVersion;
+
+	/***
+	 * Constructor that makes a call to super. This is neccessary for HttpServlet.
+	 */
+	public Tiles() {
+		super();
+	}
+
+	/***
+	 * Writes a tile.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		Matcher matcher = TILE_PATH.matcher(String.valueOf(request.getPathInfo()));
+		if (!matcher.matches()) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		int zoom = Integer.parseInt(matcher.group(1));
+		int x = Integer.parseInt(matcher.group(2));
+		int y = Integer.parseInt(matcher.group(3));
+		if (zoom > TileConstants.MAX_ZOOM || x >= (1 << zoom) || y >= (1 << zoom)) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		PinSnapshot snapshot = SnapshotManager.current();
+		if (snapshot.getVersionToken().equals(request.getParameter("v"))) {
+			response.setHeader("ETag", snapshot.getETag());
+			response.setHeader("Cache-Control", "public, max-age=" + TileConstants.IMMUTABLE_MAX_AGE + ", immutable");
+		} else if (ETags.notModified(request, response, snapshot.getETag())) {
+			return;
+		}
+		byte[] tile = getTile(snapshot, zoom, x, y);
+		response.setContentType("application/vnd.mapbox-vector-tile");
+		response.setContentLength(tile.length);
+		response.getOutputStream().write(tile);
+	}
+
+	/***
+	 * Returns a tile from the cache, encoding it on a miss. The cache is emptied when the data version changes.
+	 * @param snapshot The snapshot to be encoded.
+	 * @param zoom The zoom of the tile.
+	 * @param x The column of the tile.
+	 * @param y The row of the tile.
+	 * @return Returns the tile bytes.
+	 */
+	static byte[] getTile(PinSnapshot snapshot, int zoom, int x, int y) {
+		String version = snapshot.getVersionToken();
+		String key = zoom + "/" + x + "/" + y;
+		synchronized (CACHE) {
+			if (!version.equals(cachedVersion)) {
+				CACHE.clear();
+				cachedVersion = version;
+			}
+			byte[] tile = CACHE.get(key);
+			if (tile != null) {
+				HITS.increment();
+				return tile;
+			}
+		}
+		MISSES.increment();
+		byte[] tile = encode(snapshot, zoom, x, y);
+		synchronized (CACHE) {
+			if (version.equals(cachedVersion)) {
+				CACHE.put(key, tile);
+			}
+		}
+		return tile;
+	}
+
+	/***
+	 * Encodes the pins of a tile and its buffer.
+	 * @param snapshot The snapshot to be encoded.
+	 * @param zoom The zoom of the tile.
+	 * @param x The column of the tile.
+	 * @param y The row of the tile.
+	 * @return Returns the tile bytes.
+	 */
+	private static byte[] encode(PinSnapshot snapshot, int zoom, int x, int y) {
+		double margin = (double) TileConstants.BUFFER / TileConstants.EXTENT;
+		double[] box = VectorTileEncoder.tileBounds(zoom, x, y, margin);
+		List<MapPin> pins = snapshot.getCityPins();
+		VectorTileEncoder encoder = new VectorTileEncoder(TileConstants.LAYER, TileConstants.EXTENT);
+		for (int index : snapshot.getGrid().query(box[0], box[1], box[2], box[3])) {
+			MapPin pin = pins.get(index);
+			int pointX = VectorTileEncoder.pointX(GeoGrid.coordinate(pin.getLongitudeValue()), zoom, x, TileConstants.EXTENT);
+			int pointY = VectorTileEncoder.pointY(GeoGrid.coordinate(pin.getLatitudeValue()), zoom, y, TileConstants.EXTENT);
+			encoder.addPoint(pin.getId(), pointX, pointY, "pillar", pin.getPillarId(), "subPillar", pin.getSubPillarId(),
+				"event", pin.isEvent());
+		}
+		return encoder.encode();
+	}
+
+	/***
+	 * Counter of the tiles that were served from the cache.
+	 * @return Returns the number of hits.
+	 */
+	public static long getHits() {
+		return HITS.sum();
+	}
+
+	/***
+	 * Counter of the tiles that had to be encoded.
+	 * @return Returns the number of misses.
+	 */
+	public static long getMisses() {
+		return MISSES.sum();
+	}
+
+	/***
+	 * Returns the number of cached tiles.
+	 * @return Returns the number of entries.
+	 */
+	public static int getEntries() {
+		synchronized (CACHE) {
+			return CACHE.size();
+		}
+	}
+}
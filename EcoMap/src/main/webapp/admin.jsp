@@ -3,7 +3,7 @@
 <%@ page isELIgnored="false"%>
 <%
 // Get pin data
-Data data = new Data();
+Data data = Data.fresh();
 %>
 
 <html>
@@ -282,7 +282,7 @@ Data data = new Data();
                                     <select name="locationID">
                                         <%
                                         // Loop through array
-                                        for (Pin location : data.getPinList())
+                                        for (MapPin location : data.getMapPinList())
                                         {
                                         %>
                                             <option value="<%=location.getId()%>"><%=location.getLocationName()%> - <%=location.getLocationAddress()%></option>
@@ -2,8 +2,8 @@
 <%@page import="java.util.List" %>
 <%@ page isELIgnored="false"%>
 <%
-// Get pin data
-Data data = new Data(); 
+// Get the sub-pillars for the filter. The pins are fetched by the page from the API.
+Data data = Data.current(); 
 %>
 
 <html>
@@ -24,26 +24,95 @@ Data data = new Data();
         <link rel="stylesheet" href="https://js.arcgis.com/4.22/esri/themes/light/main.css" />
         <script src="https://js.arcgis.com/4.22/"></script>
         <script src="scripts/esri_api.js"></script>
+        <script src="scripts/pin_decoder.js"></script>
         <!-- CRED FILE -->
         <script src="cred.js"></script>
         
         <script>
-            // Dates to be highlighted
+            // Pins and the dates to be highlighted. The pins are fetched from the API, which the browser
+            // revalidates with its ETag, so they are only downloaded again when the data has changed.
+            // The dates come from the calendar API one month at a time, multi-day events mark every day.
+            var points = [];
             var eventDates = {};
-            <%
-            // Loop through array
-            for (Pin location : data.getPinList())
-            {
-                // Is an event - check to make sure dates are not set to null
-                if(location.getStartDate() != null && location.getEndDate() != null)
+            var cityFiltered = false;
+            var dataVersion = null;
+
+            // Slow or metered connections get the pins in the compact binary form
+            var lowBandwidth = navigator.connection !== undefined && window.TextDecoder !== undefined
+                && (navigator.connection.saveData || /2g|3g/.test(navigator.connection.effectiveType));
+            var pinsLoaded = fetch(lowBandwidth ? "api/pins.bin" : "api/pins", { credentials: "same-origin" })
+                .then(function(response)
+                {
+                    // The server only sends pins inside the city limits when it has the city boundary
+                    cityFiltered = response.headers.get("X-City-Boundary") == "applied";
+                    dataVersion = response.headers.get("X-Data-Version");
+                    return lowBandwidth ? response.arrayBuffer().then(decodePins) : response.json();
+                })
+                .then(function(pins)
                 {
-            %>
+                    points = pins;
+                    return points;
+                });
 
-                     eventDates[new Date("<%=location.getStartDate()%>")] = new Date("<%=location.getEndDate()%>");
-            <%
+            // Fetch only the pins that changed since the ones on the map, so a map that is left open stays current
+            function syncPins()
+            {
+                if(dataVersion == null || window.applyPinChanges === undefined)
+                {
+                    return;
                 }
+                fetch("api/pins/changes?since=" + encodeURIComponent(dataVersion), { credentials: "same-origin" })
+                    .then(function(response)
+                    {
+                        return response.json();
+                    })
+                    .then(function(changes)
+                    {
+                        if(changes.version != dataVersion)
+                        {
+                            window.applyPinChanges(changes);
+                            dataVersion = changes.version;
+                        }
+                    });
+            }
+
+            // The server announces every change on the event stream, browsers without EventSource poll instead
+            if(window.EventSource)
+            {
+                var pinEvents = new EventSource("stream/pins");
+                pinEvents.addEventListener("pins", function(event)
+                {
+                    if(JSON.parse(event.data).version != dataVersion)
+                    {
+                        syncPins();
+                    }
+                });
+                pinEvents.addEventListener("taxonomy", function()
+                {
+                    // The Pillars and SubPillars of the sidebar are rendered with the page
+                    location.reload();
+                });
+            }
+            else
+            {
+                setInterval(syncPins, 60000);
+            }
+
+            // Fetch the number of events on each day of a month and redraw the datepicker
+            function loadEventDates(year, month)
+            {
+                var key = year + "-" + (month < 10 ? "0" : "") + month;
+                fetch("api/events/calendar?month=" + key, { credentials: "same-origin" })
+                    .then(function(response)
+                    {
+                        return response.json();
+                    })
+                    .then(function(calendar)
+                    {
+                        $.extend(eventDates, calendar.days);
+                        $("#datepicker").datepicker("refresh");
+                    });
             }
-            %>
         </script>
 
         <script>
@@ -52,13 +121,13 @@ Data data = new Data();
             $("#datepicker").datepicker({
                 beforeShowDay: function(d)
                 {
-                    // Get day
-                    var highlight = eventDates[d];
+                    // Get the number of events on the day
+                    var highlight = eventDates[$.datepicker.formatDate("yy-mm-dd", d)];
 
                     // Do we need to highlight day
                     if(highlight)
                     {
-                        return [true, "calendar-highlight", "Tooltip Text Here"];
+                        return [true, "calendar-highlight", highlight + (highlight == 1 ? " event" : " events")];
                     }
                     else
                     {
@@ -81,48 +150,21 @@ Data data = new Data();
                 {
                     c.inline = false;
                 },
+                onChangeMonthYear: function(year, month)
+                {
+                    loadEventDates(year, month);
+                },
                 dateFormat: "yy-mm-dd",
             });
+
+            // Highlight the month that is shown first
+            var today = new Date();
+            loadEventDates(today.getFullYear(), today.getMonth() + 1);
         });
         </script>
     </head>
 
     <body>
-        <script>
-            // Create set up variables
-            var points = [];
-
-            <%
-            // Set up point object count
-            int j = 0;
-
-            // Loop through array
-            for (Pin location : data.getPinList())
-            {
-            %>
-                points[<%=j%>] = {
-                    index: <%=j%>,
-                    type: "point",
-                    longitude: "<%=location.getLongitude()%>",
-                    latitude: "<%=location.getLatitude()%>",
-                    dbID: "<%=location.getId()%>",
-                    dbType: "<%=location.getSubPillar().getPillar().getPid()%>",
-                    dbAddress: "<%=location.getLocationAddress()%>",
-                    name: "<%=location.getLocationName()%>",
-                    dateStart: "<%=location.getStartDate()%>",
-                    dateEnd: "<%=location.getEndDate()%>",
-                    content: "<%=location.getThumbnailHTML()%><%=location.getLocationAddress()%><br /><br /><%=location.getContent()%><%=location.getLinkHTML()%>",
-                    thumbnail: "<%=location.getThumbnail()%>",
-                    link: "<%=location.getLink()%>",
-                    subpillar: "<%=location.getSubPillar().getSubPillarId()%>"
-                };
-            <%
-                // Increment object count
-                j++;
-            }
-            %>
-        </script>
-
         <div id="mapView">
             <img src="images/greenworks.png" class="logo" />
 
@@ -130,6 +172,12 @@ Data data = new Data();
                 <!-- Calendar Field -->
                 <input type="text" id="datepicker" style="position: absolute; bottom: 0; visibility: hidden;">
 
+                <!-- Search Field -->
+                <div id="search">
+                    <input type="search" id="searchInput" placeholder="Search" autocomplete="off">
+                    <ul id="searchResults"></ul>
+                </div>
+
                 <div class="map_options">
                     <div id="filter_items">
                         <figure>
@@ -281,8 +329,10 @@ Data data = new Data();
                 <a href="#/" name="viewChange" class="button">Map View</a> <a href="#/" id="showAll" class="button">All</a> <a href="#/" id="showEvents" class="button">Show Events</a>    <a href="#/" id="showLocations" class="button">Show Locations</a>
             </div>
             <div class="viewChangeSpace"></div>
+            <div id="listItems"></div>
             <script>
-                $.each(points, function(i, index)
+                // The list entry of a pin. It is keyed by the database id, which stays the same when pins change
+                function pinListItem(index)
                 {
                     if(index['dateStart'] != null && index['dateStart'] != null && index['dateStart'] != "null" && index['dateStart'] != "null")
                     {
@@ -296,12 +346,27 @@ Data data = new Data();
                         momentStart = momentStart.format("MMMM Do YYYY, h:mm a");
                         momentEnd = momentEnd.format("MMMM Do YYYY, h:mm a");
 
-                        document.write('<div name="eventList" id="list_' + index['index'] + '"><img src="' + iconSelect(index['dbType'])['url'] + '" width="32px" height="32px" />' + index['name'] + '<br />' + momentStart + ' - ' + momentEnd + '<br />' + index['content'] + '<br /><br /></div>');
+                        return '<div name="eventList" id="list_' + index['dbID'] + '" data-id="' + index['dbID'] + '"><img src="' + iconSelect(index['dbType'])['url'] + '" width="32px" height="32px" />' + index['name'] + '<br />' + momentStart + ' - ' + momentEnd + '<br /><a href="#/" class="listDetails">Details</a><br /><br /></div>';
                     }
-                    else
+                    return '<div name="locationList" id="list_' + index['dbID'] + '" data-id="' + index['dbID'] + '"><img src="' + iconSelect(index['dbType'])['url'] + '" width="32px" height="32px" />' + index['name'] + '<br /><a href="#/" class="listDetails">Details</a><br /><br /></div>';
+                }
+
+                pinsLoaded.then(function(points)
+                {
+                    $.each(points, function(i, index)
                     {
-                        document.write('<div name="locationList" id="list_' + index['index'] + '"><img src="' + iconSelect(index['dbType'])['url'] + '" width="32px" height="32px" />' + index['name'] + '<br />' + index['content'] + '<br /><br /></div>');
-                    }
+                        $("#listItems").append(pinListItem(index));
+                    });
+                });
+
+                // The content of a pin is only fetched when its details are opened
+                $("#listItems").on("click", ".listDetails", function()
+                {
+                    var link = $(this);
+                    loadPinDetails(link.parent().attr("data-id")).then(function(details)
+                    {
+                        link.replaceWith(details.content);
+                    });
                 });
             </script>
             <div id="listViewMessage"></div>
@@ -135,6 +135,19 @@ function iconSelect(pillar, dateStart, dateEnd) {
     return value;
 }
 
+/**
+ * Fetches the popup of a pin, which the map payload leaves out
+ * 
+ * @param string dbID 
+ * @returns Promise of the name, address, dates and popup HTML of the pin
+ */
+function loadPinDetails(dbID) {
+    return fetch("api/pins/" + encodeURIComponent(dbID), { credentials: "same-origin" })
+        .then(function (response) {
+            return response.json();
+        });
+}
+
 require([
     "esri/config",
     "esri/Map",
@@ -188,14 +201,19 @@ require([
 
         var graphic;
 
-        for (let i = 0; i < points.length; i++) {
-            // Add graphic
-            var tempPoint = addPoints(points[i]);
+        // Wait for the pins to be fetched
+        pinsLoaded.then(function (points) {
+            for (let i = 0; i < points.length; i++) {
+                // Add graphic
+                var tempPoint = addPoints(points[i]);
 
-            // Check whats on the feature map
-            queryFeatureLayerView(points[i], 0, "intersects", "", tempPoint);
+                // Check whats on the feature map, unless the server already kept only the pins in the city
+                if (!cityFiltered) {
+                    queryFeatureLayerView(points[i], 0, "intersects", "", tempPoint);
+                }
 
-        } //TODO change so the icon is dynamically selected based on the points provided
+            } //TODO change so the icon is dynamically selected based on the points provided
+        });
 
         // Set up pop up
         view.popup.autoOpenEnabled = false;
@@ -218,12 +236,7 @@ require([
                         })[0].graphic;
 
                         // Pop up
-                        view.popup.open({
-                            // Set the popup's title to the coordinates of the location
-                            title: graphic.attr.name,
-                            location: event.mapPoint,
-                            content: graphic.attr.content
-                        });
+                        openPopup(graphic, event.mapPoint);
                     }
                     catch
                     {
@@ -233,12 +246,73 @@ require([
             });
         });
 
+        // showPin: Center the map on a marker and open its pop up
+        window.showPin = function (dbID) {
+            for (let i = 0; i < globalMarkers.length; i++) {
+                if (globalMarkers[i].attr.dbID == dbID) {
+                    var marker = globalMarkers[i];
+                    marker.visible = true;
+                    view.goTo({ target: marker.geometry, zoom: Math.max(view.zoom, 15) });
+                    openPopup(marker, marker.geometry);
+                    return;
+                }
+            }
+        };
+
+        // openPopup: Open the pop up of a marker straight away and fill in its content once it is fetched
+        function openPopup(marker, location) {
+            view.popup.open({
+                title: marker.attr.name,
+                location: location,
+                content: "Loading..."
+            });
+            loadPinDetails(marker.attr.dbID).then(function (details) {
+                // Only if the user has not moved on to another marker
+                if (view.popup.visible && view.popup.title == marker.attr.name && view.popup.content == "Loading...") {
+                    view.popup.content = details.content;
+                }
+            });
+        }
+
+        // applyPinChanges: Replace the changed markers and list entries and remove the deleted ones, or all of them on a full resync
+        window.applyPinChanges = function (changes) {
+            var removed = {};
+            for (let i = 0; i < changes.deletes.length; i++) {
+                removed[changes.deletes[i]] = true;
+            }
+            for (let i = 0; i < changes.upserts.length; i++) {
+                removed[changes.upserts[i].dbID] = true;
+            }
+            for (let i = globalMarkers.length - 1; i >= 0; i--) {
+                if (changes.full || removed[globalMarkers[i].attr.dbID]) {
+                    gL.remove(globalMarkers[i]);
+                    globalMarkers.splice(i, 1);
+                }
+            }
+            points = points.filter(function (point) {
+                return !changes.full && !removed[point.dbID];
+            });
+            // The list view is keyed by dbID, so its stale and deleted entries are removed the same way
+            if (changes.full) {
+                $("#listItems").empty();
+            } else {
+                for (let id in removed) {
+                    $("#list_" + id).remove();
+                }
+            }
+            for (let i = 0; i < changes.upserts.length; i++) {
+                points.push(changes.upserts[i]);
+                addPoints(changes.upserts[i]);
+                $("#listItems").append(pinListItem(changes.upserts[i]));
+            }
+        };
+
         // addPoints: Add a graphic point, return the index in array
         function addPoints(point) {
             //TODO add a distinguising method for each of the points and corresponding marker
             graphic = new Graphic({
                 geometry: point,
-                symbol: iconSelect(point['dbType'], point['dateStart'], point['dateEnd']),
+                symbol: Markers[point['icon']] || iconSelect(point['dbType'], point['dateStart'], point['dateEnd']),
                 attr: point
             });
             //add a popupTemplate property for the display content
@@ -278,7 +352,7 @@ require([
                                 if (result.features.length == 0) {
                                     //globalMarkers[tempPoint].visible = false;
                                     gL.remove(globalMarkers[tempPoint]);
-                                    $("#list_" + globalMarkers[tempPoint].attr.index).remove();
+                                    $("#list_" + globalMarkers[tempPoint].attr.dbID).remove();
                                     points.splice(globalMarkers[tempPoint].attr.index, 1);
                                 }
                             });
@@ -292,7 +366,7 @@ require([
                         if (result.features.length == 0) {
                             //globalMarkers[tempPoint].visible = false;
                             gL.remove(globalMarkers[tempPoint]);
-                            $("#list_" + globalMarkers[tempPoint].attr.index).remove();
+                            $("#list_" + globalMarkers[tempPoint].attr.dbID).remove();
                             points.splice(globalMarkers[tempPoint].attr.index, 1);
                         }
                     });
@@ -229,38 +229,85 @@ $(document).ready(function()
         }
     });
 
-    // If date picker (first option) is changed
-    $("#datepicker").on("change", function()
+    // Search as the user types, after a short pause
+    var searchTimer;
+    $("#searchInput").on("input", function()
     {
-        // Loop through all markers on map
-        for(i = 0; i <= globalMarkers.length - 1; i++)
+        clearTimeout(searchTimer);
+        var query = $(this).val();
+        if($.trim(query) == "")
         {
-            // Set up should hide variable
-            var shouldHide = true;
+            $("#searchResults").empty();
+            return;
+        }
 
-            // If the option value matches the marker type
-            // Allow other locations to stay on map
-            if($(this).val() == globalMarkers[i].attr.dateStart.split(" ")[0])
+        searchTimer = setTimeout(function()
+        {
+            // Only search the SubPillars that are checked in the advanced filter
+            var subPillars = [];
+            $("input[name='subPillarOption']:checked").each(function()
+            {
+                subPillars.push($(this).val());
+            });
+            var url = "api/search?limit=10&q=" + encodeURIComponent(query);
+            if(subPillars.length != $("input[name='subPillarOption']").length)
             {
-                // Don't hide
-                shouldHide = false;
+                url += "&subPillars=" + subPillars.join(",");
             }
 
-            // If should hide is true
-            if(shouldHide)
+            fetch(url, { credentials: "same-origin" })
+                .then(function(response)
+                {
+                    return response.json();
+                })
+                .then(function(results)
+                {
+                    // Ignore the answer if the user kept typing
+                    if($("#searchInput").val() != query)
+                    {
+                        return;
+                    }
+                    $("#searchResults").empty();
+                    $.each(results, function(i, result)
+                    {
+                        $("<li>").text(result.name + " - " + result.dbAddress)
+                            .on("click", function()
+                            {
+                                $("#searchResults").empty();
+                                showPin(result.dbID);
+                            })
+                            .appendTo("#searchResults");
+                    });
+                });
+        }, 150);
+    });
+
+    // If date picker (first option) is changed
+    $("#datepicker").on("change", function()
+    {
+        // Ask the server which events run on the day, including events that started on an earlier day
+        fetch("api/events?date=" + encodeURIComponent($(this).val()), { credentials: "same-origin" })
+            .then(function(response)
             {
-                // Hide
-                globalMarkers[i].visible = false;
-            }
-            else
+                return response.json();
+            })
+            .then(function(events)
             {
-                // Show
-                globalMarkers[i].visible = true;
-            }
-        }
+                var running = {};
+                $.each(events, function(i, event)
+                {
+                    running[event.dbID] = true;
+                });
+
+                // Loop through all markers on map
+                for(i = 0; i <= globalMarkers.length - 1; i++)
+                {
+                    // Only show the markers of the events running on the day
+                    globalMarkers[i].visible = running[globalMarkers[i].attr.dbID] === true;
+                }
+            });
     });
 
-    // If date picker (first option) is changed
     $("#dateStart, #dateStartEdit").on("change", function()
     {
         // Only allow one day option
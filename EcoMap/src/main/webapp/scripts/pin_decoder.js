@@ -0,0 +1,114 @@
+/**
+ * Decodes the binary pins of api/pins.bin into the same objects as api/pins, in the same order.
+ * The layout is described in PinBinaryEncoder.java. The coordinates are numbers instead of strings.
+ *
+ * @param ArrayBuffer buffer
+ * @returns array of pins
+ */
+function decodePins(buffer) {
+    var bytes = new Uint8Array(buffer);
+    var offset = 0;
+
+    // Unsigned varint. Arithmetic instead of bit operations, the seconds do not fit in 32 bits
+    function varint() {
+        var value = 0;
+        var scale = 1;
+        var b;
+        do {
+            b = bytes[offset++];
+            value += (b & 0x7f) * scale;
+            scale *= 128;
+        } while (b & 0x80);
+        return value;
+    }
+
+    function zigZag(value) {
+        return value % 2 ? -(value + 1) / 2 : value / 2;
+    }
+
+    function pad(value) {
+        return (value < 10 ? "0" : "") + value;
+    }
+
+    // The seconds are the wall clock of the city counted as UTC, printed the way api/pins prints dates
+    function formatDate(seconds) {
+        var d = new Date(seconds * 1000);
+        return d.getUTCFullYear() + "-" + pad(d.getUTCMonth() + 1) + "-" + pad(d.getUTCDate()) + " "
+            + pad(d.getUTCHours()) + ":" + pad(d.getUTCMinutes()) + ":" + pad(d.getUTCSeconds());
+    }
+
+    if (bytes[0] != 69 || bytes[1] != 80 || bytes[2] != 66 || bytes[3] != 1) {
+        throw new Error("Not a version 1 pin encoding");
+    }
+    offset = 4;
+    var scale = varint();
+    var count = varint();
+    var located = varint();
+    var strings = [];
+    var stringCount = varint();
+    var utf8 = new TextDecoder("utf-8");
+    for (let i = 0; i < stringCount; i++) {
+        var length = varint();
+        strings.push(utf8.decode(bytes.subarray(offset, offset + length)));
+        offset += length;
+    }
+
+    var pins = [];
+    for (let i = 0; i < count; i++) {
+        pins.push({ index: varint(), type: "point", longitude: "null", latitude: "null" });
+    }
+    for (let i = 0; i < count; i++) {
+        pins[i].dbID = String(varint());
+    }
+    var previous = 0;
+    for (let i = 0; i < located; i++) {
+        previous += zigZag(varint());
+        pins[i].longitude = previous / scale;
+    }
+    previous = 0;
+    for (let i = 0; i < located; i++) {
+        previous += zigZag(varint());
+        pins[i].latitude = previous / scale;
+    }
+    for (let i = 0; i < count; i++) {
+        var pillar = varint();
+        pins[i].dbType = pillar == 0 ? "null" : String(pillar - 1);
+    }
+    for (let i = 0; i < count; i++) {
+        var subPillar = varint();
+        pins[i].subpillar = subPillar == 0 ? "null" : String(subPillar - 1);
+    }
+    for (let i = 0; i < count; i++) {
+        var name = varint();
+        pins[i].name = name == 0 ? "null" : strings[name - 1];
+    }
+    for (let i = 0; i < count; i++) {
+        var town = varint();
+        pins[i].town = town == 0 ? null : strings[town - 1];
+    }
+    for (let i = 0; i < count; i++) {
+        var icon = varint();
+        pins[i].icon = icon == 0 ? null : strings[icon - 1];
+    }
+    var starts = [];
+    for (let i = 0; i < count; i++) {
+        var start = varint();
+        starts.push(start == 0 ? null : zigZag(start - 1));
+    }
+    for (let i = 0; i < count; i++) {
+        if (starts[i] === null) {
+            pins[i].dateStart = "null";
+            pins[i].dateEnd = "null";
+        } else {
+            pins[i].dateStart = formatDate(starts[i]);
+            pins[i].dateEnd = formatDate(starts[i] + zigZag(varint()));
+        }
+    }
+
+    // Back into the order of api/pins
+    var ordered = new Array(count);
+    for (let i = 0; i < count; i++) {
+        ordered[pins[i].index] = pins[i];
+    }
+    return ordered;
+}
@@ -1,16 +1,32 @@
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
+import com.GREENWORKS.eco.constants.StreamConstants;
 import com.GREENWORKS.eco.data.GenericPin;
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.data.Pillar;
 import com.GREENWORKS.eco.data.Pin;
+import com.GREENWORKS.eco.data.PinChangeLog;
+import com.GREENWORKS.eco.data.PinEvents;
 import com.GREENWORKS.eco.data.PinFactory;
+import com.GREENWORKS.eco.data.PinSnapshot;
+import com.GREENWORKS.eco.data.SubPillar;
 
 /***
  * These are the unit tests for the data package. The classes that will be tested are
@@ -437,4 +453,182 @@ public class DataPackageTests {
         assertEquals("28.5485126", pin.getLatitude());
     }
 
+    /***
+     * Verifies that the coordinates and dates are stored as numbers and LocalDateTimes, and that the String
+     * accessors format them the way the database did. Empty text is stored as null, text that can not be parsed
+     * is rejected and leaves the previous value in place. 
+     */
+    @Test
+    public void pin_typedColumnsShouldMatchStringAccessors() {
+        Pin pin = new GenericPin();
+        pin.setCoordinates(" -81.449722 , 28.5 ");
+        assertEquals(-81.449722, pin.getLongitudeValue());
+        assertEquals(28.5, pin.getLatitudeValue());
+        assertThrows(IllegalArgumentException.class, () -> pin.setLatitude("not a number"));
+        assertThrows(IllegalArgumentException.class, () -> pin.setCoordinates("-81.4,north"));
+        assertThrows(IllegalArgumentException.class, () -> pin.setCoordinates("-81.4"));
+        assertEquals(28.5, pin.getLatitudeValue());
+        assertEquals(-81.449722, pin.getLongitudeValue());
+        pin.setLatitude("");
+        assertNull(pin.getLatitudeValue());
+        assertNull(pin.getLatitude());
+        pin.setStartDate("2022-01-31T15:00");
+        assertEquals(LocalDateTime.of(2022, 1, 31, 15, 0), pin.getStartDateTime());
+        assertEquals("2022-01-31 15:00:00", pin.getStartDate());
+        pin.setEndDate("2022-01-31 17:00:00.0");
+        assertEquals("2022-01-31 17:00:00", pin.getEndDate());
+        assertThrows(IllegalArgumentException.class, () -> pin.setEndDate("31/01/2022"));
+        assertEquals("2022-01-31 17:00:00", pin.getEndDate());
+        pin.setEndDate("");
+        assertNull(pin.getEndDateTime());
+    }
+
+    /***
+     * Verifies that the PinChangeLog sends a client only the pins that changed after its version, remembers the
+     * removed pins as tombstones, and asks for a full resync for versions that it can not answer.
+     */
+    @Test
+    public void pinChangeLog_shouldReturnChangesSinceVersion() {
+        List<MapPin> first = Arrays.asList(mapPin(1, "A"), mapPin(2, "B"), mapPin(3, "C"));
+        PinChangeLog log1 = new PinChangeLog(1, first, null, null);
+        List<MapPin> second = Arrays.asList(mapPin(1, "A"), mapPin(2, "B2"), mapPin(3, "C"), mapPin(4, "D"));
+        PinChangeLog log2 = new PinChangeLog(2, second, log1, first);
+        List<MapPin> third = Arrays.asList(mapPin(2, "B2"), mapPin(4, "D"));
+        PinChangeLog log3 = new PinChangeLog(3, third, log2, second);
+        assertArrayEquals(new int[] { 1, 3 }, log2.since(1).getUpserts());
+        assertEquals(Collections.emptyList(), log2.since(1).getDeletes());
+        assertArrayEquals(new int[] { 0, 1 }, log3.since(1).getUpserts());
+        assertEquals(Arrays.asList(1, 3), log3.since(1).getDeletes());
+        assertArrayEquals(new int[0], log3.since(2).getUpserts());
+        assertEquals(Collections.emptyList(), log3.since(3).getDeletes());
+        assertNull(log3.since(0)); // From before the first snapshot.
+        assertNull(log3.since(4)); // From the future, for example another deployment.
+        List<MapPin> fourth = Arrays.asList(mapPin(1, "A"), mapPin(2, "B2"), mapPin(4, "D"));
+        PinChangeLog log4 = new PinChangeLog(4, fourth, log3, third);
+        assertArrayEquals(new int[] { 0 }, log4.since(2).getUpserts());
+        assertEquals(Arrays.asList(3), log4.since(2).getDeletes()); // Pin 1 is back, so it is no longer a tombstone.
+    }
+
+    /***
+     * Verifies that the version at which a pin last changed, which keys its cached popup, stays the same across
+     * rebuilds that leave the pin alone and moves on when the pin changes.
+     */
+    @Test
+    public void pinChangeLog_changedAtShouldOnlyMoveWithThePin() {
+        List<MapPin> first = Arrays.asList(mapPin(7, "A"), mapPin(8, "B"));
+        PinChangeLog log1 = new PinChangeLog(1, first, null, null);
+        List<MapPin> second = Arrays.asList(mapPin(6, "Z"), mapPin(7, "A"), mapPin(8, "B2"));
+        PinChangeLog log2 = new PinChangeLog(2, second, log1, first);
+        assertEquals(1, log2.positionOf(7));
+        assertEquals(1L, log2.changedAt(log2.positionOf(7)));
+        assertEquals(2L, log2.changedAt(log2.positionOf(8)));
+        assertEquals(-1, log2.positionOf(9));
+    }
+
+    /***
+     * Verifies that freshly loaded Pillars and SubPillars count as unchanged only if every field is the same, so
+     * that a rebuild keeps the snapshot version when nothing changed and bumps it when something was renamed.
+     */
+    @Test
+    public void pinSnapshot_sameTaxonomyShouldCompareEveryField() {
+        List<Pillar> pillars = Arrays.asList(pillar(1, "Clean Energy"));
+        List<SubPillar> subPillars = Arrays.asList(subPillar(11, "Solar Arrays", 1));
+        assertTrue(PinSnapshot.sameTaxonomy(pillars, subPillars, Arrays.asList(pillar(1, "Clean Energy")),
+            Arrays.asList(subPillar(11, "Solar Arrays", 1))));
+        assertFalse(PinSnapshot.sameTaxonomy(pillars, subPillars, Arrays.asList(pillar(1, "Energy")),
+            Arrays.asList(subPillar(11, "Solar Arrays", 1))));
+        assertFalse(PinSnapshot.sameTaxonomy(pillars, subPillars, Arrays.asList(pillar(1, "Clean Energy")),
+            Arrays.asList(subPillar(11, "Solar Panels", 1))));
+        assertFalse(PinSnapshot.sameTaxonomy(pillars, subPillars, Arrays.asList(pillar(1, "Clean Energy")),
+            Arrays.asList(subPillar(11, "Solar Arrays", 2))));
+        assertFalse(PinSnapshot.sameTaxonomy(pillars, subPillars, pillars, Collections.<SubPillar>emptyList()));
+    }
+
+    /***
+     * Verifies that a pins notification lists the ids of the changed pins, is left out when nothing changed, and
+     * falls back to the bare version when the change log can not answer or more than MAX_IDS pins changed.
+     */
+    @Test
+    public void pinEvents_changesJsonShouldListChangedIds() {
+        List<MapPin> first = Arrays.asList(mapPin(1, "A"), mapPin(2, "B"), mapPin(3, "C"));
+        PinChangeLog log1 = new PinChangeLog(1, first, null, null);
+        List<MapPin> second = Arrays.asList(mapPin(2, "B2"), mapPin(3, "C"), mapPin(4, "D"));
+        PinChangeLog log2 = new PinChangeLog(2, second, log1, first);
+        assertEquals("{\"version\":\"g-2\",\"upserts\":[\"2\",\"4\"],\"deletes\":[\"1\"]}",
+            PinEvents.changesJson("g-2", log2.since(1), second));
+        assertNull(PinEvents.changesJson("g-2", log2.since(2), second));
+        assertEquals("{\"version\":\"g-2\"}", PinEvents.changesJson("g-2", log2.since(0), second));
+        List<MapPin> many = new ArrayList<>();
+        for (int id = 1; id <= StreamConstants.MAX_IDS + 1; id++) {
+            many.add(mapPin(id, "P" + id));
+        }
+        PinChangeLog log3 = new PinChangeLog(3, many, log2, second);
+        assertEquals("{\"version\":\"g-3\"}", PinEvents.changesJson("g-3", log3.since(2), many));
+    }
+
+    /***
+     * Verifies the Server-Sent Event framing that the map pages parse.
+     */
+    @Test
+    public void pinEvents_eventShouldUseServerSentEventFraming() {
+        assertEquals("id: g-5\nevent: taxonomy\ndata: {\"version\":\"g-5\"}\n\n",
+            new String(PinEvents.event("taxonomy", "g-5", PinEvents.versionOnly("g-5")), StandardCharsets.UTF_8));
+    }
+
+    /***
+     * Verifies that a client queue refuses messages once it is full, so that the broadcaster drops the slow
+     * client, and refuses everything once it is closed.
+     */
+    @Test
+    public void pinEvents_queueShouldRefuseMessagesWhenFullOrClosed() {
+        PinEvents.Queue queue = new PinEvents.Queue(2);
+        byte[] first = { 1 };
+        assertTrue(queue.offer(first));
+        assertTrue(queue.offer(new byte[] { 2 }));
+        assertFalse(queue.offer(new byte[] { 3 }));
+        assertEquals(first, queue.poll());
+        assertTrue(queue.offer(new byte[] { 3 }));
+        assertTrue(queue.close());
+        assertFalse(queue.close());
+        assertEquals(0, queue.size());
+        assertFalse(queue.offer(first));
+        assertNull(queue.poll());
+    }
+
+    /***
+     * Builds a Pillar for the taxonomy tests.
+     * @param id The id of the Pillar.
+     * @param name The name of the Pillar.
+     * @return Returns the Pillar.
+     */
+    private static Pillar pillar(int id, String name) {
+        Pillar pillar = new Pillar(id);
+        pillar.setName(name);
+        return pillar;
+    }
+
+    /***
+     * Builds a SubPillar for the taxonomy tests.
+     * @param id The id of the SubPillar.
+     * @param name The name of the SubPillar.
+     * @param pillarId The id of its Pillar.
+     * @return Returns the SubPillar.
+     */
+    private static SubPillar subPillar(int id, String name, int pillarId) {
+        SubPillar subPillar = new SubPillar(id);
+        subPillar.setName(name);
+        subPillar.setPillar(new Pillar(pillarId));
+        return subPillar;
+    }
+
+    /***
+     * Builds a MapPin for the change log tests. Only the id and name differ.
+     * @param id The id of the pin.
+     * @param name The name of the pin.
+     * @return Returns the MapPin.
+     */
+    private static MapPin mapPin(int id, String name) {
+        return new MapPin(id, name, "1 Main St", "Orlando", "FL", "32801", 28.5, -81.4, "", null, null, "", "", 1, 1);
+    }
+
 }
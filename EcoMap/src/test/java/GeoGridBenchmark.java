@@ -0,0 +1,110 @@
+import java.util.Arrays;
+import java.util.Random;
+
+import com.GREENWORKS.eco.index.GeoGrid;
+
+/***
+ * Compares GeoGrid bounding-box queries with a linear scan over 10k, 100k and 1M synthetic pins spread over
+ * Florida. The viewports are about the size of a zoomed in map of a city district. Two distributions are run:
+ * uniform, and clustered, where 80% of the pins crowd around downtown Orlando and the viewports are centered on
+ * pins, as real map views are. The clustered one is the worst case for a uniform grid, since its downtown cells
+ * hold far more than IndexConstants.GRID_PINS_PER_CELL pins. It is not a unit test, run it with:
+ * java -cp target/classes:target/test-classes GeoGridBenchmark
+ */
+public class GeoGridBenchmark {
+
+    private static final int QUERIES = 2000;
+    private static final double DOWNTOWN_X = -81.379;
+    private static final double DOWNTOWN_Y = 28.538;
+    private static final double CLUSTERED_SHARE = 0.8;
+    private static final double CLUSTER_SPREAD = 0.03; // About 3 km, one standard deviation.
+
+    /***
+     * Runs the benchmark and prints one line per dataset size.
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        System.out.printf("%10s %10s %12s %14s %14s %10s%n", "pins", "pins at", "build ms", "grid us/query", "scan us/query",
+            "hits/query");
+        for (int size : new int[] { 10_000, 100_000, 1_000_000 }) {
+            run(size, false);
+            run(size, true);
+        }
+    }
+
+    /***
+     * Benchmarks one dataset size and distribution.
+     * @param size The number of pins.
+     * @param clustered Whether most pins crowd around downtown, rather than being spread uniformly.
+     */
+    private static void run(int size, boolean clustered) {
+        Random random = new Random(size);
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            if (clustered && random.nextDouble() < CLUSTERED_SHARE) {
+                x[i] = DOWNTOWN_X + random.nextGaussian() * CLUSTER_SPREAD;
+                y[i] = DOWNTOWN_Y + random.nextGaussian() * CLUSTER_SPREAD;
+            } else {
+                x[i] = -87.6 + random.nextDouble() * 7.6;
+                y[i] = 24.5 + random.nextDouble() * 6.5;
+            }
+        }
+        double[][] boxes = new double[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            double minX, minY;
+            if (clustered) {
+                int pin = random.nextInt(size); // Map views go where the pins are.
+                minX = x[pin] - 0.1;
+                minY = y[pin] - 0.075;
+            } else {
+                minX = -87.6 + random.nextDouble() * 7.4;
+                minY = 24.5 + random.nextDouble() * 6.3;
+            }
+            boxes[i] = new double[] { minX, minY, minX + 0.2, minY + 0.15 };
+        }
+        long start = System.nanoTime();
+        GeoGrid grid = new GeoGrid(x, y);
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+
+        long hits = 0;
+        for (int warmup = 0; warmup < 3; warmup++) {
+            hits = 0;
+            for (double[] box : boxes) {
+                hits += grid.query(box[0], box[1], box[2], box[3]).length;
+                hits += linearScan(x, y, box[0], box[1], box[2], box[3]).length;
+            }
+        }
+        start = System.nanoTime();
+        hits = 0;
+        for (double[] box : boxes) {
+            hits += grid.query(box[0], box[1], box[2], box[3]).length;
+        }
+        double gridMicros = (System.nanoTime() - start) / 1e3 / QUERIES;
+        start = System.nanoTime();
+        long scanHits = 0;
+        for (double[] box : boxes) {
+            scanHits += linearScan(x, y, box[0], box[1], box[2], box[3]).length;
+        }
+        double scanMicros = (System.nanoTime() - start) / 1e3 / QUERIES;
+        if (hits != scanHits) {
+            throw new IllegalStateException("The grid and the scan disagree.");
+        }
+        System.out.printf("%10d %10s %12.1f %14.2f %14.2f %10d%n", size, clustered ? "downtown" : "uniform", buildMillis,
+            gridMicros, scanMicros, hits / QUERIES);
+    }
+
+    /***
+     * The reference implementation that the GeoGrid is measured and tested against: every point is checked.
+     */
+    static int[] linearScan(double[] x, double[] y, double minX, double minY, double maxX, double maxY) {
+        int[] found = new int[x.length];
+        int count = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (x[i] >= minX && x[i] <= maxX && y[i] >= minY && y[i] <= maxY) {
+                found[count++] = i;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+}
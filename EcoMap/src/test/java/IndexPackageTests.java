@@ -0,0 +1,385 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.GREENWORKS.eco.index.CityBoundary;
+import com.GREENWORKS.eco.index.Cluster;
+import com.GREENWORKS.eco.index.ClusterIndex;
+import com.GREENWORKS.eco.index.EventIntervalIndex;
+import com.GREENWORKS.eco.index.FilterEngine;
+import com.GREENWORKS.eco.index.GeoGrid;
+import com.GREENWORKS.eco.index.PinBinaryEncoder;
+import com.GREENWORKS.eco.index.PinBitmap;
+import com.GREENWORKS.eco.index.SearchIndex;
+import com.GREENWORKS.eco.index.VectorTileEncoder;
+
+/***
+ * These are the unit tests for the index package. The indexes are checked against a plain linear scan of the
+ * same data, so they do not need a database.
+ */
+public class IndexPackageTests {
+
+    /***
+     * Verifies that a bounding-box query returns exactly the points that a linear scan finds.
+     */
+    @Test
+    public void geoGrid_shouldMatchLinearScan() {
+        Random random = new Random(42);
+        int size = 20000;
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = -81.6 + random.nextDouble() * 0.5;
+            y[i] = 28.3 + random.nextDouble() * 0.4;
+        }
+        GeoGrid grid = new GeoGrid(x, y);
+        for (int query = 0; query < 200; query++) {
+            double minX = -81.7 + random.nextDouble() * 0.6, minY = 28.2 + random.nextDouble() * 0.5;
+            double maxX = minX + random.nextDouble() * 0.2, maxY = minY + random.nextDouble() * 0.2;
+            assertArrayEquals(GeoGridBenchmark.linearScan(x, y, minX, minY, maxX, maxY), grid.query(minX, minY, maxX, maxY));
+        }
+    }
+
+    /***
+     * Verifies that points without coordinates are left out and that points on the edge of the box are found.
+     */
+    @Test
+    public void geoGrid_shouldSkipMissingCoordinatesAndIncludeEdges() {
+        double[] x = { -81.3789, Double.NaN, -81.2, -81.5 };
+        double[] y = { 28.5384, 28.5, Double.NaN, 28.4 };
+        GeoGrid grid = new GeoGrid(x, y);
+        assertEquals(2, grid.size());
+        assertArrayEquals(new int[] { 0, 3 }, grid.query(-81.5, 28.4, -81.3789, 28.5384));
+        assertEquals(0, grid.query(-80, 27, -79, 28).length);
+        assertTrue(Double.isNaN(GeoGrid.parseCoordinate("null")));
+    }
+
+    /***
+     * Verifies that an empty grid answers every query with nothing.
+     */
+    @Test
+    public void geoGrid_emptyGridShouldReturnNothing() {
+        GeoGrid grid = new GeoGrid(new double[0], new double[0]);
+        assertEquals(0, grid.query(-180, -90, 180, 90).length);
+    }
+
+    /***
+     * Verifies that the city boundary keeps the points inside its outer ring, drops the points inside a hole and
+     * reads a second polygon of a MultiPolygon.
+     */
+    @Test
+    public void cityBoundary_shouldRespectHolesAndMultiPolygons() {
+        String geoJson = "{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"geometry\":"
+            + "{\"type\":\"MultiPolygon\",\"coordinates\":["
+            + "[[[-81.5,28.4],[-81.2,28.4],[-81.2,28.6],[-81.5,28.6],[-81.5,28.4]],"
+            + "[[-81.4,28.45],[-81.3,28.45],[-81.3,28.55],[-81.4,28.55],[-81.4,28.45]]],"
+            + "[[[-81.1,28.4],[-81.0,28.4],[-81.05,28.5],[-81.1,28.4]]]]}}]}";
+        CityBoundary boundary = CityBoundary.parse(new StringReader(geoJson));
+        assertTrue(boundary.isAvailable());
+        assertTrue(boundary.contains(-81.45, 28.5));
+        assertFalse(boundary.contains(-81.35, 28.5)); // Inside the hole.
+        assertTrue(boundary.contains(-81.05, 28.42));
+        assertFalse(boundary.contains(-81.15, 28.5));
+        assertFalse(boundary.contains(Double.NaN, 28.5));
+    }
+
+    /***
+     * Verifies that every zoom level accounts for every pin, that the SubPillar counts add up and that a cluster
+     * expands into children that hold exactly its pins.
+     */
+    @Test
+    public void clusterIndex_shouldConservePinsAcrossZoomsAndExpansions() {
+        Random random = new Random(7);
+        int size = 5000;
+        double[] x = new double[size];
+        double[] y = new double[size];
+        int[] subPillars = new int[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = -81.5 + random.nextDouble() * 0.3;
+            y[i] = 28.4 + random.nextDouble() * 0.2;
+            subPillars[i] = random.nextInt(4);
+        }
+        ClusterIndex index = new ClusterIndex(x, y, subPillars);
+        for (int zoom = 0; zoom <= 17; zoom++) {
+            List<Cluster> clusters = index.getClusters(zoom, -180, -85, 180, 85);
+            int pins = 0;
+            for (Cluster cluster : clusters) {
+                pins += cluster.getCount();
+                int bySubPillar = 0;
+                for (int count : cluster.getSubPillarCounts().values()) {
+                    bySubPillar += count;
+                }
+                assertEquals(cluster.getCount(), bySubPillar);
+                if (!cluster.isPin() && zoom < 17) {
+                    int children = 0;
+                    for (Cluster child : index.getChildren(cluster.getId())) {
+                        children += child.getCount();
+                    }
+                    assertEquals(cluster.getCount(), children);
+                }
+            }
+            assertEquals(size, pins);
+        }
+        assertEquals(1, index.getClusters(0, -180, -85, 180, 85).size());
+        assertEquals(size, index.getClusters(17, -180, -85, 180, 85).size());
+    }
+
+    /***
+     * Verifies the tile coordinates of a point and the protobuf framing of an encoded tile: a single layers field
+     * that holds the layer name, and no bytes at all for a tile without features.
+     */
+    @Test
+    public void vectorTileEncoder_shouldEncodePointsInTileCoordinates() {
+        assertEquals(2048, VectorTileEncoder.pointX(0, 0, 0, 4096));
+        assertEquals(2048, VectorTileEncoder.pointY(0, 0, 0, 4096));
+        assertEquals(0, new VectorTileEncoder("pins", 4096).encode().length);
+        VectorTileEncoder encoder = new VectorTileEncoder("pins", 4096);
+        encoder.addPoint(42, 10, 20, "pillar", 3, "event", true, "missing", null);
+        byte[] tile = encoder.encode();
+        assertEquals(0x1A, tile[0]); // Field 3, length-delimited.
+        assertEquals(tile.length - 2, tile[1]);
+        assertTrue(new String(tile, java.nio.charset.StandardCharsets.UTF_8).contains("pins"));
+        assertFalse(new String(tile, java.nio.charset.StandardCharsets.UTF_8).contains("missing"));
+    }
+
+    /***
+     * Verifies that an interval query returns exactly the events that a linear scan finds, that events without
+     * dates are left out, and that an event spanning several days is counted on each of them.
+     */
+    @Test
+    public void eventIntervalIndex_shouldMatchLinearScanAndCountEveryDay() {
+        Random random = new Random(7);
+        int size = 5000;
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        for (int i = 0; i < size; i++) {
+            starts[i] = random.nextInt(1000000);
+            ends[i] = starts[i] + random.nextInt(200000);
+            if (i % 10 == 0) {
+                starts[i] = EventIntervalIndex.NONE;
+            }
+        }
+        EventIntervalIndex index = new EventIntervalIndex(starts, ends);
+        assertEquals(size - size / 10, index.size());
+        for (int query = 0; query < 200; query++) {
+            long from = random.nextInt(1200000) - 100000;
+            long to = from + random.nextInt(50000);
+            int[] expected = new int[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (starts[i] != EventIntervalIndex.NONE && starts[i] <= to && ends[i] >= from) {
+                    expected[count++] = i;
+                }
+            }
+            assertArrayEquals(java.util.Arrays.copyOf(expected, count), index.query(from, to));
+        }
+        EventIntervalIndex days = new EventIntervalIndex(new long[] { 100, 250, 290, 50 }, new long[] { 320, 260, 290, 60 });
+        assertArrayEquals(new int[] { 1, 3, 1, 0 }, days.countPerBucket(100, 100, 4)); // 50-60 ends before the first day.
+        assertArrayEquals(new int[0], days.query(330, 400));
+    }
+
+    /***
+     * Verifies that a search matches every word, completes the last one, ignores HTML, ranks a match in the name
+     * above a match in the content, filters by category, and that an unchanged pin is not analysed again.
+     */
+    @Test
+    public void searchIndex_shouldRankCompleteAndFilter() {
+        String[] keys = { "a", "b", "c", "d" };
+        String[] names = { "Solar Park", "Lake Eola Rain Garden", "Parking Canopy", "Community Garden" };
+        String[] addresses = { "1 Main St Orlando FL 32801", "2 Lake Ave Orlando FL 32803", "3 Park Rd Orlando FL 32801",
+            "4 Elm St Winter Park FL 32789" };
+        String[] contents = { "<b>Panels</b> &amp; batteries", "Collects <a href='x'>storm water</a>", "EV charging under solar panels",
+            "Grow food together" };
+        int[] categories = { 1, 2, 1, 6 };
+        SearchIndex index = new SearchIndex(keys, names, addresses, contents, categories, null);
+        List<SearchIndex.Hit> solar = index.search("solar", null, 10);
+        assertEquals(2, solar.size());
+        assertEquals(0, solar.get(0).getPosition()); // In the name, which outweighs the content.
+        assertEquals(2, solar.get(1).getPosition());
+        assertEquals(2, index.search("solar pa", null, 10).size()); // "pa" completes to park, parking and panels.
+        assertEquals(0, index.search("solar pa ", null, 10).size()); // A finished word is not completed.
+        assertEquals(0, index.search("href", null, 10).size());
+        assertEquals(1, index.search("garden", new int[] { 6 }, 10).size());
+        assertEquals(0, index.search("garden", new int[0], 10).size()); // Every SubPillar unchecked.
+        assertEquals(1, index.search("garden", null, 1).size());
+        names[1] = "Lake Eola Fountain";
+        keys[1] = "b2";
+        SearchIndex next = new SearchIndex(keys, names, addresses, contents, categories, index);
+        assertEquals(3, next.getReused());
+        assertEquals(1, next.search("fountain", null, 10).size());
+        assertEquals(1, next.search("garden", null, 10).size());
+    }
+
+    /***
+     * Verifies that the bitmap filters return exactly the pins that a linear scan finds, on sparse and dense
+     * bitmaps alike, and that the facet count of a SubPillar ignores the SubPillar filter but not the others.
+     */
+    @Test
+    public void filterEngine_shouldMatchLinearScan() {
+        Random random = new Random(11);
+        int size = 10000;
+        int[] subPillars = new int[size];
+        int[] pillars = new int[size];
+        boolean[] events = new boolean[size];
+        int[] firstMonths = new int[size];
+        int[] lastMonths = new int[size];
+        for (int i = 0; i < size; i++) {
+            subPillars[i] = i % 50 == 0 ? -1 : random.nextInt(i % 3 == 0 ? 40 : 3); // A few large and many small.
+            pillars[i] = subPillars[i] < 0 ? -1 : subPillars[i] % 7;
+            events[i] = random.nextInt(5) == 0;
+            firstMonths[i] = events[i] ? 24264 + random.nextInt(12) : -1;
+            lastMonths[i] = events[i] ? firstMonths[i] + random.nextInt(3) : -1;
+        }
+        FilterEngine engine = new FilterEngine(subPillars, pillars, events, firstMonths, lastMonths);
+        int[] within = new int[size / 2];
+        for (int i = 0; i < within.length; i++) {
+            within[i] = i * 2;
+        }
+        FilterEngine.Filter filter = new FilterEngine.Filter(new int[] { 1, 31 }, null, true, new int[] { 24266 },
+            PinBitmap.of(within, within.length, size));
+        int[] expected = new int[size];
+        int count = 0;
+        int subPillarFacet = 0;
+        for (int i = 0; i < size; i++) {
+            boolean others = i % 2 == 0 && events[i] && firstMonths[i] <= 24266 && lastMonths[i] >= 24266;
+            if (others && (subPillars[i] == 1 || subPillars[i] == 31)) {
+                expected[count++] = i;
+            }
+            if (others && subPillars[i] == 2) {
+                subPillarFacet++;
+            }
+        }
+        assertArrayEquals(java.util.Arrays.copyOf(expected, count), engine.select(filter).toArray());
+        FilterEngine.Facets facets = engine.facets(filter);
+        assertEquals(count, facets.getTotal());
+        assertEquals(subPillarFacet, (int) facets.getSubPillars().get(2));
+        FilterEngine.Filter none = new FilterEngine.Filter(null, null, null, null, null);
+        assertEquals(size, engine.select(none).cardinality());
+        assertEquals(size, engine.facets(none).getEvents() + engine.facets(none).getLocations());
+        assertEquals(0, engine.select(new FilterEngine.Filter(new int[0], null, null, null, null)).cardinality());
+    }
+
+    /***
+     * Verifies that the binary encoding gives back every pin: the coordinates to within half a step of the
+     * fixed-point scale, and the ids, taxonomy, strings and event times exactly. A pin without coordinates and a
+     * location without dates are included. The decoder below follows scripts/pin_decoder.js.
+     */
+    @Test
+    public void pinBinaryEncoder_shouldRoundTrip() throws IOException {
+        Random random = new Random(5);
+        int size = 2000;
+        double[] longitudes = new double[size];
+        double[] latitudes = new double[size];
+        int[] ids = new int[size];
+        int[] pillars = new int[size];
+        int[] subPillars = new int[size];
+        String[] names = new String[size];
+        String[] towns = new String[size];
+        String[] icons = new String[size];
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        for (int i = 0; i < size; i++) {
+            longitudes[i] = i == 7 ? Double.NaN : -81.5 + random.nextDouble() * 0.3;
+            latitudes[i] = i == 7 ? Double.NaN : 28.4 + random.nextDouble() * 0.25;
+            ids[i] = 1 + random.nextInt(1000000);
+            pillars[i] = i % 9 == 0 ? -1 : 1 + i % 7;
+            subPillars[i] = i % 9 == 0 ? -1 : 30 + i % 11;
+            names[i] = i == 3 ? null : "Pin " + i + (i % 5 == 0 ? " Caf\u00e9" : "");
+            towns[i] = i % 4 == 0 ? "Winter Park" : "Orlando";
+            icons[i] = pillars[i] < 0 ? null : "ICON" + pillars[i];
+            starts[i] = i % 3 == 0 ? 1640995200L + random.nextInt(30000000) : EventIntervalIndex.NONE;
+            ends[i] = i % 3 == 0 ? starts[i] + random.nextInt(200000) - 100 : EventIntervalIndex.NONE;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PinBinaryEncoder(longitudes, latitudes, ids, pillars, subPillars, names, towns, icons, starts, ends).writeTo(out);
+        byte[] bytes = out.toByteArray();
+        int[] offset = { 4 };
+        assertArrayEquals(PinBinaryEncoder.MAGIC, java.util.Arrays.copyOf(bytes, 4));
+        long scale = varint(bytes, offset);
+        int count = (int) varint(bytes, offset);
+        int located = (int) varint(bytes, offset);
+        String[] strings = new String[(int) varint(bytes, offset)];
+        for (int i = 0; i < strings.length; i++) {
+            int length = (int) varint(bytes, offset);
+            strings[i] = new String(bytes, offset[0], length, StandardCharsets.UTF_8);
+            offset[0] += length;
+        }
+        assertEquals(size, count);
+        assertEquals(size - 1, located);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) varint(bytes, offset);
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals(ids[order[i]], varint(bytes, offset));
+        }
+        for (double[] expected : new double[][] { longitudes, latitudes }) {
+            long value = 0;
+            for (int i = 0; i < located; i++) {
+                value += zigZag(varint(bytes, offset));
+                assertEquals(expected[order[i]], (double) value / scale, 0.5 / scale);
+            }
+        }
+        assertTrue(Double.isNaN(longitudes[order[count - 1]])); // The pin without coordinates is last.
+        for (int[] expected : new int[][] { pillars, subPillars }) {
+            for (int i = 0; i < count; i++) {
+                assertEquals(expected[order[i]] + 1, varint(bytes, offset));
+            }
+        }
+        for (String[] expected : new String[][] { names, towns, icons }) {
+            for (int i = 0; i < count; i++) {
+                int reference = (int) varint(bytes, offset);
+                assertEquals(expected[order[i]], reference == 0 ? null : strings[reference - 1]);
+            }
+        }
+        long[] decodedStarts = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = varint(bytes, offset);
+            decodedStarts[i] = start == 0 ? EventIntervalIndex.NONE : zigZag(start - 1);
+            assertEquals(starts[order[i]], decodedStarts[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            if (decodedStarts[i] != EventIntervalIndex.NONE) {
+                assertEquals(ends[order[i]], decodedStarts[i] + zigZag(varint(bytes, offset)));
+            }
+        }
+        assertEquals(bytes.length, offset[0]);
+    }
+
+    /***
+     * Reads an unsigned varint.
+     * @param bytes The encoded bytes.
+     * @param offset The read position, which is moved past the varint.
+     * @return Returns the value.
+     */
+    private static long varint(byte[] bytes, int[] offset) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[offset[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /***
+     * Decodes a zigzag encoded value.
+     * @param value The encoded value.
+     * @return Returns the signed value.
+     */
+    private static long zigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
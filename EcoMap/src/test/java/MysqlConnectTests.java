@@ -2,6 +2,7 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import com.GREENWORKS.eco.ConnectionPool;
 import com.GREENWORKS.eco.MysqlConnect;
 import com.GREENWORKS.eco.constants.DatabaseConstants;
 
@@ -68,13 +69,26 @@ public class MysqlConnectTests {
 
     /***
      * This verifies that the the DatabaseConstants.MAX_POOL is being assigned correctly to 
-     * the mysqlConnect instance variable when the connect() method is called. 
+     * the prepared statement cache size when the connect() method is called. 
      */
     @Test
     public void maxPS_property_shouldEqual() {
         MysqlConnect mysqlConnect = new MysqlConnect();
         mysqlConnect.connect();
-        assertEquals(DatabaseConstants.MAX_POOL, mysqlConnect.getProperties().getProperty("MaxPooledStatements"));
+        assertEquals(DatabaseConstants.MAX_POOL, mysqlConnect.getProperties().getProperty("prepStmtCacheSize"));
+        mysqlConnect.disconnect();
+    }
+
+    /***
+     * Verifies that disconnecting returns the connection to the pool rather than leaving it borrowed. 
+     */
+    @Test
+    public void disconnect_shouldReturnConnectionToPool() {
+        MysqlConnect mysqlConnect = new MysqlConnect();
+        mysqlConnect.connect();
+        int borrowed = ConnectionPool.getActiveConnections();
+        mysqlConnect.disconnect();
+        assertEquals(borrowed - 1, ConnectionPool.getActiveConnections());
     }
 
 }
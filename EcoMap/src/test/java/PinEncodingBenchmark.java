@@ -0,0 +1,149 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import com.GREENWORKS.eco.data.MapPin;
+import com.GREENWORKS.eco.index.PinBinaryEncoder;
+import com.GREENWORKS.eco.servlets.PinsApi;
+import com.GREENWORKS.eco.servlets.PinsBinaryApi;
+import com.google.gson.stream.JsonWriter;
+
+/***
+ * Compares the size and encoding time of the binary pins of /api/pins.bin with the JSON of /api/pins over 10k
+ * and 100k synthetic MapPins around Orlando, a third of them events. Both sides run the code of the Servlets:
+ * the JSON is written by PinsApi.writePin() and the encoder is built by PinsBinaryApi.encoder(). Sizes are given
+ * raw and gzipped, as the CompressionFilter sends them. The binary encoder is built once per snapshot, so its
+ * build time is given apart from the time to write the pins, and the total is what the first request after a
+ * rebuild costs. It is not a unit test, run it with:
+ * java -cp target/classes:target/test-classes:gson.jar:servlet-api.jar PinEncodingBenchmark
+ */
+public class PinEncodingBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    /***
+     * Runs the benchmark and prints one line per format and dataset size.
+     * @param args Not used.
+     * @throws IOException Never thrown for in-memory streams.
+     */
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%8s %8s %12s %12s %12s %10s %10s %10s%n", "pins", "format", "bytes", "gzip bytes", "bytes/pin",
+            "build ms", "write ms", "total ms");
+        for (int size : new int[] { 10_000, 100_000 }) {
+            run(size);
+        }
+    }
+
+    /***
+     * Benchmarks one dataset size.
+     * @param size The number of pins.
+     * @throws IOException Never thrown for in-memory streams.
+     */
+    private static void run(int size) throws IOException {
+        List<MapPin> pins = pins(size);
+        PinBinaryEncoder encoder = null;
+        byte[] binary = null;
+        byte[] json = null;
+        for (int warmup = 0; warmup < 5; warmup++) {
+            encoder = PinsBinaryApi.encoder(pins);
+            binary = binary(encoder);
+            json = json(pins);
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            encoder = PinsBinaryApi.encoder(pins);
+        }
+        double buildMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+        start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            binary(encoder);
+        }
+        double binaryMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+        start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            json(pins);
+        }
+        double jsonMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+        print(size, "json", json, 0, jsonMillis);
+        print(size, "binary", binary, buildMillis, binaryMillis);
+    }
+
+    /***
+     * Builds synthetic city pins, a third of them events.
+     * @param size The number of pins.
+     * @return Returns the pins.
+     */
+    private static List<MapPin> pins(int size) {
+        Random random = new Random(size);
+        String[] towns = { "Orlando", "Winter Park", "Maitland", "Oviedo", "Apopka" };
+        LocalDateTime epoch = LocalDateTime.of(2022, 1, 1, 0, 0);
+        List<MapPin> pins = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double longitude = Math.round((-81.55 + random.nextDouble() * 0.4) * 1e6) / 1e6;
+            double latitude = Math.round((28.35 + random.nextDouble() * 0.3) * 1e6) / 1e6;
+            int pillar = 1 + random.nextInt(7);
+            LocalDateTime start = i % 3 == 0 ? epoch.plusMinutes(random.nextInt(500000) / 15 * 15) : null;
+            LocalDateTime end = start == null ? null : start.plusHours(2);
+            pins.add(new MapPin(1 + random.nextInt(size * 4), "Location " + Integer.toString(random.nextInt(size), 36)
+                + " Community Garden", "1 Main St", towns[random.nextInt(towns.length)], "FL", "32801", latitude,
+                longitude, "", start, end, "", "", 30 + random.nextInt(40), pillar));
+        }
+        return pins;
+    }
+
+    /***
+     * Encodes the pins in the binary form.
+     * @param encoder The encoder, built once as the servlet does per snapshot.
+     * @return Returns the bytes.
+     * @throws IOException Never thrown for an in-memory stream.
+     */
+    private static byte[] binary(PinBinaryEncoder encoder) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+        encoder.writeTo(out);
+        return out.toByteArray();
+    }
+
+    /***
+     * Encodes the pins as the JSON of /api/pins.
+     * @param pins The pins.
+     * @return Returns the bytes.
+     * @throws IOException Never thrown for an in-memory stream.
+     */
+    private static byte[] json(List<MapPin> pins) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.beginArray();
+        for (int index = 0; index < pins.size(); index++) {
+            PinsApi.writePin(writer, pins.get(index), index);
+        }
+        writer.endArray();
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    /***
+     * Prints one result line.
+     * @param size The number of pins.
+     * @param format The name of the format.
+     * @param bytes The encoded bytes.
+     * @param buildMillis The average time to build the encoder, which the servlet pays once per snapshot.
+     * @param writeMillis The average time to write the pins.
+     * @throws IOException Never thrown for an in-memory stream.
+     */
+    private static void print(int size, String format, byte[] bytes, double buildMillis, double writeMillis)
+            throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        }
+        System.out.printf("%8d %8s %12d %12d %12.1f %10.2f %10.2f %10.2f%n", size, format, bytes.length,
+            compressed.size(), (double) bytes.length / size, buildMillis, writeMillis, buildMillis + writeMillis);
+    }
+}
@@ -1,27 +1,41 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.hibernate.FlushMode;
 import org.hibernate.LazyInitializationException;
 import org.hibernate.ObjectNotFoundException;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import com.GREENWORKS.eco.constants.BatchConstants;
 import com.GREENWORKS.eco.data.Admin;
+import com.GREENWORKS.eco.data.BulkResult;
 import com.GREENWORKS.eco.data.Data;
 import com.GREENWORKS.eco.data.GenericPin;
+import com.GREENWORKS.eco.data.MapPin;
 import com.GREENWORKS.eco.data.Pillar;
 import com.GREENWORKS.eco.data.Pin;
 import com.GREENWORKS.eco.data.PinFactory;
+import com.GREENWORKS.eco.data.PinPage;
+import com.GREENWORKS.eco.data.PinSnapshot;
 import com.GREENWORKS.eco.data.ProblemPin;
 import com.GREENWORKS.eco.data.SessionAssistant;
+import com.GREENWORKS.eco.data.SessionTracker;
+import com.GREENWORKS.eco.data.SnapshotManager;
 import com.GREENWORKS.eco.data.SubPillar;
+import com.GREENWORKS.eco.data.SyncReport;
+import com.GREENWORKS.eco.data.UnitOfWork;
 
 /***
  * These are the test cases for the SessionAssistant and for componenets that have functionality that is integrated with
@@ -277,6 +291,26 @@ public class SessionAssistantTests {
     	assertEquals(locationDatabaseSize, list.size());
     }
     
+    /***
+     * Verifies that the bulk write path reports every row that it writes and splits the rows into batches 
+     * of BatchConstants.BATCH_SIZE. 
+     */
+    @Test
+    public void sessionAssistant_saveListShouldReportEveryBatch() {
+    	SessionAssistant sessionAssistant = new SessionAssistant();
+    	ArrayList<ProblemPin> problemPins = new ArrayList<>();
+    	for(int i = 0; i <= BatchConstants.BATCH_SIZE; i++) { // One more than a full batch. 
+    		ProblemPin problemPin = new ProblemPin();
+    		problemPin.setLocationName("BulkTest");
+    		problemPins.add(problemPin);
+    	}
+    	BulkResult saved = sessionAssistant.saveList(problemPins);
+    	BulkResult deleted = sessionAssistant.deleteList(problemPins);
+    	assertEquals(problemPins.size(), saved.getTotalRows());
+    	assertEquals(2, saved.getBatches().size());
+    	assertEquals(problemPins.size(), deleted.getTotalRows());
+    }
+
     /***
      * This tests the core functionality of the ProblemPin and the copyPin() method. 
      */
@@ -389,6 +423,201 @@ public class SessionAssistantTests {
         assertTrue(list.size() >= 1);
     }
 
+    /***
+     * Verifies that the count and accessor methods release their Sessions and transactions. 
+     */
+    @Test
+    public void sessionAssistant_shouldNotLeakSessions() {
+    	SessionAssistant sessionAssistant = new SessionAssistant();
+    	int openSessions = SessionTracker.getOpenSessions();
+    	int inFlight = SessionTracker.getInFlightTransactions();
+    	sessionAssistant.getLocationsTableSize();
+    	sessionAssistant.getAdminsTableSize();
+    	sessionAssistant.get(new GenericPin(pinTestId));
+    	sessionAssistant.get(new Pillar(testPillarId));
+    	assertEquals(openSessions, SessionTracker.getOpenSessions());
+    	assertEquals(inFlight, SessionTracker.getInFlightTransactions());
+    }
+
+    /***
+     * Verifies that a SubPillar is served from the second-level cache and that an explicit eviction forces a reload. 
+     */
+    @Test
+    public void sessionAssistant_shouldServeSubPillarFromCache() {
+    	SessionAssistant sessionAssistant = new SessionAssistant();
+    	Statistics statistics = SessionAssistant.getSessionFactory().getStatistics();
+    	sessionAssistant.get(new SubPillar(testSubPillarId)); // Ensures the entry is cached.
+    	long hits = statistics.getSecondLevelCacheHitCount();
+    	SubPillar subPillar = sessionAssistant.get(new SubPillar(testSubPillarId));
+    	assertEquals("TestSubPillar", subPillar.getName());
+    	assertTrue(statistics.getSecondLevelCacheHitCount() > hits);
+    	sessionAssistant.evictTaxonomyCache();
+    	long misses = statistics.getSecondLevelCacheMissCount();
+    	sessionAssistant.get(new SubPillar(testSubPillarId));
+    	assertTrue(statistics.getSecondLevelCacheMissCount() > misses);
+    }
+
+    /***
+     * Verifies that the map listing is a single SQL statement no matter how many pins there are, and that
+     * the test Pin carries the ids of its SubPillar and Pillar. 
+     */
+    @Test
+    public void sessionAssistant_mapPinsShouldBeOneStatement() {
+    	SessionAssistant sessionAssistant = new SessionAssistant();
+    	Statistics statistics = SessionAssistant.getSessionFactory().getStatistics();
+    	long statements = statistics.getPrepareStatementCount();
+    	List<MapPin> list = sessionAssistant.getMapPins();
+    	assertEquals(1, statistics.getPrepareStatementCount() - statements);
+    	MapPin testPin = null;
+    	for(MapPin mapPin : list) {
+    		if(pinTestId.equals(mapPin.getId())) {
+    			testPin = mapPin;
+    		}
+    	}
+    	assertNotNull(testPin);
+    	assertEquals(testSubPillarId, testPin.getSubPillarId());
+    	assertEquals(testPillarId, testPin.getPillarId());
+    	statements = statistics.getPrepareStatementCount();
+    	sessionAssistant.getAllPinsList();
+    	assertEquals(1, statistics.getPrepareStatementCount() - statements);
+    }
+
+    /***
+     * Verifies that walking the keyset pages visits every pin exactly once and that the stream visits every pin. 
+     */
+    @Test
+    public void sessionAssistant_pagesAndStreamShouldVisitEveryPin() {
+    	SessionAssistant sessionAssistant = new SessionAssistant();
+    	long tableSize = sessionAssistant.getLocationsTableSize();
+    	Set<Integer> seen = new HashSet<>();
+    	PinPage page = sessionAssistant.getPinPage(null, 7);
+    	while(true) {
+    		for(Pin pin : page.getPins()) {
+    			assertTrue(seen.add(pin.getId())); // No pin is repeated across pages.
+    		}
+    		if(!page.hasNext()) {
+    			break;
+    		}
+    		page = sessionAssistant.getPinPage(page.getCursor(), 7);
+    	}
+    	assertEquals(tableSize, seen.size());
+    	assertEquals(tableSize, sessionAssistant.forEachPin(pin -> assertNotNull(pin.getId())));
+    }
+
+    /***
+     * Verifies that a read-only unit of work runs on a read-only connection with read-only entities and manual flushing. 
+     */
+    @Test
+    public void unitOfWork_readOnlyShouldUseReadOnlyConnection() {
+    	try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+    		assertTrue(work.session().doReturningWork(connection -> connection.isReadOnly()));
+    		assertTrue(work.session().isDefaultReadOnly());
+    		assertEquals(FlushMode.MANUAL, work.session().getHibernateFlushMode());
+    		Pin pin = work.session().find(GenericPin.class, pinTestId);
+    		assertTrue(work.session().isReadOnly(pin));
+    		work.commit();
+    	}
+    	try (UnitOfWork work = UnitOfWork.begin()) {
+    		assertTrue(!work.session().doReturningWork(connection -> connection.isReadOnly()));
+    		work.commit();
+    	}
+    }
+
+    /***
+     * Verifies that the api sync inserts new records, leaves identical ones alone, updates changed ones in place, 
+     * and tombstones the ones that vanished. 
+     */
+    @Test
+    public void sessionAssistant_syncApiPinsShouldOnlyWriteChanges() {
+    	SessionAssistant sessionAssistant = new SessionAssistant();
+    	Byte api = (byte) 99; // Not used by any real api.
+    	List<Pin> original = createSyncPins("A");
+    	assertEquals(2, sessionAssistant.syncApiPins(api, original).getInserted());
+    	Integer keptId = original.get(0).getId();
+    	Integer removedId = original.get(1).getId();
+    	assertEquals(2, sessionAssistant.syncApiPins(api, createSyncPins("A")).getUnchanged());
+    	List<Pin> changed = createSyncPins("B");
+    	changed.remove(1);
+    	SyncReport report = sessionAssistant.syncApiPins(api, changed);
+    	assertEquals(1, report.getUpdated());
+    	assertEquals(1, report.getRemoved());
+    	assertEquals("B", sessionAssistant.get(new GenericPin(keptId)).getContent()); // Updated in place, the id is kept.
+    	assertNotNull(sessionAssistant.get(new GenericPin(removedId)).getRemovedAt());
+    	sessionAssistant.delete(new GenericPin(keptId));
+    	sessionAssistant.delete(new GenericPin(removedId));
+    }
+
+    /***
+     * Verifies that a staged load is published when it passes its checks and rejected when too many of its 
+     * records have bad coordinates. 
+     */
+    @Test
+    public void sessionAssistant_loadApiPinsShouldRejectBadCoordinates() {
+    	SessionAssistant sessionAssistant = new SessionAssistant();
+    	Byte api = (byte) 98; // Not used by any real api.
+    	List<Pin> pins = createSyncPins("A");
+    	for(Pin pin : pins) {
+    		pin.setLatitude("28.5384");
+    		pin.setLongitude("-81.3789");
+    	}
+    	SyncReport published = sessionAssistant.loadApiPins(api, pins);
+    	assertTrue(published.isPublished());
+    	assertEquals(2, published.getStaged());
+    	assertEquals(2, published.getInserted());
+    	List<Pin> broken = createSyncPins("B");
+    	broken.get(0).setLatitude("28.5384");
+    	broken.get(0).setLongitude("-81.3789");
+    	broken.get(1).setLatitude("0");
+    	broken.get(1).setLongitude("0");
+    	SyncReport rejected = sessionAssistant.loadApiPins(api, broken);
+    	assertTrue(!rejected.isPublished());
+    	assertEquals(1, rejected.getInvalidCoordinates());
+    	for(Pin pin : sessionAssistant.getAllPinsList()) {
+    		if(api.equals(pin.getApi())) {
+    			sessionAssistant.delete(pin);
+    		}
+    	}
+    }
+
+    /***
+     * Creates the two records of the fake api that is used by the sync test. 
+     * @param content The content of the records. Changing it changes the records. 
+     * @return Returns the records. 
+     */
+    private static List<Pin> createSyncPins(String content) {
+    	List<Pin> pins = new ArrayList<>();
+    	for(int i = 0; i < 2; i++) {
+    		Pin pin = new GenericPin();
+    		pin.setExternalId("sync-test-" + i);
+    		pin.setLocationName("SyncTestPin" + i);
+    		pin.setTown("Orlando");
+    		pin.setContentNoClean(content);
+    		pins.add(pin);
+    	}
+    	return pins;
+    }
+
+    /***
+     * Verifies that the pages are served from the shared snapshot without touching the database and that a
+     * write through the SessionAssistant is picked up by the next fresh snapshot. 
+     */
+    @Test
+    public void data_shouldRenderFromSnapshot() {
+    	SessionAssistant sessionAssistant = new SessionAssistant();
+    	Statistics statistics = SessionAssistant.getSessionFactory().getStatistics();
+    	PinSnapshot before = SnapshotManager.awaitFresh();
+    	long statements = statistics.getPrepareStatementCount();
+    	Data data = Data.current();
+    	assertTrue(data.getPillarHashMap().containsKey(new Pillar(testPillarId)));
+    	assertEquals(before.getMapPins().size(), data.getMapPinList().size());
+    	assertEquals(0, statistics.getPrepareStatementCount() - statements);
+    	Pin pin = sessionAssistant.get(new GenericPin(pinTestId));
+    	sessionAssistant.update(pin);
+    	PinSnapshot after = SnapshotManager.awaitFresh();
+    	assertTrue(after.getVersion() > before.getVersion());
+    	assertNotEquals(before.getETag(), after.getETag());
+    }
+
     /***
      * Verifies that the test Pillar data is being extracted from the database properly. 
      */